@@ -33,9 +33,10 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authz -> authz
                 .requestMatchers(
-                    "/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**", "/actuator/**",
+                    "/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**", "/actuator/health", "/actuator/health/**",
                     "/auth/login", "/auth/tenants/resolve", "/auth/register/employer"
                 ).permitAll()
+                // Metrics and Prometheus expose tenant and job names; only health probes are anonymous
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .anyRequest().authenticated()
             )
@@ -23,6 +23,9 @@ public class EmployeeEligibilityDTO {
     private LocalDate eligibilityDate;
     private String eligibilityReason;
     
+    // Version of the compiled rule set that produced the result
+    private Long ruleSetVersion;
+    
     // Public fields for Drools compatibility
     public int age;
     public int monthsOfService;
@@ -0,0 +1,148 @@
+package com.glidingpath.common.dto;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.UUID;
+
+import com.glidingpath.common.util.ContributionMath;
+
+/**
+ * Flat, immutable view of a tenant plan for pre-payroll calculations.
+ *
+ * Built once per job and plan version from the TenantPlan entity graph, so rules and calculators
+ * read plain fields instead of walking JPA associations for every employee. Values are stored
+ * ready to use: the employee rate already has auto-enrollment and the maximum rate applied, and
+ * the employer rule type is resolved to a {@link MatchFormula}. {@code version} is a hash of all
+ * other components, so equal plans share a version.
+ *
+ * The formulas are what the pre-payroll rules call per employee. They compute in long cents and basis
+ * points with {@link ContributionMath} and use BigDecimal only for values with more than two decimals
+ * or beyond a long; both give the same result, scale included.
+ */
+public record PlanSnapshot(
+        String version,
+        UUID planId,
+        String tenantId,
+        String planType,
+
+        // Eligibility thresholds as the pre-payroll rules apply them
+        int minimumAge,
+        int minimumServiceMonths,
+
+        // Employee contribution
+        UUID employeeContributionConfigId,
+        BigDecimal employeeContributionPercent,
+        boolean autoEnrollmentEnabled,
+        BigDecimal autoEnrollmentPercent,
+
+        // Employer match
+        UUID employerContributionRuleId,
+        String employerMatchType,
+        MatchFormula matchFormula,
+        BigDecimal matchPercent,
+        BigDecimal matchLimitPercent,
+        BigDecimal basicMatchFirstPercent,
+        BigDecimal basicMatchFirstRate,
+        BigDecimal basicMatchSecondPercent,
+        BigDecimal basicMatchSecondRate,
+        BigDecimal nonElectivePercent,
+
+        // Profit sharing; profitSharingPercent is null without a pro-rata percentage
+        UUID profitSharingConfigId,
+        BigDecimal profitSharingPercent,
+
+        BigDecimal compensationLimit) implements Serializable {
+
+    private static final BigDecimal HUNDRED = new BigDecimal("100");
+
+    /**
+     * What the employer match is a percentage of
+     */
+    public enum MatchFormula {
+        /** No employer rule, or a rule type without a match */
+        NONE,
+        /** MATCH / BASIC_MATCH: percentage of the employee contribution */
+        PERCENT_OF_CONTRIBUTION,
+        /** PERCENTAGE_MATCH: percentage of compensation */
+        PERCENT_OF_COMPENSATION
+    }
+
+    public PlanSnapshot withVersion(String version) {
+        return new PlanSnapshot(version, planId, tenantId, planType, minimumAge, minimumServiceMonths,
+                employeeContributionConfigId, employeeContributionPercent, autoEnrollmentEnabled, autoEnrollmentPercent,
+                employerContributionRuleId, employerMatchType, matchFormula, matchPercent, matchLimitPercent,
+                basicMatchFirstPercent, basicMatchFirstRate, basicMatchSecondPercent, basicMatchSecondRate, nonElectivePercent,
+                profitSharingConfigId, profitSharingPercent, compensationLimit);
+    }
+
+    public boolean hasEmployerRule() {
+        return employerContributionRuleId != null;
+    }
+
+    public boolean hasProfitSharingConfig() {
+        return profitSharingConfigId != null;
+    }
+
+    /**
+     * Employee contribution at the plan rate, rounded to cents; zero without compensation or rate
+     */
+    public BigDecimal employeeContribution(BigDecimal compensation) {
+        if (compensation.compareTo(BigDecimal.ZERO) > 0 && employeeContributionPercent.compareTo(BigDecimal.ZERO) > 0) {
+            return percentOf(compensation, employeeContributionPercent);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Employer match for the given employee contribution, capped at the match limit if the plan has one
+     */
+    public BigDecimal employerMatch(BigDecimal employeeContribution, BigDecimal compensation) {
+        BigDecimal match = switch (matchFormula) {
+            case PERCENT_OF_CONTRIBUTION -> percentOf(employeeContribution, matchPercent);
+            case PERCENT_OF_COMPENSATION -> percentOf(compensation, matchPercent);
+            case NONE -> BigDecimal.ZERO;
+        };
+        if (matchFormula != MatchFormula.NONE && matchLimitPercent.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal limit = percentOf(compensation, matchLimitPercent);
+            if (match.compareTo(limit) > 0) {
+                match = limit;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Pro-rata profit sharing contribution; zero when the plan has no pro-rata percentage
+     */
+    public BigDecimal profitSharing(BigDecimal compensation) {
+        return profitSharingPercent != null ? percentOf(compensation, profitSharingPercent) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Amount as a percentage of compensation, two decimals; zero without compensation
+     */
+    public static BigDecimal shareOf(BigDecimal amount, BigDecimal compensation) {
+        if (compensation.compareTo(BigDecimal.ZERO) > 0) {
+            try {
+                return ContributionMath.fromBasisPoints(ContributionMath.shareOf(
+                        ContributionMath.toCents(amount), ContributionMath.toCents(compensation)));
+            } catch (ArithmeticException e) {
+                return amount.multiply(HUNDRED).divide(compensation, 2, RoundingMode.HALF_UP);
+            }
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * percent % of amount, rounded half-up to cents
+     */
+    public static BigDecimal percentOf(BigDecimal amount, BigDecimal percent) {
+        try {
+            return ContributionMath.fromCents(ContributionMath.percentOf(
+                    ContributionMath.toCents(amount), ContributionMath.toBasisPoints(percent)));
+        } catch (ArithmeticException e) {
+            return amount.multiply(percent).divide(HUNDRED, 2, RoundingMode.HALF_UP);
+        }
+    }
+}
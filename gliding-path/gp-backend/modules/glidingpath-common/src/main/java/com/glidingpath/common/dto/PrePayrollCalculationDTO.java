@@ -27,6 +27,7 @@ public class PrePayrollCalculationDTO {
     private LocalDateTime calculationDate;
     private String status;
     private String errorMessage;
+    private Long ruleSetVersion; // Compiled rule set version used for the calculation
     
     // Employee contribution calculations
     private BigDecimal employeeContributionAmount;
@@ -58,6 +59,8 @@ public class PrePayrollCalculationDTO {
     private LocalDateTime processedAt;
     private Integer reprocessedCount;
     private LocalDateTime lastReprocessedAt;
+    private String inputFingerprint; // Hash of the calculation inputs, see CalculationFingerprint
+    private String carriedForwardFrom; // Calculation id whose amounts were carried forward; null when computed
     
     // Finch integration fields
     private String finchStatus; // "CREATED", "FAILED", "PENDING", "NO_DEDUCTIONS"
@@ -66,4 +69,5 @@ public class PrePayrollCalculationDTO {
     private String finchEmployerBenefitId; // Store the Finch benefit ID for employer match
     private String finchProfitSharingBenefitId; // Store the Finch benefit ID for profit sharing
     private LocalDateTime finchProcessedAt; // When Finch processing was completed
+    private String finchJobId; // Finch enrollment job that enrolled the employee with these amounts
 } 
\ No newline at end of file
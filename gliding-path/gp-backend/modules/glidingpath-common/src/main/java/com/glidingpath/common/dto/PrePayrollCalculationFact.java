@@ -49,6 +49,7 @@ public class PrePayrollCalculationFact implements Serializable {
     
     // Calculation tracking
     private String calculationReason;
+    private Long ruleSetVersion;
     
     // Additional fields for complex rules
     private Integer age;
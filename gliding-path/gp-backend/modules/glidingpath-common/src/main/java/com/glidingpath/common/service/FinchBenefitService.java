@@ -93,4 +93,13 @@ public interface FinchBenefitService {
      * @throws Exception if the API call fails.
      */
     Map<String, Object> unenrollIndividualsFromDeduction(String tenantId, String benefitId, List<String> individualIds) throws Exception;
+
+    /**
+     * Gets the status of an asynchronous Finch job, e.g. one returned by an enrollment.
+     * @param tenantId The tenant ID.
+     * @param jobId The job ID.
+     * @return Map with the job's status ("pending", "in_progress", "complete" or an error status) and timestamps.
+     * @throws Exception if the API call fails.
+     */
+    Map<String, Object> getJobStatus(String tenantId, String jobId) throws Exception;
 }
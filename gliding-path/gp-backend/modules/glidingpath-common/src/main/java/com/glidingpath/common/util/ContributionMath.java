@@ -0,0 +1,107 @@
+package com.glidingpath.common.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point contribution arithmetic: money in long cents, rates in long basis points
+ * (hundredths of a percent, so 6.25% is 625).
+ *
+ * Rounding is exact and matches the BigDecimal formulas of PlanSnapshot: a result is the exact
+ * quotient of its integer inputs rounded half-up (ties away from zero) to a whole cent or basis
+ * point, as {@code divide(divisor, 2, RoundingMode.HALF_UP)} rounds the same values. Nothing is
+ * rounded before that final division.
+ *
+ * Overflow is detected rather than wrapped: every method throws {@link ArithmeticException} when
+ * a value or an intermediate product does not fit in a long, and the BigDecimal conversions throw
+ * when a value has more than two decimals. Callers catch it and compute that value with BigDecimal.
+ */
+public final class ContributionMath {
+
+    public static final long CENTS_PER_UNIT = 100;
+    public static final long BASIS_POINTS_PER_PERCENT = 100;
+
+    // 100% in basis points
+    private static final long WHOLE = 10_000;
+    // Factor from a value's unscaled digits to hundredths, by its scale
+    private static final long[] TO_HUNDREDTHS = {100, 10, 1};
+
+    private ContributionMath() {
+    }
+
+    /**
+     * basisPoints of an amount, half-up to cents: cents * basisPoints / 10,000
+     */
+    public static long percentOf(long cents, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(cents, basisPoints), WHOLE);
+    }
+
+    /**
+     * An amount as basis points of compensation, half-up; zero without compensation
+     */
+    public static long shareOf(long amountCents, long compensationCents) {
+        if (compensationCents <= 0) {
+            return 0;
+        }
+        return divideHalfUp(Math.multiplyExact(amountCents, WHOLE), compensationCents);
+    }
+
+    /**
+     * dividend / divisor rounded half-up, ties away from zero; divisor must be positive
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        // remainder >= divisor / 2 without overflowing 2 * remainder
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    /**
+     * Whole currency units in cents
+     */
+    public static long toCents(long units) {
+        return Math.multiplyExact(units, CENTS_PER_UNIT);
+    }
+
+    /**
+     * An amount in cents; throws if it has fractions of a cent or does not fit
+     */
+    public static long toCents(BigDecimal amount) {
+        return toHundredths(amount);
+    }
+
+    /**
+     * A percentage in basis points; throws if it has fractions of a basis point or does not fit
+     */
+    public static long toBasisPoints(BigDecimal percent) {
+        return toHundredths(percent);
+    }
+
+    /**
+     * Amounts and rates usually have zero to two decimals: moving the point by their own scale gives
+     * an integral value of scale zero, which converts to a long without going through BigInteger
+     */
+    private static long toHundredths(BigDecimal value) {
+        int scale = value.scale();
+        if (scale >= 0 && scale <= 2) {
+            return Math.multiplyExact(value.movePointRight(scale).longValueExact(), TO_HUNDREDTHS[scale]);
+        }
+        return value.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Cents as an amount with two decimals
+     */
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Basis points as a percentage with two decimals
+     */
+    public static BigDecimal fromBasisPoints(long basisPoints) {
+        return BigDecimal.valueOf(basisPoints, 2);
+    }
+}
@@ -24,7 +24,10 @@ public final class BatchConstants {
     // ========================================
     // FINCH DEDUCTION BATCH CONFIGURATION
     // ========================================
-    public static final int DEDUCTION_CHUNK_SIZE = 5;     // Reduced from 25 to prevent memory issues
+    public static final int DEDUCTION_CHUNK_SIZE = 32;    // Finch calls of a chunk run concurrently; at least the concurrency
+    public static final int DEFAULT_DEDUCTION_CONCURRENCY = 8;  // Finch calls in flight per deduction step
+    public static final int ENROLLMENT_CHUNK_SIZE = 500;  // Calculations per chunk when enrolling into the tenant's benefit
+    public static final int ENROLLMENT_MAX_INDIVIDUALS = 500;  // Individuals per Finch enrollment call
     public static final int DEDUCTION_RETRY_LIMIT = 2;    // Reduced from 3 to prevent infinite loops
     public static final int DEDUCTION_SKIP_LIMIT = 3;     // Reduced from 10 to fail fast on errors
     
@@ -35,6 +38,38 @@ public final class BatchConstants {
     public static final int DEFAULT_RETRY_LIMIT = 3;
     public static final int DEFAULT_SKIP_LIMIT = 100;
     
+    // ========================================
+    // PARTITIONING
+    // ========================================
+    public static final int DEFAULT_PARTITION_COUNT = 4;     // individualId ranges per partitioned step
+    public static final int DEFAULT_PARTITION_THREADS = 4;   // worker threads shared by all partitioned steps
+    
+    // ========================================
+    // STAGING (prepayroll_staging.stage)
+    // ========================================
+    public static final String STAGE_ELIGIBLE = "ELIGIBLE";       // written by eligibility, read by calculation
+    public static final String STAGE_CALCULATED = "CALCULATED";   // written by calculation, read by deduction
+    public static final int STAGING_RESTART_WINDOW_DAYS = 7;      // staged rows of unfinished instances are kept this long for a restart
+    
+    // ========================================
+    // CALCULATION ENGINES (batch.calculation.engine)
+    // ========================================
+    public static final String CALCULATION_ENGINE_RULES = "RULES";   // pre-payroll rules per chunk
+    public static final String CALCULATION_ENGINE_BULK = "BULK";     // column engine, standard calculation rules only
+    
+    // ========================================
+    // DEDUCTION MODES (batch.deduction.mode)
+    // ========================================
+    public static final String DEDUCTION_MODE_ENROLLMENT = "enrollment";   // enroll a chunk's employees into the tenant's 401k benefit
+    public static final String DEDUCTION_MODE_PER_EMPLOYEE = "per-employee";   // one createDeduction call per employee
+    
+    // ========================================
+    // METADATA ARCHIVAL (batch.metadata-archive.*)
+    // ========================================
+    public static final int ARCHIVE_CHUNK_SIZE = 50;          // job instances archived and deleted per transaction
+    public static final int ARCHIVE_RETENTION_DAYS = 90;      // completed job instances older than this are archived
+    public static final int ARCHIVE_KEEP_LATEST = 10;         // most recent completed instances kept per job and tenant
+    
     // ========================================
     // JOB PARAMETER KEYS
     // ========================================
@@ -42,6 +77,12 @@ public final class BatchConstants {
     public static final String JOB_PARAM_TIMESTAMP = "timestamp";
     public static final String JOB_PARAM_PAYROLL_PERIOD_START = "payrollPeriodStart";
     public static final String JOB_PARAM_PAYROLL_PERIOD_END = "payrollPeriodEnd";
+    public static final String JOB_PARAM_IDEMPOTENCY_KEY = "idempotencyKey";   // launches with the same key while one runs join it
+    public static final String JOB_PARAM_LOCK_TOKEN = "lockToken";   // token of the batch_tenant_locks row the launch holds
+    public static final String JOB_PARAM_ARCHIVE_BEFORE = "archiveBefore";   // completed instances that ended before this are archived
+    public static final String JOB_PARAM_ARCHIVE_KEEP_LATEST = "archiveKeepLatest";   // recent instances kept per job and tenant
+    public static final String JOB_PARAM_STAGING_ABANDONED_BEFORE = "stagingAbandonedBefore";   // staged rows of instances inactive since this are removed
+    public static final String JOB_PARAM_ELIGIBILITY_DATE = "eligibilityDate";   // optional ISO date to evaluate eligibility on, defaults to the first run's date
     
     // ========================================
     // EXECUTION CONTEXT KEYS
@@ -53,4 +94,31 @@ public final class BatchConstants {
     public static final String CONTEXT_SUCCESS_COUNT = "successCount";
     public static final String CONTEXT_FAILURE_COUNT = "failureCount";
     public static final String CONTEXT_SKIP_COUNT = "skipCount";
+    public static final String CONTEXT_ELIGIBILITY_DISTINCT_KEYS = "eligibilityDistinctKeys";
+    public static final String CONTEXT_ELIGIBILITY_DECISION_LOOKUPS = "eligibilityDecisionLookups";
+    public static final String CONTEXT_ELIGIBILITY_DECISION_HITS = "eligibilityDecisionHits";
+    public static final String CONTEXT_ELIGIBILITY_DISTINCT_KEY_RATIO = "eligibilityDistinctKeyRatio";
+    public static final String CONTEXT_ELIGIBILITY_DECISION_HIT_RATE = "eligibilityDecisionHitRate";
+    public static final String CONTEXT_ELIGIBILITY_DATE = "eligibilityDate";   // job context: the date eligibility is evaluated on
+    public static final String CONTEXT_ELIGIBILITY_PUSHDOWN_INELIGIBLE = "eligibilityPushdownIneligible";
+    public static final String CONTEXT_ELIGIBILITY_LAST_ID = "eligibilityLastId";
+    public static final String CONTEXT_CALCULATION_LAST_ID = "calculationLastId";
+    public static final String CONTEXT_CALCULATION_ENGINE = "calculationEngine";
+    public static final String CONTEXT_CALCULATIONS_RECOMPUTED = "calculationsRecomputed";
+    public static final String CONTEXT_CALCULATIONS_CARRIED_FORWARD = "calculationsCarriedForward";
+    public static final String CONTEXT_DEDUCTION_LAST_ID = "deductionLastId";
+    public static final String CONTEXT_ENROLLMENT_CALLS = "enrollmentCalls";
+    public static final String CONTEXT_ENROLLMENT_JOBS_COMPLETE = "enrollmentJobsComplete";
+    public static final String CONTEXT_ENROLLMENT_JOBS_FAILED = "enrollmentJobsFailed";
+    public static final String CONTEXT_ENROLLMENT_JOBS_PENDING = "enrollmentJobsPending";
+    public static final String CONTEXT_PARTITION_INDEX = "partitionIndex";
+    public static final String CONTEXT_PARTITION_FROM_ID = "partitionFromId";
+    public static final String CONTEXT_PARTITION_TO_ID = "partitionToId";
+    public static final String CONTEXT_PARTITION_INCLUDES_MISSING_IDS = "partitionIncludesMissingIds";
+    public static final String CONTEXT_ARCHIVED_INSTANCES = "archivedInstances";
+    public static final String CONTEXT_ARCHIVED_EXECUTIONS = "archivedExecutions";
+    public static final String CONTEXT_ARCHIVED_BYTES = "archivedBytes";
+    public static final String CONTEXT_ARCHIVED_COMPRESSED_BYTES = "archivedCompressedBytes";
+    public static final String CONTEXT_ABANDONED_STAGING_INSTANCES = "abandonedStagingInstances";
+    public static final String CONTEXT_ABANDONED_STAGING_ROWS = "abandonedStagingRows";
 }
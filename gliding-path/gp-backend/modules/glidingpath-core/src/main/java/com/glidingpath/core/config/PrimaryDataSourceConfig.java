@@ -26,6 +26,8 @@ public class PrimaryDataSourceConfig {
 		HikariDataSource dataSource = properties.initializeDataSourceBuilder()
 				.type(HikariDataSource.class)
 				.build();
+		// PostgreSQL driver: send JDBC batches as multi-row INSERTs (used by the batch jobs' JDBC writers)
+		dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
 		return dataSource;
 	}
 }
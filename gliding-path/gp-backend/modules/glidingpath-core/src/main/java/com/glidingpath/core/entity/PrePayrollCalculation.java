@@ -103,6 +103,14 @@ public class PrePayrollCalculation extends BaseEntity {
     @Column(name = "last_reprocessed_at")
     private LocalDateTime lastReprocessedAt;
     
+    // Hash of the participant fields, plan snapshot and rule set the amounts were computed from
+    @Column(name = "input_fingerprint", length = 64)
+    private String inputFingerprint;
+    
+    // Finch job that enrolled the participant with these amounts, see finch_enrollment_jobs
+    @Column(name = "finch_job_id")
+    private String finchJobId;
+    
     public enum CalculationStatus {
         PENDING,
         IN_PROGRESS,
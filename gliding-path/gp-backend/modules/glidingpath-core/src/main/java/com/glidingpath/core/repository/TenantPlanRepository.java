@@ -8,12 +8,17 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface TenantPlanRepository extends JpaRepository<TenantPlan, UUID> {
     List<TenantPlan> findByTenantId(String tenantId);
     
+    // The tenant's plan with the latest effective date, without loading the others
+    @Query("SELECT p FROM TenantPlan p WHERE p.tenantId = :tenantId ORDER BY p.effectiveDate DESC NULLS LAST LIMIT 1")
+    Optional<TenantPlan> findLatestEffectiveByTenantId(@Param("tenantId") String tenantId);
+    
     @Query(value = "SELECT " +
            "pt.monthly_cost as baseFee, " +
            "pt.per_participant_fee as participantFee, " +
@@ -89,24 +89,27 @@ public class PrePayrollCalculationController {
      * 2. Pre-payroll calculations for eligible employees  
      * 3. Finch deduction creation for successful calculations
      * 
-     * IMPORTANT: Only one job can run per tenant at a time
+     * IMPORTANT: Only one job can run per tenant at a time. A repeated request with the same
+     * Idempotency-Key (by default: same tenant and period) while the job runs gets its execution ID.
      * 
      * @param tenantId The tenant ID
      * @param payrollPeriodStart Start date of payroll period
      * @param payrollPeriodEnd End date of payroll period
+     * @param idempotencyKey Optional key identifying the request
      * @return Job launch status message
      */
     @PostMapping("/batch/process")
     public ResponseEntity<String> processPayrollBatch(
             @RequestParam String tenantId,
             @RequestParam LocalDate payrollPeriodStart,
-            @RequestParam LocalDate payrollPeriodEnd) {
+            @RequestParam LocalDate payrollPeriodEnd,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         try {
             log.info("Received request to launch pre-payroll batch job for tenant: {} period: {} to {}", 
                     tenantId, payrollPeriodStart, payrollPeriodEnd);
             
-            String result = batchService.processPayrollBatch(tenantId, payrollPeriodStart, payrollPeriodEnd);
+            String result = batchService.processPayrollBatch(tenantId, payrollPeriodStart, payrollPeriodEnd, idempotencyKey);
             
             if (result.startsWith("A pre-payroll job is already running")) {
                 // Job is already running
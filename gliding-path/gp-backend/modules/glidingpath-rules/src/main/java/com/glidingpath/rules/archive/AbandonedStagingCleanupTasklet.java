@@ -0,0 +1,76 @@
+package com.glidingpath.rules.archive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Removes the prepayroll_staging rows of pre-payroll job instances nobody restarted.
+ *
+ * A failed or stopped instance keeps its staged rows so a restart can continue from its completed
+ * steps; the listener only removes them on completion. Once none of the instance's executions has
+ * been active since the cutoff in the job parameters, the restart window is over and its rows go.
+ * Each execution removes the rows of up to batch.metadata-archive.chunk-size instances in one
+ * transaction.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class AbandonedStagingCleanupTasklet implements Tasklet, StepExecutionListener {
+
+    private final PrePayrollStagingRepository stagingRepository;
+
+    @Value("${batch.metadata-archive.chunk-size:" + BatchConstants.ARCHIVE_CHUNK_SIZE + "}")
+    private int batchSize;
+
+    private LocalDateTime before;
+    private long instanceCount = 0;
+    private long rowCount = 0;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.before = stepExecution.getJobExecution().getJobParameters()
+                .getLocalDateTime(BatchConstants.JOB_PARAM_STAGING_ABANDONED_BEFORE);
+        if (before == null) {
+            throw new IllegalStateException("The staging restart window cutoff is required");
+        }
+        this.instanceCount = 0;
+        this.rowCount = 0;
+        log.info("Removing staged rows of job instances with no execution active since {}", before);
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        List<Long> jobInstanceIds = stagingRepository.findAbandonedJobInstances(before, batchSize);
+        for (long jobInstanceId : jobInstanceIds) {
+            rowCount += stagingRepository.deleteJobInstance(jobInstanceId);
+        }
+        instanceCount += jobInstanceIds.size();
+        contribution.incrementWriteCount(jobInstanceIds.size());
+        return RepeatStatus.continueIf(jobInstanceIds.size() == batchSize);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ABANDONED_STAGING_INSTANCES, instanceCount);
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ABANDONED_STAGING_ROWS, rowCount);
+        return stepExecution.getExitStatus();
+    }
+}
@@ -0,0 +1,72 @@
+package com.glidingpath.rules.archive;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.glidingpath.rules.contributions.listener.BatchMetricsListener;
+import com.glidingpath.rules.repository.ArchiveCandidate;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Job that moves old Spring Batch metadata into batch_job_archive, one chunk of job instances per
+ * transaction, then removes the staged pre-payroll rows of instances past their restart window.
+ * Launched on a schedule by {@link BatchMetadataArchiveScheduler}.
+ */
+@Configuration
+@EnableScheduling
+@RequiredArgsConstructor
+public class BatchMetadataArchiveConfig {
+
+    public static final String JOB_NAME = "batchMetadataArchiveJob";
+
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final BatchMetricsListener metricsListener;
+
+    // Job instances archived and deleted per transaction
+    @Value("${batch.metadata-archive.chunk-size:" + BatchConstants.ARCHIVE_CHUNK_SIZE + "}")
+    private int chunkSize;
+
+    @Bean
+    public Job batchMetadataArchiveJob(BatchMetadataArchiveListener jobListener,
+                                       BatchMetadataArchiveReader archiveReader,
+                                       BatchMetadataArchiveWriter archiveWriter,
+                                       AbandonedStagingCleanupTasklet stagingCleanupTasklet) {
+        return new JobBuilder(JOB_NAME, jobRepository)
+            .start(batchMetadataArchiveStep(archiveReader, archiveWriter))
+            .next(abandonedStagingCleanupStep(stagingCleanupTasklet))
+            .listener(jobListener)
+            .listener(metricsListener)
+            .build();
+    }
+
+    private Step batchMetadataArchiveStep(BatchMetadataArchiveReader archiveReader,
+                                          BatchMetadataArchiveWriter archiveWriter) {
+        return new StepBuilder("batchMetadataArchiveStep", jobRepository)
+            .<ArchiveCandidate, ArchiveCandidate>chunk(chunkSize, transactionManager)
+            .reader(archiveReader)
+            .writer(archiveWriter)
+            .listener(archiveWriter)
+            .listener(metricsListener)
+            .build();
+    }
+
+    private Step abandonedStagingCleanupStep(AbandonedStagingCleanupTasklet tasklet) {
+        return new StepBuilder("abandonedStagingCleanupStep", jobRepository)
+            .tasklet(tasklet, transactionManager)
+            .listener((StepExecutionListener) tasklet)
+            .listener(metricsListener)
+            .build();
+    }
+}
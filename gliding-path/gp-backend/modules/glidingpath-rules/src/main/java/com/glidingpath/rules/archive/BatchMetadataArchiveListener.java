@@ -0,0 +1,48 @@
+package com.glidingpath.rules.archive;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.contributions.lock.TenantJobLock;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records the archival job's execution on the lock it was launched under, releases the lock when
+ * the job ends, and logs what the job archived and which abandoned staging rows it removed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchMetadataArchiveListener implements JobExecutionListener {
+
+    private final TenantJobLock tenantJobLock;
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        tenantJobLock.attach(jobExecution);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        try {
+            ExecutionContext context = jobExecution.getExecutionContext();
+            long bytes = context.getLong(BatchConstants.CONTEXT_ARCHIVED_BYTES, 0L);
+            long compressedBytes = context.getLong(BatchConstants.CONTEXT_ARCHIVED_COMPRESSED_BYTES, 0L);
+            log.info("Batch metadata archival {}: {} job instances with {} executions archived, {} KB of metadata stored as {} KB",
+                    jobExecution.getStatus(),
+                    context.getLong(BatchConstants.CONTEXT_ARCHIVED_INSTANCES, 0L),
+                    context.getLong(BatchConstants.CONTEXT_ARCHIVED_EXECUTIONS, 0L),
+                    bytes / 1024, compressedBytes / 1024);
+            log.info("Removed {} staged pre-payroll rows of {} abandoned job instances",
+                    context.getLong(BatchConstants.CONTEXT_ABANDONED_STAGING_ROWS, 0L),
+                    context.getLong(BatchConstants.CONTEXT_ABANDONED_STAGING_INSTANCES, 0L));
+        } finally {
+            tenantJobLock.release(jobExecution);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.glidingpath.rules.archive;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.repository.ArchiveCandidate;
+import com.glidingpath.rules.repository.BatchMetadataArchiveRepository;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the job instances to archive in keyset pages ordered by job_instance_id.
+ *
+ * The cutoff and the number of recent instances kept come from the job parameters. The oldest kept
+ * instance of each job and tenant is looked up once when the step starts, and pages of completed
+ * instances are filtered against it, so the window query over all completed executions does not
+ * run per page. Instances completing during the step are newer than every cutoff and only add to
+ * the kept ones, and archiving only removes instances older than a cutoff, so the cutoffs stay
+ * valid for the whole step. Jobs and tenants with fewer than keepLatest completed instances keep
+ * all of them.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class BatchMetadataArchiveReader implements ItemReader<ArchiveCandidate> {
+
+    private final BatchMetadataArchiveRepository archiveRepository;
+
+    @Value("${batch.metadata-archive.chunk-size:" + BatchConstants.ARCHIVE_CHUNK_SIZE + "}")
+    private int pageSize;
+
+    private LocalDateTime before;
+    private int keepLatest;
+    private Map<Group, ArchiveCandidate> keepCutoffs = Map.of();
+    private long lastInstanceId = 0;
+    private boolean lastPage = false;
+    private Iterator<ArchiveCandidate> page = Collections.emptyIterator();
+
+    @BeforeStep
+    public void beforeStep(StepExecution stepExecution) {
+        JobParameters parameters = stepExecution.getJobExecution().getJobParameters();
+        this.before = parameters.getLocalDateTime(BatchConstants.JOB_PARAM_ARCHIVE_BEFORE);
+        Long keep = parameters.getLong(BatchConstants.JOB_PARAM_ARCHIVE_KEEP_LATEST);
+        if (before == null || keep == null) {
+            throw new IllegalStateException("The archive cutoff and the number of instances to keep are required");
+        }
+        this.keepLatest = keep.intValue();
+        this.keepCutoffs = new HashMap<>();
+        if (keepLatest > 0) {
+            for (ArchiveCandidate cutoff : archiveRepository.findKeepCutoffs(keepLatest)) {
+                keepCutoffs.put(new Group(cutoff.jobName(), cutoff.tenantId()), cutoff);
+            }
+        }
+        log.info("Archiving completed job instances that ended before {}, keeping the latest {} per job and tenant", before, keepLatest);
+    }
+
+    @Override
+    public ArchiveCandidate read() {
+        // A page can be all kept instances; keep paging until one has candidates or the rows run out
+        while (!page.hasNext() && !lastPage) {
+            List<ArchiveCandidate> completed = archiveRepository.findCompleted(before, lastInstanceId, pageSize);
+            lastPage = completed.size() < pageSize;
+            if (!completed.isEmpty()) {
+                lastInstanceId = completed.get(completed.size() - 1).jobInstanceId();
+            }
+            page = completed.stream().filter(this::olderThanKept).iterator();
+        }
+        return page.hasNext() ? page.next() : null;
+    }
+
+    private boolean olderThanKept(ArchiveCandidate candidate) {
+        if (keepLatest <= 0) {
+            return true;
+        }
+        ArchiveCandidate cutoff = keepCutoffs.get(new Group(candidate.jobName(), candidate.tenantId()));
+        if (cutoff == null) {
+            return false;
+        }
+        // Same order as the window query: end_time, then job_instance_id
+        int byEnd = candidate.endTime().compareTo(cutoff.endTime());
+        return byEnd < 0 || (byEnd == 0 && candidate.jobInstanceId() < cutoff.jobInstanceId());
+    }
+
+    /**
+     * Job name and tenantId parameter (null for jobs without one) the instances are kept per
+     */
+    private record Group(String jobName, String tenantId) {
+    }
+}
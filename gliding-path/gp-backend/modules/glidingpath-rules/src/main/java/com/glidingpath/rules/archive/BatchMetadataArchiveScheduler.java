@@ -0,0 +1,84 @@
+package com.glidingpath.rules.archive;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.contributions.lock.TenantJobLock;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Launches batchMetadataArchiveJob on batch.metadata-archive.cron.
+ *
+ * Job instances whose completed execution ended more than batch.metadata-archive.retention-days
+ * ago are archived, except the batch.metadata-archive.keep-latest most recent of each job and
+ * tenant. Staged pre-payroll rows of instances inactive for batch.prepayroll.staging.restart-window-days
+ * are removed as well. Every node schedules the job; the launch takes the job's row in batch_tenant_locks, so
+ * only one node runs it at a time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "batch.metadata-archive.enabled", havingValue = "true", matchIfMissing = true)
+public class BatchMetadataArchiveScheduler {
+
+    // The archival covers every tenant; its lock row is not a tenant's
+    private static final String ALL_TENANTS = "*";
+
+    private final JobLauncher jobLauncher;
+    private final Job batchMetadataArchiveJob;
+    private final TenantJobLock tenantJobLock;
+    private final int retentionDays;
+    private final int keepLatest;
+    private final int stagingRestartWindowDays;
+
+    public BatchMetadataArchiveScheduler(JobLauncher jobLauncher,
+                                         @Qualifier("batchMetadataArchiveJob") Job batchMetadataArchiveJob,
+                                         TenantJobLock tenantJobLock,
+                                         @Value("${batch.metadata-archive.retention-days:" + BatchConstants.ARCHIVE_RETENTION_DAYS + "}") int retentionDays,
+                                         @Value("${batch.metadata-archive.keep-latest:" + BatchConstants.ARCHIVE_KEEP_LATEST + "}") int keepLatest,
+                                         @Value("${batch.prepayroll.staging.restart-window-days:" + BatchConstants.STAGING_RESTART_WINDOW_DAYS + "}") int stagingRestartWindowDays) {
+        this.jobLauncher = jobLauncher;
+        this.batchMetadataArchiveJob = batchMetadataArchiveJob;
+        this.tenantJobLock = tenantJobLock;
+        this.retentionDays = retentionDays;
+        this.keepLatest = keepLatest;
+        this.stagingRestartWindowDays = stagingRestartWindowDays;
+    }
+
+    @Scheduled(cron = "${batch.metadata-archive.cron:0 30 3 * * *}")
+    public void archive() {
+        Optional<String> lockToken = tenantJobLock.tryAcquire(BatchMetadataArchiveConfig.JOB_NAME, ALL_TENANTS,
+                "archive:" + LocalDate.now());
+        if (lockToken.isEmpty()) {
+            log.info("Batch metadata archival already running on another node");
+            return;
+        }
+        try {
+            JobParameters jobParameters = new JobParametersBuilder()
+                .addLocalDateTime(BatchConstants.JOB_PARAM_ARCHIVE_BEFORE, LocalDateTime.now().minusDays(retentionDays))
+                .addLong(BatchConstants.JOB_PARAM_ARCHIVE_KEEP_LATEST, (long) keepLatest)
+                .addLocalDateTime(BatchConstants.JOB_PARAM_STAGING_ABANDONED_BEFORE, LocalDateTime.now().minusDays(stagingRestartWindowDays))
+                .addLong(BatchConstants.JOB_PARAM_TIMESTAMP, System.currentTimeMillis())
+                .addString(BatchConstants.JOB_PARAM_LOCK_TOKEN, lockToken.get(), false)
+                .toJobParameters();
+            // From here on the job's listener releases the lock
+            jobLauncher.run(batchMetadataArchiveJob, jobParameters);
+        } catch (Exception e) {
+            log.error("Failed to launch batch metadata archival", e);
+            // The job did not start, so no listener will release the lock
+            tenantJobLock.release(lockToken.get());
+        }
+    }
+}
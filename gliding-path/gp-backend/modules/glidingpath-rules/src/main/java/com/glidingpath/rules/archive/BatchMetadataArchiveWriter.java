@@ -0,0 +1,103 @@
+package com.glidingpath.rules.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.glidingpath.rules.repository.ArchiveCandidate;
+import com.glidingpath.rules.repository.BatchJobArchive;
+import com.glidingpath.rules.repository.BatchMetadataArchiveRepository;
+import com.glidingpath.rules.repository.JobInstanceMetadata;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves a chunk of job instances into batch_job_archive.
+ *
+ * The chunk's metadata is loaded with one query per table, each instance is written as one
+ * gzip-compressed JSON document, and the archive rows are inserted before the instances are
+ * deleted, all in the chunk transaction. A chunk touches the rows of at most
+ * batch.metadata-archive.chunk-size instances, so its locks are short and a failed chunk leaves
+ * its instances in place for the next run.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class BatchMetadataArchiveWriter implements ItemWriter<ArchiveCandidate>, StepExecutionListener {
+
+    private final BatchMetadataArchiveRepository archiveRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private long instanceCount = 0;
+    private long executionCount = 0;
+    private long bytes = 0;
+    private long compressedBytes = 0;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.instanceCount = 0;
+        this.executionCount = 0;
+        this.bytes = 0;
+        this.compressedBytes = 0;
+    }
+
+    @Override
+    public void write(Chunk<? extends ArchiveCandidate> chunk) throws Exception {
+        Map<Long, ArchiveCandidate> candidates = chunk.getItems().stream()
+                .collect(Collectors.toMap(ArchiveCandidate::jobInstanceId, Function.identity()));
+
+        List<BatchJobArchive> archives = new ArrayList<>(candidates.size());
+        for (JobInstanceMetadata metadata : archiveRepository.load(candidates.keySet())) {
+            ArchiveCandidate candidate = candidates.get(metadata.jobInstanceId());
+            byte[] json = objectMapper.writeValueAsBytes(metadata.document());
+            byte[] payload = gzip(json);
+            archives.add(new BatchJobArchive(metadata.jobInstanceId(), candidate.jobName(), metadata.jobKey(),
+                    candidate.tenantId(), candidate.endTime(), metadata.executionCount(), metadata.stepExecutionCount(),
+                    payload, json.length));
+        }
+
+        archiveRepository.insert(archives);
+        archiveRepository.delete(candidates.keySet());
+        for (BatchJobArchive archive : archives) {
+            executionCount += archive.executionCount();
+            bytes += archive.payloadBytes();
+            compressedBytes += archive.payload().length;
+        }
+        instanceCount += archives.size();
+        log.debug("Archived {} job instances", archives.size());
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ARCHIVED_INSTANCES, instanceCount);
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ARCHIVED_EXECUTIONS, executionCount);
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ARCHIVED_BYTES, bytes);
+        stepExecution.getJobExecution().getExecutionContext().putLong(BatchConstants.CONTEXT_ARCHIVED_COMPRESSED_BYTES, compressedBytes);
+        return stepExecution.getExitStatus();
+    }
+}
@@ -2,82 +2,125 @@ package com.glidingpath.rules.config;
 
 import java.util.List;
 
+import org.drools.model.codegen.ExecutableModelProject;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.KieFileSystem;
 import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
 import org.kie.api.runtime.KieContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import com.glidingpath.rules.entity.RuleConfig;
-import com.glidingpath.rules.repository.RuleConfigRepository;
 
 @Configuration
 @ConditionalOnClass(KieServices.class)
 public class DroolsConfig {
     private static final Logger log = LoggerFactory.getLogger(DroolsConfig.class);
 
-    @Autowired
-    private RuleConfigRepository ruleConfigRepository;
+    private static final String RELEASE_GROUP = "com.glidingpath.rules";
+    private static final String RELEASE_ARTIFACT = "rules-config";
 
-    @Bean
-    public KieContainer kieContainer() {
+    /**
+     * Single-threaded executor used to compile rule sets off the request thread.
+     * One thread is enough: reloads are serialized anyway and a queue of one
+     * keeps a burst of reload requests from piling up full KieBuilder runs.
+     */
+    @Bean(name = "ruleReloadExecutor")
+    public ThreadPoolTaskExecutor ruleReloadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("rule-reload-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Small bounded executor for shadow evaluations of a candidate rule set.
+     * When it is saturated shadow samples are dropped rather than queued behind payroll work.
+     */
+    @Bean(name = "ruleShadowExecutor")
+    public ThreadPoolTaskExecutor ruleShadowExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("rule-shadow-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Compile the given rule rows into a new KieContainer using the executable model.
+     *
+     * The release version is derived from the rule content hash, so different rule sets
+     * live side by side in the KieRepository (active, retained for rollback, and in-flight)
+     * and a cached KJAR always carries the release id it was built with.
+     */
+    public KieContainer buildKieContainer(List<RuleConfig> allRules, String contentHash) {
         KieServices kieServices = KieServices.get();
         try {
-            KieFileSystem kfs = kieServices.newKieFileSystem();
-            
-            // Load all rules from database
-            List<RuleConfig> allRules = ruleConfigRepository.findAll();
-            if (allRules.isEmpty()) {
+            if (allRules == null || allRules.isEmpty()) {
                 log.error("No rules found in database - Drools will not be available");
                 throw new IllegalStateException("No rules found in database for Drools");
             }
-            
+
+            KieFileSystem kfs = kieServices.newKieFileSystem();
+            ReleaseId releaseId = kieServices.newReleaseId(RELEASE_GROUP, RELEASE_ARTIFACT, "1.0.0-" + contentHash);
+            kfs.generateAndWritePomXML(releaseId);
+
             log.info("Loading {} rules from database", allRules.size());
-            
+
             // Write each rule to the KieFileSystem
             for (RuleConfig ruleConfig : allRules) {
                 String ruleFileName = "src/main/resources/rules/" + ruleConfig.getName() + ".drl";
                 kfs.write(ruleFileName, ruleConfig.getRuleContent());
                 log.info("Loaded rule: {} with content length: {}", ruleConfig.getName(), ruleConfig.getRuleContent().length());
             }
-            
-            // Generate kmodule.xml with multiple kbase configurations
-            StringBuilder kmoduleContent = new StringBuilder();
-            kmoduleContent.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-            kmoduleContent.append("<kmodule xmlns=\"http://www.drools.org/xsd/kmodule\">\n");
-            
-            // Create a kbase for each rule set
-            for (RuleConfig ruleConfig : allRules) {
-                kmoduleContent.append("  <kbase name=\"").append(ruleConfig.getName()).append("-rules\" packages=\"rules\">\n");
-                kmoduleContent.append("    <ksession name=\"ksession-").append(ruleConfig.getName()).append("\" type=\"stateless\"/>\n");
-                kmoduleContent.append("  </kbase>\n");
-            }
-            
-            kmoduleContent.append("</kmodule>");
-            
-            kfs.write("src/main/resources/META-INF/kmodule.xml", kmoduleContent.toString());
-            
+
+            kfs.write("src/main/resources/META-INF/kmodule.xml", buildKmoduleXml(allRules));
+
             KieBuilder kieBuilder = kieServices.newKieBuilder(kfs);
-            kieBuilder.buildAll();
-            
+            // Executable model: rules compile to plain Java, so loading the KJAR later needs no DRL/MVEL parsing
+            kieBuilder.buildAll(ExecutableModelProject.class);
+
             if (kieBuilder.getResults().hasMessages(Message.Level.ERROR)) {
                 log.error("Drools build errors: {}", kieBuilder.getResults().getMessages());
                 throw new IllegalStateException("Drools build errors: " + kieBuilder.getResults().getMessages());
             }
-            
+
             KieContainer container = kieServices.newKieContainer(kieBuilder.getKieModule().getReleaseId());
-            log.info("Successfully created KieContainer with bases: {}", container.getKieBaseNames());
+            log.info("Successfully created KieContainer {} with bases: {}", releaseId, container.getKieBaseNames());
             return container;
-            
+
         } catch (Exception e) {
             log.error("Failed to create KieContainer: {}", e.getMessage(), e);
             throw new IllegalStateException("Failed to create KieContainer", e);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Generate kmodule.xml with one kbase and one stateless ksession per rule set
+     */
+    private String buildKmoduleXml(List<RuleConfig> allRules) {
+        StringBuilder kmoduleContent = new StringBuilder();
+        kmoduleContent.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        kmoduleContent.append("<kmodule xmlns=\"http://www.drools.org/xsd/kmodule\">\n");
+
+        for (RuleConfig ruleConfig : allRules) {
+            kmoduleContent.append("  <kbase name=\"").append(ruleConfig.getName()).append("-rules\" packages=\"rules\">\n");
+            kmoduleContent.append("    <ksession name=\"ksession-").append(ruleConfig.getName()).append("\" type=\"stateless\"/>\n");
+            kmoduleContent.append("  </kbase>\n");
+        }
+
+        kmoduleContent.append("</kmodule>");
+        return kmoduleContent.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.glidingpath.rules.contributions;
+
+import java.time.LocalDate;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.item.ExecutionContext;
+
+import constants.BatchConstants;
+
+/**
+ * The date the eligibility step evaluates on: the eligibilityDate job parameter when given,
+ * otherwise the day the job instance first ran.
+ *
+ * The date is taken once and kept in the job execution context. Every partition, the SQL pushdown,
+ * the rules and the stored check dates therefore use the same day, even when the run crosses
+ * midnight, and a restart (which starts from the previous execution's job context) reuses it.
+ */
+public final class EligibilityEvaluationDate {
+
+    private EligibilityEvaluationDate() {
+    }
+
+    public static LocalDate of(JobExecution jobExecution) {
+        ExecutionContext context = jobExecution.getExecutionContext();
+        // Partition workers of the job share this context
+        synchronized (context) {
+            if (!context.containsKey(BatchConstants.CONTEXT_ELIGIBILITY_DATE)) {
+                String parameter = jobExecution.getJobParameters().getString(BatchConstants.JOB_PARAM_ELIGIBILITY_DATE);
+                LocalDate date = parameter != null ? LocalDate.parse(parameter) : LocalDate.now();
+                context.putString(BatchConstants.CONTEXT_ELIGIBILITY_DATE, date.toString());
+            }
+            return LocalDate.parse(context.getString(BatchConstants.CONTEXT_ELIGIBILITY_DATE));
+        }
+    }
+}
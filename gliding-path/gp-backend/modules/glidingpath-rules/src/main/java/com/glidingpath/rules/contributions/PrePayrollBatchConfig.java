@@ -8,12 +8,29 @@ import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.concurrent.Future;
+
+import com.glidingpath.common.dto.PrePayrollCalculationDTO;
+import com.glidingpath.rules.contributions.async.AsyncItemProcessor;
+import com.glidingpath.rules.contributions.async.AsyncItemWriter;
+import com.glidingpath.rules.contributions.bulk.BulkCalculationTasklet;
+import com.glidingpath.rules.contributions.bulk.CalculationEngineDecider;
+import com.glidingpath.rules.contributions.enrollment.FinchEnrollmentBatchWriter;
+import com.glidingpath.rules.contributions.enrollment.FinchEnrollmentJobTasklet;
+import com.glidingpath.rules.contributions.listener.BatchMetricsListener;
 import com.glidingpath.rules.contributions.listener.PrePayrollBatchListener;
 import com.glidingpath.rules.contributions.listener.StepListener;
+import com.glidingpath.rules.contributions.partition.CalculationPartitioner;
+import com.glidingpath.rules.contributions.partition.EligibilityPartitioner;
+import com.glidingpath.rules.contributions.partition.PartitionResultsListener;
 import com.glidingpath.rules.contributions.processor.CalculationBatchProcessor;
 import com.glidingpath.rules.contributions.processor.EligibilityBatchProcessor;
 import com.glidingpath.rules.contributions.processor.FinchDeductionBatchProcessor;
@@ -31,6 +48,32 @@ public class PrePayrollBatchConfig {
 
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
+    // Micrometer metrics of the job and every step, see BatchMetricsListener
+    private final BatchMetricsListener metricsListener;
+
+    // Number of individualId ranges the eligibility and calculation steps are split into
+    @Value("${batch.prepayroll.partitions:" + BatchConstants.DEFAULT_PARTITION_COUNT + "}")
+    private int partitions;
+
+    // Threads working on partitions, shared by all running pre-payroll jobs
+    @Value("${batch.prepayroll.worker-threads:" + BatchConstants.DEFAULT_PARTITION_THREADS + "}")
+    private int workerThreads;
+
+    // Finch calls in flight per deduction step
+    @Value("${batch.deduction.concurrency:" + BatchConstants.DEFAULT_DEDUCTION_CONCURRENCY + "}")
+    private int deductionConcurrency;
+
+    // Calculations per deduction chunk; the chunk's Finch calls are all in flight before it is written
+    @Value("${batch.deduction.chunk-size:" + BatchConstants.DEDUCTION_CHUNK_SIZE + "}")
+    private int deductionChunkSize;
+
+    // "enrollment" (enroll a chunk's employees into the tenant's 401k benefit) or "per-employee" (a deduction per employee)
+    @Value("${batch.deduction.mode:" + BatchConstants.DEDUCTION_MODE_ENROLLMENT + "}")
+    private String deductionMode;
+
+    // Calculations per deduction chunk in enrollment mode
+    @Value("${batch.deduction.enrollment.chunk-size:" + BatchConstants.ENROLLMENT_CHUNK_SIZE + "}")
+    private int enrollmentChunkSize;
 
     // ========================================
     // COMPLETE PRE-PAYROLL BATCH JOB
@@ -39,6 +82,9 @@ public class PrePayrollBatchConfig {
     @Bean
     public Job prePayrollJob(PrePayrollBatchListener jobListener,
                             StepListener stepListener,
+                            PartitionResultsListener partitionResultsListener,
+                            EligibilityPartitioner eligibilityPartitioner,
+                            CalculationPartitioner calculationPartitioner,
                             EligibilityBatchReader eligibilityReader,
                             EligibilityBatchProcessor eligibilityProcessor,
                             EligibilityBatchWriter eligibilityWriter,
@@ -47,39 +93,107 @@ public class PrePayrollBatchConfig {
                             CalculationBatchWriter calculationWriter,
                             FinchDeductionBatchReader deductionReader,
                             FinchDeductionBatchProcessor deductionProcessor,
-                            FinchDeductionBatchWriter deductionWriter) {
+                            FinchDeductionBatchWriter deductionWriter,
+                            FinchEnrollmentBatchWriter enrollmentWriter,
+                            FinchEnrollmentJobTasklet enrollmentJobTasklet,
+                            CalculationEngineDecider calculationEngineDecider,
+                            BulkCalculationTasklet bulkCalculationTasklet) {
+        Step deductionStep = deductionStep(deductionReader, deductionProcessor, deductionWriter, enrollmentWriter, stepListener);
+        Step enrollmentJobStep = enrollmentJobStep(enrollmentJobTasklet, stepListener);
         return new JobBuilder("prePayrollJob", jobRepository)
             // COMPLETE 3-STEP BATCH JOB: eligibility -> calculation -> deductions
+            // (then the Finch enrollment jobs the deductions started are followed to completion)
             // This uses the properly implemented batch components that leverage EligibilityRuleEngineService
-            .start(eligibilityStep(eligibilityReader, eligibilityProcessor, eligibilityWriter, stepListener))
-            .next(calculationStep(calculationReader, calculationProcessor, calculationWriter, stepListener))
-            .next(deductionStep(deductionReader, deductionProcessor, deductionWriter, stepListener))
+            .start(eligibilityStep(eligibilityPartitioner,
+                    eligibilityWorkerStep(eligibilityReader, eligibilityProcessor, eligibilityWriter, stepListener),
+                    partitionResultsListener, stepListener))
+            // Step 2 runs the rules, or the bulk engine for tenants on the standard calculation rules
+            .next(calculationEngineDecider)
+                .on(BatchConstants.CALCULATION_ENGINE_BULK)
+                .to(bulkCalculationStep(calculationPartitioner,
+                        bulkCalculationWorkerStep(bulkCalculationTasklet, stepListener),
+                        partitionResultsListener, stepListener))
+                .next(deductionStep)
+                .next(enrollmentJobStep)
+            .from(calculationEngineDecider)
+                .on("*")
+                .to(calculationStep(calculationPartitioner,
+                        calculationWorkerStep(calculationReader, calculationProcessor, calculationWriter, stepListener),
+                        partitionResultsListener, stepListener))
+                .next(deductionStep)
+                .next(enrollmentJobStep)
+            .end()
             .listener(jobListener)
+            .listener(metricsListener)
             .build();
     }
 
+    // ========================================
+    // PARTITIONING
+    // ========================================
+    // Eligibility and calculation are partitioned: the manager step splits the tenant's participants
+    // into individualId ranges and runs one worker step execution per range on the executor below.
+    // Readers, processors and writers are step scoped, so every worker has its own instances.
+    // Each partition keeps its own cursor, and a restart only re-runs the partitions that failed.
+
+    /**
+     * Runs the worker steps of partitioned pre-payroll steps. The pool is fixed at the configured
+     * number of threads; partitions beyond that wait in the queue instead of being rejected.
+     */
+    @Bean(name = "prePayrollPartitionExecutor")
+    public ThreadPoolTaskExecutor prePayrollPartitionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaxPoolSize(workerThreads);
+        executor.setThreadNamePrefix("prepayroll-partition-");
+        executor.initialize();
+        return executor;
+    }
+
     // ========================================
     // STEP 1: ELIGIBILITY EVALUATION
     // ========================================
     // Uses EligibilityBatchReader -> EligibilityBatchProcessor -> EligibilityBatchWriter
+    // The reader pages through EligibilityParticipant projections by id (keyset), not full entities
     // The processor uses EligibilityProcessingUtility (shared logic, no duplication)
+    // The processor is also an ItemWriteListener (registered automatically by the builder):
+    // its beforeWrite evaluates the rules once per chunk instead of once per employee
     // The writer updates PlanParticipant entities with eligibility results
-    
+
     @Bean
-    public Step eligibilityStep(EligibilityBatchReader reader, 
+    public Step eligibilityStep(EligibilityPartitioner partitioner,
+                               @Qualifier("eligibilityWorkerStep") Step eligibilityWorkerStep,
+                               PartitionResultsListener partitionResultsListener,
+                               StepListener stepListener) {
+        return new StepBuilder("eligibilityStep", jobRepository)
+            .partitioner("eligibilityWorkerStep", partitioner)
+            .step(eligibilityWorkerStep)
+            .gridSize(partitions)
+            .taskExecutor(prePayrollPartitionExecutor())
+            .listener(partitioner)
+            .listener(partitionResultsListener)
+            .listener(stepListener)
+            .listener(metricsListener)
+            .build();
+    }
+
+    @Bean
+    public Step eligibilityWorkerStep(EligibilityBatchReader reader, 
                                EligibilityBatchProcessor processor, 
                                EligibilityBatchWriter writer,
                                StepListener stepListener) {
-        return new StepBuilder("eligibilityStep", jobRepository)
-            .<com.glidingpath.core.entity.PlanParticipant, 
+        return new StepBuilder("eligibilityWorkerStep", jobRepository)
+            .<com.glidingpath.rules.repository.EligibilityParticipant, 
                com.glidingpath.common.dto.EmployeeEligibilityDTO>chunk(BatchConstants.ELIGIBILITY_CHUNK_SIZE, transactionManager)
             .reader(reader)
             .processor(processor)
             .writer(writer)
             .listener(stepListener)
+            .listener(metricsListener)
             .faultTolerant()
             .retry(Exception.class)
             .retryLimit(BatchConstants.ELIGIBILITY_RETRY_LIMIT)
+            .listener(metricsListener.getRetryListener())
             .skipLimit(BatchConstants.ELIGIBILITY_SKIP_LIMIT)
             .skipPolicy(new EligibilitySkipPolicy())
             .build();
@@ -89,52 +203,170 @@ public class PrePayrollBatchConfig {
     // STEP 2: PRE-PAYROLL CALCULATION
     // ========================================
     // Processes eligible employees from Step 1 for pre-payroll calculations
+    // Steps hand over through prepayroll_staging: Step 1 stages eligible ids, this step reads them
+    // in keyset pages and stages its successful calculations for Step 3
+    // Like Step 1, the processor evaluates the rules per chunk in its beforeWrite hook,
+    // and the step is partitioned by the same kind of individualId ranges
     
     @Bean
-    public Step calculationStep(CalculationBatchReader reader, 
+    public Step calculationStep(CalculationPartitioner partitioner,
+                               @Qualifier("calculationWorkerStep") Step calculationWorkerStep,
+                               PartitionResultsListener partitionResultsListener,
+                               StepListener stepListener) {
+        return new StepBuilder("calculationStep", jobRepository)
+            .partitioner("calculationWorkerStep", partitioner)
+            .step(calculationWorkerStep)
+            .gridSize(partitions)
+            .taskExecutor(prePayrollPartitionExecutor())
+            .listener(partitioner)
+            .listener(partitionResultsListener)
+            .listener(stepListener)
+            .listener(metricsListener)
+            .build();
+    }
+
+    @Bean
+    public Step calculationWorkerStep(CalculationBatchReader reader, 
                                CalculationBatchProcessor processor, 
                                CalculationBatchWriter writer,
                                StepListener stepListener) {
-        return new StepBuilder("calculationStep", jobRepository)
-            .<com.glidingpath.common.dto.EmployeeEligibilityDTO, 
+        return new StepBuilder("calculationWorkerStep", jobRepository)
+            .<com.glidingpath.rules.contributions.reader.CalculationCandidate, 
                com.glidingpath.common.dto.PrePayrollCalculationDTO>chunk(BatchConstants.CALCULATION_CHUNK_SIZE, transactionManager)
             .reader(reader)
             .processor(processor)
             .writer(writer)
             .listener(stepListener)
+            .listener(metricsListener)
             .faultTolerant()
             .retry(Exception.class)
             .retryLimit(BatchConstants.CALCULATION_RETRY_LIMIT)
+            .listener(metricsListener.getRetryListener())
             .skipLimit(BatchConstants.CALCULATION_SKIP_LIMIT)
             .skipPolicy(new CalculationSkipPolicy())
             .build();
     }
 
+    // ========================================
+    // STEP 2 (BULK): PRE-PAYROLL CALCULATION WITHOUT RULE SESSIONS
+    // ========================================
+    // Chosen by CalculationEngineDecider when batch.calculation.engine=bulk and the tenant runs the
+    // standard calculation rules. Same partitions, staging and context counts as the rules path, but
+    // each worker is a tasklet that computes a page of employees per transaction with the
+    // BulkContributionEngine's column loops
+
+    @Bean
+    public Step bulkCalculationStep(CalculationPartitioner partitioner,
+                                   @Qualifier("bulkCalculationWorkerStep") Step bulkCalculationWorkerStep,
+                                   PartitionResultsListener partitionResultsListener,
+                                   StepListener stepListener) {
+        return new StepBuilder("bulkCalculationStep", jobRepository)
+            .partitioner("bulkCalculationWorkerStep", partitioner)
+            .step(bulkCalculationWorkerStep)
+            .gridSize(partitions)
+            .taskExecutor(prePayrollPartitionExecutor())
+            .listener(partitioner)
+            .listener(partitionResultsListener)
+            .listener(stepListener)
+            .listener(metricsListener)
+            .build();
+    }
+
+    @Bean
+    public Step bulkCalculationWorkerStep(BulkCalculationTasklet tasklet,
+                                   StepListener stepListener) {
+        return new StepBuilder("bulkCalculationWorkerStep", jobRepository)
+            .tasklet(tasklet, transactionManager)
+            .listener((StepExecutionListener) tasklet)
+            .listener(stepListener)
+            .listener(metricsListener)
+            .build();
+    }
+
     // ========================================
     // STEP 3: FINCH DEDUCTION CREATION
     // ========================================
     // Creates Finch deductions for successful calculations from Step 2
-    
+    // In enrollment mode (the default) FinchEnrollmentBatchWriter enrolls a chunk's employees into the
+    // tenant's 401k benefit with one Finch call per contribution configuration, run on the executor
+    // below, and hands the results to FinchDeductionBatchWriter. The enrollment job step then follows
+    // the Finch jobs those calls started.
+    // In per-employee mode the processor creates a deduction per employee. It runs on the executor
+    // below through AsyncItemProcessor, so a chunk's Finch calls
+    // are in flight together, each holding to the tenant's Finch rate limit. AsyncItemWriter waits
+    // for them in read order and hands the results to FinchDeductionBatchWriter.
+    // The wrappers hide the delegates from the builder, so their listeners are registered explicitly.
+    // The processor is non-transactional: a retried chunk reuses its results instead of calling Finch again.
+
+    /**
+     * Runs the Finch calls of deduction steps, at most the configured concurrency at once; calls
+     * beyond that wait in the queue, which a chunk bounds.
+     */
+    @Bean(name = "finchDeductionExecutor")
+    public ThreadPoolTaskExecutor finchDeductionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(deductionConcurrency);
+        executor.setMaxPoolSize(deductionConcurrency);
+        executor.setThreadNamePrefix("finch-deduction-");
+        executor.initialize();
+        return executor;
+    }
+
     @Bean
     public Step deductionStep(FinchDeductionBatchReader reader, 
                              FinchDeductionBatchProcessor processor, 
                              FinchDeductionBatchWriter writer,
+                             FinchEnrollmentBatchWriter enrollmentWriter,
                              StepListener stepListener) {
+        if (BatchConstants.DEDUCTION_MODE_ENROLLMENT.equalsIgnoreCase(deductionMode)) {
+            return new StepBuilder("deductionStep", jobRepository)
+                .<PrePayrollCalculationDTO, PrePayrollCalculationDTO>chunk(enrollmentChunkSize, transactionManager)
+                .reader(reader)
+                .writer(enrollmentWriter)
+                .listener(writer)
+                .listener(stepListener)
+                .listener(metricsListener)
+                .faultTolerant()
+                .retry(Exception.class)
+                .retryLimit(BatchConstants.DEDUCTION_RETRY_LIMIT)
+                .listener(metricsListener.getRetryListener())
+                .skipLimit(BatchConstants.DEDUCTION_SKIP_LIMIT)
+                .skipPolicy(new FinchDeductionSkipPolicy())
+                .build();
+        }
         return new StepBuilder("deductionStep", jobRepository)
-            .<com.glidingpath.common.dto.PrePayrollCalculationDTO, 
-               com.glidingpath.common.dto.PrePayrollCalculationDTO>chunk(BatchConstants.DEDUCTION_CHUNK_SIZE, transactionManager)
+            .<PrePayrollCalculationDTO, Future<PrePayrollCalculationDTO>>chunk(deductionChunkSize, transactionManager)
             .reader(reader)
-            .processor(processor)
-            .writer(writer)
+            .processor(new AsyncItemProcessor<>(processor, finchDeductionExecutor()))
+            .writer(new AsyncItemWriter<>(writer))
+            .listener(processor)
+            .listener(writer)
             .listener(stepListener)
+            .listener(metricsListener)
             .faultTolerant()
+            .processorNonTransactional()
             .retry(Exception.class)
             .retryLimit(BatchConstants.DEDUCTION_RETRY_LIMIT)
+            .listener(metricsListener.getRetryListener())
             .skipLimit(BatchConstants.DEDUCTION_SKIP_LIMIT)
             .skipPolicy(new FinchDeductionSkipPolicy())
             .build();
     }
 
+    @Bean
+    public Step enrollmentJobStep(FinchEnrollmentJobTasklet tasklet, StepListener stepListener) {
+        // The tasklet waits between polls in its repeat listener, after each poll's transaction
+        RepeatTemplate pollOperations = new RepeatTemplate();
+        pollOperations.registerListener(tasklet);
+        return new StepBuilder("enrollmentJobStep", jobRepository)
+            .tasklet(tasklet, transactionManager)
+            .stepOperations(pollOperations)
+            .listener((StepExecutionListener) tasklet)
+            .listener(stepListener)
+            .listener(metricsListener)
+            .build();
+    }
+
     // ========================================
     // SKIP POLICIES
     // ========================================
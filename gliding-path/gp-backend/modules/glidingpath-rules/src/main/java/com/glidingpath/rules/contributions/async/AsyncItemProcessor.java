@@ -0,0 +1,52 @@
+package com.glidingpath.rules.contributions.async;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * Runs a delegate processor on a task executor and hands the writer a {@link Future} per item, so
+ * the items of a chunk are processed concurrently instead of one after the other.
+ *
+ * The same contract as spring-batch-integration's AsyncItemProcessor, which this module does not
+ * depend on. It is paired with {@link AsyncItemWriter}, which waits for the futures in item order.
+ * Calls in flight are bounded by the executor's threads and by the chunk size: a chunk's futures
+ * are all completed before the next chunk is read. The step context is bound on the executor
+ * threads, so step-scoped beans resolve there as on the step thread.
+ *
+ * The delegate is not registered with the step through this wrapper; register its listeners on
+ * the step explicitly. Steps using it should be processorNonTransactional, so a retried or
+ * scanned chunk reuses the completed futures instead of calling the delegate again.
+ */
+public class AsyncItemProcessor<I, O> implements ItemProcessor<I, Future<O>> {
+
+    private final ItemProcessor<I, O> delegate;
+    private final TaskExecutor taskExecutor;
+
+    public AsyncItemProcessor(ItemProcessor<I, O> delegate, TaskExecutor taskExecutor) {
+        this.delegate = delegate;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public Future<O> process(I item) {
+        StepContext stepContext = StepSynchronizationManager.getContext();
+        FutureTask<O> task = new FutureTask<>(() -> {
+            if (stepContext == null) {
+                return delegate.process(item);
+            }
+            StepSynchronizationManager.register(stepContext.getStepExecution());
+            try {
+                return delegate.process(item);
+            } finally {
+                StepSynchronizationManager.close();
+            }
+        });
+        taskExecutor.execute(task);
+        return task;
+    }
+}
@@ -0,0 +1,49 @@
+package com.glidingpath.rules.contributions.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * Waits for the futures of an {@link AsyncItemProcessor} and writes their results with a delegate.
+ *
+ * Results are collected in the order the items were read, whatever order they completed in, so
+ * the delegate sees the chunk as a synchronous step would have given it. Items the delegate
+ * processor filtered (a null result) are left out. A failed item fails the chunk with the
+ * delegate processor's own exception, so the step's retry and skip settings apply to it.
+ */
+public class AsyncItemWriter<O> implements ItemWriter<Future<O>> {
+
+    private final ItemWriter<O> delegate;
+
+    public AsyncItemWriter(ItemWriter<O> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(Chunk<? extends Future<O>> chunk) throws Exception {
+        List<O> results = new ArrayList<>(chunk.size());
+        for (Future<O> future : chunk.getItems()) {
+            O result = await(future);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        delegate.write(new Chunk<>(results));
+    }
+
+    private O await(Future<O> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
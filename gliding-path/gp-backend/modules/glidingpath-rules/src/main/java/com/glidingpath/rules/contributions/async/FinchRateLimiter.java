@@ -0,0 +1,77 @@
+package com.glidingpath.rules.contributions.async;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.util.AppException;
+import com.glidingpath.common.util.ErrorCode;
+import com.glidingpath.rules.util.TokenBucket;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the Finch calls of the deduction step to a request rate per Finch connection.
+ *
+ * Finch rate-limits each connection, and a tenant has one connection, so every tenant gets its own
+ * {@link TokenBucket}, shared by all threads and all jobs calling Finch for it. A tenant answered
+ * with a rate-limit error has its bucket drained, so the calls in flight back off together, and
+ * {@link #call} sends the request again.
+ */
+@Slf4j
+@Component
+public class FinchRateLimiter {
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // Sustained Finch requests per second and connection
+    @Value("${finch.rate-limit.requests-per-second:10}")
+    private double requestsPerSecond;
+
+    // Requests a connection may send at once after being idle
+    @Value("${finch.rate-limit.burst:10}")
+    private int burst;
+
+    // Attempts after a Finch rate-limit error before the error is passed on
+    @Value("${finch.rate-limit.max-retries:3}")
+    private int maxRetries;
+
+    /**
+     * Send a Finch request once the tenant's connection may, again after rate-limit errors
+     */
+    public <T> T call(String tenantId, Callable<T> request) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            acquire(tenantId);
+            try {
+                return request.call();
+            } catch (AppException e) {
+                if (e.getErrorCode() != ErrorCode.FINCH_RATE_LIMIT || attempt >= maxRetries) {
+                    throw e;
+                }
+                onRateLimited(tenantId);
+            }
+        }
+    }
+
+    /**
+     * Wait until the tenant's connection may send another request
+     */
+    public void acquire(String tenantId) throws InterruptedException {
+        bucket(tenantId).acquire();
+    }
+
+    /**
+     * Finch answered the tenant's connection with a rate-limit error
+     */
+    public void onRateLimited(String tenantId) {
+        log.warn("Finch rate limit reached for tenant {}, backing off", tenantId);
+        bucket(tenantId).drain();
+    }
+
+    private TokenBucket bucket(String tenantId) {
+        return buckets.computeIfAbsent(tenantId, id -> new TokenBucket(requestsPerSecond, burst));
+    }
+}
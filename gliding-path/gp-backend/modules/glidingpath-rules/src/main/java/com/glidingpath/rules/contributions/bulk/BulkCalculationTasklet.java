@@ -0,0 +1,227 @@
+package com.glidingpath.rules.contributions.bulk;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.core.entity.PrePayrollCalculation;
+import com.glidingpath.core.repository.TenantPlanRepository;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.contributions.partition.PartitionResultsListener;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+import com.glidingpath.rules.repository.StagedItem;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
+import com.glidingpath.rules.util.CalculationFingerprint;
+import com.glidingpath.rules.util.CalculationIds;
+import com.glidingpath.rules.util.PlanSnapshots;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Worker of the bulk calculation step: calculates the employees of its partition a page at a time
+ * with the {@link BulkContributionEngine} instead of the pre-payroll rules.
+ *
+ * Each execution is one transaction. It reads a page of employees staged as eligible together with
+ * their id and income, computes the page, upserts its rows with one JDBC batch (or COPY, as
+ * batch.calculation.write-mode says) and stages them for the deduction step. The page's last
+ * individualId goes into the step execution context with the same commit, so a restarted partition
+ * continues after its last page. The counts it stores are the ones CalculationBatchWriter stores,
+ * so the rest of the job does not depend on which engine ran.
+ *
+ * Rows store the same input fingerprints as the rules path. The engine recomputes every employee
+ * even in incremental mode: a page costs less to compute than to look up and compare the previous
+ * results, the amounts are the same, and carried-forward rows would be written all the same.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class BulkCalculationTasklet implements Tasklet, StepExecutionListener {
+
+    private static final String AUDIT_USER = "Spring Batch Calculation Job";
+
+    private final TenantPlanRepository tenantPlanRepository;
+    private final PrePayrollStagingRepository stagingRepository;
+    private final PrePayrollCalculationJdbcRepository calculationJdbcRepository;
+    private final TenantRuleResolver tenantRuleResolver;
+
+    // Employees per page, each page one transaction
+    @Value("${batch.calculation.bulk.page-size:5000}")
+    private int pageSize;
+
+    // "batch" (JDBC batch INSERT) or "copy" (PostgreSQL COPY FROM STDIN)
+    @Value("${batch.calculation.write-mode:batch}")
+    private String writeMode;
+
+    private String tenantId;
+    private LocalDate payrollPeriodStart;
+    private LocalDate payrollPeriodEnd;
+    private long jobInstanceId;
+    private IndividualIdRange range;
+    private BulkContributionEngine engine;
+    private CalculationFingerprint calculationFingerprint;
+
+    private int totalProcessed = 0;
+    private int missingCount = 0;
+    private long computeNanos = 0;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.payrollPeriodStart = LocalDate.parse(
+            stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_START)
+        );
+        this.payrollPeriodEnd = LocalDate.parse(
+            stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_END)
+        );
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+        this.range = IndividualIdRange.from(stepExecution.getExecutionContext());
+        this.totalProcessed = 0;
+        this.missingCount = 0;
+        this.computeNanos = 0;
+
+        // The decider only chooses this step for tenants with a plan
+        PlanSnapshot snapshot = tenantPlanRepository.findLatestEffectiveByTenantId(tenantId)
+                .map(PlanSnapshots::of)
+                .orElseThrow(() -> new IllegalStateException("Tenant plan not found: " + tenantId));
+        this.engine = BulkContributionEngine.of(snapshot);
+        this.calculationFingerprint = CalculationFingerprint.of(snapshot, tenantRuleResolver.resolve(tenantId), LocalDate.now());
+
+        log.info("Initializing bulk calculation for tenant: {} period: {} to {} ({}), plan snapshot {}, pages of {}{}",
+                tenantId, payrollPeriodStart, payrollPeriodEnd, range, snapshot.version(), pageSize,
+                engine.isColumnar() ? "" : ", plan rates outside the column range, computing with BigDecimal");
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+        String lastIndividualId = executionContext.containsKey(BatchConstants.CONTEXT_CALCULATION_LAST_ID)
+                ? executionContext.getString(BatchConstants.CONTEXT_CALCULATION_LAST_ID)
+                : null;
+
+        ContributionColumns page = stagingRepository.findCompensationPage(
+                jobInstanceId, BatchConstants.STAGE_ELIGIBLE, range, lastIndividualId, pageSize);
+        if (page.size() == 0) {
+            return RepeatStatus.FINISHED;
+        }
+
+        long start = System.nanoTime();
+        engine.compute(page);
+        computeNanos += System.nanoTime() - start;
+
+        List<PrePayrollCalculation> calculations = toCalculations(page);
+        if (!calculations.isEmpty()) {
+            if ("copy".equalsIgnoreCase(writeMode)) {
+                calculationJdbcRepository.copy(calculations);
+            } else {
+                calculationJdbcRepository.upsert(calculations);
+            }
+            stagingRepository.stage(jobInstanceId, BatchConstants.STAGE_CALCULATED, calculations.stream()
+                    .map(calculation -> new StagedItem(calculation.getEmployee().getIndividualId(), calculation.getCalculationId()))
+                    .collect(Collectors.toList()));
+        }
+        contribution.incrementWriteCount(calculations.size());
+        totalProcessed += calculations.size();
+
+        // Committed together with the page
+        executionContext.putString(BatchConstants.CONTEXT_CALCULATION_LAST_ID, page.lastIndividualId());
+        log.debug("Calculated page of {} employees for tenant {} ({}), {} so far", calculations.size(), tenantId, range, totalProcessed);
+
+        return RepeatStatus.continueIf(page.size() == pageSize);
+    }
+
+    /**
+     * Calculation rows of the page, as CalculationBatchWriter builds them from successful results
+     */
+    private List<PrePayrollCalculation> toCalculations(ContributionColumns page) {
+        PlanSnapshot snapshot = engine.snapshot();
+        LocalDateTime now = LocalDateTime.now();
+        List<PrePayrollCalculation> calculations = new ArrayList<>(page.size());
+        for (int row = 0; row < page.size(); row++) {
+            UUID employeeId = page.employeeId(row);
+            if (employeeId == null) {
+                missingCount++;
+                log.warn("Staged employee {} not found for tenant {} ({})", page.individualId(row), tenantId, range);
+                continue;
+            }
+            PlanParticipant employee = new PlanParticipant();
+            employee.setId(employeeId);
+            employee.setIndividualId(page.individualId(row));
+
+            PrePayrollCalculation calculation = new PrePayrollCalculation();
+            calculation.setCalculationId(CalculationIds.of(tenantId, page.individualId(row), payrollPeriodStart, payrollPeriodEnd));
+            calculation.setTenantId(tenantId);
+            calculation.setEmployee(employee);
+            calculation.setPayrollPeriodStart(payrollPeriodStart);
+            calculation.setPayrollPeriodEnd(payrollPeriodEnd);
+            calculation.setCalculationDate(now);
+            calculation.setStatus(PrePayrollCalculation.CalculationStatus.SUCCESS);
+            calculation.setReprocessedCount(0);
+
+            calculation.setBaseSalary(page.compensation(row));
+            calculation.setEligibleCompensation(page.compensation(row));
+            calculation.setEmployeeContributionAmount(page.employeeContribution(row));
+            calculation.setEmployeeContributionPercentage(page.employeeContributionPercent());
+            calculation.setEmployerMatchAmount(page.employerMatch(row));
+            calculation.setEmployerMatchPercentage(page.employerMatchPercent(row));
+            calculation.setProfitSharingAmount(page.profitSharing(row));
+            calculation.setProfitSharingPercentage(page.profitSharingPercent());
+            calculation.setTotalContributionAmount(page.totalContribution(row));
+            calculation.setTotalContributionPercentage(page.totalContributionPercent(row));
+
+            calculation.setPlanId(snapshot.planId());
+            calculation.setEmployerContributionRuleId(snapshot.employerContributionRuleId());
+            calculation.setEmployeeContributionConfigId(snapshot.employeeContributionConfigId());
+            calculation.setProfitSharingConfigId(snapshot.profitSharingConfigId());
+            calculation.setInputFingerprint(page.inputFingerprint(row, calculationFingerprint));
+
+            calculation.setCreatedAt(now);
+            calculation.setUpdatedAt(now);
+            calculation.setCreatedBy(AUDIT_USER);
+            calculation.setUpdatedBy(AUDIT_USER);
+            calculations.add(calculation);
+        }
+        return calculations;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        // Every calculated employee succeeds; employees removed since staging are not counted, as in the rules path
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_TOTAL_PROCESSED, totalProcessed);
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_SUCCESS_COUNT, totalProcessed);
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_FAILURE_COUNT, 0);
+
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey("calculationResultsCount", stepExecution), totalProcessed);
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey("totalCalculationsCount", stepExecution), totalProcessed);
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey(BatchConstants.CONTEXT_CALCULATIONS_RECOMPUTED, stepExecution), totalProcessed);
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey(BatchConstants.CONTEXT_CALCULATIONS_CARRIED_FORWARD, stepExecution), 0);
+
+        log.info("Bulk calculation complete for tenant: {} ({}): {} employees calculated, {} staged employees not found, {}ms computing",
+                tenantId, range, totalProcessed, missingCount, computeNanos / 1_000_000);
+        return stepExecution.getExitStatus();
+    }
+}
@@ -0,0 +1,195 @@
+package com.glidingpath.rules.contributions.bulk;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.common.dto.PlanSnapshot.MatchFormula;
+import com.glidingpath.common.util.ContributionMath;
+import com.glidingpath.rules.util.ContributionCalculator;
+
+/**
+ * The standard pre-payroll calculation (rules/standard/prepayroll.drl) for a whole page of
+ * employees at once, over {@link ContributionColumns}.
+ *
+ * Every result is one loop over the page's columns in long cents and basis points. The plan's
+ * match formula is chosen once per page, outside the loops, so loop bodies neither branch on plan
+ * values nor allocate. Results equal what the rules path stores for the same employees, scale
+ * included: the standard rules compute the {@link PlanSnapshot} formulas, the calculation
+ * processor falls back to the same formulas for zero results, and the engine applies both the
+ * formulas and the processor's zero cases.
+ *
+ * The loops only take values that leave every product far inside a long: rates between 0 and
+ * {@link #MAX_RATE_BASIS_POINTS} in whole basis points and compensation between 0 and
+ * {@link #MAX_COMPENSATION}. A plan outside that range is computed row by row with
+ * {@link ContributionCalculator}, and so is a single row outside it.
+ */
+public final class BulkContributionEngine {
+
+    // 1000%; with MAX_COMPENSATION the largest intermediate, 2 * total * 10,000, stays below 10^18
+    static final long MAX_RATE_BASIS_POINTS = 100_000;
+    // Whole currency units
+    static final long MAX_COMPENSATION = 1_000_000_000L;
+
+    // 100% in basis points, and half of it for rounding half-up
+    private static final long WHOLE = 10_000;
+    private static final long HALF = WHOLE / 2;
+    private static final long CENTS = ContributionMath.CENTS_PER_UNIT;
+
+    private final PlanSnapshot snapshot;
+    private final ContributionCalculator calculator;
+    // False when a rate is out of range for the loops; every row then goes through the calculator
+    private final boolean columnar;
+    private final long employeeContributionBasisPoints;
+    private final long matchBasisPoints;
+    private final long matchLimitBasisPoints;
+    private final long profitSharingBasisPoints;
+
+    private BulkContributionEngine(PlanSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.calculator = ContributionCalculator.of(snapshot);
+        long employee = 0;
+        long match = 0;
+        long matchLimit = 0;
+        long profitSharing = 0;
+        boolean inRange = calculator.hasExactRates();
+        if (inRange) {
+            employee = ContributionMath.toBasisPoints(snapshot.employeeContributionPercent());
+            match = ContributionMath.toBasisPoints(snapshot.matchPercent());
+            matchLimit = ContributionMath.toBasisPoints(snapshot.matchLimitPercent());
+            profitSharing = snapshot.profitSharingPercent() != null
+                    ? ContributionMath.toBasisPoints(snapshot.profitSharingPercent()) : 0;
+            inRange = isRate(employee) && isRate(match) && isRate(matchLimit) && isRate(profitSharing);
+        }
+        this.columnar = inRange;
+        this.employeeContributionBasisPoints = employee;
+        this.matchBasisPoints = match;
+        this.matchLimitBasisPoints = matchLimit;
+        this.profitSharingBasisPoints = profitSharing;
+    }
+
+    public static BulkContributionEngine of(PlanSnapshot snapshot) {
+        return new BulkContributionEngine(snapshot);
+    }
+
+    public PlanSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Whether the plan's rates fit the column loops; otherwise every row is computed with BigDecimal
+     */
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    /**
+     * Compute every result of the page in place
+     */
+    public void compute(ContributionColumns columns) {
+        int size = columns.size();
+        columns.decimalResults = null;
+        columns.employeeContributionPercent = orZero(snapshot.employeeContributionPercent());
+        columns.profitSharingPercent = orZero(snapshot.profitSharingPercent());
+        columns.employeeContributionScaled = employeeContributionBasisPoints > 0;
+        columns.employerMatchScaled = snapshot.matchFormula() != MatchFormula.NONE;
+        columns.employerMatchPercentScaled = snapshot.hasEmployerRule();
+        columns.profitSharingScaled = snapshot.profitSharingPercent() != null;
+
+        if (!columnar) {
+            for (int row = 0; row < size; row++) {
+                computeDecimal(columns, row);
+            }
+            return;
+        }
+
+        long[] compensation = columns.compensation;
+        long[] employeeContribution = columns.employeeContribution;
+        long[] employerMatch = columns.employerMatch;
+        long[] profitSharing = columns.profitSharing;
+        long[] total = columns.totalContribution;
+
+        for (int i = 0; i < size; i++) {
+            employeeContribution[i] = (compensation[i] * CENTS * employeeContributionBasisPoints + HALF) / WHOLE;
+        }
+
+        switch (snapshot.matchFormula()) {
+            case PERCENT_OF_CONTRIBUTION -> {
+                for (int i = 0; i < size; i++) {
+                    employerMatch[i] = (employeeContribution[i] * matchBasisPoints + HALF) / WHOLE;
+                }
+            }
+            case PERCENT_OF_COMPENSATION -> {
+                for (int i = 0; i < size; i++) {
+                    employerMatch[i] = (compensation[i] * CENTS * matchBasisPoints + HALF) / WHOLE;
+                }
+            }
+            case NONE -> Arrays.fill(employerMatch, 0, size, 0L);
+        }
+        if (snapshot.matchFormula() != MatchFormula.NONE && matchLimitBasisPoints > 0) {
+            for (int i = 0; i < size; i++) {
+                employerMatch[i] = Math.min(employerMatch[i], (compensation[i] * CENTS * matchLimitBasisPoints + HALF) / WHOLE);
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            profitSharing[i] = (compensation[i] * CENTS * profitSharingBasisPoints + HALF) / WHOLE;
+        }
+
+        for (int i = 0; i < size; i++) {
+            total[i] = employeeContribution[i] + employerMatch[i] + profitSharing[i];
+        }
+
+        // Shares half-up as (2 * amount * 10,000 + c) / 2c; without compensation the accessors return zero
+        long[] matchShare = columns.employerMatchShare;
+        long[] totalShare = columns.totalContributionShare;
+        for (int i = 0; i < size; i++) {
+            long compensationCents = Math.max(compensation[i] * CENTS, 1);
+            matchShare[i] = (2 * employerMatch[i] * WHOLE + compensationCents) / (2 * compensationCents);
+            totalShare[i] = (2 * total[i] * WHOLE + compensationCents) / (2 * compensationCents);
+        }
+
+        // Rows the loops cannot take; their column values are ignored
+        for (int row = 0; row < size; row++) {
+            if (compensation[row] < 0 || compensation[row] > MAX_COMPENSATION) {
+                computeDecimal(columns, row);
+            }
+        }
+    }
+
+    /**
+     * One row the way the calculation processor completes it, with BigDecimal where longs do not fit
+     */
+    private void computeDecimal(ContributionColumns columns, int row) {
+        long compensation = columns.compensation[row];
+        BigDecimal compensationAmount = BigDecimal.valueOf(compensation);
+
+        BigDecimal employeeContribution = calculator.employeeContribution(compensation);
+        BigDecimal employerMatch = calculator.employerMatch(employeeContribution, compensation);
+        BigDecimal employerMatchPercent = snapshot.hasEmployerRule()
+                ? ContributionCalculator.shareOf(employerMatch, compensationAmount) : BigDecimal.ZERO;
+        BigDecimal profitSharing = calculator.profitSharing(compensation);
+        BigDecimal total = employeeContribution.add(employerMatch).add(profitSharing);
+
+        BigDecimal[] results = new BigDecimal[ContributionColumns.RESULT_COUNT];
+        results[ContributionColumns.RESULT_EMPLOYEE_CONTRIBUTION] = employeeContribution;
+        results[ContributionColumns.RESULT_EMPLOYER_MATCH] = employerMatch;
+        results[ContributionColumns.RESULT_EMPLOYER_MATCH_PERCENT] = employerMatchPercent;
+        results[ContributionColumns.RESULT_PROFIT_SHARING] = profitSharing;
+        results[ContributionColumns.RESULT_TOTAL_CONTRIBUTION] = total;
+        results[ContributionColumns.RESULT_TOTAL_CONTRIBUTION_PERCENT] = ContributionCalculator.shareOf(total, compensationAmount);
+
+        if (columns.decimalResults == null) {
+            columns.decimalResults = new BigDecimal[columns.capacity()][];
+        }
+        columns.decimalResults[row] = results;
+    }
+
+    private static boolean isRate(long basisPoints) {
+        return basisPoints >= 0 && basisPoints <= MAX_RATE_BASIS_POINTS;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,67 @@
+package com.glidingpath.rules.contributions.bulk;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.core.repository.TenantPlanRepository;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses how prePayrollJob calculates contributions: with the pre-payroll rules per chunk, or with
+ * the {@link BulkContributionEngine} when batch.calculation.engine is "bulk", the tenant's rule set
+ * is the standard calculation rule set the engine reproduces, and the tenant has a plan. Tenants
+ * with their own calculation rules always run the rules.
+ *
+ * The choice is kept in the job execution context, so a restarted job continues with the engine
+ * its first execution chose even if the rules or the setting changed in between.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CalculationEngineDecider implements JobExecutionDecider {
+
+    private final TenantRuleResolver tenantRuleResolver;
+    private final TenantPlanRepository tenantPlanRepository;
+
+    // "rules" or "bulk"
+    @Value("${batch.calculation.engine:rules}")
+    private String engine;
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+        ExecutionContext jobContext = jobExecution.getExecutionContext();
+        String tenantId = jobExecution.getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+
+        String chosen = jobContext.containsKey(BatchConstants.CONTEXT_CALCULATION_ENGINE)
+                ? jobContext.getString(BatchConstants.CONTEXT_CALCULATION_ENGINE)
+                : choose(tenantId);
+        jobContext.putString(BatchConstants.CONTEXT_CALCULATION_ENGINE, chosen);
+
+        log.info("Calculating contributions of tenant {} with the {} engine", tenantId, chosen);
+        return new FlowExecutionStatus(chosen);
+    }
+
+    private String choose(String tenantId) {
+        if (!"bulk".equalsIgnoreCase(engine)) {
+            return BatchConstants.CALCULATION_ENGINE_RULES;
+        }
+        if (!tenantRuleResolver.resolve(tenantId).isStandardCalculation()) {
+            log.info("Tenant {} has its own calculation rules, using the rules engine", tenantId);
+            return BatchConstants.CALCULATION_ENGINE_RULES;
+        }
+        // Without a plan the rules path records a failed calculation per employee; keep that behaviour
+        if (tenantPlanRepository.findLatestEffectiveByTenantId(tenantId).isEmpty()) {
+            return BatchConstants.CALCULATION_ENGINE_RULES;
+        }
+        return BatchConstants.CALCULATION_ENGINE_BULK;
+    }
+}
@@ -0,0 +1,185 @@
+package com.glidingpath.rules.contributions.bulk;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import com.glidingpath.common.util.ContributionMath;
+import com.glidingpath.rules.util.CalculationFingerprint;
+
+/**
+ * One page of employees for the {@link BulkContributionEngine}, stored column by column: one
+ * primitive array per input and per result instead of one object per employee, so the engine's
+ * loops run over contiguous longs.
+ *
+ * Inputs are added with {@link #add}; compensation is in whole currency units as stored in
+ * finch_employee_details.income_amount, a missing amount counting as zero like the rules path.
+ * Results are in cents and basis points. Rows the engine cannot compute in longs carry their
+ * results as BigDecimal instead; the accessors return either kind as the rules path stores it.
+ * The participant fields the engine does not read are kept only for the rows' input fingerprints.
+ */
+public final class ContributionColumns {
+
+    static final int RESULT_EMPLOYEE_CONTRIBUTION = 0;
+    static final int RESULT_EMPLOYER_MATCH = 1;
+    static final int RESULT_EMPLOYER_MATCH_PERCENT = 2;
+    static final int RESULT_PROFIT_SHARING = 3;
+    static final int RESULT_TOTAL_CONTRIBUTION = 4;
+    static final int RESULT_TOTAL_CONTRIBUTION_PERCENT = 5;
+    static final int RESULT_COUNT = 6;
+
+    final String[] individualIds;
+    final UUID[] employeeIds;
+    final long[] compensation;
+
+    // Inputs of the fingerprint only
+    final String[] employmentStatuses;
+    final LocalDate[] dobs;
+    final LocalDate[] startDates;
+    final LocalDate[] latestRehireDates;
+
+    // Results in cents
+    final long[] employeeContribution;
+    final long[] employerMatch;
+    final long[] profitSharing;
+    final long[] totalContribution;
+    // Results in basis points of compensation
+    final long[] employerMatchShare;
+    final long[] totalContributionShare;
+
+    // BigDecimal results of rows outside the long range, indexed by the RESULT_ constants;
+    // null while every row is in range
+    BigDecimal[][] decimalResults;
+
+    // Per-plan values the engine sets for the accessors
+    BigDecimal employeeContributionPercent = BigDecimal.ZERO;
+    BigDecimal profitSharingPercent = BigDecimal.ZERO;
+    boolean employeeContributionScaled;
+    boolean employerMatchScaled;
+    boolean employerMatchPercentScaled;
+    boolean profitSharingScaled;
+
+    private int size;
+
+    public ContributionColumns(int capacity) {
+        this.individualIds = new String[capacity];
+        this.employeeIds = new UUID[capacity];
+        this.compensation = new long[capacity];
+        this.employmentStatuses = new String[capacity];
+        this.dobs = new LocalDate[capacity];
+        this.startDates = new LocalDate[capacity];
+        this.latestRehireDates = new LocalDate[capacity];
+        this.employeeContribution = new long[capacity];
+        this.employerMatch = new long[capacity];
+        this.profitSharing = new long[capacity];
+        this.totalContribution = new long[capacity];
+        this.employerMatchShare = new long[capacity];
+        this.totalContributionShare = new long[capacity];
+    }
+
+    /**
+     * Append an employee; employeeId is null when the participant no longer exists
+     */
+    public void add(String individualId, UUID employeeId, Long incomeAmount,
+                    String employmentStatus, LocalDate dob, LocalDate startDate, LocalDate latestRehireDate) {
+        individualIds[size] = individualId;
+        employeeIds[size] = employeeId;
+        compensation[size] = incomeAmount != null ? incomeAmount : 0L;
+        employmentStatuses[size] = employmentStatus;
+        dobs[size] = dob;
+        startDates[size] = startDate;
+        latestRehireDates[size] = latestRehireDate;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return individualIds.length;
+    }
+
+    public String individualId(int row) {
+        return individualIds[row];
+    }
+
+    public UUID employeeId(int row) {
+        return employeeIds[row];
+    }
+
+    /**
+     * Last individualId of the page, where the next page starts; null for an empty page
+     */
+    public String lastIndividualId() {
+        return size > 0 ? individualIds[size - 1] : null;
+    }
+
+    /**
+     * Fingerprint of the row's inputs, the same the rules path stores for the participant
+     */
+    public String inputFingerprint(int row, CalculationFingerprint fingerprint) {
+        return fingerprint.of(compensation[row], employmentStatuses[row], dobs[row], startDates[row], latestRehireDates[row]);
+    }
+
+    public BigDecimal compensation(int row) {
+        return BigDecimal.valueOf(compensation[row]);
+    }
+
+    public BigDecimal employeeContribution(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_EMPLOYEE_CONTRIBUTION];
+        }
+        return employeeContributionScaled && compensation[row] > 0
+                ? ContributionMath.fromCents(employeeContribution[row]) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal employeeContributionPercent() {
+        return employeeContributionPercent;
+    }
+
+    public BigDecimal employerMatch(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_EMPLOYER_MATCH];
+        }
+        return employerMatchScaled ? ContributionMath.fromCents(employerMatch[row]) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal employerMatchPercent(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_EMPLOYER_MATCH_PERCENT];
+        }
+        return employerMatchPercentScaled && compensation[row] > 0
+                ? ContributionMath.fromBasisPoints(employerMatchShare[row]) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal profitSharing(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_PROFIT_SHARING];
+        }
+        return profitSharingScaled ? ContributionMath.fromCents(profitSharing[row]) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal profitSharingPercent() {
+        return profitSharingPercent;
+    }
+
+    public BigDecimal totalContribution(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_TOTAL_CONTRIBUTION];
+        }
+        boolean scaled = (employeeContributionScaled && compensation[row] > 0) || employerMatchScaled || profitSharingScaled;
+        return scaled ? ContributionMath.fromCents(totalContribution[row]) : BigDecimal.ZERO;
+    }
+
+    public BigDecimal totalContributionPercent(int row) {
+        if (isDecimal(row)) {
+            return decimalResults[row][RESULT_TOTAL_CONTRIBUTION_PERCENT];
+        }
+        return compensation[row] > 0 ? ContributionMath.fromBasisPoints(totalContributionShare[row]) : BigDecimal.ZERO;
+    }
+
+    private boolean isDecimal(int row) {
+        return decimalResults != null && decimalResults[row] != null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.glidingpath.rules.contributions.enrollment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.service.FinchBenefitService;
+import com.glidingpath.common.util.AppException;
+import com.glidingpath.common.util.ErrorCode;
+import com.glidingpath.rules.contributions.async.FinchRateLimiter;
+import com.glidingpath.rules.repository.FinchEnrollmentJobRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The tenant's 401k benefit in Finch, which the deduction step enrolls employees into.
+ *
+ * The benefit is looked up among the benefits FinchBenefitService stored in finch_benefits, and
+ * created once when the tenant has none. Creation is serialized per tenant, so concurrent steps of
+ * one tenant do not create two benefits. Resolved ids are kept for the life of the process.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FinchBenefitResolver {
+
+    private static final String BENEFIT_TYPE = "401k";
+    private static final String BENEFIT_DESCRIPTION = "401(k) Retirement Plan";
+    private static final String BENEFIT_FREQUENCY = "every_paycheck";
+
+    private final FinchBenefitService finchBenefitService;
+    private final FinchEnrollmentJobRepository enrollmentJobRepository;
+    private final FinchRateLimiter finchRateLimiter;
+
+    private final Map<String, String> benefitIds = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Benefit id of the tenant's 401k benefit, creating the benefit if the tenant has none
+     */
+    public String resolve(String tenantId) throws Exception {
+        String benefitId = benefitIds.get(tenantId);
+        if (benefitId != null) {
+            return benefitId;
+        }
+        synchronized (locks.computeIfAbsent(tenantId, id -> new Object())) {
+            benefitId = benefitIds.get(tenantId);
+            if (benefitId == null) {
+                benefitId = enrollmentJobRepository.findBenefitId(tenantId, BENEFIT_TYPE).orElse(null);
+            }
+            if (benefitId == null) {
+                benefitId = create(tenantId);
+            }
+            benefitIds.put(tenantId, benefitId);
+            return benefitId;
+        }
+    }
+
+    private String create(String tenantId) throws Exception {
+        Map<String, Object> requestBody = Map.of(
+                "type", BENEFIT_TYPE,
+                "description", BENEFIT_DESCRIPTION,
+                "frequency", BENEFIT_FREQUENCY);
+        Map<String, String> response = finchRateLimiter.call(tenantId,
+                () -> finchBenefitService.createDeduction(tenantId, requestBody));
+        String benefitId = response.get("benefit_id");
+        if (benefitId == null) {
+            throw new AppException(ErrorCode.FINCH_API_ERROR, "Finch returned no benefit id for the 401k benefit of tenant " + tenantId);
+        }
+        log.info("Created 401k benefit {} in Finch for tenant {}", benefitId, tenantId);
+        return benefitId;
+    }
+}
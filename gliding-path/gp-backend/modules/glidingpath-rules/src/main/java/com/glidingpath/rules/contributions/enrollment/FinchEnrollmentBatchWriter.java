@@ -0,0 +1,285 @@
+package com.glidingpath.rules.contributions.enrollment;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.dto.PrePayrollCalculationDTO;
+import com.glidingpath.common.service.FinchBenefitService;
+import com.glidingpath.common.util.ContributionMath;
+import com.glidingpath.rules.contributions.async.FinchRateLimiter;
+import com.glidingpath.rules.contributions.writer.FinchDeductionBatchWriter;
+import com.glidingpath.rules.repository.FinchEnrollmentJob;
+import com.glidingpath.rules.repository.FinchEnrollmentJobRepository;
+import com.glidingpath.rules.util.PayPeriods;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writer of the deduction step in enrollment mode: enrolls a chunk's employees into the tenant's
+ * 401k benefit with a few multi-individual Finch calls, instead of creating a benefit per employee.
+ *
+ * Successful calculations are grouped by their contribution configuration (plan, employee
+ * contribution, employer rule and profit sharing), and each group is enrolled with one
+ * enrollIndividualsInDeduction call of up to batch.deduction.enrollment.max-individuals employees.
+ * The calculation's amounts are annual totals in cents, like the income they are computed from; the
+ * benefit deducts every paycheck, so each employee is enrolled with the annual deduction and company
+ * contribution divided by the pay periods per year of the calculation's payroll period. The calls
+ * run together on the deduction executor, each holding to the tenant's Finch rate limit.
+ *
+ * Finch accepts an enrollment as an asynchronous job. Every employee of an accepted call is
+ * CREATED with the call's job id, and the jobs are recorded in finch_enrollment_jobs for
+ * FinchEnrollmentJobTasklet to follow until Finch completes them. Employees of a rejected call are
+ * FAILED. The results then go through FinchDeductionBatchWriter, which stores them and keeps the
+ * step's counts as in per-employee mode.
+ *
+ * The calls are made once per chunk. Their outcome is kept per employee until the item commits, so
+ * when a failed write is retried, or scanned item by item to find the one to skip, employees already
+ * sent to Finch get their earlier outcome and their jobs are recorded again instead of enrolled again.
+ */
+@Slf4j
+@Component
+@StepScope
+public class FinchEnrollmentBatchWriter implements ItemWriter<PrePayrollCalculationDTO>, StepExecutionListener, ChunkListener {
+
+    private final FinchBenefitService finchBenefitService;
+    private final FinchBenefitResolver finchBenefitResolver;
+    private final FinchRateLimiter finchRateLimiter;
+    private final FinchEnrollmentJobRepository enrollmentJobRepository;
+    private final FinchDeductionBatchWriter deductionWriter;
+    private final ThreadPoolTaskExecutor finchDeductionExecutor;
+    private final int maxIndividuals;
+
+    private String tenantId;
+    private long jobInstanceId;
+    private String benefitId;
+    private int enrollmentCalls = 0;
+    // Outcome per employee of enrollment calls whose items have not committed yet. A scan commits
+    // one item at a time, so entries are dropped per committed write, not per chunk.
+    private final Map<String, Enrollment> chunkEnrollments = new HashMap<>();
+    private List<String> writtenEmployeeIds = List.of();
+
+    public FinchEnrollmentBatchWriter(FinchBenefitService finchBenefitService,
+                                      FinchBenefitResolver finchBenefitResolver,
+                                      FinchRateLimiter finchRateLimiter,
+                                      FinchEnrollmentJobRepository enrollmentJobRepository,
+                                      FinchDeductionBatchWriter deductionWriter,
+                                      @Qualifier("finchDeductionExecutor") ThreadPoolTaskExecutor finchDeductionExecutor,
+                                      @Value("${batch.deduction.enrollment.max-individuals:" + BatchConstants.ENROLLMENT_MAX_INDIVIDUALS + "}") int maxIndividuals) {
+        this.finchBenefitService = finchBenefitService;
+        this.finchBenefitResolver = finchBenefitResolver;
+        this.finchRateLimiter = finchRateLimiter;
+        this.enrollmentJobRepository = enrollmentJobRepository;
+        this.deductionWriter = deductionWriter;
+        this.finchDeductionExecutor = finchDeductionExecutor;
+        this.maxIndividuals = maxIndividuals;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+        this.benefitId = null;
+        this.enrollmentCalls = 0;
+        this.chunkEnrollments.clear();
+        log.info("Initializing FinchEnrollmentBatchWriter for tenant: {}, up to {} individuals per enrollment", tenantId, maxIndividuals);
+    }
+
+    @Override
+    public void write(Chunk<? extends PrePayrollCalculationDTO> chunk) throws Exception {
+        Map<ContributionConfiguration, List<PrePayrollCalculationDTO>> groups = new LinkedHashMap<>();
+        Map<String, FinchEnrollmentJob> jobs = new LinkedHashMap<>();
+        writtenEmployeeIds = chunk.getItems().stream().map(PrePayrollCalculationDTO::getEmployeeId).toList();
+        for (PrePayrollCalculationDTO calculation : chunk.getItems()) {
+            if (!"SUCCESS".equals(calculation.getStatus())) {
+                calculation.setFinchStatus("SKIPPED");
+                calculation.setErrorMessage("Skipped: Calculation not successful");
+                continue;
+            }
+            Enrollment earlier = chunkEnrollments.get(calculation.getEmployeeId());
+            if (earlier != null) {
+                // A retry or scan of this chunk; the rollback undid the stored outcome, not the Finch call
+                earlier.applyTo(calculation);
+                if (earlier.job() != null) {
+                    jobs.putIfAbsent(earlier.job().jobId(), earlier.job());
+                }
+                continue;
+            }
+            groups.computeIfAbsent(ContributionConfiguration.of(calculation), key -> new ArrayList<>()).add(calculation);
+        }
+
+        if (!groups.isEmpty()) {
+            enroll(groups, jobs);
+        }
+        enrollmentJobRepository.record(List.copyOf(jobs.values()));
+        deductionWriter.write(chunk);
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        writtenEmployeeIds.forEach(chunkEnrollments::remove);
+    }
+
+    private void enroll(Map<ContributionConfiguration, List<PrePayrollCalculationDTO>> groups, Map<String, FinchEnrollmentJob> jobs) {
+        String benefit;
+        try {
+            benefit = benefitId();
+        } catch (Exception e) {
+            log.error("No 401k benefit to enroll into for tenant: {}", tenantId, e);
+            // Nothing was sent to Finch, so a retry may try again
+            groups.values().forEach(group -> fail(group, "Finch benefit unavailable: " + e.getMessage()));
+            return;
+        }
+
+        // Every call of the chunk is in flight before the first is awaited
+        List<List<PrePayrollCalculationDTO>> enrollments = new ArrayList<>();
+        List<Future<String>> jobIds = new ArrayList<>();
+        for (List<PrePayrollCalculationDTO> group : groups.values()) {
+            for (int from = 0; from < group.size(); from += maxIndividuals) {
+                List<PrePayrollCalculationDTO> enrollment = group.subList(from, Math.min(from + maxIndividuals, group.size()));
+                enrollments.add(enrollment);
+                jobIds.add(finchDeductionExecutor.submit(() -> enroll(benefit, enrollment)));
+            }
+        }
+
+        for (int i = 0; i < enrollments.size(); i++) {
+            List<PrePayrollCalculationDTO> enrollment = enrollments.get(i);
+            Enrollment outcome;
+            try {
+                String jobId = jobIds.get(i).get();
+                FinchEnrollmentJob job = jobId != null
+                        ? new FinchEnrollmentJob(tenantId, jobId, benefit, jobInstanceId, enrollment.size()) : null;
+                outcome = new Enrollment(benefit, jobId, job, null);
+                if (job != null) {
+                    jobs.put(jobId, job);
+                }
+            } catch (ExecutionException e) {
+                log.error("Failed to enroll {} employees in benefit {} for tenant: {}", enrollment.size(), benefit, tenantId, e.getCause());
+                outcome = new Enrollment(null, null, null, "Finch enrollment failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcome = new Enrollment(null, null, null, "Finch enrollment interrupted");
+            }
+            for (PrePayrollCalculationDTO calculation : enrollment) {
+                outcome.applyTo(calculation);
+                chunkEnrollments.put(calculation.getEmployeeId(), outcome);
+            }
+        }
+        enrollmentCalls += enrollments.size();
+        log.debug("Enrolled chunk for tenant {} with {} Finch calls over {} contribution configurations",
+                tenantId, enrollments.size(), groups.size());
+    }
+
+    /**
+     * One enrollment call; the id of the Finch job it started
+     */
+    private String enroll(String benefit, List<PrePayrollCalculationDTO> enrollment) throws Exception {
+        List<Map<String, Object>> individuals = new ArrayList<>(enrollment.size());
+        for (PrePayrollCalculationDTO calculation : enrollment) {
+            individuals.add(toIndividual(calculation));
+        }
+        Map<String, Object> response = finchRateLimiter.call(tenantId,
+                () -> finchBenefitService.enrollIndividualsInDeduction(tenantId, benefit, individuals));
+        Object jobId = response.get("job_id");
+        return jobId != null ? jobId.toString() : null;
+    }
+
+    /**
+     * The employee's enrollment: the deduction and company contribution of one paycheck, fixed
+     * amounts in cents
+     */
+    private static Map<String, Object> toIndividual(PrePayrollCalculationDTO calculation) {
+        int payPeriods = PayPeriods.perYear(calculation.getPayrollPeriodStart(), calculation.getPayrollPeriodEnd());
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put("employee_deduction", Map.of("type", "fixed",
+                "amount", ContributionMath.divideHalfUp(cents(calculation.getEmployeeContributionAmount()), payPeriods)));
+        long companyContribution = ContributionMath.divideHalfUp(
+                cents(calculation.getEmployerMatchAmount()) + cents(calculation.getProfitSharingAmount()), payPeriods);
+        if (companyContribution > 0) {
+            configuration.put("company_contribution", Map.of("type", "fixed", "amount", companyContribution));
+        }
+        Map<String, Object> individual = new HashMap<>();
+        individual.put("individual_id", calculation.getEmployeeId());
+        individual.put("configuration", configuration);
+        return individual;
+    }
+
+    /**
+     * An annual amount, already in cents, rounded to whole cents
+     */
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.setScale(0, RoundingMode.HALF_UP).longValueExact() : 0;
+    }
+
+    private static void fail(List<PrePayrollCalculationDTO> calculations, String message) {
+        calculations.forEach(calculation -> {
+            calculation.setFinchStatus("FAILED");
+            calculation.setFinchErrorMessage(message);
+        });
+    }
+
+    private String benefitId() throws Exception {
+        if (benefitId == null) {
+            benefitId = finchBenefitResolver.resolve(tenantId);
+        }
+        return benefitId;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_CALLS, enrollmentCalls);
+        log.info("Finch enrollment for tenant {}: {} enrollment calls into benefit {}", tenantId, enrollmentCalls, benefitId);
+        return stepExecution.getExitStatus();
+    }
+
+    /**
+     * What one enrollment call did for its employees: accepted as a Finch job (job is null if Finch
+     * returned no job id), or failed with failure
+     */
+    private record Enrollment(String benefitId, String jobId, FinchEnrollmentJob job, String failure) {
+
+        void applyTo(PrePayrollCalculationDTO calculation) {
+            if (failure != null) {
+                calculation.setFinchStatus("FAILED");
+                calculation.setFinchErrorMessage(failure);
+            } else {
+                calculation.setFinchStatus("CREATED");
+                calculation.setFinchBenefitId(benefitId);
+                calculation.setFinchJobId(jobId);
+            }
+        }
+    }
+
+    /**
+     * The plan configuration a calculation's amounts come from; employees sharing one are enrolled together
+     */
+    private record ContributionConfiguration(UUID planId, UUID employeeContributionConfigId,
+                                             UUID employerContributionRuleId, UUID profitSharingConfigId) {
+
+        static ContributionConfiguration of(PrePayrollCalculationDTO calculation) {
+            return new ContributionConfiguration(calculation.getPlanId(), calculation.getEmployeeContributionConfigId(),
+                    calculation.getEmployerContributionRuleId(), calculation.getProfitSharingConfigId());
+        }
+    }
+}
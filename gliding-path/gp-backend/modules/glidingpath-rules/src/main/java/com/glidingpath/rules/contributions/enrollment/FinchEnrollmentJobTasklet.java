@@ -0,0 +1,157 @@
+package com.glidingpath.rules.contributions.enrollment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatListener;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.service.FinchBenefitService;
+import com.glidingpath.rules.contributions.async.FinchRateLimiter;
+import com.glidingpath.rules.repository.FinchEnrollmentJob;
+import com.glidingpath.rules.repository.FinchEnrollmentJobRepository;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Follows the Finch enrollment jobs of the job instance until Finch finishes them.
+ *
+ * Each execution asks Finch for the status of every job still pending and stores it. A job that
+ * ends in an error fails the calculations it enrolled. While jobs remain, the tasklet runs again
+ * after batch.deduction.enrollment.poll-interval-seconds, up to
+ * batch.deduction.enrollment.job-timeout-seconds after the step started; jobs still running then
+ * stay pending in finch_enrollment_jobs. Per-employee deductions start no jobs, and the step ends
+ * at once.
+ *
+ * The wait happens in {@link #after}, registered on the step's repeat operations, which runs once
+ * the execution's transaction has committed; no connection or transaction is held while waiting.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class FinchEnrollmentJobTasklet implements Tasklet, StepExecutionListener, RepeatListener {
+
+    private static final String AUDIT_USER = "Spring Batch Finch Deduction Job";
+    private static final String STATUS_PENDING = "pending";
+    private static final String STATUS_IN_PROGRESS = "in_progress";
+    private static final String STATUS_COMPLETE = "complete";
+
+    private final FinchBenefitService finchBenefitService;
+    private final FinchRateLimiter finchRateLimiter;
+    private final FinchEnrollmentJobRepository enrollmentJobRepository;
+    private final PrePayrollCalculationJdbcRepository calculationJdbcRepository;
+
+    @Value("${batch.deduction.enrollment.poll-interval-seconds:10}")
+    private long pollIntervalSeconds;
+
+    @Value("${batch.deduction.enrollment.job-timeout-seconds:600}")
+    private long jobTimeoutSeconds;
+
+    private String tenantId;
+    private long jobInstanceId;
+    private long deadline;
+    private int completeCount = 0;
+    private int failedCount = 0;
+    private int pendingCount = 0;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+        this.deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(jobTimeoutSeconds);
+        this.completeCount = 0;
+        this.failedCount = 0;
+        this.pendingCount = 0;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        List<FinchEnrollmentJob> unfinished = enrollmentJobRepository.findUnfinished(jobInstanceId);
+        pendingCount = 0;
+        for (FinchEnrollmentJob job : unfinished) {
+            poll(job);
+        }
+        if (pendingCount == 0) {
+            return RepeatStatus.FINISHED;
+        }
+        if (System.nanoTime() - deadline > 0) {
+            log.warn("{} Finch enrollment jobs of tenant {} still running after {}s, leaving them pending",
+                    pendingCount, tenantId, jobTimeoutSeconds);
+            return RepeatStatus.FINISHED;
+        }
+        log.debug("{} Finch enrollment jobs of tenant {} still running, polling again in {}s", pendingCount, tenantId, pollIntervalSeconds);
+        return RepeatStatus.CONTINUABLE;
+    }
+
+    /**
+     * Wait for the next poll between two executions, outside their transactions
+     */
+    @Override
+    public void after(RepeatContext context, RepeatStatus result) {
+        if (!result.isContinuable()) {
+            return;
+        }
+        try {
+            TimeUnit.SECONDS.sleep(pollIntervalSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void poll(FinchEnrollmentJob job) {
+        String status;
+        try {
+            Map<String, Object> response = finchRateLimiter.call(tenantId,
+                    () -> finchBenefitService.getJobStatus(tenantId, job.jobId()));
+            status = String.valueOf(response.get("status"));
+        } catch (Exception e) {
+            // Asked again on the next poll
+            log.warn("Could not get the status of Finch enrollment job {} for tenant {}: {}", job.jobId(), tenantId, e.getMessage());
+            pendingCount++;
+            return;
+        }
+
+        if (STATUS_PENDING.equals(status) || STATUS_IN_PROGRESS.equals(status)) {
+            enrollmentJobRepository.updateStatus(job.jobId(), status, null, null);
+            pendingCount++;
+        } else if (STATUS_COMPLETE.equals(status)) {
+            enrollmentJobRepository.updateStatus(job.jobId(), status, null, LocalDateTime.now());
+            completeCount++;
+        } else {
+            String message = "Finch enrollment job " + job.jobId() + " ended with status " + status;
+            enrollmentJobRepository.updateStatus(job.jobId(), status, message, LocalDateTime.now());
+            int failed = calculationJdbcRepository.failFinchJob(tenantId, job.jobId(), message, AUDIT_USER);
+            failedCount++;
+            log.error("{}; {} calculations of tenant {} marked failed", message, failed, tenantId);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_COMPLETE, completeCount);
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_FAILED, failedCount);
+        stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_PENDING, pendingCount);
+        stepExecution.getJobExecution().getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_COMPLETE, completeCount);
+        stepExecution.getJobExecution().getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_FAILED, failedCount);
+        stepExecution.getJobExecution().getExecutionContext().put(BatchConstants.CONTEXT_ENROLLMENT_JOBS_PENDING, pendingCount);
+        log.info("Finch enrollment jobs of tenant {}: {} complete, {} failed, {} still pending",
+                tenantId, completeCount, failedCount, pendingCount);
+        return stepExecution.getExitStatus();
+    }
+}
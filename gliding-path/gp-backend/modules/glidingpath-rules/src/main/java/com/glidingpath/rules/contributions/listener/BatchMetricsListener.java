@@ -0,0 +1,333 @@
+package com.glidingpath.rules.contributions.listener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterChunk;
+import org.springframework.batch.core.annotation.AfterChunkError;
+import org.springframework.batch.core.annotation.AfterJob;
+import org.springframework.batch.core.annotation.AfterProcess;
+import org.springframework.batch.core.annotation.AfterRead;
+import org.springframework.batch.core.annotation.AfterStep;
+import org.springframework.batch.core.annotation.AfterWrite;
+import org.springframework.batch.core.annotation.BeforeChunk;
+import org.springframework.batch.core.annotation.BeforeProcess;
+import org.springframework.batch.core.annotation.BeforeRead;
+import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.annotation.BeforeWrite;
+import org.springframework.batch.core.annotation.OnProcessError;
+import org.springframework.batch.core.annotation.OnReadError;
+import org.springframework.batch.core.annotation.OnWriteError;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+import constants.BatchConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+/**
+ * Micrometer metrics of the batch jobs, tagged by tenant, job and step.
+ *
+ * Registered with a single listener(...) call on a job and each of its steps; the annotated
+ * callbacks cover the job, step, chunk and item events, and {@link #getRetryListener} adds retries
+ * on fault-tolerant steps. Partition workers are tagged with their worker step name, without the
+ * partition suffix. Chunk, item and counter meters belong to the steps that run chunks, so a
+ * partition manager does not count its workers' items again. The meters are:
+ * <ul>
+ *   <li>timers batch.job, batch.step (tagged with the status too), batch.chunk, batch.read,
+ *       batch.process and batch.write</li>
+ *   <li>counters batch.items.read, batch.items.written, batch.items.skipped, batch.items.filtered
+ *       and batch.items.retried</li>
+ *   <li>gauges batch.step.items.per.second (items written per second by the running executions)
+ *       and batch.partitions.in.flight (running partition worker executions)</li>
+ * </ul>
+ * Without a MeterRegistry in the context the meters record nowhere.
+ */
+@Component
+public class BatchMetricsListener {
+
+    private static final String PARTITION_SEPARATOR = ":partition";
+    private static final String NO_TENANT = "none";
+
+    private final MeterRegistry meterRegistry;
+    // Running step executions by id, and by the tags their gauges are published under
+    private final Map<Long, StepRun> running = new ConcurrentHashMap<>();
+    private final Map<Tags, Set<StepRun>> runningByTags = new ConcurrentHashMap<>();
+    // The meters of the chunk the current thread is in, and when its chunk, read, process or write began
+    private final ThreadLocal<ChunkMeters> current = new ThreadLocal<>();
+    private final ThreadLocal<long[]> started = ThreadLocal.withInitial(() -> new long[4]);
+
+    private final RetryListener retryListener = new RetryListener() {
+        @Override
+        public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+            StepContext stepContext = StepSynchronizationManager.getContext();
+            StepRun run = stepContext != null ? running.get(stepContext.getStepExecution().getId()) : null;
+            if (run != null && run.chunkMeters != null) {
+                run.chunkMeters.retried.increment();
+            }
+        }
+    };
+
+    public BatchMetricsListener(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable(CompositeMeterRegistry::new);
+    }
+
+    /**
+     * Counts the retried item attempts of a fault-tolerant step
+     */
+    public RetryListener getRetryListener() {
+        return retryListener;
+    }
+
+    @AfterJob
+    public void afterJob(JobExecution jobExecution) {
+        if (jobExecution.getStartTime() == null) {
+            return;
+        }
+        Timer.builder("batch.job")
+                .description("Batch job execution time")
+                .tags(Tags.of("tenant", tenantOf(jobExecution), "job", jobExecution.getJobInstance().getJobName(),
+                        "status", jobExecution.getStatus().name()))
+                .register(meterRegistry)
+                .record(Duration.between(jobExecution.getStartTime(), LocalDateTime.now()));
+    }
+
+    @BeforeStep
+    public void beforeStep(StepExecution stepExecution) {
+        running.computeIfAbsent(stepExecution.getId(), id -> {
+            StepRun run = new StepRun(stepExecution);
+            runningByTags.computeIfAbsent(run.tags, this::registerGauges).add(run);
+            return run;
+        });
+    }
+
+    @AfterStep
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        StepRun run = running.remove(stepExecution.getId());
+        if (run != null) {
+            if (run.chunkMeters != null) {
+                run.chunkMeters.count(stepExecution);
+            }
+            runningByTags.get(run.tags).remove(run);
+            Timer.builder("batch.step")
+                    .description("Batch step execution time")
+                    .tags(run.tags.and("status", stepExecution.getExitStatus().getExitCode()))
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - run.startNanos, TimeUnit.NANOSECONDS);
+        }
+        return stepExecution.getExitStatus();
+    }
+
+    @BeforeChunk
+    public void beforeChunk(ChunkContext context) {
+        StepRun run = running.get(context.getStepContext().getStepExecution().getId());
+        if (run != null) {
+            if (run.chunkMeters == null) {
+                run.chunkMeters = new ChunkMeters(run.tags);
+            }
+            current.set(run.chunkMeters);
+        }
+        started.get()[0] = System.nanoTime();
+    }
+
+    @AfterChunk
+    public void afterChunk(ChunkContext context) {
+        endChunk(context);
+    }
+
+    @AfterChunkError
+    public void afterChunkError(ChunkContext context) {
+        endChunk(context);
+    }
+
+    private void endChunk(ChunkContext context) {
+        ChunkMeters meters = current.get();
+        if (meters != null) {
+            meters.chunk.record(System.nanoTime() - started.get()[0], TimeUnit.NANOSECONDS);
+            meters.count(context.getStepContext().getStepExecution());
+            current.remove();
+        }
+    }
+
+    @BeforeRead
+    public void beforeRead() {
+        started.get()[1] = System.nanoTime();
+    }
+
+    @AfterRead
+    public void afterRead(Object item) {
+        record(1, meters -> meters.read);
+    }
+
+    @OnReadError
+    public void onReadError(Exception e) {
+        record(1, meters -> meters.read);
+    }
+
+    @BeforeProcess
+    public void beforeProcess(Object item) {
+        started.get()[2] = System.nanoTime();
+    }
+
+    @AfterProcess
+    public void afterProcess(Object item, Object result) {
+        record(2, meters -> meters.process);
+    }
+
+    @OnProcessError
+    public void onProcessError(Object item, Exception e) {
+        record(2, meters -> meters.process);
+    }
+
+    @BeforeWrite
+    public void beforeWrite(Chunk<?> items) {
+        started.get()[3] = System.nanoTime();
+    }
+
+    @AfterWrite
+    public void afterWrite(Chunk<?> items) {
+        record(3, meters -> meters.write);
+    }
+
+    @OnWriteError
+    public void onWriteError(Exception e, Chunk<?> items) {
+        record(3, meters -> meters.write);
+    }
+
+    private void record(int phase, Function<ChunkMeters, Timer> timer) {
+        ChunkMeters meters = current.get();
+        if (meters != null) {
+            timer.apply(meters).record(System.nanoTime() - started.get()[phase], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Set<StepRun> registerGauges(Tags tags) {
+        Set<StepRun> runs = ConcurrentHashMap.newKeySet();
+        Gauge.builder("batch.step.items.per.second", runs, BatchMetricsListener::itemsPerSecond)
+                .description("Items written per second by the running executions of the step")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("batch.partitions.in.flight", runs, set -> set.stream().filter(run -> run.partition).count())
+                .description("Running partition worker executions of the step")
+                .tags(tags)
+                .register(meterRegistry);
+        return runs;
+    }
+
+    private static double itemsPerSecond(Set<StepRun> runs) {
+        double itemsPerSecond = 0;
+        long now = System.nanoTime();
+        for (StepRun run : runs) {
+            double seconds = (now - run.startNanos) / 1e9;
+            if (seconds > 0 && run.chunkMeters != null) {
+                itemsPerSecond += run.stepExecution.getWriteCount() / seconds;
+            }
+        }
+        return itemsPerSecond;
+    }
+
+    private static String tenantOf(JobExecution jobExecution) {
+        String tenantId = jobExecution.getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        return tenantId != null ? tenantId : NO_TENANT;
+    }
+
+    /**
+     * A running step execution; its chunk meters are registered with its first chunk
+     */
+    private static final class StepRun {
+
+        final StepExecution stepExecution;
+        final Tags tags;
+        final boolean partition;
+        final long startNanos = System.nanoTime();
+        volatile ChunkMeters chunkMeters;
+
+        StepRun(StepExecution stepExecution) {
+            this.stepExecution = stepExecution;
+            String stepName = stepExecution.getStepName();
+            int separator = stepName.indexOf(PARTITION_SEPARATOR);
+            this.partition = separator >= 0;
+            this.tags = Tags.of("tenant", tenantOf(stepExecution.getJobExecution()),
+                    "job", stepExecution.getJobExecution().getJobInstance().getJobName(),
+                    "step", partition ? stepName.substring(0, separator) : stepName);
+        }
+    }
+
+    /**
+     * The chunk and item meters of a step execution, and the counts it has already added to the counters
+     */
+    private final class ChunkMeters {
+
+        final Timer chunk;
+        final Timer read;
+        final Timer process;
+        final Timer write;
+        final Counter readCount;
+        final Counter writeCount;
+        final Counter skipCount;
+        final Counter filterCount;
+        final Counter retried;
+        final Tags tags;
+        long countedRead;
+        long countedWrite;
+        long countedSkip;
+        long countedFilter;
+
+        ChunkMeters(Tags tags) {
+            this.tags = tags;
+            this.chunk = timer("batch.chunk", "Time to read, process and write a chunk");
+            this.read = timer("batch.read", "Time to read an item");
+            this.process = timer("batch.process", "Time to process an item");
+            this.write = timer("batch.write", "Time to write a chunk");
+            this.readCount = counter("batch.items.read", "Items read");
+            this.writeCount = counter("batch.items.written", "Items written");
+            this.skipCount = counter("batch.items.skipped", "Items skipped after errors");
+            this.filterCount = counter("batch.items.filtered", "Items the processor filtered out");
+            this.retried = counter("batch.items.retried", "Failed attempts retried by a fault-tolerant step");
+        }
+
+        /**
+         * Add what the step execution counted since the last call
+         */
+        synchronized void count(StepExecution stepExecution) {
+            countedRead = add(readCount, stepExecution.getReadCount(), countedRead);
+            countedWrite = add(writeCount, stepExecution.getWriteCount(), countedWrite);
+            countedSkip = add(skipCount, stepExecution.getSkipCount(), countedSkip);
+            countedFilter = add(filterCount, stepExecution.getFilterCount(), countedFilter);
+        }
+
+        private long add(Counter counter, long total, long counted) {
+            if (total > counted) {
+                counter.increment(total - counted);
+            }
+            return Math.max(total, counted);
+        }
+
+        private Timer timer(String name, String description) {
+            return Timer.builder(name).description(description).tags(tags).register(meterRegistry);
+        }
+
+        private Counter counter(String name, String description) {
+            return Counter.builder(name).description(description).tags(tags).register(meterRegistry);
+        }
+    }
+}
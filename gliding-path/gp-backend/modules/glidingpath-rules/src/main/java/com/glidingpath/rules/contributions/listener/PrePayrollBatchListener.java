@@ -1,10 +1,19 @@
 package com.glidingpath.rules.contributions.listener;
 
+import com.glidingpath.rules.contributions.EligibilityEvaluationDate;
+import com.glidingpath.rules.contributions.lock.TenantJobLock;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+
+import constants.BatchConstants;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.annotation.AfterJob;
 import org.springframework.batch.core.annotation.BeforeJob;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -14,11 +23,24 @@ import java.time.LocalDateTime;
  * 
  * Provides comprehensive monitoring of both job and step execution
  * to ensure proper read/write counting and progress tracking.
+ * 
+ * Removes the job instance's prepayroll_staging rows once the job has completed. After a failure
+ * they are kept, so a restart of the same instance can continue from the completed steps; if the
+ * instance is not restarted within batch.prepayroll.staging.restart-window-days, batchMetadataArchiveJob
+ * removes them.
+ * 
+ * Records the execution on the tenant's job lock when the job starts and releases the lock when it ends.
+ * 
+ * Fixes the {@link EligibilityEvaluationDate} of the job before any step runs.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class PrePayrollBatchListener implements JobExecutionListener {
 
+    private final PrePayrollStagingRepository stagingRepository;
+    private final TenantJobLock tenantJobLock;
+
     private LocalDateTime jobStartTime;
 
     // ========================================
@@ -35,11 +57,22 @@ public class PrePayrollBatchListener implements JobExecutionListener {
         log.info("Starting Spring Batch Job: {} for tenant: {} at {}", 
                 jobName, tenantId, jobStartTime);
         log.info("Job Parameters: {}", jobExecution.getJobParameters());
+        log.info("Evaluating eligibility as of {}", EligibilityEvaluationDate.of(jobExecution));
+        tenantJobLock.attach(jobExecution);
     }
 
     @AfterJob
     @Override
     public void afterJob(JobExecution jobExecution) {
+        try {
+            logJobSummary(jobExecution);
+            cleanUpStaging(jobExecution);
+        } finally {
+            tenantJobLock.release(jobExecution);
+        }
+    }
+
+    private void logJobSummary(JobExecution jobExecution) {
         LocalDateTime jobEndTime = LocalDateTime.now();
         String jobName = jobExecution.getJobInstance().getJobName();
         String tenantId = jobExecution.getJobParameters().getString("tenantId");
@@ -73,6 +106,54 @@ public class PrePayrollBatchListener implements JobExecutionListener {
                 );
             });
         }
+        
+        logCalculationSummary(jobExecution);
+        logEnrollmentSummary(jobExecution);
+    }
+
+    /**
+     * Successful calculations of the job by how they were obtained, as merged from the calculation partitions
+     */
+    private void logCalculationSummary(JobExecution jobExecution) {
+        ExecutionContext jobContext = jobExecution.getExecutionContext();
+        if (!jobContext.containsKey(BatchConstants.CONTEXT_CALCULATIONS_RECOMPUTED)) {
+            return;
+        }
+        log.info("Calculation Summary: Recomputed={}, Carried forward={}",
+            jobContext.get(BatchConstants.CONTEXT_CALCULATIONS_RECOMPUTED),
+            jobContext.get(BatchConstants.CONTEXT_CALCULATIONS_CARRIED_FORWARD));
+    }
+
+    /**
+     * Finch enrollment jobs of the job by the status Finch last reported
+     */
+    private void logEnrollmentSummary(JobExecution jobExecution) {
+        ExecutionContext jobContext = jobExecution.getExecutionContext();
+        if (!jobContext.containsKey(BatchConstants.CONTEXT_ENROLLMENT_JOBS_COMPLETE)) {
+            return;
+        }
+        log.info("Finch Enrollment Jobs: Complete={}, Failed={}, Pending={}",
+            jobContext.get(BatchConstants.CONTEXT_ENROLLMENT_JOBS_COMPLETE),
+            jobContext.get(BatchConstants.CONTEXT_ENROLLMENT_JOBS_FAILED),
+            jobContext.get(BatchConstants.CONTEXT_ENROLLMENT_JOBS_PENDING));
+    }
+
+    /**
+     * Delete the staged hand-off rows of a completed job instance
+     */
+    private void cleanUpStaging(JobExecution jobExecution) {
+        long jobInstanceId = jobExecution.getJobInstance().getInstanceId();
+        if (jobExecution.getStatus() != BatchStatus.COMPLETED) {
+            log.info("Keeping staged rows of job instance {} for a restart (status {})", jobInstanceId, jobExecution.getStatus());
+            return;
+        }
+        try {
+            int removed = stagingRepository.deleteJobInstance(jobInstanceId);
+            log.info("Removed {} staged rows of job instance {}", removed, jobInstanceId);
+        } catch (Exception e) {
+            // The job has completed; leftover rows only take space and go with the job instance metadata
+            log.warn("Failed to remove staged rows of job instance {}: {}", jobInstanceId, e.getMessage());
+        }
     }
 
 
@@ -0,0 +1,129 @@
+package com.glidingpath.rules.contributions.lock;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.repository.BatchTenantLock;
+import com.glidingpath.rules.repository.BatchTenantLockRepository;
+
+import constants.BatchConstants;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lets one launch of a job run per tenant at a time, across application nodes.
+ *
+ * A launch takes the tenant's row in batch_tenant_locks before it starts the job, and passes the
+ * lock token to the job as a parameter. The job's listener records the execution on the row when
+ * the job starts and releases it when the job ends. While a job runs, this process extends the
+ * lease of its locks every batch.tenant-lock.heartbeat-seconds; a lock whose process died is free
+ * again once batch.tenant-lock.lease-seconds have passed without a heartbeat.
+ */
+@Slf4j
+@Component
+public class TenantJobLock {
+
+    private final BatchTenantLockRepository lockRepository;
+    private final long leaseSeconds;
+    private final long heartbeatSeconds;
+
+    // Tokens of the locks this process holds
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeat;
+
+    public TenantJobLock(BatchTenantLockRepository lockRepository,
+                         @Value("${batch.tenant-lock.lease-seconds:300}") long leaseSeconds,
+                         @Value("${batch.tenant-lock.heartbeat-seconds:60}") long heartbeatSeconds) {
+        this.lockRepository = lockRepository;
+        this.leaseSeconds = leaseSeconds;
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    @PostConstruct
+    void startHeartbeat() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-tenant-lock-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stopHeartbeat() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Take the tenant's lock for a launch of the job; the token to pass to the job, empty when
+     * another launch holds the lock
+     */
+    public Optional<String> tryAcquire(String jobName, String tenantId, String idempotencyKey) {
+        String lockToken = UUID.randomUUID().toString();
+        if (!lockRepository.tryAcquire(jobName, tenantId, lockToken, idempotencyKey, leaseSeconds)) {
+            return Optional.empty();
+        }
+        held.add(lockToken);
+        log.debug("Acquired {} lock of tenant {} for key {}", jobName, tenantId, idempotencyKey);
+        return Optional.of(lockToken);
+    }
+
+    /**
+     * The launch holding the tenant's lock of the job, if any
+     */
+    public Optional<BatchTenantLock> holder(String jobName, String tenantId) {
+        return lockRepository.findHolder(jobName, tenantId);
+    }
+
+    /**
+     * Record the execution of a job launched under a lock
+     */
+    public void attach(JobExecution jobExecution) {
+        String lockToken = jobExecution.getJobParameters().getString(BatchConstants.JOB_PARAM_LOCK_TOKEN);
+        if (lockToken != null) {
+            lockRepository.attach(lockToken, jobExecution.getId());
+        }
+    }
+
+    /**
+     * Release the lock a job was launched under
+     */
+    public void release(JobExecution jobExecution) {
+        String lockToken = jobExecution.getJobParameters().getString(BatchConstants.JOB_PARAM_LOCK_TOKEN);
+        if (lockToken != null) {
+            release(lockToken);
+        }
+    }
+
+    public void release(String lockToken) {
+        held.remove(lockToken);
+        lockRepository.release(lockToken);
+    }
+
+    private void heartbeat() {
+        if (held.isEmpty()) {
+            return;
+        }
+        List<String> lockTokens = List.copyOf(held);
+        try {
+            int extended = lockRepository.heartbeat(lockTokens, leaseSeconds);
+            if (extended < lockTokens.size()) {
+                log.warn("{} of {} batch tenant locks were lost before their jobs released them", lockTokens.size() - extended, lockTokens.size());
+            }
+        } catch (Exception e) {
+            // Retried on the next beat; the lease outlasts several missed ones
+            log.warn("Failed to extend batch tenant locks: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.glidingpath.rules.contributions.partition;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits the employees the eligibility step staged as eligible into individualId ranges for the
+ * partitioned calculation step. The database computes the range bounds, so only gridSize ids are
+ * loaded and the ranges match the SQL filters of the worker readers.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class CalculationPartitioner implements Partitioner, StepExecutionListener {
+
+    private final PrePayrollStagingRepository stagingRepository;
+
+    private String tenantId;
+    private long jobInstanceId;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<String> lowerBounds = stagingRepository.findPartitionBounds(jobInstanceId, BatchConstants.STAGE_ELIGIBLE, gridSize);
+        // One range per bound: range i starts at bound i and ends where bound i + 1 starts
+        Map<String, ExecutionContext> partitions = IndividualIdRange.split(lowerBounds, lowerBounds.size());
+        log.info("Split the eligible employees of tenant {} into {} calculation partitions", tenantId, partitions.size());
+        return partitions;
+    }
+}
@@ -0,0 +1,47 @@
+package com.glidingpath.rules.contributions.partition;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.repository.EligibilityParticipantRepository;
+
+import constants.BatchConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits the tenant's participants into individualId ranges for the partitioned eligibility step.
+ * The database computes the range bounds, so only gridSize ids are loaded and the ranges match the
+ * SQL filters of the worker readers.
+ */
+@Slf4j
+@Component
+@StepScope
+@RequiredArgsConstructor
+public class EligibilityPartitioner implements Partitioner, StepExecutionListener {
+
+    private final EligibilityParticipantRepository participantRepository;
+
+    private String tenantId;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<String> lowerBounds = participantRepository.findPartitionBounds(tenantId, gridSize);
+        // One range per bound: range i starts at bound i and ends where bound i + 1 starts
+        Map<String, ExecutionContext> partitions = IndividualIdRange.split(lowerBounds, lowerBounds.size());
+        log.info("Split the participants of tenant {} into {} eligibility partitions", tenantId, partitions.size());
+        return partitions;
+    }
+}
@@ -0,0 +1,106 @@
+package com.glidingpath.rules.contributions.partition;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.batch.item.ExecutionContext;
+
+import constants.BatchConstants;
+
+/**
+ * Half-open range of participant individualIds handled by one partition of a partitioned step.
+ *
+ * Ranges are cut at ids of the tenant in sorted order, so they hold about the same number of
+ * participants. Partition i covers [fromId, toId); the first partition starts at "" and also takes
+ * participants without an individualId, and the last one has no upper bound (toId ""). Together
+ * the ranges cover every participant exactly once, including ids added after the split.
+ */
+public final class IndividualIdRange {
+
+    /**
+     * Native SQL condition on finch_employee_details.individual_id; parameters :fromId, :toId, :includeMissingIds
+     */
+    public static final String SQL_CONDITION = "((individual_id >= :fromId AND (:toId = '' OR individual_id < :toId))"
+            + " OR (:includeMissingIds = TRUE AND individual_id IS NULL))";
+
+    private final int index;
+    private final String fromId;
+    private final String toId;
+    private final boolean includesMissingIds;
+
+    private IndividualIdRange(int index, String fromId, String toId, boolean includesMissingIds) {
+        this.index = index;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.includesMissingIds = includesMissingIds;
+    }
+
+    /**
+     * Range covering every participant, used when a step runs without partitioning
+     */
+    public static IndividualIdRange all() {
+        return new IndividualIdRange(0, "", "", true);
+    }
+
+    /**
+     * Cut the sorted ids into at most gridSize ranges of similar size; always at least one range
+     *
+     * @param sortedIds ids in the order the ranges are later compared in (database order for SQL filters)
+     * @return partition execution contexts keyed by partition name
+     */
+    public static Map<String, ExecutionContext> split(List<String> sortedIds, int gridSize) {
+        int partitions = Math.max(1, Math.min(gridSize, sortedIds.size()));
+        Map<String, ExecutionContext> contexts = new LinkedHashMap<>();
+        for (int i = 0; i < partitions; i++) {
+            String fromId = i == 0 ? "" : sortedIds.get(i * sortedIds.size() / partitions);
+            String toId = i == partitions - 1 ? "" : sortedIds.get((i + 1) * sortedIds.size() / partitions);
+            ExecutionContext context = new ExecutionContext();
+            new IndividualIdRange(i, fromId, toId, i == 0).putInto(context);
+            contexts.put("partition" + i, context);
+        }
+        return contexts;
+    }
+
+    /**
+     * Range of the current worker step, or {@link #all()} when the step is not partitioned
+     */
+    public static IndividualIdRange from(ExecutionContext context) {
+        if (!context.containsKey(BatchConstants.CONTEXT_PARTITION_INDEX)) {
+            return all();
+        }
+        return new IndividualIdRange(context.getInt(BatchConstants.CONTEXT_PARTITION_INDEX),
+                context.getString(BatchConstants.CONTEXT_PARTITION_FROM_ID),
+                context.getString(BatchConstants.CONTEXT_PARTITION_TO_ID),
+                (Boolean) context.get(BatchConstants.CONTEXT_PARTITION_INCLUDES_MISSING_IDS));
+    }
+
+    public void putInto(ExecutionContext context) {
+        context.putInt(BatchConstants.CONTEXT_PARTITION_INDEX, index);
+        context.putString(BatchConstants.CONTEXT_PARTITION_FROM_ID, fromId);
+        context.putString(BatchConstants.CONTEXT_PARTITION_TO_ID, toId);
+        context.put(BatchConstants.CONTEXT_PARTITION_INCLUDES_MISSING_IDS, includesMissingIds);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getFromId() {
+        return fromId;
+    }
+
+    public String getToId() {
+        return toId;
+    }
+
+    public boolean includesMissingIds() {
+        return includesMissingIds;
+    }
+
+    @Override
+    public String toString() {
+        return "partition " + index + " [" + fromId + ", " + (toId.isEmpty() ? "end" : toId) + ")"
+                + (includesMissingIds ? " + missing ids" : "");
+    }
+}
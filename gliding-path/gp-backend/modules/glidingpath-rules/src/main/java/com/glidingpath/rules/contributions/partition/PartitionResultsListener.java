@@ -0,0 +1,86 @@
+package com.glidingpath.rules.contributions.partition;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Merges what the workers of a partitioned step publish to the job execution context.
+ *
+ * Workers write their share under {@link #partitionKey}, i.e. "key.partitionN", so concurrent
+ * partitions never overwrite each other and a restarted partition only replaces its own share.
+ * Registered on the manager step: afterwards lists are concatenated in partition order and numbers
+ * summed under the plain key the following steps read.
+ */
+@Slf4j
+@Component
+public class PartitionResultsListener implements StepExecutionListener {
+
+    private static final String PARTITION_SUFFIX = ".partition";
+
+    /**
+     * Job context key for a worker's share of a value; the plain key when the step is not partitioned
+     */
+    public static String partitionKey(String key, StepExecution workerStepExecution) {
+        ExecutionContext context = workerStepExecution.getExecutionContext();
+        if (!context.containsKey(BatchConstants.CONTEXT_PARTITION_INDEX)) {
+            return key;
+        }
+        return key + PARTITION_SUFFIX + context.getInt(BatchConstants.CONTEXT_PARTITION_INDEX);
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+
+        Map<String, SortedMap<Integer, Object>> shares = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : jobContext.entrySet()) {
+            String key = entry.getKey();
+            int suffix = key.lastIndexOf(PARTITION_SUFFIX);
+            String index = suffix > 0 ? key.substring(suffix + PARTITION_SUFFIX.length()) : "";
+            if (!index.isEmpty() && index.chars().allMatch(Character::isDigit)) {
+                shares.computeIfAbsent(key.substring(0, suffix), k -> new TreeMap<>())
+                        .put(Integer.parseInt(index), entry.getValue());
+            }
+        }
+
+        shares.forEach((key, byPartition) -> {
+            Object merged = merge(byPartition.values());
+            if (merged != null) {
+                jobContext.put(key, merged);
+                log.debug("Merged {} partition shares of '{}' for step {}", byPartition.size(), key, stepExecution.getStepName());
+            } else {
+                log.warn("Cannot merge partition shares of '{}' for step {}: unsupported value types",
+                        key, stepExecution.getStepName());
+            }
+        });
+        return stepExecution.getExitStatus();
+    }
+
+    private static Object merge(Collection<Object> values) {
+        if (values.stream().allMatch(List.class::isInstance)) {
+            List<Object> merged = new ArrayList<>();
+            values.forEach(value -> merged.addAll((List<?>) value));
+            return merged;
+        }
+        if (values.stream().allMatch(Integer.class::isInstance)) {
+            return values.stream().mapToInt(Integer.class::cast).sum();
+        }
+        if (values.stream().allMatch(Number.class::isInstance)) {
+            return values.stream().mapToLong(value -> ((Number) value).longValue()).sum();
+        }
+        return null;
+    }
+}
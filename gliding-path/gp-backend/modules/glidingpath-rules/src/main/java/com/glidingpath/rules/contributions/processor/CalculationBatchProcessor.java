@@ -1,39 +1,74 @@
 package com.glidingpath.rules.contributions.processor;
 
 import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.common.dto.PlanSnapshot;
 import com.glidingpath.common.dto.PrePayrollCalculationDTO;
 import com.glidingpath.common.dto.PrePayrollCalculationFact;
 import com.glidingpath.core.entity.PlanParticipant;
-import com.glidingpath.core.entity.TenantPlan;
-import com.glidingpath.core.repository.PlanParticipantRepository;
+import com.glidingpath.core.entity.PrePayrollCalculation;
 import com.glidingpath.core.repository.TenantPlanRepository;
+import com.glidingpath.rules.contributions.reader.CalculationCandidate;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
+import com.glidingpath.rules.util.CalculationFingerprint;
+import com.glidingpath.rules.util.CalculationIds;
+import com.glidingpath.rules.util.ContributionCalculator;
 import com.glidingpath.rules.util.DroolsRuleEvaluator;
+import com.glidingpath.rules.util.PlanSnapshots;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.math.BigDecimal;
-import java.util.Comparator;
-import java.math.RoundingMode;
 
+/**
+ * Builds the calculation fact per item and runs the pre-payroll rules per chunk.
+ * The step registers this processor as an {@link ItemWriteListener}; {@link #beforeWrite(Chunk)}
+ * evaluates all pending facts of the chunk in one Drools session and fills in the DTOs
+ * before the writer persists them. The tenant plan is read once per step and turned into a
+ * {@link PlanSnapshot} that both the rules and the fallback calculations work from; the fallback
+ * calculations run in long cents and basis points through a {@link ContributionCalculator}.
+ * Participants come with the items from {@link com.glidingpath.rules.contributions.reader.CalculationBatchReader},
+ * loaded one page at a time, so processing an item issues no query.
+ *
+ * Every result records the {@link CalculationFingerprint} of its inputs. When the reader hands over
+ * the employee's previous result (incremental mode) and its fingerprint is the same, the previous
+ * amounts are carried forward to the new period and the employee skips the rules.
+ *
+ * Calculations waiting for the rules are kept per calculation id for the current chunk only; the
+ * processor is also a {@link ChunkListener} and drops them when the chunk ends, committed or rolled
+ * back. Outcomes are counted in {@link #afterWrite(Chunk)}, once per written item, so retried and
+ * re-processed chunks are not counted twice.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
-public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibilityDTO, PrePayrollCalculationDTO> {
+public class CalculationBatchProcessor implements ItemProcessor<CalculationCandidate, PrePayrollCalculationDTO>,
+        ItemWriteListener<PrePayrollCalculationDTO>, ChunkListener {
+
+    private static final String STATUS_PENDING = "PENDING";
 
 
     private final DroolsRuleEvaluator droolsRuleEvaluator;
-    private final PlanParticipantRepository planParticipantRepository;
     private final TenantPlanRepository tenantPlanRepository;
+    private final TenantRuleResolver tenantRuleResolver;
     
     private String tenantId;
     private LocalDate payrollPeriodStart;
@@ -41,6 +76,18 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
     private int processedCount = 0;
     private int successCount = 0;
     private int failureCount = 0;
+    private int carriedForwardCount = 0;
+
+    // Resolved once in beforeStep, so the plan graph is loaded once per step instead of per employee;
+    // null when the tenant has no plan
+    private PlanSnapshot planSnapshot;
+    // Fallback formulas of the snapshot in long cents and basis points
+    private ContributionCalculator contributionCalculator;
+    // Fingerprints against the snapshot and the rule set active when the step starts; null without a plan
+    private CalculationFingerprint calculationFingerprint;
+
+    // Calculations of the current chunk built by process() and waiting for the rule evaluation, by calculation id
+    private final Map<String, PendingCalculation> pendingCalculations = new HashMap<>();
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
@@ -55,6 +102,8 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         this.processedCount = 0;
         this.successCount = 0;
         this.failureCount = 0;
+        this.carriedForwardCount = 0;
+        this.pendingCalculations.clear();
         
         log.info("Initializing CalculationBatchProcessor for tenant: {} period: {} to {}", 
                 tenantId, payrollPeriodStart, payrollPeriodEnd);
@@ -62,13 +111,23 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         if (tenantId == null || payrollPeriodStart == null || payrollPeriodEnd == null) {
             throw new IllegalStateException("Tenant ID and payroll period dates are required for calculation batch processing");
         }
+        
+        this.planSnapshot = resolvePlanSnapshot();
+        this.contributionCalculator = planSnapshot != null ? ContributionCalculator.of(planSnapshot) : null;
+        if (contributionCalculator != null && !contributionCalculator.hasExactRates()) {
+            log.info("Plan rates of tenant {} have more than two decimals, fallback calculations use BigDecimal", tenantId);
+        }
+        this.calculationFingerprint = planSnapshot != null
+            ? CalculationFingerprint.of(planSnapshot, tenantRuleResolver.resolve(tenantId), LocalDate.now())
+            : null;
     }
 
     @Override
-    public PrePayrollCalculationDTO process(EmployeeEligibilityDTO eligibleEmployee) throws Exception {
-        if (eligibleEmployee == null) {
+    public PrePayrollCalculationDTO process(CalculationCandidate candidate) throws Exception {
+        if (candidate == null) {
             return null;
         }
+        EmployeeEligibilityDTO eligibleEmployee = candidate.eligibility();
 
         processedCount++;
         
@@ -79,42 +138,33 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
             // Validate that the employee is actually eligible
             if (!eligibleEmployee.isEligible()) {
                 log.warn("Employee {} is marked as not eligible, skipping calculation", eligibleEmployee.getEmployeeId());
-                failureCount++;
                 throw new IllegalStateException("Employee not eligible for benefits: " + eligibleEmployee.getEmployeeId());
             }
             
-            // Get employee entity and tenant plan for calculations
-            Optional<PlanParticipant> employeeOpt = planParticipantRepository.findByIndividualId(eligibleEmployee.getEmployeeId());
-            if (employeeOpt.isEmpty()) {
+            // Employee entity (loaded by the reader) and plan snapshot for calculations
+            PlanParticipant employee = candidate.participant();
+            if (employee == null) {
                 log.error("Employee entity not found for ID: {}", eligibleEmployee.getEmployeeId());
-                failureCount++;
                 throw new IllegalStateException("Employee entity not found: " + eligibleEmployee.getEmployeeId());
             }
             
-            PlanParticipant employee = employeeOpt.get();
-            TenantPlan tenantPlan = getTenantPlan(tenantId);
-            if (tenantPlan == null) {
+            PlanSnapshot snapshot = planSnapshot;
+            if (snapshot == null) {
                 log.error("Tenant plan not found for tenant: {}", tenantId);
-                failureCount++;
                 throw new IllegalStateException("Tenant plan not found: " + tenantId);
             }
             
-            // Perform the actual calculation
-            PrePayrollCalculationDTO calculationResult = performCalculation(employee, eligibleEmployee, tenantPlan);
-            
-            successCount++;
-            
-            // Force Spring Batch to recognize this as a processing operation
-            // This helps with proper counting in the monitoring
-            if (processedCount % BatchConstants.CALCULATION_CHUNK_SIZE == 0) {
-                log.info("Completed calculation processing chunk: {}/{} eligible employees processed (Success: {}, Failed: {})", 
-                        processedCount, "batch", successCount, failureCount);
+            // Unchanged inputs give the previous result; nothing to evaluate
+            String inputFingerprint = calculationFingerprint.of(employee);
+            PrePayrollCalculation previous = candidate.previous();
+            if (previous != null && inputFingerprint.equals(previous.getInputFingerprint())) {
+                return carryForward(previous, eligibleEmployee, inputFingerprint);
             }
             
-            return calculationResult;
+            // Build the fact now; the rules run for the whole chunk in beforeWrite
+            return preparePendingCalculation(employee, eligibleEmployee, snapshot, inputFingerprint);
             
         } catch (Exception e) {
-            failureCount++;
             log.error("Failed to process calculation for employee: {} in tenant: {}", 
                     eligibleEmployee.getEmployeeId(), tenantId, e);
             log.error("Exception details: {} - {}", e.getClass().getSimpleName(), e.getMessage());
@@ -126,74 +176,109 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
     }
 
     /**
-     * Create Drools fact for pre-payroll calculation
+     * Evaluate the pending calculations of this chunk in one rule session per plan snapshot
+     * and complete their DTOs in place. Items already completed by an earlier attempt are skipped.
      */
-    private PrePayrollCalculationFact createDroolsFact(PlanParticipant employee, TenantPlan tenantPlan) {
-        PrePayrollCalculationFact fact = new PrePayrollCalculationFact();
-        
-        fact.setEmployeeId(employee.getIndividualId());
-        
-        // Set compensation data with proper BigDecimal conversion
-        if (employee.getIncomeAmount() != null) {
-            fact.setEmployeeAnnualCompensation(BigDecimal.valueOf(employee.getIncomeAmount()));
-            fact.setEligibleCompensation(BigDecimal.valueOf(employee.getIncomeAmount()));
-        } else {
-            fact.setEmployeeAnnualCompensation(BigDecimal.ZERO);
-            fact.setEligibleCompensation(BigDecimal.ZERO);
+    @Override
+    public void beforeWrite(Chunk<? extends PrePayrollCalculationDTO> chunk) {
+        // Items of one step normally share a snapshot; the rule session still runs per snapshot version
+        Map<String, List<PendingCalculation>> pendingByPlan = new LinkedHashMap<>();
+        for (PrePayrollCalculationDTO dto : chunk.getItems()) {
+            PendingCalculation pending = pendingCalculations.remove(dto.getCalculationId());
+            if (pending != null && STATUS_PENDING.equals(dto.getStatus())) {
+                pendingByPlan.computeIfAbsent(pending.planSnapshot().version(), version -> new ArrayList<>()).add(pending);
+            }
         }
-        
-        // Set employee contribution configuration
-        if (tenantPlan.getEmployeeContributionConfig() != null) {
-            var config = tenantPlan.getEmployeeContributionConfig();
-            if (config.getEnrollmentStartRate() != null) {
-                fact.setEmployeeContributionPercent(BigDecimal.valueOf(config.getEnrollmentStartRate()));
+
+        pendingByPlan.values().forEach(pendingList -> {
+            PlanSnapshot snapshot = pendingList.get(0).planSnapshot();
+            List<PrePayrollCalculationFact> facts = pendingList.stream().map(PendingCalculation::fact).toList();
+            try {
+                droolsRuleEvaluator.evaluatePrePayrollCalculationBatch(facts, snapshot);
+            } catch (Exception e) {
+                // Same contract as the single-fact path: rule failures fall back to the manual calculation
+                log.error("Error during Drools rule evaluation for chunk of {} employees in tenant: {}",
+                        facts.size(), tenantId, e);
+            }
+
+            for (PendingCalculation pending : pendingList) {
+                try {
+                    completeCalculation(pending);
+                } catch (Exception e) {
+                    log.error("Failed to complete calculation for employee: {} in tenant: {}",
+                            pending.eligibleEmployee().getEmployeeId(), tenantId, e);
+                    markFailed(pending.result(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Count the outcomes of a written chunk; during a skip scan this sees one item at a time
+     */
+    @Override
+    public void afterWrite(Chunk<? extends PrePayrollCalculationDTO> chunk) {
+        for (PrePayrollCalculationDTO dto : chunk.getItems()) {
+            if ("FAILED".equals(dto.getStatus())) {
+                failureCount++;
             } else {
-                fact.setEmployeeContributionPercent(BigDecimal.ZERO);
+                successCount++;
+                if (dto.getCarriedForwardFrom() != null) {
+                    carriedForwardCount++;
+                }
             }
-            
-            // Set auto-enrollment fields
-            fact.setAutoEnrollmentEnabled(config.getIsAutoEnrollment() != null ? config.getIsAutoEnrollment() : false);
-            fact.setAutoEnrollmentPercent(config.getEnrollmentStartRate() != null ? 
-                BigDecimal.valueOf(config.getEnrollmentStartRate()) : new BigDecimal("3.0"));
-        } else {
-            fact.setEmployeeContributionPercent(BigDecimal.ZERO);
-            fact.setAutoEnrollmentEnabled(false);
-            fact.setAutoEnrollmentPercent(new BigDecimal("3.0"));
         }
+
+        log.info("Completed calculation processing chunk: {} eligible employees processed (Success: {}, Failed: {}, Carried forward: {})",
+                processedCount, successCount, failureCount, carriedForwardCount);
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        pendingCalculations.clear();
+    }
+
+    /**
+     * Items of a rolled back chunk are processed again on retry and register new pending calculations
+     */
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        pendingCalculations.clear();
+    }
+
+    /**
+     * Create Drools fact for pre-payroll calculation; plan values come from the snapshot as-is
+     */
+    private PrePayrollCalculationFact createDroolsFact(PlanParticipant employee, PlanSnapshot snapshot) {
+        PrePayrollCalculationFact fact = new PrePayrollCalculationFact();
         
-        // Set employer match configuration
-        if (tenantPlan.getEmployerContributionRule() != null) {
-            var rule = tenantPlan.getEmployerContributionRule();
-            fact.setEmployerMatchPercent(rule.getMatchPercentage() != null ? 
-                BigDecimal.valueOf(rule.getMatchPercentage()) : BigDecimal.ZERO);
-            fact.setEmployerMatchType(rule.getRuleType());
-        } else {
-            fact.setEmployerMatchPercent(BigDecimal.ZERO);
-            fact.setEmployerMatchType("NO_MATCH");
-        }
+        fact.setEmployeeId(employee.getIndividualId());
         
-        // Set profit sharing configuration
-        if (tenantPlan.getProfitSharingConfig() != null) {
-            var config = tenantPlan.getProfitSharingConfig();
-            fact.setProfitSharingPercent(config.getProRataPercentage() != null ? 
-                BigDecimal.valueOf(config.getProRataPercentage()) : BigDecimal.ZERO);
-        } else {
-            fact.setProfitSharingPercent(BigDecimal.ZERO);
-        }
+        // Set compensation data with proper BigDecimal conversion
+        BigDecimal compensation = getEmployeeCompensation(employee);
+        fact.setEmployeeAnnualCompensation(compensation);
+        fact.setEligibleCompensation(compensation);
+        
+        // Employee contribution configuration, auto-enrollment and max rate already applied
+        fact.setEmployeeContributionPercent(snapshot.employeeContributionPercent());
+        fact.setAutoEnrollmentEnabled(snapshot.autoEnrollmentEnabled());
+        fact.setAutoEnrollmentPercent(snapshot.autoEnrollmentPercent());
         
-        // Set compensation limits
-        fact.setCompensationLimit(BigDecimal.valueOf(315000)); // 2024 IRS limit
+        // Employer match and profit sharing configuration
+        fact.setEmployerMatchPercent(snapshot.matchPercent());
+        fact.setEmployerMatchType(snapshot.employerMatchType());
+        fact.setProfitSharingPercent(snapshot.profitSharingPercent() != null ? snapshot.profitSharingPercent() : BigDecimal.ZERO);
+        fact.setCompensationLimit(snapshot.compensationLimit());
         
         // Set employment status and eligibility data
         fact.setEmploymentStatus(employee.getEmploymentStatus() != null ? employee.getEmploymentStatus() : "UNKNOWN");
         fact.setAge(employee.getDob() != null ? 
             java.time.Period.between(employee.getDob(), LocalDate.now()).getYears() : 0);
         fact.setMonthsOfService(calculateMonthsOfService(employee.getStartDate(), employee.getLatestRehireDate()));
-        fact.setMinimumServiceMonths(1); // Default minimum
-        fact.setMinimumAge(21); // Default minimum age
+        fact.setMinimumServiceMonths(snapshot.minimumServiceMonths());
+        fact.setMinimumAge(snapshot.minimumAge());
         
-        // Set plan type
-        fact.setPlanType(tenantPlan.getPlanTypeId() != null ? tenantPlan.getPlanTypeId().toString() : "UNKNOWN");
+        fact.setPlanType(snapshot.planType());
         
         // Initialize calculation reason
         fact.setCalculationReason("Initialized for calculation");
@@ -214,25 +299,34 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
     }
 
     /**
-     * Convert Drools fact results to DTO
+     * Create the DTO with its identity and payroll period; amounts are filled in after rule evaluation
      */
-    private PrePayrollCalculationDTO convertFactToDTO(PrePayrollCalculationFact fact, 
-                                                     EmployeeEligibilityDTO eligibleEmployee, 
-                                                     PlanParticipant employee,
-                                                     TenantPlan tenantPlan) {
-        
+    private PrePayrollCalculationDTO createPendingCalculationResult(EmployeeEligibilityDTO eligibleEmployee) {
         PrePayrollCalculationDTO dto = new PrePayrollCalculationDTO();
         
         // Basic identification
-        dto.setCalculationId("CALC-" + UUID.randomUUID().toString());
+        dto.setCalculationId(CalculationIds.of(tenantId, eligibleEmployee.getEmployeeId(), payrollPeriodStart, payrollPeriodEnd));
         dto.setTenantId(tenantId);
         dto.setEmployeeId(eligibleEmployee.getEmployeeId());
         dto.setCalculationDate(LocalDateTime.now());
-        dto.setStatus("SUCCESS");
-        
+        dto.setStatus(STATUS_PENDING);
+
         // Payroll period
         dto.setPayrollPeriodStart(payrollPeriodStart);
         dto.setPayrollPeriodEnd(payrollPeriodEnd);
+        return dto;
+    }
+
+    /**
+     * Copy Drools fact results into the DTO
+     */
+    private void applyFactToDTO(PrePayrollCalculationFact fact, 
+                                PrePayrollCalculationDTO dto, 
+                                PlanParticipant employee,
+                                PlanSnapshot snapshot) {
+        
+        dto.setStatus("SUCCESS");
+        dto.setRuleSetVersion(fact.getRuleSetVersion());
         
         // Employee contribution calculations - use Drools results or fallback
         if (fact.getEmployeeContribution() != null && fact.getEmployeeContribution().compareTo(BigDecimal.ZERO) > 0) {
@@ -241,7 +335,7 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
                 fact.getEmployeeContributionPercent() : BigDecimal.ZERO);
         } else {
             // Fallback to manual calculation
-            var employeeContribution = calculateEmployeeContribution(employee, tenantPlan);
+            var employeeContribution = calculateEmployeeContribution(employee, contributionCalculator);
             dto.setEmployeeContributionAmount(employeeContribution.getAmount());
             dto.setEmployeeContributionPercentage(employeeContribution.getPercentage());
         }
@@ -253,7 +347,7 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
                 fact.getEmployerMatchPercent() : BigDecimal.ZERO);
         } else {
             // Fallback to manual calculation
-            var employerMatch = calculateEmployerMatch(employee, tenantPlan, dto.getEmployeeContributionAmount());
+            var employerMatch = calculateEmployerMatch(employee, contributionCalculator, dto.getEmployeeContributionAmount());
             dto.setEmployerMatchAmount(employerMatch.getAmount());
             dto.setEmployerMatchPercentage(employerMatch.getPercentage());
         }
@@ -265,7 +359,7 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
                 fact.getProfitSharingPercent() : BigDecimal.ZERO);
         } else {
             // Fallback to manual calculation
-            var profitSharing = calculateProfitSharing(employee, tenantPlan);
+            var profitSharing = calculateProfitSharing(employee, contributionCalculator);
             dto.setProfitSharingAmount(profitSharing.getAmount());
             dto.setProfitSharingPercentage(profitSharing.getPercentage());
         }
@@ -279,30 +373,17 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         
         // Calculate total percentage if compensation is available
         BigDecimal totalCompensation = fact.getEligibleCompensation() != null ? fact.getEligibleCompensation() : BigDecimal.ZERO;
-        if (totalCompensation.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal totalAmount = dto.getTotalContributionAmount();
-            dto.setTotalContributionPercentage(totalAmount
-                .multiply(new BigDecimal("100"))
-                .divide(totalCompensation, 2, RoundingMode.HALF_UP));
-        } else {
-            dto.setTotalContributionPercentage(BigDecimal.ZERO);
-        }
+        dto.setTotalContributionPercentage(ContributionCalculator.shareOf(dto.getTotalContributionAmount(), totalCompensation));
         
         // Base salary and compensation - ensure no null values
         dto.setBaseSalary(fact.getEmployeeAnnualCompensation() != null ? fact.getEmployeeAnnualCompensation() : BigDecimal.ZERO);
         dto.setEligibleCompensation(fact.getEligibleCompensation() != null ? fact.getEligibleCompensation() : BigDecimal.ZERO);
         
         // Plan configuration references
-        dto.setPlanId(tenantPlan.getId());
-        if (tenantPlan.getEmployerContributionRule() != null) {
-            dto.setEmployerContributionRuleId(tenantPlan.getEmployerContributionRule().getId());
-        }
-        if (tenantPlan.getEmployeeContributionConfig() != null) {
-            dto.setEmployeeContributionConfigId(tenantPlan.getEmployeeContributionConfig().getId());
-        }
-        if (tenantPlan.getProfitSharingConfig() != null) {
-            dto.setProfitSharingConfigId(tenantPlan.getProfitSharingConfig().getId());
-        }
+        dto.setPlanId(snapshot.planId());
+        dto.setEmployerContributionRuleId(snapshot.employerContributionRuleId());
+        dto.setEmployeeContributionConfigId(snapshot.employeeContributionConfigId());
+        dto.setProfitSharingConfigId(snapshot.profitSharingConfigId());
         
         // Finch integration fields - initialize with defaults
         dto.setFinchStatus("PENDING");
@@ -311,157 +392,39 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         dto.setFinchEmployerBenefitId(null);
         dto.setFinchProfitSharingBenefitId(null);
         dto.setFinchProcessedAt(null);
-        
-        return dto;
     }
 
     /**
      * Calculate employee contribution with fallback logic
      */
-    private ContributionResult calculateEmployeeContribution(PlanParticipant employee, TenantPlan tenantPlan) {
-        BigDecimal contributionPercentage = BigDecimal.ZERO;
-        BigDecimal contributionAmount = BigDecimal.ZERO;
-        
-        if (tenantPlan.getEmployeeContributionConfig() != null) {
-            var config = tenantPlan.getEmployeeContributionConfig();
-            
-            // Get base contribution percentage
-            if (config.getEnrollmentStartRate() != null) {
-                contributionPercentage = BigDecimal.valueOf(config.getEnrollmentStartRate());
-            }
-            
-            // Auto-enrollment logic - only apply if no contribution is set
-            if (config.getIsAutoEnrollment() != null && config.getIsAutoEnrollment() && 
-                contributionPercentage.compareTo(BigDecimal.ZERO) == 0) {
-                contributionPercentage = config.getEnrollmentStartRate() != null ? 
-                        BigDecimal.valueOf(config.getEnrollmentStartRate()) : new BigDecimal("3.0");
-            }
-            
-            // Max rate enforcement
-            if (config.getEnrollmentMaxRate() != null && 
-                contributionPercentage.compareTo(BigDecimal.valueOf(config.getEnrollmentMaxRate())) > 0) {
-                contributionPercentage = BigDecimal.valueOf(config.getEnrollmentMaxRate());
-            }
-        }
-        
-        // Get compensation from PlanParticipant entity
-        BigDecimal eligibleCompensation = getEmployeeCompensation(employee);
-        
-        // Calculate amount based on compensation
-        if (eligibleCompensation.compareTo(BigDecimal.ZERO) > 0 && contributionPercentage.compareTo(BigDecimal.ZERO) > 0) {
-            contributionAmount = eligibleCompensation
-                    .multiply(contributionPercentage)
-                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        }
-        
-        return new ContributionResult(contributionAmount, contributionPercentage);
+    private ContributionResult calculateEmployeeContribution(PlanParticipant employee, ContributionCalculator calculator) {
+        BigDecimal contributionAmount = calculator.employeeContribution(getEmployeeIncome(employee));
+        return new ContributionResult(contributionAmount, calculator.snapshot().employeeContributionPercent());
     }
 
     /**
      * Calculate employer match with fallback logic
      */
-    private ContributionResult calculateEmployerMatch(PlanParticipant employee, TenantPlan tenantPlan, BigDecimal employeeContribution) {
-        if (tenantPlan.getEmployerContributionRule() == null) {
+    private ContributionResult calculateEmployerMatch(PlanParticipant employee, ContributionCalculator calculator, BigDecimal employeeContribution) {
+        if (!calculator.snapshot().hasEmployerRule()) {
             return new ContributionResult(BigDecimal.ZERO, BigDecimal.ZERO);
         }
         
-        var rule = tenantPlan.getEmployerContributionRule();
-        // Get compensation from PlanParticipant entity
-        BigDecimal eligibleCompensation = getEmployeeCompensation(employee);
-        
-        BigDecimal matchAmount = BigDecimal.ZERO;
-        BigDecimal matchPercentage = BigDecimal.ZERO;
-        
-        // Handle different rule types
-        if ("MATCH".equals(rule.getRuleType()) || "BASIC_MATCH".equals(rule.getRuleType())) {
-            matchAmount = calculateBasicMatch(employeeContribution, eligibleCompensation, rule);
-        } else if ("PERCENTAGE_MATCH".equals(rule.getRuleType())) {
-            matchAmount = calculatePercentageMatch(employeeContribution, eligibleCompensation, rule);
-        }
-        
-        // Calculate percentage
-        if (eligibleCompensation.compareTo(BigDecimal.ZERO) > 0) {
-            matchPercentage = matchAmount
-                    .multiply(new BigDecimal("100"))
-                    .divide(eligibleCompensation, 2, RoundingMode.HALF_UP);
-        }
-        
-        return new ContributionResult(matchAmount, matchPercentage);
-    }
-
-    /**
-     * Calculate basic match (percentage of employee contribution)
-     */
-    private BigDecimal calculateBasicMatch(BigDecimal employeeContribution, BigDecimal eligibleCompensation, 
-                                         com.glidingpath.core.entity.EmployerContributionRule rule) {
-        BigDecimal matchRate = rule.getMatchPercentage() != null ? 
-                BigDecimal.valueOf(rule.getMatchPercentage()) : BigDecimal.ZERO;
-        BigDecimal matchLimit = rule.getMatchLimitPercent() != null ? 
-                BigDecimal.valueOf(rule.getMatchLimitPercent()) : BigDecimal.ZERO;
-        
-        BigDecimal matchAmount = employeeContribution.multiply(matchRate)
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        
-        // Apply limit if specified
-        if (matchLimit.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal limitAmount = eligibleCompensation.multiply(matchLimit)
-                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-            if (matchAmount.compareTo(limitAmount) > 0) {
-                matchAmount = limitAmount;
-            }
-        }
-        
-        return matchAmount;
-    }
-
-    /**
-     * Calculate percentage match (percentage of eligible compensation)
-     */
-    private BigDecimal calculatePercentageMatch(BigDecimal employeeContribution, BigDecimal eligibleCompensation,
-                                              com.glidingpath.core.entity.EmployerContributionRule rule) {
-        BigDecimal matchRate = rule.getMatchPercentage() != null ? 
-                BigDecimal.valueOf(rule.getMatchPercentage()) : BigDecimal.ZERO;
-        BigDecimal matchLimit = rule.getMatchLimitPercent() != null ? 
-                BigDecimal.valueOf(rule.getMatchLimitPercent()) : BigDecimal.ZERO;
-        
-        BigDecimal matchAmount = eligibleCompensation.multiply(matchRate)
-                .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        
-        // Apply limit if specified
-        if (matchLimit.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal limitAmount = eligibleCompensation.multiply(matchLimit)
-                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-            if (matchAmount.compareTo(limitAmount) > 0) {
-                matchAmount = limitAmount;
-            }
-        }
-        
-        return matchAmount;
+        long eligibleCompensation = getEmployeeIncome(employee);
+        BigDecimal matchAmount = calculator.employerMatch(employeeContribution, eligibleCompensation);
+        return new ContributionResult(matchAmount, ContributionCalculator.shareOf(matchAmount, BigDecimal.valueOf(eligibleCompensation)));
     }
 
     /**
      * Calculate profit sharing with fallback logic
      */
-    private ContributionResult calculateProfitSharing(PlanParticipant employee, TenantPlan tenantPlan) {
-        if (tenantPlan.getProfitSharingConfig() == null) {
+    private ContributionResult calculateProfitSharing(PlanParticipant employee, ContributionCalculator calculator) {
+        if (!calculator.snapshot().hasProfitSharingConfig()) {
             return new ContributionResult(BigDecimal.ZERO, BigDecimal.ZERO);
         }
         
-        var config = tenantPlan.getProfitSharingConfig();
-        // Get compensation from PlanParticipant entity
-        BigDecimal eligibleCompensation = getEmployeeCompensation(employee);
-        
-        BigDecimal profitSharingAmount = BigDecimal.ZERO;
-        BigDecimal profitSharingPercentage = BigDecimal.ZERO;
-        
-        // Pro-rata calculation
-        if (config.getProRataPercentage() != null) {
-            profitSharingPercentage = BigDecimal.valueOf(config.getProRataPercentage());
-            profitSharingAmount = eligibleCompensation.multiply(profitSharingPercentage)
-                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-        }
-        
-        return new ContributionResult(profitSharingAmount, profitSharingPercentage);
+        BigDecimal profitSharingAmount = calculator.profitSharing(getEmployeeIncome(employee));
+        return new ContributionResult(profitSharingAmount, calculator.snapshot().profitSharingPercent());
     }
 
     /**
@@ -474,6 +437,13 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         return BigDecimal.ZERO;
     }
 
+    /**
+     * Employee compensation in whole currency units for the fixed-point calculations
+     */
+    private long getEmployeeIncome(PlanParticipant employee) {
+        return employee.getIncomeAmount() != null ? employee.getIncomeAmount() : 0L;
+    }
+
     /**
      * Helper class for calculation results
      */
@@ -491,21 +461,26 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
     }
 
     /**
-     * Get tenant plan for calculations
+     * Snapshot of the tenant's latest effective plan, or null when the tenant has none
      */
-    private TenantPlan getTenantPlan(String tenantId) {
-        return tenantPlanRepository.findByTenantId(tenantId)
-                .stream()
-                .max(Comparator.comparing(TenantPlan::getEffectiveDate))
+    private PlanSnapshot resolvePlanSnapshot() {
+        PlanSnapshot snapshot = tenantPlanRepository.findLatestEffectiveByTenantId(tenantId)
+                .map(PlanSnapshots::of)
                 .orElse(null);
+        if (snapshot != null) {
+            log.info("Using plan snapshot {} of plan {} for tenant: {}", snapshot.version(), snapshot.planId(), tenantId);
+        } else {
+            log.warn("No tenant plan found for tenant: {}, calculations of this step will fail", tenantId);
+        }
+        return snapshot;
     }
 
     /**
-     * Perform the actual calculation for an employee
+     * Build the Drools fact for an employee and register it for the chunk-level evaluation
      */
-    private PrePayrollCalculationDTO performCalculation(PlanParticipant employee, EmployeeEligibilityDTO eligibleEmployee, TenantPlan tenantPlan) {
-        // Create Drools fact and perform calculations
-        PrePayrollCalculationFact fact = createDroolsFact(employee, tenantPlan);
+    private PrePayrollCalculationDTO preparePendingCalculation(PlanParticipant employee, EmployeeEligibilityDTO eligibleEmployee,
+                                                               PlanSnapshot snapshot, String inputFingerprint) {
+        PrePayrollCalculationFact fact = createDroolsFact(employee, snapshot);
         
         // Debug logging to track fact creation
         log.debug("Created Drools fact for employee {}: compensation={}, contributionPercent={}, employerMatchPercent={}, profitSharingPercent={}", 
@@ -515,27 +490,77 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
                 fact.getEmployerMatchPercent(),
                 fact.getProfitSharingPercent());
         
-        droolsRuleEvaluator.evaluatePrePayrollCalculation(fact, tenantPlan);
+        PrePayrollCalculationDTO result = createPendingCalculationResult(eligibleEmployee);
+        result.setInputFingerprint(inputFingerprint);
+        pendingCalculations.put(result.getCalculationId(), new PendingCalculation(fact, eligibleEmployee, employee, snapshot, result));
+        return result;
+    }
+
+    /**
+     * The previous result re-dated to this payroll period, under this period's calculation id
+     */
+    private PrePayrollCalculationDTO carryForward(PrePayrollCalculation previous, EmployeeEligibilityDTO eligibleEmployee,
+                                                  String inputFingerprint) {
+        PrePayrollCalculationDTO result = createPendingCalculationResult(eligibleEmployee);
+        result.setStatus("SUCCESS");
+        result.setInputFingerprint(inputFingerprint);
+        result.setCarriedForwardFrom(previous.getCalculationId());
+        
+        result.setEmployeeContributionAmount(previous.getEmployeeContributionAmount());
+        result.setEmployeeContributionPercentage(previous.getEmployeeContributionPercentage());
+        result.setEmployerMatchAmount(previous.getEmployerMatchAmount());
+        result.setEmployerMatchPercentage(previous.getEmployerMatchPercentage());
+        result.setProfitSharingAmount(previous.getProfitSharingAmount());
+        result.setProfitSharingPercentage(previous.getProfitSharingPercentage());
+        result.setTotalContributionAmount(previous.getTotalContributionAmount());
+        result.setTotalContributionPercentage(previous.getTotalContributionPercentage());
+        result.setBaseSalary(previous.getBaseSalary());
+        result.setEligibleCompensation(previous.getEligibleCompensation());
+        
+        result.setPlanId(previous.getPlanId());
+        result.setEmployerContributionRuleId(previous.getEmployerContributionRuleId());
+        result.setEmployeeContributionConfigId(previous.getEmployeeContributionConfigId());
+        result.setProfitSharingConfigId(previous.getProfitSharingConfigId());
+        result.setFinchStatus("PENDING");
+        
+        log.debug("Carried forward calculation {} for employee {}", previous.getCalculationId(), eligibleEmployee.getEmployeeId());
+        return result;
+    }
+
+    /**
+     * Turn an evaluated fact into the final calculation result
+     */
+    private void completeCalculation(PendingCalculation pending) {
+        PrePayrollCalculationFact fact = pending.fact();
         
         // Debug logging after Drools evaluation
         log.debug("After Drools evaluation for employee {}: employeeContribution={}, employerContribution={}, profitSharingContribution={}", 
-                employee.getIndividualId(),
+                fact.getEmployeeId(),
                 fact.getEmployeeContribution(),
                 fact.getEmployerContribution(),
                 fact.getProfitSharingContribution());
         
         // Convert Drools results to DTO
-        PrePayrollCalculationDTO result = convertFactToDTO(fact, eligibleEmployee, employee, tenantPlan);
+        PrePayrollCalculationDTO result = pending.result();
+        applyFactToDTO(fact, result, pending.employee(), pending.planSnapshot());
         
         // Debug logging for final result
         log.debug("Final calculation result for employee {}: employeeAmount={}, employerAmount={}, profitSharingAmount={}, totalAmount={}", 
-                eligibleEmployee.getEmployeeId(), 
+                pending.eligibleEmployee().getEmployeeId(), 
                 result.getEmployeeContributionAmount(),
                 result.getEmployerMatchAmount(),
                 result.getProfitSharingAmount(),
                 result.getTotalContributionAmount());
-        
-        return result;
+    }
+
+    /**
+     * Calculation whose fact is built but not yet evaluated by the rules
+     */
+    private record PendingCalculation(PrePayrollCalculationFact fact,
+                                      EmployeeEligibilityDTO eligibleEmployee,
+                                      PlanParticipant employee,
+                                      PlanSnapshot planSnapshot,
+                                      PrePayrollCalculationDTO result) {
     }
 
     /**
@@ -545,19 +570,26 @@ public class CalculationBatchProcessor implements ItemProcessor<EmployeeEligibil
         PrePayrollCalculationDTO failedResult = new PrePayrollCalculationDTO();
         failedResult.setEmployeeId(eligibleEmployee.getEmployeeId());
         failedResult.setTenantId(eligibleEmployee.getTenantId());
-        failedResult.setStatus("FAILED");
-        failedResult.setErrorMessage("Calculation failed: " + error.getMessage());
-        failedResult.setCalculationDate(LocalDateTime.now());
-        failedResult.setCalculationId(UUID.randomUUID().toString());
+        failedResult.setCalculationId(CalculationIds.of(tenantId, eligibleEmployee.getEmployeeId(), payrollPeriodStart, payrollPeriodEnd));
+        markFailed(failedResult, error);
         return failedResult;
     }
 
+    /**
+     * Mark a calculation result as failed
+     */
+    private void markFailed(PrePayrollCalculationDTO result, Exception error) {
+        result.setStatus("FAILED");
+        result.setErrorMessage("Calculation failed: " + error.getMessage());
+        result.setCalculationDate(LocalDateTime.now());
+    }
+
 
     /**
      * Get processing statistics
      */
     public String getProcessingStats() {
-        return String.format("Processed: %d, Success: %d, Failure: %d", 
-                processedCount, successCount, failureCount);
+        return String.format("Processed: %d, Success: %d, Failure: %d, Carried forward: %d", 
+                processedCount, successCount, failureCount, carriedForwardCount);
     }
 }
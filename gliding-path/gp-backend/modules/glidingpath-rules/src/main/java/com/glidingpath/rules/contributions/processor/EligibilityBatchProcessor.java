@@ -1,47 +1,75 @@
 package com.glidingpath.rules.contributions.processor;
 
 import com.glidingpath.common.dto.EmployeeEligibilityDTO;
-import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.core.entity.TenantPlan;
+import com.glidingpath.rules.contributions.EligibilityEvaluationDate;
+import com.glidingpath.rules.repository.EligibilityParticipant;
+import com.glidingpath.rules.util.EligibilityDecisionCache;
 import com.glidingpath.rules.util.EligibilityProcessingUtility;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.annotation.AfterStep;
 import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Converts participants to eligibility DTOs per item and evaluates the rules per chunk.
+ * The step registers this processor as an {@link ItemWriteListener}, so {@link #beforeWrite(Chunk)}
+ * runs the whole chunk through one Drools session right before the writer sees it.
+ * Employees are evaluated as of the job's {@link EligibilityEvaluationDate}.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
-public class EligibilityBatchProcessor implements ItemProcessor<PlanParticipant, EmployeeEligibilityDTO> {
+public class EligibilityBatchProcessor implements ItemProcessor<EligibilityParticipant, EmployeeEligibilityDTO>,
+        ItemWriteListener<EmployeeEligibilityDTO> {
 
     private final EligibilityProcessingUtility eligibilityUtility;
     
     private String tenantId;
+    private LocalDate evaluationDate;
+    // Resolved once in beforeStep instead of per chunk; null when the tenant has no plan
+    private TenantPlan tenantPlan;
     private int processedCount = 0;
     private int successCount = 0;
     private int failureCount = 0;
     private long startTime;
+    // Decisions per distinct rule-relevant fact tuple, for this step execution only
+    private EligibilityDecisionCache decisionCache = new EligibilityDecisionCache();
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.evaluationDate = EligibilityEvaluationDate.of(stepExecution.getJobExecution());
         this.processedCount = 0;
         this.successCount = 0;
         this.failureCount = 0;
         this.startTime = System.currentTimeMillis();
+        this.decisionCache = new EligibilityDecisionCache();
         
         log.info("Initializing EligibilityBatchProcessor for tenant: {}", tenantId);
         
         if (tenantId == null) {
             throw new IllegalStateException("Tenant ID is required for eligibility batch processing");
         }
+        this.tenantPlan = eligibilityUtility.getTenantPlan(tenantId).orElse(null);
     }
 
     @Override
-    public EmployeeEligibilityDTO process(PlanParticipant employee) throws Exception {
+    public EmployeeEligibilityDTO process(EligibilityParticipant employee) throws Exception {
         if (employee == null) {
             log.warn("Received null employee in EligibilityBatchProcessor.process()");
             return null;
@@ -53,53 +81,95 @@ public class EligibilityBatchProcessor implements ItemProcessor<PlanParticipant,
           
             if (processedCount % 5 == 0) {
                 log.debug("Processing employee: {} ({}/batch)", 
-                        employee.getIndividualId(), processedCount);
+                        employee.individualId(), processedCount);
             }
             
             // Validate employee data
-            if (employee.getIndividualId() == null) {
+            if (employee.individualId() == null) {
                 log.error("Employee has null individualId, skipping");
                 return eligibilityUtility.createFailedEligibilityResult(employee, 
-                    new IllegalArgumentException("Employee individualId is null"), tenantId);
+                    new IllegalArgumentException("Employee individualId is null"), tenantId, evaluationDate);
             }
             
-            // Convert PlanParticipant to EmployeeEligibilityDTO using shared utility
-            EmployeeEligibilityDTO eligibilityDto = eligibilityUtility.convertToEligibilityDto(employee);
-            
-            // Evaluate eligibility using shared utility
-            EmployeeEligibilityDTO result = eligibilityUtility.evaluateEligibility(eligibilityDto, tenantId);
-            
-            successCount++;
-            
-            // Only log detailed eligibility results every 10 employees
-            if (processedCount % 10 == 0) {
-                if (result.isEligible()) {
-                    log.debug("Employee {} is ELIGIBLE", employee.getIndividualId());
-                } else {
-                    log.debug("Employee {} is NOT ELIGIBLE: {}", 
-                            employee.getIndividualId(), result.getEligibilityReason());
-                }
-            }
-            
-            // Log progress every 20 employees instead of every chunk
-            if (processedCount % 20 == 0) {
-                long elapsed = System.currentTimeMillis() - startTime;
-                double avgTimePerEmployee = (double) elapsed / processedCount;
-                log.info("Eligibility progress: {} employees processed (Success: {}, Failed: {}) - Avg: {:.2f}ms per employee", 
-                        processedCount, successCount, failureCount, avgTimePerEmployee);
-            }
-            
-            return result;
+            // Convert the participant projection to EmployeeEligibilityDTO using shared utility;
+            // rule evaluation is deferred to beforeWrite so it runs once per chunk
+            return eligibilityUtility.convertToEligibilityDto(employee, evaluationDate);
             
         } catch (Exception e) {
             failureCount++;
             log.error("Failed to process eligibility for employee: {} in tenant: {}", 
-                    employee.getIndividualId(), tenantId, e);
+                    employee.individualId(), tenantId, e);
             
             // Create failed eligibility result instead of throwing exception
             // This allows the batch to continue processing other employees
-            return eligibilityUtility.createFailedEligibilityResult(employee, e, tenantId);
+            return eligibilityUtility.createFailedEligibilityResult(employee, e, tenantId, evaluationDate);
+        }
+    }
+
+    /**
+     * Evaluate every still-pending item of the chunk in a single rule session.
+     * Items that already carry a rule set version were evaluated by an earlier attempt
+     * (retry or skip scan) and are left as they are.
+     */
+    @Override
+    public void beforeWrite(Chunk<? extends EmployeeEligibilityDTO> chunk) {
+        List<EmployeeEligibilityDTO> pending = chunk.getItems().stream()
+                .filter(this::isPendingEvaluation)
+                .map(EmployeeEligibilityDTO.class::cast)
+                .toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            eligibilityUtility.evaluateEligibilityBatch(pending, tenantId, tenantPlan, decisionCache);
+            successCount += pending.size();
+        } catch (Exception e) {
+            failureCount += pending.size();
+            log.error("Failed to evaluate eligibility for chunk of {} employees in tenant: {}",
+                    pending.size(), tenantId, e);
+            // Keep the chunk writable so the batch continues with the other chunks
+            pending.forEach(dto -> dto.setEligibilityReason("Error during rule evaluation: " + e.getMessage()));
+            return;
         }
+
+        if (log.isDebugEnabled()) {
+            for (EmployeeEligibilityDTO dto : pending) {
+                if (dto.isEligible()) {
+                    log.debug("Employee {} is ELIGIBLE", dto.getEmployeeId());
+                } else {
+                    log.debug("Employee {} is NOT ELIGIBLE: {}", dto.getEmployeeId(), dto.getEligibilityReason());
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        double avgTimePerEmployee = (double) elapsed / processedCount;
+        log.info("Eligibility progress: {} employees processed (Success: {}, Failed: {}) - Avg: {} ms per employee",
+                processedCount, successCount, failureCount, String.format("%.2f", avgTimePerEmployee));
+    }
+
+    /**
+     * Publish the decision cache effectiveness for this run in the step execution context
+     */
+    @AfterStep
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        ExecutionContext context = stepExecution.getExecutionContext();
+        context.putInt(BatchConstants.CONTEXT_ELIGIBILITY_DISTINCT_KEYS, decisionCache.getDistinctKeys());
+        context.putLong(BatchConstants.CONTEXT_ELIGIBILITY_DECISION_LOOKUPS, decisionCache.getLookups());
+        context.putLong(BatchConstants.CONTEXT_ELIGIBILITY_DECISION_HITS, decisionCache.getHits());
+        context.putDouble(BatchConstants.CONTEXT_ELIGIBILITY_DISTINCT_KEY_RATIO, decisionCache.getDistinctKeyRatio());
+        context.putDouble(BatchConstants.CONTEXT_ELIGIBILITY_DECISION_HIT_RATE, decisionCache.getHitRate());
+
+        log.info("Eligibility decision cache for tenant {}: {} distinct keys for {} employees (ratio {}), hit rate {}",
+                tenantId, decisionCache.getDistinctKeys(), decisionCache.getLookups(),
+                String.format("%.3f", decisionCache.getDistinctKeyRatio()), String.format("%.3f", decisionCache.getHitRate()));
+        return stepExecution.getExitStatus();
+    }
+
+    private boolean isPendingEvaluation(EmployeeEligibilityDTO dto) {
+        return dto.getRuleSetVersion() == null
+                && EligibilityProcessingUtility.PENDING_EVALUATION_REASON.equals(dto.getEligibilityReason());
     }
 
     /**
@@ -3,6 +3,7 @@ package com.glidingpath.rules.contributions.processor;
 import com.glidingpath.common.dto.PrePayrollCalculationDTO;
 // import com.glidingpath.common.service.FinchBenefitService;
 import com.glidingpath.common.service.FinchBenefitService;
+import com.glidingpath.rules.contributions.async.FinchRateLimiter;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
@@ -13,25 +14,32 @@ import org.springframework.batch.item.ItemProcessor;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Creates the Finch deduction of one calculation. The deduction step runs it on several threads
+ * through an AsyncItemProcessor, so its counters are atomic and every Finch call first takes a
+ * token from the tenant's {@link FinchRateLimiter}.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FinchDeductionBatchProcessor implements ItemProcessor<PrePayrollCalculationDTO, PrePayrollCalculationDTO> {
 
     private final FinchBenefitService finchBenefitService;
-    
+    private final FinchRateLimiter finchRateLimiter;
+
     private String tenantId;
-    private int processedCount = 0;
-    private int successCount = 0;
-    private int failureCount = 0;
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
-        this.processedCount = 0;
-        this.successCount = 0;
-        this.failureCount = 0;
+        this.processedCount.set(0);
+        this.successCount.set(0);
+        this.failureCount.set(0);
         
         log.info("Initializing FinchDeductionBatchProcessor for tenant: {}", tenantId);
         
@@ -46,24 +54,25 @@ public class FinchDeductionBatchProcessor implements ItemProcessor<PrePayrollCal
             return null;
         }
 
-        processedCount++;
+        int processed = processedCount.incrementAndGet();
         
         try {
             log.debug("Processing Finch deduction for employee: {} ({} of batch)", 
-                    calculation.getEmployeeId(), processedCount);
+                    calculation.getEmployeeId(), processed);
             
             // Validate that the calculation is successful
             if (!"SUCCESS".equals(calculation.getStatus())) {
                 log.warn("Calculation for employee {} is not successful, skipping Finch deduction", calculation.getEmployeeId());
-                failureCount++;
+                failureCount.incrementAndGet();
                 calculation.setFinchStatus("SKIPPED");
                 calculation.setErrorMessage("Skipped: Calculation not successful");
                 return calculation;
             }
             
             // Create Finch deductions using the service
-            Map<String, String> deductionResult = finchBenefitService.createDeduction(tenantId, 
-                Map.of("employeeId", calculation.getEmployeeId(), "amount", calculation.getTotalContributionAmount()));
+            Map<String, Object> requestBody = Map.of("employeeId", calculation.getEmployeeId(), "amount", calculation.getTotalContributionAmount());
+            Map<String, String> deductionResult = finchRateLimiter.call(tenantId,
+                () -> finchBenefitService.createDeduction(tenantId, requestBody));
             
             // Update the calculation with Finch status
             if (deductionResult.containsKey("success") && "true".equals(deductionResult.get("success"))) {
@@ -73,22 +82,22 @@ public class FinchDeductionBatchProcessor implements ItemProcessor<PrePayrollCal
                 calculation.setFinchErrorMessage(deductionResult.get("error") != null ? deductionResult.get("error") : "Unknown error");
             }
             
-            successCount++;
+            successCount.incrementAndGet();
             
             log.debug("Successfully created Finch deduction for employee: {} - Status: {}", 
                     calculation.getEmployeeId(), calculation.getFinchStatus());
             
             // Force Spring Batch to recognize this as a processing operation
             // This helps with proper counting in the monitoring
-            if (processedCount % BatchConstants.DEDUCTION_CHUNK_SIZE == 0) {
+            if (processed % BatchConstants.DEDUCTION_CHUNK_SIZE == 0) {
                 log.info("Completed Finch deduction processing chunk: {}/{} calculations processed (Success: {}, Failed: {})", 
-                        processedCount, "batch", successCount, failureCount);
+                        processed, "batch", successCount.get(), failureCount.get());
             }
             
             return calculation;
             
         } catch (Exception e) {
-            failureCount++;
+            failureCount.incrementAndGet();
             log.error("Failed to create Finch deduction for employee: {} in tenant: {}", 
                     calculation.getEmployeeId(), tenantId, e);
             
@@ -104,7 +113,7 @@ public class FinchDeductionBatchProcessor implements ItemProcessor<PrePayrollCal
      * Get processing statistics
      */
     public ProcessingStats getProcessingStats() {
-        return new ProcessingStats(processedCount, successCount, failureCount);
+        return new ProcessingStats(processedCount.get(), successCount.get(), failureCount.get());
     }
 
     /**
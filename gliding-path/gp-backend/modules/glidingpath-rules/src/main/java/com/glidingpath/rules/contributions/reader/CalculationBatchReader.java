@@ -2,45 +2,85 @@ package com.glidingpath.rules.contributions.reader;
 
 import com.glidingpath.common.dto.EmployeeEligibilityDTO;
 import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.core.entity.PrePayrollCalculation;
 import com.glidingpath.core.repository.PlanParticipantRepository;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+import com.glidingpath.rules.repository.StagedItem;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.BeforeStep;
-import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Reads the employees found eligible by the eligibility step for contribution calculation.
+ *
+ * The eligibility step stages eligible individualIds in prepayroll_staging. They are read one
+ * keyset page at a time, ordered by individualId, and each page's participants are loaded with
+ * one query and handed on with the item, so a chunk costs no query per employee anywhere in the
+ * step; memory stays at one page whatever the tenant size. The last individualId read is
+ * kept in the step execution context, so a restarted partition resumes after its last committed chunk.
+ *
+ * With batch.calculation.incremental on, each page also loads every participant's latest successful
+ * calculation of an earlier period, in one more query, for the processor to carry forward.
+ *
+ * Step scoped: each worker of the partitioned calculation step gets its own reader, limited to the
+ * individualId range of its partition.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
-public class CalculationBatchReader implements ItemReader<EmployeeEligibilityDTO> {
+public class CalculationBatchReader implements ItemStreamReader<CalculationCandidate> {
 
     private final PlanParticipantRepository planParticipantRepository;
+    private final PrePayrollStagingRepository stagingRepository;
+    private final PrePayrollCalculationJdbcRepository calculationJdbcRepository;
+    
+    // Carry unchanged results of the previous period forward instead of recomputing them
+    @Value("${batch.calculation.incremental:false}")
+    private boolean incremental;
     
     private String tenantId;
+    private long jobInstanceId;
+    private IndividualIdRange range;
     private LocalDate payrollPeriodStart;
     private LocalDate payrollPeriodEnd;
-    private ListItemReader<EmployeeEligibilityDTO> delegateReader;
+    private Iterator<CalculationCandidate> page = Collections.emptyIterator();
+    private boolean lastPage = false;
+    // Last id staged on the page read, where the next page starts
+    private String pageEndId;
+    // Last id handed to the step, where a restart continues
+    private String lastIndividualId;
     private boolean initialized = false;
-    private StepExecution stepExecution;
     
-    // Thread-safe counters for monitoring
+    // Thread-safe counter for monitoring
     private final AtomicInteger processedCount = new AtomicInteger(0);
-    private final AtomicInteger totalCount = new AtomicInteger(0);
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
-        this.stepExecution = stepExecution;
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
         this.payrollPeriodStart = LocalDate.parse(
             stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_START)
         );
@@ -48,132 +88,81 @@ public class CalculationBatchReader implements ItemReader<EmployeeEligibilityDTO
             stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_END)
         );
         
-        log.info("Initializing CalculationBatchReader for tenant: {} period: {} to {}", 
-                tenantId, payrollPeriodStart, payrollPeriodEnd);
+        this.range = IndividualIdRange.from(stepExecution.getExecutionContext());
+        
+        log.info("Initializing CalculationBatchReader for tenant: {} period: {} to {} ({})", 
+                tenantId, payrollPeriodStart, payrollPeriodEnd, range);
         
         if (tenantId == null || payrollPeriodStart == null || payrollPeriodEnd == null) {
             throw new IllegalStateException("Tenant ID and payroll period dates are required for calculation batch processing");
         }
         
-        // Reset counters for new step execution
+        // Reset counter for new step execution
         processedCount.set(0);
-        totalCount.set(0);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        // Continue after the last employee of the previous execution of this partition (if restarting)
+        lastIndividualId = executionContext.containsKey(BatchConstants.CONTEXT_CALCULATION_LAST_ID)
+                ? executionContext.getString(BatchConstants.CONTEXT_CALCULATION_LAST_ID)
+                : null;
+        pageEndId = lastIndividualId;
+        page = Collections.emptyIterator();
+        lastPage = false;
+        
+        log.info("Reading eligible employees for tenant {} ({}) in pages of {}{}{}", tenantId, range,
+                stagingRepository.getPageSize(), lastIndividualId != null ? " after " + lastIndividualId : "",
+                incremental ? ", with their previous calculations" : "");
         
-        initializeReader();
+        initialized = true;
     }
 
-    private void initializeReader() {
-        try {
-            // Get eligible employees from job execution context (from previous eligibility step)
-            List<EmployeeEligibilityDTO> eligibleEmployees = getEligibleEmployeesFromContext();
-            
-            if (eligibleEmployees == null || eligibleEmployees.isEmpty()) {
-                // Fallback: fetch eligible employees from database
-                log.warn("No eligible employees found in job context, fetching from database for tenant: {}", tenantId);
-                eligibleEmployees = fetchEligibleEmployeesFromDatabase();
-            }
-            
-            if (eligibleEmployees.isEmpty()) {
-                log.warn("No eligible employees found for calculation in tenant: {} - calculation batch will process 0 records", tenantId);
-                this.delegateReader = new ListItemReader<>(List.of());
-                this.totalCount.set(0);
-            } else {
-                log.info("Found {} eligible employees for calculation in tenant: {} period: {} to {}", 
-                        eligibleEmployees.size(), tenantId, payrollPeriodStart, payrollPeriodEnd);
-                
-                // Process ALL eligible employees in batches
-                this.delegateReader = new ListItemReader<>(eligibleEmployees);
-                this.totalCount.set(eligibleEmployees.size());
-                log.info("ListItemReader initialized with {} eligible employees for batch processing", eligibleEmployees.size());
-            }
-            
-            this.initialized = true;
-            
-        } catch (Exception e) {
-            log.error("Failed to initialize calculation batch reader for tenant: {}", tenantId, e);
-            throw new RuntimeException("Failed to initialize calculation batch reader", e);
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Save the last key read for restart capability; called once the chunk is committed
+        if (lastIndividualId != null) {
+            executionContext.putString(BatchConstants.CONTEXT_CALCULATION_LAST_ID, lastIndividualId);
         }
     }
 
-    /**
-     * Get eligible employees from job execution context (from previous eligibility step)
-     * This is the PRIMARY source - we don't re-check eligibility here!
-     */
-    @SuppressWarnings("unchecked")
-    private List<EmployeeEligibilityDTO> getEligibleEmployeesFromContext() {
-        try {
-            // Get eligible employee IDs from job execution context
-            Object contextValue = stepExecution.getJobExecution().getExecutionContext()
-                .get("eligibleEmployeeIds");
-            
-            if (contextValue instanceof List) {
-                List<String> eligibleEmployeeIds = (List<String>) contextValue;
-                
-                if (!eligibleEmployeeIds.isEmpty()) {
-                    // Convert employee IDs to EmployeeEligibilityDTO objects
-                    List<EmployeeEligibilityDTO> eligibleEmployees = eligibleEmployeeIds.stream()
-                        .map(this::convertEmployeeIdToEligibilityDto)
-                        .filter(dto -> dto != null)
-                        .collect(Collectors.toList());
-                    
-                    log.info("Retrieved {} eligible employees from job execution context (from eligibility step)", eligibleEmployees.size());
-                    return eligibleEmployees;
-                } else {
-                    log.warn("No eligible employee IDs found in job execution context");
-                }
-            } else {
-                log.warn("Job execution context does not contain eligible employee IDs");
-            }
-            
-        } catch (Exception e) {
-            log.warn("Failed to retrieve eligible employees from job context: {}", e.getMessage());
-        }
-        
-        return null;
+    @Override
+    public void close() {
+        page = Collections.emptyIterator();
+        initialized = false;
     }
 
     /**
-     * Fallback: fetch eligible employees from database
-     * This should only be used if the job context is empty
+     * Next page of staged eligible employees, with their participants loaded in one query
      */
-    private List<EmployeeEligibilityDTO> fetchEligibleEmployeesFromDatabase() {
-        try {
-            log.warn("FALLBACK: Fetching eligible employees from database - this indicates a data flow issue");
-            
-            // Get all employees for the tenant
-            List<PlanParticipant> allEmployees = planParticipantRepository.findByTenantIdOrderByCreatedAtDesc(tenantId);
-            
-            // Filter only eligible employees based on stored eligibility status
-            List<EmployeeEligibilityDTO> eligibleEmployees = allEmployees.stream()
-                .filter(employee -> Boolean.TRUE.equals(employee.getIsEligibleFor401k()))
-                .map(this::convertToEligibilityDto)
-                .collect(Collectors.toList());
-            
-            log.info("Fetched {} eligible employees from database for tenant: {}", eligibleEmployees.size(), tenantId);
-            return eligibleEmployees;
-            
-        } catch (Exception e) {
-            log.error("Failed to fetch eligible employees from database for tenant: {}", tenantId, e);
+    private List<CalculationCandidate> readPage() {
+        List<StagedItem> staged = stagingRepository.findPage(jobInstanceId, BatchConstants.STAGE_ELIGIBLE, range, pageEndId);
+        lastPage = staged.size() < stagingRepository.getPageSize();
+        if (staged.isEmpty()) {
             return List.of();
         }
-    }
-
-    /**
-     * Convert employee ID to EmployeeEligibilityDTO by fetching from database
-     */
-    private EmployeeEligibilityDTO convertEmployeeIdToEligibilityDto(String employeeId) {
-        try {
-            Optional<PlanParticipant> employeeOpt = planParticipantRepository.findByIndividualId(employeeId);
-            if (employeeOpt.isPresent()) {
-                return convertToEligibilityDto(employeeOpt.get());
-            } else {
-                log.warn("Employee not found for ID: {}", employeeId);
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("Failed to convert employee ID {} to eligibility DTO", employeeId, e);
-            return null;
+        // The page is consumed up to its last staged id even if some participants were removed since
+        pageEndId = staged.get(staged.size() - 1).individualId();
+        
+        Set<String> individualIds = staged.stream().map(StagedItem::individualId).collect(Collectors.toSet());
+        Map<String, PlanParticipant> participants = planParticipantRepository.findByIndividualIdIn(individualIds).stream()
+            .collect(Collectors.toMap(PlanParticipant::getIndividualId, Function.identity()));
+        if (participants.size() < staged.size()) {
+            log.warn("{} staged employees not found for tenant {} ({})", staged.size() - participants.size(), tenantId, range);
         }
+        
+        Map<UUID, PrePayrollCalculation> previous = incremental
+            ? calculationJdbcRepository.findLatestSuccessful(tenantId,
+                participants.values().stream().map(PlanParticipant::getId).collect(Collectors.toList()), payrollPeriodStart)
+            : Map.of();
+        
+        // Keep the staging order
+        return staged.stream()
+            .map(item -> participants.get(item.individualId()))
+            .filter(Objects::nonNull)
+            .map(participant -> new CalculationCandidate(convertToEligibilityDto(participant), participant,
+                previous.get(participant.getId())))
+            .collect(Collectors.toList());
     }
 
     /**
@@ -226,35 +215,33 @@ public class CalculationBatchReader implements ItemReader<EmployeeEligibilityDTO
     }
 
     @Override
-    public EmployeeEligibilityDTO read() throws Exception {
+    public CalculationCandidate read() throws Exception {
         try {
             if (!initialized) {
-                log.error("CalculationBatchReader not initialized. Call beforeStep() first.");
-                throw new IllegalStateException("CalculationBatchReader not initialized. Call beforeStep() first.");
+                log.error("CalculationBatchReader not opened. Call open() first.");
+                throw new IllegalStateException("CalculationBatchReader not opened. Call open() first.");
             }
             
-            if (delegateReader == null) {
-                log.debug("DelegateReader is null, returning null");
-                return null;
+            // A page can come back empty when none of its participants exist any more; move on to the next
+            while (!page.hasNext() && !lastPage) {
+                page = readPage().iterator();
             }
             
-            EmployeeEligibilityDTO eligibleEmployee = delegateReader.read();
-            
-            if (eligibleEmployee != null) {
+            if (page.hasNext()) {
+                CalculationCandidate candidate = page.next();
+                EmployeeEligibilityDTO eligibleEmployee = candidate.eligibility();
+                lastIndividualId = eligibleEmployee.getEmployeeId();
                 processedCount.incrementAndGet();
-                log.debug("Reading eligible employee: {} for calculation ({}/{} processed)", 
-                         eligibleEmployee.getEmployeeId(), processedCount.get(), totalCount.get());
+                log.debug("Reading eligible employee: {} for calculation ({} processed)", 
+                         eligibleEmployee.getEmployeeId(), processedCount.get());
                 
-                // Force Spring Batch to recognize this as a read operation
-                // This helps with proper counting in the monitoring
                 if (processedCount.get() % BatchConstants.CALCULATION_CHUNK_SIZE == 0) {
-                    log.info("Completed calculation chunk: {}/{} eligible employees processed", processedCount.get(), totalCount.get());
+                    log.info("Completed calculation chunk: {} eligible employees processed", processedCount.get());
                 }
                 
-                // Ensure Spring Batch recognizes this read operation
-                return eligibleEmployee;
+                return candidate;
             } else {
-                log.info("No more eligible employees to read for calculation. Total processed: {}/{}", processedCount.get(), totalCount.get());
+                log.info("No more eligible employees to read for calculation. Total processed: {} ({})", processedCount.get(), range);
                 return null;
             }
             
@@ -266,30 +253,17 @@ public class CalculationBatchReader implements ItemReader<EmployeeEligibilityDTO
     }
 
     /**
-     * Get the total count of eligible employees to be processed
+     * Get the total count of eligible employees staged for calculation
      */
     public int getTotalEligibleEmployeeCount() {
-        if (delegateReader == null) {
-            return 0;
-        }
-        
-        try {
-            // This is a simple way to get the count, but in production you might want to store it separately
-            List<PlanParticipant> allEmployees = planParticipantRepository.findByTenantIdOrderByCreatedAtDesc(tenantId);
-            return (int) allEmployees.stream()
-                .filter(employee -> Boolean.TRUE.equals(employee.getIsEligibleFor401k()))
-                .count();
-        } catch (Exception e) {
-            log.warn("Failed to get total eligible employee count for tenant: {}", tenantId, e);
-            return 0;
-        }
+        return (int) stagingRepository.count(jobInstanceId, BatchConstants.STAGE_ELIGIBLE);
     }
 
     /**
      * Check if the reader has been properly initialized
      */
     public boolean isInitialized() {
-        return initialized && tenantId != null && payrollPeriodStart != null && payrollPeriodEnd != null && delegateReader != null;
+        return initialized && tenantId != null && payrollPeriodStart != null && payrollPeriodEnd != null;
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.glidingpath.rules.contributions.reader;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.core.entity.PrePayrollCalculation;
+
+/**
+ * An eligible employee as {@link CalculationBatchReader} hands it to the calculation processor:
+ * the eligibility view together with the participant it was built from, loaded with the rest of
+ * the reader's page, so the processor needs no query per employee. In incremental mode it also
+ * carries the employee's latest successful calculation of an earlier period, null when there is none.
+ */
+public record CalculationCandidate(
+        EmployeeEligibilityDTO eligibility,
+        PlanParticipant participant,
+        PrePayrollCalculation previous) {
+}
@@ -1,30 +1,76 @@
 package com.glidingpath.rules.contributions.reader;
 
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import com.glidingpath.core.entity.PlanParticipant;
-import com.glidingpath.core.repository.PlanParticipantRepository;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.core.entity.TenantPlan;
+import com.glidingpath.rules.contributions.EligibilityEvaluationDate;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.repository.EligibilityParticipant;
+import com.glidingpath.rules.repository.EligibilityParticipantRepository;
+import com.glidingpath.rules.repository.EligibilityPushdownRepository;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
+import com.glidingpath.rules.util.EligibilityProcessingUtility;
+import com.glidingpath.rules.util.EligibilitySqlPredicate;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Reads the participants of the tenant for eligibility evaluation.
+ *
+ * When the tenant runs the standard eligibility rule set, the rules are pushed down into SQL:
+ * participants that fail a criterion are marked not eligible with one UPDATE, and only the
+ * participants that pass every criterion are read and go through the rules. Otherwise every
+ * participant of the tenant is read.
+ *
+ * Participants are read as {@link EligibilityParticipant} projections, one keyset page at a time,
+ * so memory stays at one page and the first chunk does not wait for the whole tenant. The id of
+ * the last participant read is kept in the step execution context for restarts. The pushdown uses
+ * the job's {@link EligibilityEvaluationDate}, like the rules do, so a restart sees the same candidates.
+ *
+ * Step scoped: each worker of the partitioned eligibility step gets its own reader, limited to the
+ * individualId range of its partition.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
-public class EligibilityBatchReader implements ItemStreamReader<PlanParticipant> {
+public class EligibilityBatchReader implements ItemStreamReader<EligibilityParticipant> {
 
-    private final PlanParticipantRepository planParticipantRepository;
+    private final EligibilityParticipantRepository eligibilityParticipantRepository;
+    private final EligibilityPushdownRepository eligibilityPushdownRepository;
+    private final EligibilityProcessingUtility eligibilityUtility;
+    private final TenantRuleResolver tenantRuleResolver;
+
+    @Value("${rules.eligibility.pushdown.enabled:true}")
+    private boolean pushdownEnabled;
 
     private String tenantId;
-    private List<PlanParticipant> employees;
-    private int currentIndex = 0;
+    private IndividualIdRange range;
+    private LocalDate evaluationDate;
+    // Resolved once in beforeStep; null when the tenant has no plan
+    private TenantPlan tenantPlan;
+    // SQL form of the rules when they are pushed down; null reads every participant
+    private EligibilitySqlPredicate candidatesOnly;
+    private Iterator<EligibilityParticipant> page = Collections.emptyIterator();
+    private boolean lastPage = false;
+    private UUID lastId;
+    private int readCount = 0;
     private boolean initialized = false;
 
     @BeforeStep
@@ -35,55 +81,105 @@ public class EligibilityBatchReader implements ItemStreamReader<PlanParticipant>
         if (tenantId == null || tenantId.isBlank()) {
             throw new IllegalStateException("Tenant ID is required for eligibility batch processing");
         }
+        this.range = IndividualIdRange.from(stepExecution.getExecutionContext());
+        this.evaluationDate = EligibilityEvaluationDate.of(stepExecution.getJobExecution());
+        this.tenantPlan = eligibilityUtility.getTenantPlan(tenantId).orElse(null);
 
-        log.info("Initializing EligibilityBatchReader for tenant: {}", tenantId);
+        log.info("Initializing EligibilityBatchReader for tenant: {} ({}) on {}", tenantId, range, evaluationDate);
     }
 
     @Override
     public void open(ExecutionContext executionContext) {
-        // Load all employees for the tenant using safe method that avoids lazy loading issues
-        employees = planParticipantRepository.findByTenantIdOrderByCreatedAtDescSafe(tenantId);
-        
-        // Restore cursor position from previous execution (if restarting)
-        currentIndex = executionContext.getInt("cursor", 0);
-        
-        log.info("Loaded {} employees for tenant {} (starting from index {})", 
-                employees.size(), tenantId, currentIndex);
-        
+        candidatesOnly = pushdownPredicate().orElse(null);
+        if (candidatesOnly != null) {
+            markIneligible(candidatesOnly, executionContext);
+        }
+
+        // Continue after the last participant of the previous execution (if restarting)
+        lastId = executionContext.containsKey(BatchConstants.CONTEXT_ELIGIBILITY_LAST_ID)
+                ? UUID.fromString(executionContext.getString(BatchConstants.CONTEXT_ELIGIBILITY_LAST_ID))
+                : null;
+        page = Collections.emptyIterator();
+        lastPage = false;
+        readCount = 0;
+
+        log.info("Reading employees for tenant {} ({}) in pages of {}{}", tenantId, range,
+                eligibilityParticipantRepository.getPageSize(), lastId != null ? " after id " + lastId : "");
+
         initialized = true;
     }
 
+    /**
+     * Mark the participants of the range that fail a criterion with one UPDATE,
+     * using the same check schedule EligibilityBatchWriter applies to ineligible results
+     */
+    private void markIneligible(EligibilitySqlPredicate predicate, ExecutionContext executionContext) {
+        LocalDate today = predicate.getCurrentDate();
+        int markedIneligible = eligibilityPushdownRepository.markIneligible(tenantId,
+                predicate.getMinimumEntryAge(), predicate.getTimeEmployedMonths(),
+                predicate.getCurrentMonth(), predicate.getCurrentDay(),
+                today, today.plusYears(1), today.plusMonths(3), today.plusMonths(1),
+                "Processed by Spring Batch eligibility job on " + today,
+                range.getFromId(), range.getToId(), range.includesMissingIds());
+        executionContext.putInt(BatchConstants.CONTEXT_ELIGIBILITY_PUSHDOWN_INELIGIBLE, markedIneligible);
+        log.info("Eligibility pushdown for tenant {} ({}): {} participants marked not eligible in SQL, only candidates are read",
+                tenantId, range, markedIneligible);
+    }
+
+    /**
+     * The SQL form of the tenant's eligibility rules, if they are the standard rule set and the plan can be translated
+     */
+    private Optional<EligibilitySqlPredicate> pushdownPredicate() {
+        if (!pushdownEnabled || !tenantRuleResolver.resolve(tenantId).isStandardEligibility()) {
+            return Optional.empty();
+        }
+        Optional<PlanEligibility> planEligibility = Optional.ofNullable(tenantPlan)
+                .flatMap(eligibilityUtility::getPlanEligibility);
+        if (planEligibility.isEmpty()) {
+            return Optional.empty();
+        }
+        return EligibilitySqlPredicate.forPlan(planEligibility.get(), evaluationDate);
+    }
+
     @Override
-    public PlanParticipant read() {
+    public EligibilityParticipant read() {
         if (!initialized) {
             throw new IllegalStateException("Reader not opened. Call open() first.");
         }
 
-        if (currentIndex < employees.size()) {
-            PlanParticipant employee = employees.get(currentIndex);
-            currentIndex++;
-            
-            log.debug("Reading employee {} for tenant {} (index {}/{})", 
-                    employee.getIndividualId(), tenantId, currentIndex, employees.size());
-            
+        if (!page.hasNext() && !lastPage) {
+            List<EligibilityParticipant> next = eligibilityParticipantRepository.findPage(tenantId, range, lastId, candidatesOnly);
+            lastPage = next.size() < eligibilityParticipantRepository.getPageSize();
+            page = next.iterator();
+        }
+
+        if (page.hasNext()) {
+            EligibilityParticipant employee = page.next();
+            lastId = employee.id();
+            readCount++;
+
+            log.debug("Reading employee {} for tenant {} ({} read)", employee.individualId(), tenantId, readCount);
+
             return employee;
         } else {
-            log.info("All {} employees have been read for tenant {}", employees.size(), tenantId);
+            log.info("All {} employees have been read for tenant {} ({})", readCount, tenantId, range);
             return null; // Signal end of data
         }
     }
 
     @Override
     public void update(ExecutionContext executionContext) {
-        // Save current cursor position for restart capability
-        executionContext.putInt("cursor", currentIndex);
-        log.debug("Updated cursor position to {} for tenant {}", currentIndex, tenantId);
+        // Save the last key read for restart capability; called once the chunk is committed
+        if (lastId != null) {
+            executionContext.putString(BatchConstants.CONTEXT_ELIGIBILITY_LAST_ID, lastId.toString());
+        }
+        log.debug("Updated last id to {} for tenant {}", lastId, tenantId);
     }
 
     @Override
     public void close() {
-        log.info("Closing EligibilityBatchReader for tenant {} (processed {}/{} employees)", 
-                tenantId, currentIndex, employees != null ? employees.size() : 0);
+        log.info("Closing EligibilityBatchReader for tenant {} ({} employees read)", tenantId, readCount);
+        page = Collections.emptyIterator();
         initialized = false;
     }
 }
@@ -2,43 +2,64 @@ package com.glidingpath.rules.contributions.reader;
 
 import com.glidingpath.common.dto.PrePayrollCalculationDTO;
 import com.glidingpath.core.entity.PrePayrollCalculation;
-import com.glidingpath.core.entity.PlanParticipant;
 import com.glidingpath.core.repository.PrePayrollCalculationRepository;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+import com.glidingpath.rules.repository.StagedItem;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.BeforeStep;
-import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Reads the successful calculations of the calculation step for Finch deduction creation.
+ *
+ * The calculation step stages each successful calculation (individualId and calculation id) in
+ * prepayroll_staging. They are read one keyset page at a time, ordered by individualId, and each
+ * page's calculations are loaded with one query. Only calculations of this job instance are read,
+ * never earlier successful calculations of the tenant. The last individualId read is kept in the
+ * step execution context for restarts.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
-public class FinchDeductionBatchReader implements ItemReader<PrePayrollCalculationDTO> {
+public class FinchDeductionBatchReader implements ItemStreamReader<PrePayrollCalculationDTO> {
 
     private final PrePayrollCalculationRepository prePayrollCalculationRepository;
+    private final PrePayrollStagingRepository stagingRepository;
     
     private String tenantId;
-    private ListItemReader<PrePayrollCalculationDTO> delegateReader;
+    private long jobInstanceId;
+    private Iterator<PrePayrollCalculationDTO> page = Collections.emptyIterator();
+    private boolean lastPage = false;
+    // Last id staged on the page read, where the next page starts
+    private String pageEndId;
+    // Last id handed to the step, where a restart continues
+    private String lastIndividualId;
     private boolean initialized = false;
-    private StepExecution stepExecution;
     
-    // Thread-safe counters for monitoring
+    // Thread-safe counter for monitoring
     private final AtomicInteger processedCount = new AtomicInteger(0);
-    private final AtomicInteger totalCount = new AtomicInteger(0);
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
-        this.stepExecution = stepExecution;
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
         
         log.info("Initializing FinchDeductionBatchReader for tenant: {}", tenantId);
         
@@ -46,162 +67,76 @@ public class FinchDeductionBatchReader implements ItemReader<PrePayrollCalculati
             throw new IllegalStateException("Tenant ID is required for Finch deduction batch processing");
         }
         
-        // Reset counters for new step execution
+        // Reset counter for new step execution
         processedCount.set(0);
-        totalCount.set(0);
-        
-        initializeReader();
     }
 
-    private void initializeReader() {
-        try {
-            // Try to get calculation results from job execution context first
-            List<PrePayrollCalculationDTO> calculationResults = getCalculationResultsFromContext();
-            
-            if (calculationResults == null || calculationResults.isEmpty()) {
-                // Fallback: fetch calculation results from database
-                log.warn("No calculation results found in job context, fetching from database for tenant: {}", tenantId);
-                calculationResults = fetchCalculationResultsFromDatabase();
-            }
-            
-            if (calculationResults.isEmpty()) {
-                log.warn("No calculation results found for Finch deduction in tenant: {} - deduction batch will process 0 records", tenantId);
-                this.delegateReader = new ListItemReader<>(List.of());
-                this.totalCount.set(0);
-            } else {
-                // Filter only successful calculations for Finch deduction
-                List<PrePayrollCalculationDTO> successfulCalculations = calculationResults.stream()
-                    .filter(calc -> "SUCCESS".equals(calc.getStatus()))
-                    .collect(Collectors.toList());
-                
-                log.info("Found {} successful calculations for Finch deduction in tenant: {} (out of {} total)", 
-                        successfulCalculations.size(), tenantId, calculationResults.size());
-                
-                this.delegateReader = new ListItemReader<>(successfulCalculations);
-                this.totalCount.set(successfulCalculations.size());
-            }
-            
-            this.initialized = true;
-            
-        } catch (Exception e) {
-            log.error("Failed to initialize Finch deduction batch reader for tenant: {}", tenantId, e);
-            throw new RuntimeException("Failed to initialize Finch deduction batch reader", e);
-        }
+    @Override
+    public void open(ExecutionContext executionContext) {
+        // Continue after the last calculation of the previous execution (if restarting)
+        lastIndividualId = executionContext.containsKey(BatchConstants.CONTEXT_DEDUCTION_LAST_ID)
+                ? executionContext.getString(BatchConstants.CONTEXT_DEDUCTION_LAST_ID)
+                : null;
+        pageEndId = lastIndividualId;
+        page = Collections.emptyIterator();
+        lastPage = false;
+        
+        log.info("Reading successful calculations for tenant {} in pages of {}{}", tenantId,
+                stagingRepository.getPageSize(), lastIndividualId != null ? " after " + lastIndividualId : "");
+        
+        initialized = true;
     }
 
-    /**
-     * Get calculation results from job execution context (from previous calculation step)
-     * Now expects calculation IDs and fetches full DTOs from database
-     */
-    @SuppressWarnings("unchecked")
-    private List<PrePayrollCalculationDTO> getCalculationResultsFromContext() {
-        try {
-            Object contextValue = stepExecution.getJobExecution().getExecutionContext()
-                .get(BatchConstants.CONTEXT_CALCULATION_RESULTS);
-            
-            if (contextValue instanceof List) {
-                List<String> calculationIds = (List<String>) contextValue;
-                
-                if (!calculationIds.isEmpty()) {
-                    log.info("Retrieved {} calculation IDs from job execution context, fetching full DTOs from database", calculationIds.size());
-                    return fetchCalculationResultsByIds(calculationIds);
-                } else {
-                    log.warn("Job execution context contains empty calculation IDs list");
-                }
-            } else {
-                log.warn("Job execution context does not contain calculation results");
-            }
-            
-        } catch (Exception e) {
-            log.warn("Failed to retrieve calculation results from job context: {}", e.getMessage());
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Save the last key read for restart capability; called once the chunk is committed
+        if (lastIndividualId != null) {
+            executionContext.putString(BatchConstants.CONTEXT_DEDUCTION_LAST_ID, lastIndividualId);
         }
-        
-        return null;
     }
 
-    /**
-     * Fetch calculation results from database using calculation IDs
-     */
-    private List<PrePayrollCalculationDTO> fetchCalculationResultsByIds(List<String> calculationIds) {
-        try {
-            List<PrePayrollCalculation> calculations = prePayrollCalculationRepository.findByCalculationIdIn(calculationIds);
-            
-            if (calculations.isEmpty()) {
-                log.warn("No calculations found for the provided IDs: {}", calculationIds);
-                return new ArrayList<>();
-            }
-            
-            List<PrePayrollCalculationDTO> calculationDtos = calculations.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-            
-            log.info("Successfully fetched {} calculation DTOs from database for deduction processing", calculationDtos.size());
-            return calculationDtos;
-            
-        } catch (Exception e) {
-            log.error("Failed to fetch calculation results by IDs from database for tenant: {}", tenantId, e);
-            return new ArrayList<>();
-        }
+    @Override
+    public void close() {
+        page = Collections.emptyIterator();
+        initialized = false;
     }
 
     /**
-     * Fallback: fetch calculation results from database
-     * This should only be used if the job context is empty
+     * Next page of staged calculations, loaded in one query
      */
-    @org.springframework.transaction.annotation.Transactional(readOnly = true)
-    private List<PrePayrollCalculationDTO> fetchCalculationResultsFromDatabase() {
-        try {
-            log.warn("FALLBACK: Fetching calculation results from database - this indicates a data flow issue");
-            
-            // Get all successful calculations for the tenant with employee relationship eagerly loaded
-            log.info("CALLING: findByTenantIdAndStatus for tenant: {}", tenantId);
-            List<PrePayrollCalculation> allCalculations = prePayrollCalculationRepository.findByTenantIdAndStatus(
-                tenantId, com.glidingpath.core.entity.PrePayrollCalculation.CalculationStatus.SUCCESS);
-            log.info("FETCHED: {} entities from database", allCalculations.size());
-            
-            // Convert entities to DTOs
-            log.info("CONVERTING: {} entities to DTOs", allCalculations.size());
-            List<PrePayrollCalculationDTO> calculationDtos = allCalculations.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
-            log.info("CONVERTED: {} DTOs", calculationDtos.size());
-            
-            log.info("FALLBACK: Fetched {} successful calculations from database for tenant: {}", calculationDtos.size(), tenantId);
-            return calculationDtos;
-            
-        } catch (Exception e) {
-            log.error("Failed to fetch calculation results from database for tenant: {}", tenantId, e);
+    private List<PrePayrollCalculationDTO> readPage() {
+        List<StagedItem> staged = stagingRepository.findPage(jobInstanceId, BatchConstants.STAGE_CALCULATED,
+                IndividualIdRange.all(), pageEndId);
+        lastPage = staged.size() < stagingRepository.getPageSize();
+        if (staged.isEmpty()) {
             return List.of();
         }
+        pageEndId = staged.get(staged.size() - 1).individualId();
+        
+        List<String> calculationIds = staged.stream().map(StagedItem::payload).collect(Collectors.toList());
+        Map<String, PrePayrollCalculation> calculations = prePayrollCalculationRepository.findByCalculationIdIn(calculationIds).stream()
+            .collect(Collectors.toMap(PrePayrollCalculation::getCalculationId, Function.identity()));
+        if (calculations.size() < staged.size()) {
+            log.warn("{} staged calculations not found for tenant {}", staged.size() - calculations.size(), tenantId);
+        }
+        
+        // Keep the staging order; the staged individualId saves loading each calculation's employee
+        return staged.stream()
+            .filter(item -> calculations.containsKey(item.payload()))
+            .map(item -> convertToDto(calculations.get(item.payload()), item.individualId()))
+            .collect(Collectors.toList());
     }
 
     /**
      * Convert PrePayrollCalculation entity to DTO
      */
-    private PrePayrollCalculationDTO convertToDto(PrePayrollCalculation entity) {
+    private PrePayrollCalculationDTO convertToDto(PrePayrollCalculation entity, String individualId) {
         PrePayrollCalculationDTO dto = new PrePayrollCalculationDTO();
         
         // Core identification
         dto.setCalculationId(entity.getCalculationId());
         dto.setTenantId(entity.getTenantId());
-        
-        // Debug employee relationship
-        try {
-            PlanParticipant employee = entity.getEmployee();
-            if (employee != null) {
-                String individualId = employee.getIndividualId();
-                dto.setEmployeeId(individualId);
-                log.info("ConvertToDto: calculationId={}, employee={}, individualId={}", 
-                         entity.getCalculationId(), employee, individualId);
-            } else {
-                log.warn("ConvertToDto: calculationId={}, employee is null", entity.getCalculationId());
-                dto.setEmployeeId(null);
-            }
-        } catch (Exception e) {
-            log.error("ConvertToDto: Failed to get employee for calculationId={}: {}", 
-                     entity.getCalculationId(), e.getMessage(), e);
-            dto.setEmployeeId(null);
-        }
+        dto.setEmployeeId(individualId);
         
         dto.setPayrollPeriodStart(entity.getPayrollPeriodStart());
         dto.setPayrollPeriodEnd(entity.getPayrollPeriodEnd());
@@ -213,6 +148,12 @@ public class FinchDeductionBatchReader implements ItemReader<PrePayrollCalculati
         dto.setProfitSharingAmount(entity.getProfitSharingAmount());
         dto.setTotalContributionAmount(entity.getTotalContributionAmount());
         
+        // Plan configuration the amounts come from; enrollment groups employees by it
+        dto.setPlanId(entity.getPlanId());
+        dto.setEmployerContributionRuleId(entity.getEmployerContributionRuleId());
+        dto.setEmployeeContributionConfigId(entity.getEmployeeContributionConfigId());
+        dto.setProfitSharingConfigId(entity.getProfitSharingConfigId());
+        
         // Status fields
         dto.setStatus(entity.getStatus().name());
         dto.setErrorMessage(entity.getErrorMessage());
@@ -224,32 +165,29 @@ public class FinchDeductionBatchReader implements ItemReader<PrePayrollCalculati
     public PrePayrollCalculationDTO read() throws Exception {
         try {
             if (!initialized) {
-                log.error("FinchDeductionBatchReader not initialized. Call beforeStep() first.");
-                throw new IllegalStateException("FinchDeductionBatchReader not initialized. Call beforeStep() first.");
+                log.error("FinchDeductionBatchReader not opened. Call open() first.");
+                throw new IllegalStateException("FinchDeductionBatchReader not opened. Call open() first.");
             }
             
-            if (delegateReader == null) {
-                log.debug("DelegateReader is null, returning null");
-                return null;
+            // A page can come back empty when none of its calculations exist any more; move on to the next
+            while (!page.hasNext() && !lastPage) {
+                page = readPage().iterator();
             }
             
-            PrePayrollCalculationDTO calculationResult = delegateReader.read();
-            
-            if (calculationResult != null) {
+            if (page.hasNext()) {
+                PrePayrollCalculationDTO calculationResult = page.next();
+                lastIndividualId = calculationResult.getEmployeeId();
                 processedCount.incrementAndGet();
-                log.debug("Reading calculation result: {} for Finch deduction ({}/{} processed)", 
-                         calculationResult.getCalculationId(), processedCount.get(), totalCount.get());
+                log.debug("Reading calculation result: {} for Finch deduction ({} processed)", 
+                         calculationResult.getCalculationId(), processedCount.get());
                 
-                // Force Spring Batch to recognize this as a read operation
-                // This helps with proper counting in the monitoring
                 if (processedCount.get() % BatchConstants.DEDUCTION_CHUNK_SIZE == 0) {
-                    log.info("Completed deduction chunk: {}/{} calculation results processed", processedCount.get(), totalCount.get());
+                    log.info("Completed deduction chunk: {} calculation results processed", processedCount.get());
                 }
                 
-                // Ensure Spring Batch recognizes this read operation
                 return calculationResult;
             } else {
-                log.info("No more calculation results to read for Finch deduction. Total processed: {}/{}", processedCount.get(), totalCount.get());
+                log.info("No more calculation results to read for Finch deduction. Total processed: {}", processedCount.get());
                 return null;
             }
             
@@ -261,28 +199,17 @@ public class FinchDeductionBatchReader implements ItemReader<PrePayrollCalculati
     }
 
     /**
-     * Get the total count of calculation results to be processed
+     * Get the total count of calculation results staged for deduction
      */
     public int getTotalCalculationResultCount() {
-        if (delegateReader == null) {
-            return 0;
-        }
-        
-        try {
-            List<PrePayrollCalculation> allCalculations = prePayrollCalculationRepository.findByTenantIdAndStatus(
-                tenantId, com.glidingpath.core.entity.PrePayrollCalculation.CalculationStatus.SUCCESS);
-            return allCalculations.size();
-        } catch (Exception e) {
-            log.warn("Failed to get total calculation result count for tenant: {}", tenantId, e);
-            return 0;
-        }
+        return (int) stagingRepository.count(jobInstanceId, BatchConstants.STAGE_CALCULATED);
     }
 
     /**
      * Check if the reader has been properly initialized
      */
     public boolean isInitialized() {
-        return initialized && tenantId != null && delegateReader != null;
+        return initialized && tenantId != null;
     }
 
     /**
@@ -3,38 +3,54 @@ package com.glidingpath.rules.contributions.writer;
 import com.glidingpath.common.dto.PrePayrollCalculationDTO;
 import com.glidingpath.core.entity.PrePayrollCalculation;
 import com.glidingpath.core.entity.PlanParticipant;
-import com.glidingpath.core.repository.PrePayrollCalculationRepository;
+import com.glidingpath.rules.contributions.partition.PartitionResultsListener;
 import com.glidingpath.rules.contributions.processor.CalculationBatchProcessor;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+import com.glidingpath.rules.repository.StagedItem;
 
 import constants.BatchConstants;
 
-import com.glidingpath.core.repository.PlanParticipantRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.AfterStep;
 import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
-import com.glidingpath.core.entity.PlanParticipant;
 import java.math.BigDecimal;
 
+/**
+ * Saves calculation results and stages the successful ones (individualId and calculation id) in
+ * prepayroll_staging for the deduction step, in the same transaction as the chunk.
+ *
+ * Rows are written with JDBC, not JPA: the employee ids of a chunk are resolved with one query and
+ * the rows go in with one JDBC batch, or with COPY when batch.calculation.write-mode is "copy".
+ * Rows are upserted on tenant, employee and payroll period and their ids are derived from the same
+ * key, so a chunk written again, by a retry or a re-launched job, replaces its rows.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
 public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationDTO> {
 
-    private final PrePayrollCalculationRepository prePayrollCalculationRepository;
-    private final PlanParticipantRepository planParticipantRepository;
+    private final PrePayrollCalculationJdbcRepository calculationJdbcRepository;
+    private final PrePayrollStagingRepository stagingRepository;
+    
+    // "batch" (JDBC batch INSERT) or "copy" (PostgreSQL COPY FROM STDIN)
+    @Value("${batch.calculation.write-mode:batch}")
+    private String writeMode;
     
 
     
@@ -42,13 +58,15 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
     private LocalDateTime payrollPeriodStart;
     private LocalDateTime payrollPeriodEnd;
     private StepExecution stepExecution;
-    private List<PrePayrollCalculationDTO> allCalculationResults = new ArrayList<>();
+    private long jobInstanceId;
     
     // Statistics tracking
     private int totalProcessed = 0;
     private int successfulCount = 0;
     private int failedCount = 0;
     private int errorCount = 0;
+    private int recomputedCount = 0;
+    private int carriedForwardCount = 0;
 
     @BeforeStep
     public void beforeStep(StepExecution stepExecution) {
@@ -60,11 +78,13 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
         this.payrollPeriodEnd = LocalDateTime.parse(
             stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_END) + "T23:59:59"
         );
-        this.allCalculationResults.clear();
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
         this.totalProcessed = 0;
         this.successfulCount = 0;
         this.failedCount = 0;
         this.errorCount = 0;
+        this.recomputedCount = 0;
+        this.carriedForwardCount = 0;
         
         log.info("Initializing CalculationBatchWriter for tenant: {} period: {} to {}", 
                 tenantId, payrollPeriodStart, payrollPeriodEnd);
@@ -80,9 +100,6 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
 
         log.debug("Writing {} calculation results for tenant: {}", calculationResults.size(), tenantId);
         
-        // Collect all results for job execution context
-        allCalculationResults.addAll(calculationResults);
-        
         // Update statistics
         for (PrePayrollCalculationDTO result : calculationResults) {
             totalProcessed++;
@@ -91,6 +108,11 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
                 failedCount++;
             } else if ("SUCCESS".equals(result.getStatus())) {
                 successfulCount++;
+                if (result.getCarriedForwardFrom() != null) {
+                    carriedForwardCount++;
+                } else {
+                    recomputedCount++;
+                }
             } else {
                 errorCount++;
             }
@@ -115,9 +137,15 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
      */
     private void saveCalculationResults(List<? extends PrePayrollCalculationDTO> calculationResults) {
         try {
+            // Employee ids of the whole chunk in one query
+            Map<String, UUID> employeeIds = calculationJdbcRepository.findEmployeeIds(calculationResults.stream()
+                .map(PrePayrollCalculationDTO::getEmployeeId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+            
             // Convert DTOs to entities
             List<PrePayrollCalculation> entities = calculationResults.stream()
-                .map(this::convertToEntity)
+                .map(dto -> convertToEntity(dto, employeeIds))
                 .collect(Collectors.toList());
             
             // Validate entities before saving
@@ -132,13 +160,18 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
             
             // Batch save all valid entities
             if (!validEntities.isEmpty()) {
-                List<PrePayrollCalculation> savedEntities = prePayrollCalculationRepository.saveAll(validEntities);
+                if ("copy".equalsIgnoreCase(writeMode)) {
+                    calculationJdbcRepository.copy(validEntities);
+                } else {
+                    calculationJdbcRepository.upsert(validEntities);
+                }
+                stageSuccessfulCalculations(validEntities);
                 
                 log.info("Successfully saved {} calculation entities to database for tenant: {}",
-                        savedEntities.size(), tenantId);
+                        validEntities.size(), tenantId);
                 
                 // Log sample of saved calculations
-                savedEntities.stream().limit(3).forEach(entity -> 
+                validEntities.stream().limit(3).forEach(entity -> 
                     log.debug("Saved calculation: {} for employee: {} with status: {}", 
                             entity.getCalculationId(), 
                             entity.getEmployee() != null ? entity.getEmployee().getIndividualId() : "UNKNOWN",
@@ -154,6 +187,17 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
         }
     }
     
+    /**
+     * Stage the saved successful calculations for the deduction step
+     */
+    private void stageSuccessfulCalculations(List<PrePayrollCalculation> savedEntities) {
+        List<StagedItem> successful = savedEntities.stream()
+            .filter(entity -> entity.getStatus() == PrePayrollCalculation.CalculationStatus.SUCCESS)
+            .map(entity -> new StagedItem(entity.getEmployee().getIndividualId(), entity.getCalculationId()))
+            .collect(Collectors.toList());
+        stagingRepository.stage(jobInstanceId, BatchConstants.STAGE_CALCULATED, successful);
+    }
+    
     /**
      * Validate entity before saving to prevent database errors
      */
@@ -185,7 +229,7 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
     /**
      * Convert DTO to entity with proper field mapping
      */
-    private PrePayrollCalculation convertToEntity(PrePayrollCalculationDTO dto) {
+    private PrePayrollCalculation convertToEntity(PrePayrollCalculationDTO dto, Map<String, UUID> employeeIds) {
         PrePayrollCalculation entity = new PrePayrollCalculation();
         
         // Core identification
@@ -196,27 +240,16 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
         entity.setCalculationDate(dto.getCalculationDate() != null ? dto.getCalculationDate() : LocalDateTime.now());
         
         // Employee relationship - CRITICAL for database integrity
+        // Only the id is needed for employee_id; an unknown employee leaves it unset and validateEntity skips the row
         if (dto.getEmployeeId() != null) {
-            // Fetch the actual PlanParticipant entity from database to avoid transient reference
-            try {
-                Optional<PlanParticipant> employeeOpt = planParticipantRepository.findByIndividualId(dto.getEmployeeId());
-                if (employeeOpt.isPresent()) {
-                    entity.setEmployee(employeeOpt.get());
-                } else {
-                    log.warn("Employee not found for ID: {} when creating calculation entity", dto.getEmployeeId());
-                    // Create a minimal reference but mark it as managed
-                    PlanParticipant employee = new PlanParticipant();
-                    employee.setIndividualId(dto.getEmployeeId());
-                    employee.setId(UUID.randomUUID()); // Set a temporary ID
-                    entity.setEmployee(employee);
-                }
-            } catch (Exception e) {
-                log.error("Failed to fetch employee for calculation: {}", dto.getEmployeeId(), e);
-                // Create a minimal reference as fallback
+            UUID employeeId = employeeIds.get(dto.getEmployeeId());
+            if (employeeId != null) {
                 PlanParticipant employee = new PlanParticipant();
+                employee.setId(employeeId);
                 employee.setIndividualId(dto.getEmployeeId());
-                employee.setId(UUID.randomUUID()); // Set a temporary ID
                 entity.setEmployee(employee);
+            } else {
+                log.warn("Employee not found for ID: {} when creating calculation entity", dto.getEmployeeId());
             }
         }
         
@@ -281,6 +314,7 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
         entity.setProcessedAt(dto.getProcessedAt());
         entity.setReprocessedCount(dto.getReprocessedCount() != null ? dto.getReprocessedCount() : 0);
         entity.setLastReprocessedAt(dto.getLastReprocessedAt());
+        entity.setInputFingerprint(dto.getInputFingerprint());
         
         // Audit fields
         entity.setCreatedAt(LocalDateTime.now());
@@ -296,20 +330,6 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
 
     @AfterStep
     public void afterStep(StepExecution stepExecution) {
-        // Store only serializable data in job execution context for next step
-        // Convert to a simple list of calculation IDs and status
-        List<String> successfulCalculationIds = allCalculationResults.stream()
-            .filter(result -> "SUCCESS".equals(result.getStatus()))
-            .map(PrePayrollCalculationDTO::getCalculationId)
-            .collect(Collectors.toList());
-        
-        stepExecution.getJobExecution().getExecutionContext()
-            .put("successfulCalculationIds", successfulCalculationIds);
-        
-        // Store calculation IDs for next step (Finch deduction) to avoid serialization issues
-        stepExecution.getJobExecution().getExecutionContext()
-            .put(BatchConstants.CONTEXT_CALCULATION_RESULTS, successfulCalculationIds);
-        
         // Store statistics in step execution context
         stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_TOTAL_PROCESSED, totalProcessed);
         stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_SUCCESS_COUNT, successfulCount);
@@ -322,32 +342,24 @@ public class CalculationBatchWriter implements ItemWriter<PrePayrollCalculationD
         log.info("   - Successful: {}", successfulCount);
         log.info("   - Failed: {}", failedCount);
         log.info("   - Errors: {}", errorCount);
+        log.info("   - Recomputed: {}, Carried forward: {}", recomputedCount, carriedForwardCount);
         log.info("   - Success Rate: {:.1f}%", 
                 totalProcessed > 0 ? (double) successfulCount / totalProcessed * 100 : 0);
         
-        // Store calculation results count for next step
+        // Only counts go into the job context; the successful calculation ids are in prepayroll_staging.
+        // Each partition stores its own share
         stepExecution.getJobExecution().getExecutionContext()
-            .put("calculationResultsCount", successfulCount);
+            .put(PartitionResultsListener.partitionKey("calculationResultsCount", stepExecution), successfulCount);
         
         // Store total calculations count for reporting
         stepExecution.getJobExecution().getExecutionContext()
-            .put("totalCalculationsCount", totalProcessed);
-    }
-
-    /**
-     * Get all calculation results processed in this batch
-     */
-    public List<PrePayrollCalculationDTO> getAllCalculationResults() {
-        return new ArrayList<>(allCalculationResults);
-    }
-
-    /**
-     * Get successful calculations only
-     */
-    public List<PrePayrollCalculationDTO> getSuccessfulCalculations() {
-        return allCalculationResults.stream()
-            .filter(result -> "SUCCESS".equals(result.getStatus()))
-            .collect(Collectors.toList());
+            .put(PartitionResultsListener.partitionKey("totalCalculationsCount", stepExecution), totalProcessed);
+        
+        // Successful calculations by how they were obtained, for the job summary
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey(BatchConstants.CONTEXT_CALCULATIONS_RECOMPUTED, stepExecution), recomputedCount);
+        stepExecution.getJobExecution().getExecutionContext()
+            .put(PartitionResultsListener.partitionKey(BatchConstants.CONTEXT_CALCULATIONS_CARRIED_FORWARD, stepExecution), carriedForwardCount);
     }
 
     /**
@@ -1,8 +1,12 @@
 package com.glidingpath.rules.contributions.writer;
 
 import com.glidingpath.common.dto.EmployeeEligibilityDTO;
-import com.glidingpath.core.entity.PlanParticipant;
-import com.glidingpath.core.repository.PlanParticipantRepository;
+import com.glidingpath.rules.contributions.EligibilityEvaluationDate;
+import com.glidingpath.rules.contributions.partition.PartitionResultsListener;
+import com.glidingpath.rules.repository.ParticipantEligibilityJdbcRepository;
+import com.glidingpath.rules.repository.ParticipantEligibilityUpdate;
+import com.glidingpath.rules.repository.PrePayrollStagingRepository;
+import com.glidingpath.rules.repository.StagedItem;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
@@ -10,28 +14,39 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.annotation.AfterStep;
 import org.springframework.batch.core.annotation.BeforeStep;
+import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Stores eligibility results on the participants and stages the eligible individualIds in
+ * prepayroll_staging for the calculation step, in the same transaction as the chunk. The
+ * participants of a chunk are updated with one set-based statement keyed by individualId.
+ * The check dates are scheduled from the job's {@link EligibilityEvaluationDate}.
+ */
 @Slf4j
 @Component
+@StepScope
 @RequiredArgsConstructor
 public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO> {
 
-    private final PlanParticipantRepository planParticipantRepository;
+    private final ParticipantEligibilityJdbcRepository participantEligibilityRepository;
+    private final PrePayrollStagingRepository stagingRepository;
     
     // Removed @Autowired EligibilityBatchProcessor to fix circular dependency
     
     private String tenantId;
     private StepExecution stepExecution;
-    private List<String> eligibleEmployeeIds = new ArrayList<>(); // Store only IDs to avoid serialization issues
+    private long jobInstanceId;
+    private LocalDate evaluationDate;
     
     // Statistics tracking
     private int totalProcessed = 0;
@@ -43,7 +58,8 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
     public void beforeStep(StepExecution stepExecution) {
         this.stepExecution = stepExecution;
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
-        this.eligibleEmployeeIds.clear();
+        this.jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+        this.evaluationDate = EligibilityEvaluationDate.of(stepExecution.getJobExecution());
         this.totalProcessed = 0;
         this.eligibleCount = 0;
         this.ineligibleCount = 0;
@@ -64,7 +80,7 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
         log.debug("Writing {} eligibility results for tenant: {}", eligibilityResults.size(), tenantId);
         
         try {
-            // Update statistics and collect eligible employee IDs
+            // Update statistics
             for (EmployeeEligibilityDTO result : eligibilityResults) {
                 totalProcessed++;
                 
@@ -72,10 +88,6 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
                     errorCount++;
                 } else if (result.isEligible()) {
                     eligibleCount++;
-                    // Only store eligible employee IDs to avoid serialization issues
-                    if (result.getEmployeeId() != null) {
-                        eligibleEmployeeIds.add(result.getEmployeeId());
-                    }
                 } else {
                     ineligibleCount++;
                 }
@@ -87,12 +99,6 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
                         totalProcessed, eligibleCount, ineligibleCount, errorCount);
             }
             
-            // Update eligibility information in PlanParticipant entities
-            // Update on every chunk to ensure all results are processed
-            log.debug("Updating PlanParticipant entities in database...");
-            updatePlanParticipantEligibility(eligibilityResults);
-            log.debug("PlanParticipant entities updated successfully");
-            
             // Calculate current chunk statistics for accurate logging
             int chunkEligible = 0;
             int chunkIneligible = 0;
@@ -115,116 +121,81 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
             log.error("Failed to write eligibility results in EligibilityBatchWriter.write()", e);
             // Don't throw exception - allow batch to continue
         }
+        
+        // Outside the try: a participant without its result, or an eligible employee missing from staging,
+        // would silently get no calculation, so a failure here fails the chunk and goes through retry/skip
+        // like any other write error. Both statements run in the chunk transaction
+        updatePlanParticipantEligibility(eligibilityResults);
+        stageEligibleEmployees(eligibilityResults);
+    }
+
+    /**
+     * Stage the chunk's eligible employees for the calculation step
+     */
+    private void stageEligibleEmployees(List<? extends EmployeeEligibilityDTO> eligibilityResults) {
+        List<StagedItem> eligible = eligibilityResults.stream()
+            .filter(result -> result.isEligible() && result.getEmployeeId() != null)
+            .filter(result -> result.getEligibilityReason() == null || !result.getEligibilityReason().startsWith("Error"))
+            .map(result -> new StagedItem(result.getEmployeeId(), null))
+            .collect(Collectors.toList());
+        stagingRepository.stage(jobInstanceId, BatchConstants.STAGE_ELIGIBLE, eligible);
     }
 
     /**
-     * Update eligibility information in PlanParticipant entities with improved batch processing
+     * Store the chunk's eligibility results on the participants with one set-based UPDATE
      */
-    @Transactional
     private void updatePlanParticipantEligibility(List<? extends EmployeeEligibilityDTO> eligibilityResults) {
-        try {
-            if (eligibilityResults.isEmpty()) {
-                return;
-            }
-            
-            // Get employee IDs for batch update
-            List<String> employeeIds = eligibilityResults.stream()
-                .map(EmployeeEligibilityDTO::getEmployeeId)
-                .filter(id -> id != null) // Filter out null IDs
-                .distinct() // Remove duplicates
-                .collect(Collectors.toList());
-            
-            if (employeeIds.isEmpty()) {
-                log.warn("No valid employee IDs found in eligibility results");
-                return;
+        LocalDate today = evaluationDate;
+        // One row per participant; a participant repeated in the chunk keeps its first result
+        Map<String, ParticipantEligibilityUpdate> updates = new LinkedHashMap<>();
+        for (EmployeeEligibilityDTO result : eligibilityResults) {
+            if (result.getEmployeeId() != null) {
+                updates.putIfAbsent(result.getEmployeeId(), toEligibilityUpdate(result, today));
             }
-            
-            // Fetch PlanParticipant entities in smaller batches to avoid memory issues
-            int batchSize = 50; // Use larger batch size for database operations
-            List<PlanParticipant> allEmployees = new ArrayList<>();
-            
-            for (int i = 0; i < employeeIds.size(); i += batchSize) {
-                int endIndex = Math.min(i + batchSize, employeeIds.size());
-                List<String> batchIds = employeeIds.subList(i, endIndex);
-                
-                List<PlanParticipant> batchEmployees = planParticipantRepository.findByIndividualIdIn(batchIds.stream().collect(Collectors.toSet()));
-                allEmployees.addAll(batchEmployees);
-            }
-            
-            // Update eligibility information efficiently
-            for (PlanParticipant employee : allEmployees) {
-                EmployeeEligibilityDTO eligibilityResult = eligibilityResults.stream()
-                    .filter(result -> result.getEmployeeId() != null && result.getEmployeeId().equals(employee.getIndividualId()))
-                    .findFirst()
-                    .orElse(null);
-                
-                if (eligibilityResult != null) {
-                    updateEmployeeEligibility(employee, eligibilityResult);
-                }
-            }
-            
-            // Save in smaller batches to avoid transaction timeouts
-            if (!allEmployees.isEmpty()) {
-                for (int i = 0; i < allEmployees.size(); i += batchSize) {
-                    int endIndex = Math.min(i + batchSize, allEmployees.size());
-                    List<PlanParticipant> batchToSave = allEmployees.subList(i, endIndex);
-                    planParticipantRepository.saveAll(batchToSave);
-                }
-                
-                log.debug("Updated eligibility information for {} employees in database", allEmployees.size());
-            }
-            
-        } catch (Exception e) {
-            log.error("Failed to update eligibility information in database for tenant: {}", tenantId, e);
-            // Don't throw exception - allow batch to continue
         }
+
+        if (updates.isEmpty()) {
+            log.warn("No valid employee IDs found in eligibility results");
+            return;
+        }
+
+        int updated = participantEligibilityRepository.updateEligibility(tenantId, new ArrayList<>(updates.values()),
+                today, "Processed by Spring Batch eligibility job on " + today);
+        log.debug("Updated eligibility information for {} employees in database", updated);
     }
 
     /**
-     * Update individual employee eligibility information
+     * Eligibility columns of one participant for its result
      */
-    private void updateEmployeeEligibility(PlanParticipant employee, EmployeeEligibilityDTO eligibilityResult) {
-        LocalDate today = LocalDate.now();
-        
-        // Update core eligibility fields
-        employee.setIsEligibleFor401k(eligibilityResult.isEligible());
-        employee.setEligibilityDate(eligibilityResult.getEligibilityDate());
-        employee.setLastEligibilityCheck(today);
-        employee.setEligibilityReason(eligibilityResult.getEligibilityReason());
-        
-        // Set eligibility status and next check date
+    private ParticipantEligibilityUpdate toEligibilityUpdate(EmployeeEligibilityDTO eligibilityResult, LocalDate today) {
         if (eligibilityResult.isEligible()) {
-            employee.setEligibilityStatus("ELIGIBLE");
-            employee.setNextEligibilityCheckDate(today.plusMonths(6)); // Check again in 6 months
+            return new ParticipantEligibilityUpdate(eligibilityResult.getEmployeeId(), true,
+                    eligibilityResult.getEligibilityDate(), eligibilityResult.getEligibilityReason(),
+                    "ELIGIBLE", today.plusMonths(6)); // Check again in 6 months
+        }
+
+        // Set next check based on reason
+        String reason = eligibilityResult.getEligibilityReason();
+        LocalDate nextCheck;
+        if (reason != null && reason.contains("age")) {
+            nextCheck = today.plusYears(1); // Check annually for age
+        } else if (reason != null && reason.contains("service")) {
+            nextCheck = today.plusMonths(3); // Check quarterly for service
         } else {
-            employee.setEligibilityStatus("NOT_ELIGIBLE");
-            
-            // Set next check based on reason
-            String reason = eligibilityResult.getEligibilityReason();
-            if (reason != null) {
-                if (reason.contains("age")) {
-                    employee.setNextEligibilityCheckDate(today.plusYears(1)); // Check annually for age
-                } else if (reason.contains("service")) {
-                    employee.setNextEligibilityCheckDate(today.plusMonths(3)); // Check quarterly for service
-                } else {
-                    employee.setNextEligibilityCheckDate(today.plusMonths(1)); // Default monthly check
-                }
-            } else {
-                employee.setNextEligibilityCheckDate(today.plusMonths(1));
-            }
+            nextCheck = today.plusMonths(1); // Default monthly check
         }
-        
-        // Set audit information
-        employee.setEligibilityNotes("Processed by Spring Batch eligibility job on " + today);
+        return new ParticipantEligibilityUpdate(eligibilityResult.getEmployeeId(), false,
+                eligibilityResult.getEligibilityDate(), reason, "NOT_ELIGIBLE", nextCheck);
     }
 
     @AfterStep
     public void afterStep(StepExecution stepExecution) {
         try {
-            // Store only simple, serializable data
-            stepExecution.getJobExecution().getExecutionContext()
-                .put("eligibleEmployeeIds", new ArrayList<>(eligibleEmployeeIds));
-            
+            // Participants the reader already marked not eligible in SQL never reach this writer
+            int pushedDown = stepExecution.getExecutionContext().getInt(BatchConstants.CONTEXT_ELIGIBILITY_PUSHDOWN_INELIGIBLE, 0);
+            totalProcessed += pushedDown;
+            ineligibleCount += pushedDown;
+
             // Store statistics in step execution context
             stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_TOTAL_PROCESSED, totalProcessed);
             stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_SUCCESS_COUNT, eligibleCount + ineligibleCount);
@@ -240,13 +211,14 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
             log.info("   - Success Rate: {:.1f}%", 
                     totalProcessed > 0 ? (double)(eligibleCount + ineligibleCount) / totalProcessed * 100 : 0);
             
-            // Store eligible employees count for next step
+            // Only counts go into the job context; the eligible ids are in prepayroll_staging.
+            // Each partition stores its own share
             stepExecution.getJobExecution().getExecutionContext()
-                .put("eligibleEmployeesCount", eligibleCount);
+                .put(PartitionResultsListener.partitionKey("eligibleEmployeesCount", stepExecution), eligibleCount);
             
             // Store total employees count for reporting
             stepExecution.getJobExecution().getExecutionContext()
-                .put("totalEmployeesCount", totalProcessed);
+                .put(PartitionResultsListener.partitionKey("totalEmployeesCount", stepExecution), totalProcessed);
                 
         } catch (Exception e) {
             log.error("Error in afterStep for EligibilityBatchWriter", e);
@@ -254,13 +226,6 @@ public class EligibilityBatchWriter implements ItemWriter<EmployeeEligibilityDTO
         }
     }
 
-    /**
-     * Get eligible employee IDs processed in this batch
-     */
-    public List<String> getEligibleEmployeeIds() {
-        return new ArrayList<>(eligibleEmployeeIds);
-    }
-
     /**
      * Get processing statistics
      */
@@ -2,8 +2,8 @@ package com.glidingpath.rules.contributions.writer;
 
 import com.glidingpath.common.dto.PrePayrollCalculationDTO;
 import com.glidingpath.core.entity.PrePayrollCalculation;
-import com.glidingpath.core.repository.PrePayrollCalculationRepository;
-import com.glidingpath.rules.contributions.processor.FinchDeductionBatchProcessor;
+import com.glidingpath.rules.repository.CalculationStatusUpdate;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
 
 import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
@@ -13,26 +13,29 @@ import org.springframework.batch.core.annotation.AfterStep;
 import org.springframework.batch.core.annotation.BeforeStep;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Stores each calculation's Finch deduction outcome on its pre_payroll_calculations row and keeps
+ * the step's counts. Only the counts go into the execution contexts, which are serialized on every
+ * commit; the calculations of the step are the CALCULATED rows staged for it in prepayroll_staging,
+ * and their outcome is the status and finch_job_id stored on each row.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FinchDeductionBatchWriter implements ItemWriter<PrePayrollCalculationDTO> {
 
-    private final PrePayrollCalculationRepository prePayrollCalculationRepository;
+    private final PrePayrollCalculationJdbcRepository calculationJdbcRepository;
     
     // Removed @Autowired FinchDeductionBatchProcessor to fix circular dependency
     
     private String tenantId;
     private StepExecution stepExecution;
-    private List<PrePayrollCalculationDTO> allDeductionResults = new ArrayList<>();
     
     // Statistics tracking
     private int totalProcessed = 0;
@@ -44,7 +47,6 @@ public class FinchDeductionBatchWriter implements ItemWriter<PrePayrollCalculati
     public void beforeStep(StepExecution stepExecution) {
         this.stepExecution = stepExecution;
         this.tenantId = stepExecution.getJobExecution().getJobParameters().getString(BatchConstants.JOB_PARAM_TENANT_ID);
-        this.allDeductionResults.clear();
         this.totalProcessed = 0;
         this.createdCount = 0;
         this.failedCount = 0;
@@ -63,9 +65,6 @@ public class FinchDeductionBatchWriter implements ItemWriter<PrePayrollCalculati
 
         log.debug("Writing {} deduction results for tenant: {}", deductionResults.size(), tenantId);
         
-        // Collect all results for job execution context
-        allDeductionResults.addAll(deductionResults);
-        
         // Update statistics
         for (PrePayrollCalculationDTO result : deductionResults) {
             totalProcessed++;
@@ -95,82 +94,43 @@ public class FinchDeductionBatchWriter implements ItemWriter<PrePayrollCalculati
     }
 
     /**
-     * Update calculation entities with Finch deduction status
+     * Store the chunk's Finch deduction status on the calculations with one set-based UPDATE, keyed by calculation id.
+     * Not caught: the Finch calls of the chunk are already made, so a failed UPDATE must fail the chunk and go through
+     * retry/skip like any other write error instead of committing without their outcome. On PostgreSQL the failed
+     * statement also aborts the chunk transaction, so carrying on would only fail later with a misleading error
      */
     private void updateCalculationEntities(List<? extends PrePayrollCalculationDTO> deductionResults) {
-        try {
-            // Get employee IDs for batch update
-            List<String> employeeIds = deductionResults.stream()
-                .map(PrePayrollCalculationDTO::getEmployeeId)
-                .collect(Collectors.toList());
-            
-            // Fetch calculation entities using the correct repository method
-            List<PrePayrollCalculation> calculations = new ArrayList<>();
-            for (String employeeId : employeeIds) {
-                List<PrePayrollCalculation> employeeCalculations = prePayrollCalculationRepository
-                    .findByTenantIdAndEmployee_IndividualIdOrderByUpdatedAtDesc(tenantId, employeeId);
-                if (!employeeCalculations.isEmpty()) {
-                    calculations.add(employeeCalculations.get(0)); // Get the latest calculation
-                }
-            }
-            
-            // Update Finch deduction status
-            for (PrePayrollCalculation calculation : calculations) {
-                PrePayrollCalculationDTO deductionResult = deductionResults.stream()
-                    .filter(result -> result.getEmployeeId().equals(calculation.getEmployee().getIndividualId()))
-                    .findFirst()
-                    .orElse(null);
-                
-                if (deductionResult != null) {
-                    updateCalculationFinchStatus(calculation, deductionResult);
-                }
-            }
-            
-            // Batch save all updated calculations
-            prePayrollCalculationRepository.saveAll(calculations);
-            
-            log.debug("Updated Finch deduction status for {} calculations in database", calculations.size());
-            
-        } catch (Exception e) {
-            log.error("Failed to update calculation entities with Finch deduction status for tenant: {}", tenantId, e);
-            // Don't throw exception - allow batch to continue
+        List<CalculationStatusUpdate> updates = deductionResults.stream()
+            .filter(result -> result.getCalculationId() != null)
+            .map(this::toStatusUpdate)
+            .collect(Collectors.toList());
+
+        if (updates.isEmpty()) {
+            return;
         }
+
+        int updated = calculationJdbcRepository.updateStatuses(tenantId, updates, "Spring Batch Finch Deduction Job");
+        log.debug("Updated Finch deduction status for {} calculations in database", updated);
     }
 
     /**
-     * Update individual calculation entity with Finch deduction status
+     * Calculation status for one Finch deduction result
      */
-    private void updateCalculationFinchStatus(PrePayrollCalculation calculation, PrePayrollCalculationDTO deductionResult) {
-        // Update status to reflect Finch processing
+    private CalculationStatusUpdate toStatusUpdate(PrePayrollCalculationDTO deductionResult) {
+        // Update status to reflect Finch processing; add processing timestamp on success
         if ("CREATED".equals(deductionResult.getFinchStatus())) {
-            calculation.setStatus(com.glidingpath.core.entity.PrePayrollCalculation.CalculationStatus.SUCCESS);
+            return new CalculationStatusUpdate(deductionResult.getCalculationId(),
+                    PrePayrollCalculation.CalculationStatus.SUCCESS, null, LocalDateTime.now(), deductionResult.getFinchJobId());
         } else if ("FAILED".equals(deductionResult.getFinchStatus())) {
-            calculation.setStatus(com.glidingpath.core.entity.PrePayrollCalculation.CalculationStatus.FAILED);
-            calculation.setErrorMessage(deductionResult.getFinchErrorMessage());
-        }
-        
-        // Update audit fields
-        calculation.setUpdatedAt(LocalDateTime.now());
-        calculation.setUpdatedBy("Spring Batch Finch Deduction Job");
-        
-        // Add processing timestamp
-        if ("CREATED".equals(deductionResult.getFinchStatus())) {
-            calculation.setProcessedAt(LocalDateTime.now());
+            return new CalculationStatusUpdate(deductionResult.getCalculationId(),
+                    PrePayrollCalculation.CalculationStatus.FAILED, deductionResult.getFinchErrorMessage(), null, null);
         }
+        // Only the audit fields change
+        return new CalculationStatusUpdate(deductionResult.getCalculationId(), null, null, null, null);
     }
 
     @AfterStep
     public void afterStep(StepExecution stepExecution) {
-        // Store only serializable data in job execution context
-        // Convert to a simple list of deduction IDs and status
-        List<String> successfulDeductionIds = allDeductionResults.stream()
-            .filter(result -> "CREATED".equals(result.getFinchStatus()))
-            .map(PrePayrollCalculationDTO::getCalculationId)
-            .collect(Collectors.toList());
-        
-        stepExecution.getJobExecution().getExecutionContext()
-            .put("successfulDeductionIds", successfulDeductionIds);
-        
         // Store statistics in step execution context
         stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_TOTAL_PROCESSED, totalProcessed);
         stepExecution.getExecutionContext().put(BatchConstants.CONTEXT_SUCCESS_COUNT, createdCount);
@@ -195,22 +155,6 @@ public class FinchDeductionBatchWriter implements ItemWriter<PrePayrollCalculati
             .put("totalDeductionsCount", totalProcessed);
     }
 
-    /**
-     * Get all deduction results processed in this batch
-     */
-    public List<PrePayrollCalculationDTO> getAllDeductionResults() {
-        return new ArrayList<>(allDeductionResults);
-    }
-
-    /**
-     * Get successfully created deductions only
-     */
-    public List<PrePayrollCalculationDTO> getCreatedDeductions() {
-        return allDeductionResults.stream()
-            .filter(result -> "CREATED".equals(result.getFinchStatus()))
-            .collect(Collectors.toList());
-    }
-
     /**
      * Get processing statistics
      */
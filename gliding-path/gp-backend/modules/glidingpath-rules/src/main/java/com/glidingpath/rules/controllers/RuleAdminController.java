@@ -1,6 +1,6 @@
 package com.glidingpath.rules.controllers;
 
-import com.glidingpath.rules.config.DroolsConfig;
+import com.glidingpath.rules.runtime.RuleReloadInProgressException;
 import com.glidingpath.rules.service.RuleAdminService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,15 +13,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.kie.api.runtime.KieContainer;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/rules")
@@ -34,11 +38,7 @@ import java.util.Optional;
                  "Supports dynamic rule updates for eligibility, pricing, and other business logic."
 )
 public class RuleAdminController {
-    private final DroolsConfig droolsConfig;
     private final RuleAdminService ruleAdminService;
-    
-    @Autowired
-    private ApplicationContext applicationContext;
 
     @PostMapping("/reload")
     @Operation(
@@ -46,7 +46,8 @@ public class RuleAdminController {
         description = "Dynamically reloads all business rules from the database into the Drools engine " +
                      "without requiring application restart. This allows for real-time rule updates " +
                      "including eligibility rules, pricing rules, and other business logic. " +
-                     "The operation creates a new KieContainer and updates the Spring context.",
+                     "The rules are compiled on a background executor, validated, and published with a single " +
+                     "atomic swap. Evaluations already running finish on the previous rule set version.",
         operationId = "reloadRules"
     )
     @ApiResponses(value = {
@@ -63,6 +64,10 @@ public class RuleAdminController {
                 )
             )
         ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "A reload is already compiling and another one is queued; retry once it has finished"
+        ),
         @ApiResponse(
             responseCode = "500",
             description = "Rule reload failed",
@@ -77,8 +82,142 @@ public class RuleAdminController {
             )
         )
     })
-    public ResponseEntity<String> reloadRules() throws Exception {
-    	  String result = ruleAdminService.reloadRules();
-          return ResponseEntity.ok(result);
+    public CompletableFuture<ResponseEntity<String>> reloadRules() {
+        return ruleAdminService.reloadRules()
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cause instanceof RuleReloadInProgressException) {
+                        log.warn("Rule reload refused: {}", cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(cause.getMessage());
+                    }
+                    log.error("Rule reload failed", throwable);
+                    return ResponseEntity.internalServerError().body("Failed to reload rules: " + cause.getMessage());
+                });
+    }
+
+    @PostMapping("/rollback/{version}")
+    @Operation(
+        summary = "Roll back to a retained rule set version",
+        description = "Re-activates a previously published rule set that is still held in memory. " +
+                     "No recompilation takes place, so the swap is immediate.",
+        operationId = "rollbackRules"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rules rolled back successfully"),
+        @ApiResponse(responseCode = "404", description = "Requested version is not retained")
+    })
+    public ResponseEntity<String> rollbackRules(
+            @Parameter(description = "Rule set version to re-activate", required = true)
+            @PathVariable long version) {
+        return ResponseEntity.ok(ruleAdminService.rollbackRules(version));
+    }
+
+    @GetMapping("/versions")
+    @Operation(
+        summary = "List retained rule set versions",
+        description = "Returns the rule set versions currently held in memory, newest first, " +
+                     "with the active version flagged.",
+        operationId = "getRuleVersions"
+    )
+    public ResponseEntity<List<Map<String, Object>>> getRuleVersions() {
+        return ResponseEntity.ok(ruleAdminService.getRuleVersions());
+    }
+
+    @GetMapping("/tenant-cache")
+    @Operation(
+        summary = "Tenant rule set cache statistics",
+        description = "Returns size, capacity and hit/miss/eviction counts of the LRU cache holding " +
+                     "compiled tenant-specific rule sets.",
+        operationId = "getTenantRuleCacheStats"
+    )
+    public ResponseEntity<Map<String, Object>> getTenantRuleCacheStats() {
+        return ResponseEntity.ok(ruleAdminService.getTenantRuleCacheStats());
+    }
+
+    @GetMapping("/profile")
+    @Operation(
+        summary = "Per-rule Drools profile",
+        description = "Returns match count, fire count and cumulative consequence time per rule name and " +
+                     "rule set version, slowest first. Only populated while profiling is enabled.",
+        operationId = "getRuleProfile"
+    )
+    public ResponseEntity<Map<String, Object>> getRuleProfile() {
+        return ResponseEntity.ok(ruleAdminService.getRuleProfile());
+    }
+
+    @PostMapping("/profile")
+    @Operation(
+        summary = "Enable or disable per-rule profiling",
+        description = "Attaches agenda and rule runtime listeners to every new Drools session while enabled. " +
+                     "Collected numbers are kept when profiling is switched off.",
+        operationId = "setRuleProfiling"
+    )
+    public ResponseEntity<Map<String, Object>> setRuleProfiling(
+            @Parameter(description = "Whether profiling should be on", required = true)
+            @RequestParam boolean enabled) {
+        return ResponseEntity.ok(ruleAdminService.setRuleProfiling(enabled));
+    }
+
+    @PostMapping("/candidate")
+    @Operation(
+        summary = "Stage a candidate rule set",
+        description = "Compiles the current rules_config rows without publishing them. A sample of evaluations " +
+                     "is then run against the candidate in shadow on a separate executor; production results " +
+                     "always come from the active rule set.",
+        operationId = "stageCandidateRules"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Candidate staged"),
+        @ApiResponse(responseCode = "409", description = "A reload or candidate build is already in progress")
+    })
+    public CompletableFuture<ResponseEntity<String>> stageCandidateRules() {
+        return ruleAdminService.stageCandidateRules()
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                    if (cause instanceof RuleReloadInProgressException) {
+                        log.warn("Staging candidate rules refused: {}", cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(cause.getMessage());
+                    }
+                    log.error("Staging candidate rules failed", throwable);
+                    return ResponseEntity.internalServerError().body("Failed to stage candidate rules: " + cause.getMessage());
+                });
+    }
+
+    @GetMapping("/candidate")
+    @Operation(
+        summary = "Shadow evaluation report of the candidate",
+        description = "Returns divergent facts with recent examples and p50/p99 latency of the active and " +
+                     "candidate rule sets per evaluation kind.",
+        operationId = "getCandidateReport"
+    )
+    public ResponseEntity<Map<String, Object>> getCandidateReport() {
+        return ResponseEntity.ok(ruleAdminService.getCandidateReport());
+    }
+
+    @PostMapping("/candidate/promote")
+    @Operation(
+        summary = "Promote the candidate rule set",
+        description = "Makes the staged candidate the active rule set with a single atomic swap. " +
+                     "The previous version stays retained for rollback.",
+        operationId = "promoteCandidateRules"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Candidate promoted"),
+        @ApiResponse(responseCode = "404", description = "No candidate is staged")
+    })
+    public ResponseEntity<String> promoteCandidateRules() {
+        return ResponseEntity.ok(ruleAdminService.promoteCandidateRules());
+    }
+
+    @DeleteMapping("/candidate")
+    @Operation(
+        summary = "Discard the candidate rule set",
+        description = "Stops shadow evaluation and drops the staged candidate.",
+        operationId = "discardCandidateRules"
+    )
+    public ResponseEntity<String> discardCandidateRules() {
+        return ResponseEntity.ok(ruleAdminService.discardCandidateRules());
     }
-} 
\ No newline at end of file
+}
@@ -18,4 +18,7 @@ public class RuleConfig {
     private String ruleContent;
 
     private LocalDateTime lastUpdated;
+
+    // Null for the global rule set; set for a tenant-specific override of the rule with the same name
+    private String tenantId;
 } 
\ No newline at end of file
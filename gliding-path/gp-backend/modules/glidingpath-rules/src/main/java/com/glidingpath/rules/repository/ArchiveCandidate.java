@@ -0,0 +1,15 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A completed job instance to archive, or the oldest one kept of its job and tenant, with the
+ * tenantId parameter of its completed execution (null for jobs without one) and when that
+ * execution ended.
+ */
+public record ArchiveCandidate(
+        long jobInstanceId,
+        String jobName,
+        String tenantId,
+        LocalDateTime endTime) {
+}
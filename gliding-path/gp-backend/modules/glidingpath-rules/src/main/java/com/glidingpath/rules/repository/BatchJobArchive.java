@@ -0,0 +1,19 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of batch_job_archive: a job instance's metadata as gzip-compressed JSON, and the length
+ * of the JSON before compression.
+ */
+public record BatchJobArchive(
+        long jobInstanceId,
+        String jobName,
+        String jobKey,
+        String tenantId,
+        LocalDateTime endTime,
+        int executionCount,
+        int stepExecutionCount,
+        byte[] payload,
+        int payloadBytes) {
+}
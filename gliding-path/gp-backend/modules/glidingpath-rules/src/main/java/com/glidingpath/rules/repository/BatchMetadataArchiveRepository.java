@@ -0,0 +1,224 @@
+package com.glidingpath.rules.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The Spring Batch metadata tables (V12) as seen by batchMetadataArchiveJob, and batch_job_archive.
+ *
+ * A job instance is archived as a whole: its executions, their parameters and contexts, and their
+ * step executions and contexts. Only instances with a COMPLETED execution are archived, since they
+ * cannot be restarted. Every statement works on the job instance ids of one chunk, so a chunk
+ * transaction only locks the rows of the instances it archives.
+ */
+@Slf4j
+@Repository
+public class BatchMetadataArchiveRepository {
+
+    // The oldest of the :keepLatest most recent completed instances of each job and tenant; groups
+    // with fewer completed instances have no row. Run once per step, not per page. An instance has
+    // at most one COMPLETED execution.
+    private static final String SELECT_KEEP_CUTOFFS = "SELECT job_instance_id, job_name, tenant_id, end_time FROM ("
+            + " SELECT e.job_instance_id, i.job_name, p.parameter_value AS tenant_id, e.end_time,"
+            + " ROW_NUMBER() OVER (PARTITION BY i.job_name, p.parameter_value ORDER BY e.end_time DESC, e.job_instance_id DESC) AS recency"
+            + " FROM batch_job_execution e"
+            + " JOIN batch_job_instance i ON i.job_instance_id = e.job_instance_id"
+            + " LEFT JOIN batch_job_execution_params p ON p.job_execution_id = e.job_execution_id AND p.parameter_name = :tenantParameter"
+            + " WHERE e.status = 'COMPLETED') completed"
+            + " WHERE recency = :keepLatest";
+
+    // Completed instances that ended before :before, in job_instance_id order after :afterInstanceId
+    private static final String SELECT_COMPLETED = "SELECT e.job_instance_id, i.job_name, p.parameter_value AS tenant_id, e.end_time"
+            + " FROM batch_job_execution e"
+            + " JOIN batch_job_instance i ON i.job_instance_id = e.job_instance_id"
+            + " LEFT JOIN batch_job_execution_params p ON p.job_execution_id = e.job_execution_id AND p.parameter_name = :tenantParameter"
+            + " WHERE e.status = 'COMPLETED' AND e.end_time < :before AND e.job_instance_id > :afterInstanceId"
+            + " ORDER BY e.job_instance_id LIMIT :limit";
+
+    private static final String SELECT_INSTANCES = "SELECT * FROM batch_job_instance WHERE job_instance_id IN (:ids)";
+
+    private static final String SELECT_EXECUTIONS = "SELECT * FROM batch_job_execution WHERE job_instance_id IN (:ids)"
+            + " ORDER BY job_execution_id";
+
+    // Executions of the instances, for the tables keyed by job_execution_id
+    private static final String EXECUTIONS_OF = "SELECT job_execution_id FROM batch_job_execution WHERE job_instance_id IN (:ids)";
+
+    private static final String STEP_EXECUTIONS_OF = "SELECT step_execution_id FROM batch_step_execution"
+            + " WHERE job_execution_id IN (" + EXECUTIONS_OF + ")";
+
+    private static final String SELECT_PARAMS = "SELECT * FROM batch_job_execution_params"
+            + " WHERE job_execution_id IN (" + EXECUTIONS_OF + ")";
+
+    private static final String SELECT_EXECUTION_CONTEXTS = "SELECT * FROM batch_job_execution_context"
+            + " WHERE job_execution_id IN (" + EXECUTIONS_OF + ")";
+
+    private static final String SELECT_STEP_EXECUTIONS = "SELECT * FROM batch_step_execution"
+            + " WHERE job_execution_id IN (" + EXECUTIONS_OF + ") ORDER BY step_execution_id";
+
+    private static final String SELECT_STEP_EXECUTION_CONTEXTS = "SELECT * FROM batch_step_execution_context"
+            + " WHERE step_execution_id IN (" + STEP_EXECUTIONS_OF + ")";
+
+    private static final String INSERT_ARCHIVE = "INSERT INTO batch_job_archive"
+            + " (job_instance_id, job_name, job_key, tenant_id, end_time, execution_count, step_execution_count, payload, payload_bytes)"
+            + " VALUES (:jobInstanceId, :jobName, :jobKey, :tenantId, :endTime, :executionCount, :stepExecutionCount, :payload, :payloadBytes)";
+
+    // In foreign key order; prepayroll_staging rows go with the instance (ON DELETE CASCADE)
+    private static final List<String> DELETES = List.of(
+            "DELETE FROM batch_step_execution_context WHERE step_execution_id IN (" + STEP_EXECUTIONS_OF + ")",
+            "DELETE FROM batch_step_execution WHERE job_execution_id IN (" + EXECUTIONS_OF + ")",
+            "DELETE FROM batch_job_execution_context WHERE job_execution_id IN (" + EXECUTIONS_OF + ")",
+            "DELETE FROM batch_job_execution_params WHERE job_execution_id IN (" + EXECUTIONS_OF + ")",
+            "DELETE FROM batch_job_execution WHERE job_instance_id IN (:ids)",
+            "DELETE FROM batch_job_instance WHERE job_instance_id IN (:ids)");
+
+    private static final RowMapper<ArchiveCandidate> CANDIDATE_MAPPER = (rs, rowNum) -> new ArchiveCandidate(
+            rs.getLong("job_instance_id"),
+            rs.getString("job_name"),
+            rs.getString("tenant_id"),
+            rs.getTimestamp("end_time").toLocalDateTime());
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public BatchMetadataArchiveRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Per job and tenant, the oldest completed instance among the keepLatest most recent ones
+     */
+    public List<ArchiveCandidate> findKeepCutoffs(int keepLatest) {
+        return jdbcTemplate.query(SELECT_KEEP_CUTOFFS, new MapSqlParameterSource()
+                .addValue("tenantParameter", BatchConstants.JOB_PARAM_TENANT_ID)
+                .addValue("keepLatest", keepLatest), CANDIDATE_MAPPER);
+    }
+
+    /**
+     * Next page of completed instances that ended before the cutoff, kept or not
+     */
+    public List<ArchiveCandidate> findCompleted(LocalDateTime before, long afterInstanceId, int limit) {
+        return jdbcTemplate.query(SELECT_COMPLETED, new MapSqlParameterSource()
+                .addValue("tenantParameter", BatchConstants.JOB_PARAM_TENANT_ID)
+                .addValue("before", Timestamp.valueOf(before))
+                .addValue("afterInstanceId", afterInstanceId)
+                .addValue("limit", limit), CANDIDATE_MAPPER);
+    }
+
+    /**
+     * The metadata of the instances, with six queries for all of them; rows are keyed by lower
+     * case column name, timestamps as ISO local date-times
+     */
+    public List<JobInstanceMetadata> load(Collection<Long> jobInstanceIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", jobInstanceIds);
+
+        Map<Long, Map<String, Object>> contextsByStep = byId(query(SELECT_STEP_EXECUTION_CONTEXTS, ids), "step_execution_id");
+        Map<Long, List<Map<String, Object>>> stepsByExecution = new HashMap<>();
+        for (Map<String, Object> step : query(SELECT_STEP_EXECUTIONS, ids)) {
+            step.put("context", contextsByStep.get(id(step, "step_execution_id")));
+            stepsByExecution.computeIfAbsent(id(step, "job_execution_id"), id -> new ArrayList<>()).add(step);
+        }
+        Map<Long, Map<String, Object>> contextsByExecution = byId(query(SELECT_EXECUTION_CONTEXTS, ids), "job_execution_id");
+        Map<Long, List<Map<String, Object>>> paramsByExecution = new HashMap<>();
+        for (Map<String, Object> param : query(SELECT_PARAMS, ids)) {
+            paramsByExecution.computeIfAbsent(id(param, "job_execution_id"), id -> new ArrayList<>()).add(param);
+        }
+
+        Map<Long, List<Map<String, Object>>> executionsByInstance = new HashMap<>();
+        for (Map<String, Object> execution : query(SELECT_EXECUTIONS, ids)) {
+            long executionId = id(execution, "job_execution_id");
+            execution.put("params", paramsByExecution.getOrDefault(executionId, List.of()));
+            execution.put("context", contextsByExecution.get(executionId));
+            execution.put("steps", stepsByExecution.getOrDefault(executionId, List.of()));
+            executionsByInstance.computeIfAbsent(id(execution, "job_instance_id"), id -> new ArrayList<>()).add(execution);
+        }
+
+        List<JobInstanceMetadata> metadata = new ArrayList<>(jobInstanceIds.size());
+        for (Map<String, Object> instance : query(SELECT_INSTANCES, ids)) {
+            long jobInstanceId = id(instance, "job_instance_id");
+            List<Map<String, Object>> executions = executionsByInstance.getOrDefault(jobInstanceId, List.of());
+            int stepExecutionCount = executions.stream().mapToInt(execution -> ((List<?>) execution.get("steps")).size()).sum();
+            instance.put("executions", executions);
+            metadata.add(new JobInstanceMetadata(jobInstanceId, (String) instance.get("job_key"),
+                    executions.size(), stepExecutionCount, instance));
+        }
+        return metadata;
+    }
+
+    /**
+     * Insert the archive rows with one JDBC batch
+     */
+    public void insert(List<BatchJobArchive> archives) {
+        if (archives.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = archives.stream()
+                .map(archive -> new MapSqlParameterSource()
+                        .addValue("jobInstanceId", archive.jobInstanceId())
+                        .addValue("jobName", archive.jobName())
+                        .addValue("jobKey", archive.jobKey())
+                        .addValue("tenantId", archive.tenantId())
+                        .addValue("endTime", archive.endTime() != null ? Timestamp.valueOf(archive.endTime()) : null)
+                        .addValue("executionCount", archive.executionCount())
+                        .addValue("stepExecutionCount", archive.stepExecutionCount())
+                        .addValue("payload", archive.payload())
+                        .addValue("payloadBytes", archive.payloadBytes()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVE, batch);
+    }
+
+    /**
+     * Delete the instances and everything below them; the number of rows deleted
+     */
+    public int delete(Collection<Long> jobInstanceIds) {
+        if (jobInstanceIds.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", jobInstanceIds);
+        int deleted = 0;
+        for (String delete : DELETES) {
+            deleted += jdbcTemplate.update(delete, ids);
+        }
+        log.debug("Deleted {} batch metadata rows of {} job instances", deleted, jobInstanceIds.size());
+        return deleted;
+    }
+
+    private List<Map<String, Object>> query(String sql, MapSqlParameterSource ids) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql, ids)) {
+            Map<String, Object> normalized = new LinkedHashMap<>();
+            row.forEach((column, value) -> normalized.put(column.toLowerCase(Locale.ROOT),
+                    value instanceof Timestamp timestamp ? timestamp.toLocalDateTime().toString() : value));
+            rows.add(normalized);
+        }
+        return rows;
+    }
+
+    private static Map<Long, Map<String, Object>> byId(List<Map<String, Object>> rows, String idColumn) {
+        Map<Long, Map<String, Object>> byId = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            byId.put(id(row, idColumn), row);
+        }
+        return byId;
+    }
+
+    private static long id(Map<String, Object> row, String idColumn) {
+        return ((Number) row.get(idColumn)).longValue();
+    }
+}
@@ -0,0 +1,13 @@
+package com.glidingpath.rules.repository;
+
+/**
+ * One row of batch_tenant_locks: the launch of jobName for tenantId holding the lock, and the job
+ * execution it started once there is one.
+ */
+public record BatchTenantLock(
+        String jobName,
+        String tenantId,
+        String lockToken,
+        String idempotencyKey,
+        Long jobExecutionId) {
+}
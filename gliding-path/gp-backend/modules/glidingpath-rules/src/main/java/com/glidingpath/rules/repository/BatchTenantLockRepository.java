@@ -0,0 +1,99 @@
+package com.glidingpath.rules.repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * batch_tenant_locks: at most one launched or running job per job name and tenant.
+ *
+ * Every statement is a single-row access by primary key or lock token. Leases are compared with
+ * the database clock, so the application nodes need not agree on the time.
+ */
+@Repository
+public class BatchTenantLockRepository {
+
+    // Inserts the lock, or takes over a row whose lease has run out; 1 row when acquired, 0 when held
+    private static final String ACQUIRE = "INSERT INTO batch_tenant_locks"
+            + " (job_name, tenant_id, lock_token, idempotency_key, lease_expires_at)"
+            + " VALUES (:jobName, :tenantId, :lockToken, :idempotencyKey, CURRENT_TIMESTAMP + :leaseSeconds * INTERVAL '1 second')"
+            + " ON CONFLICT (job_name, tenant_id) DO UPDATE SET lock_token = EXCLUDED.lock_token,"
+            + " idempotency_key = EXCLUDED.idempotency_key, job_execution_id = NULL, acquired_at = CURRENT_TIMESTAMP,"
+            + " heartbeat_at = CURRENT_TIMESTAMP, lease_expires_at = EXCLUDED.lease_expires_at"
+            + " WHERE batch_tenant_locks.lease_expires_at < CURRENT_TIMESTAMP";
+
+    private static final String SELECT_HOLDER = "SELECT job_name, tenant_id, lock_token, idempotency_key, job_execution_id"
+            + " FROM batch_tenant_locks WHERE job_name = :jobName AND tenant_id = :tenantId"
+            + " AND lease_expires_at >= CURRENT_TIMESTAMP";
+
+    private static final String ATTACH = "UPDATE batch_tenant_locks SET job_execution_id = :jobExecutionId"
+            + " WHERE lock_token = :lockToken";
+
+    private static final String HEARTBEAT = "UPDATE batch_tenant_locks SET heartbeat_at = CURRENT_TIMESTAMP,"
+            + " lease_expires_at = CURRENT_TIMESTAMP + :leaseSeconds * INTERVAL '1 second'"
+            + " WHERE lock_token IN (:lockTokens)";
+
+    private static final String RELEASE = "DELETE FROM batch_tenant_locks WHERE lock_token = :lockToken";
+
+    private static final RowMapper<BatchTenantLock> ROW_MAPPER = (rs, rowNum) -> new BatchTenantLock(
+            rs.getString("job_name"),
+            rs.getString("tenant_id"),
+            rs.getString("lock_token"),
+            rs.getString("idempotency_key"),
+            rs.getObject("job_execution_id", Long.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public BatchTenantLockRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Take the lock for leaseSeconds unless another launch holds it
+     */
+    public boolean tryAcquire(String jobName, String tenantId, String lockToken, String idempotencyKey, long leaseSeconds) {
+        return jdbcTemplate.update(ACQUIRE, new MapSqlParameterSource()
+                .addValue("jobName", jobName)
+                .addValue("tenantId", tenantId)
+                .addValue("lockToken", lockToken)
+                .addValue("idempotencyKey", idempotencyKey)
+                .addValue("leaseSeconds", leaseSeconds)) == 1;
+    }
+
+    /**
+     * The launch holding the lock, if its lease has not run out
+     */
+    public Optional<BatchTenantLock> findHolder(String jobName, String tenantId) {
+        return jdbcTemplate.query(SELECT_HOLDER, new MapSqlParameterSource()
+                .addValue("jobName", jobName)
+                .addValue("tenantId", tenantId), ROW_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Record the job execution the lock's launch started
+     */
+    public void attach(String lockToken, long jobExecutionId) {
+        jdbcTemplate.update(ATTACH, new MapSqlParameterSource()
+                .addValue("lockToken", lockToken)
+                .addValue("jobExecutionId", jobExecutionId));
+    }
+
+    /**
+     * Extend the leases of the locks; the number still held
+     */
+    public int heartbeat(Collection<String> lockTokens, long leaseSeconds) {
+        return jdbcTemplate.update(HEARTBEAT, new MapSqlParameterSource()
+                .addValue("lockTokens", lockTokens)
+                .addValue("leaseSeconds", leaseSeconds));
+    }
+
+    public void release(String lockToken) {
+        jdbcTemplate.update(RELEASE, new MapSqlParameterSource("lockToken", lockToken));
+    }
+}
@@ -0,0 +1,17 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDateTime;
+
+import com.glidingpath.core.entity.PrePayrollCalculation.CalculationStatus;
+
+/**
+ * The Finch deduction outcome of one calculation. A null status, processedAt or finchJobId keeps the
+ * stored value; the error message is stored only with a FAILED status.
+ */
+public record CalculationStatusUpdate(
+        String calculationId,
+        CalculationStatus status,
+        String errorMessage,
+        LocalDateTime processedAt,
+        String finchJobId) {
+}
@@ -0,0 +1,19 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * The columns of finch_employee_details the eligibility rules read, without the participant's
+ * collections and associations. Read page by page by {@link EligibilityParticipantRepository}.
+ */
+public record EligibilityParticipant(
+        UUID id,
+        String individualId,
+        String tenantId,
+        LocalDate dob,
+        LocalDate startDate,
+        LocalDate latestRehireDate,
+        String employmentStatus,
+        String employmentType) {
+}
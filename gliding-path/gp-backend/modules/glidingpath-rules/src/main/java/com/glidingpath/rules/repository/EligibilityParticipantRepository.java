@@ -0,0 +1,114 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.util.EligibilitySqlPredicate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keyset-paged reads of {@link EligibilityParticipant} rows for the eligibility step.
+ *
+ * Pages are ordered by id and continue after the last id of the previous page, so every page is
+ * an index range scan no matter how far the step has got, and a restart only needs that id.
+ * The JDBC fetch size equals the page size; inside the chunk transaction the driver then streams
+ * a page in one round trip instead of buffering a whole result set.
+ */
+@Slf4j
+@Repository
+public class EligibilityParticipantRepository {
+
+    private static final String SELECT = "SELECT id, individual_id, tenant_id, dob, start_date, latest_rehire_date,"
+            + " employment_status, employment_type FROM finch_employee_details"
+            + " WHERE tenant_id = :tenantId AND " + IndividualIdRange.SQL_CONDITION;
+
+    // Participants that pass every criterion of the standard rules, see EligibilityPushdownRepository
+    private static final String CANDIDATES_ONLY = " AND employment_status = 'ACTIVE' AND employment_type = 'FULL_TIME'"
+            + " AND " + EligibilitySqlPredicate.INELIGIBILITY_REASON + " IS NULL";
+
+    // Lower bound of each of :gridSize equal buckets of the tenant's individualIds, in database order
+    private static final String PARTITION_BOUNDS = "SELECT MIN(individual_id) AS lower_bound FROM ("
+            + " SELECT individual_id, NTILE(:gridSize) OVER (ORDER BY individual_id) AS bucket FROM finch_employee_details"
+            + " WHERE tenant_id = :tenantId AND individual_id IS NOT NULL) buckets"
+            + " GROUP BY bucket ORDER BY bucket";
+
+    private static final RowMapper<EligibilityParticipant> ROW_MAPPER = (rs, rowNum) -> new EligibilityParticipant(
+            rs.getObject("id", UUID.class),
+            rs.getString("individual_id"),
+            rs.getString("tenant_id"),
+            rs.getObject("dob", LocalDate.class),
+            rs.getObject("start_date", LocalDate.class),
+            rs.getObject("latest_rehire_date", LocalDate.class),
+            rs.getString("employment_status"),
+            rs.getString("employment_type"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int pageSize;
+
+    public EligibilityParticipantRepository(DataSource dataSource,
+                                            @Value("${batch.eligibility.page-size:500}") int pageSize) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate.getJdbcTemplate().setFetchSize(pageSize);
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Lower bounds that cut the tenant's participants into at most gridSize ranges of equal size, in
+     * database order; only the bounds are loaded. Pass them to {@link IndividualIdRange#split} to get
+     * the partitions
+     */
+    public List<String> findPartitionBounds(String tenantId, int gridSize) {
+        return jdbcTemplate.queryForList(PARTITION_BOUNDS, new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("gridSize", gridSize), String.class);
+    }
+
+    /**
+     * Next page of the tenant's participants in the range, ordered by id
+     *
+     * @param afterId last id of the previous page, null for the first page
+     * @param candidatesOnly SQL form of the standard rules to read only participants that pass them, or null for all
+     */
+    public List<EligibilityParticipant> findPage(String tenantId, IndividualIdRange range, UUID afterId,
+                                                 EligibilitySqlPredicate candidatesOnly) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("fromId", range.getFromId())
+                .addValue("toId", range.getToId())
+                .addValue("includeMissingIds", range.includesMissingIds())
+                .addValue("pageSize", pageSize);
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (afterId != null) {
+            sql.append(" AND id > :afterId");
+            params.addValue("afterId", afterId);
+        }
+        if (candidatesOnly != null) {
+            sql.append(CANDIDATES_ONLY);
+            params.addValue("minimumEntryAge", candidatesOnly.getMinimumEntryAge())
+                    .addValue("timeEmployedMonths", candidatesOnly.getTimeEmployedMonths())
+                    .addValue("currentMonth", candidatesOnly.getCurrentMonth())
+                    .addValue("currentDay", candidatesOnly.getCurrentDay());
+        }
+        sql.append(" ORDER BY id LIMIT :pageSize");
+
+        List<EligibilityParticipant> page = jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+        log.debug("Read page of {} participants for tenant {} ({}) after id {}", page.size(), tenantId, range, afterId);
+        return page;
+    }
+}
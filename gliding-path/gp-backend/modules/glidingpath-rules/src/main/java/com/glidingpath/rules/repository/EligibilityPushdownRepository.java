@@ -0,0 +1,60 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+import com.glidingpath.rules.util.EligibilitySqlPredicate;
+
+/**
+ * Participant updates with the standard eligibility rules pushed down as SQL (see {@link EligibilitySqlPredicate}),
+ * restricted to the individualId range of one step partition (see {@link IndividualIdRange}).
+ * The participants that pass are read by {@link EligibilityParticipantRepository}.
+ */
+public interface EligibilityPushdownRepository extends Repository<PlanParticipant, UUID> {
+
+    /**
+     * Record the rule outcome for every participant of the tenant and range that fails a criterion, in one statement.
+     * Columns are set the way EligibilityBatchWriter sets them for an ineligible result.
+     *
+     * @return number of participants marked not eligible
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE finch_employee_details AS p SET"
+            + " is_eligible_for_401k = false,"
+            + " eligibility_date = NULL,"
+            + " last_eligibility_check = :today,"
+            + " eligibility_reason = r.reason,"
+            + " eligibility_status = 'NOT_ELIGIBLE',"
+            + " next_eligibility_check_date = CASE"
+            + "   WHEN r.reason LIKE '%age%' THEN :nextAgeCheck"
+            + "   WHEN r.reason LIKE '%service%' THEN :nextServiceCheck"
+            + "   ELSE :nextDefaultCheck END,"
+            + " eligibility_notes = :notes,"
+            + " updated_at = CURRENT_TIMESTAMP"
+            + " FROM (SELECT id, " + EligibilitySqlPredicate.INELIGIBILITY_REASON + " AS reason"
+            + "       FROM finch_employee_details WHERE tenant_id = :tenantId AND " + IndividualIdRange.SQL_CONDITION + ") AS r"
+            + " WHERE p.id = r.id AND r.reason IS NOT NULL",
+            nativeQuery = true)
+    int markIneligible(@Param("tenantId") String tenantId,
+                       @Param("minimumEntryAge") int minimumEntryAge,
+                       @Param("timeEmployedMonths") int timeEmployedMonths,
+                       @Param("currentMonth") int currentMonth,
+                       @Param("currentDay") int currentDay,
+                       @Param("today") LocalDate today,
+                       @Param("nextAgeCheck") LocalDate nextAgeCheck,
+                       @Param("nextServiceCheck") LocalDate nextServiceCheck,
+                       @Param("nextDefaultCheck") LocalDate nextDefaultCheck,
+                       @Param("notes") String notes,
+                       @Param("fromId") String fromId,
+                       @Param("toId") String toId,
+                       @Param("includeMissingIds") boolean includeMissingIds);
+}
@@ -0,0 +1,13 @@
+package com.glidingpath.rules.repository;
+
+/**
+ * One row of finch_enrollment_jobs: a Finch job enrolling individualCount individuals into the
+ * tenant's benefit, started by the prePayrollJob instance jobInstanceId.
+ */
+public record FinchEnrollmentJob(
+        String tenantId,
+        String jobId,
+        String benefitId,
+        long jobInstanceId,
+        int individualCount) {
+}
@@ -0,0 +1,107 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * finch_enrollment_jobs: the Finch jobs the deduction step started, tracked until Finch reports
+ * them complete, and the tenant's 401k benefit they enroll into (finch_benefits).
+ *
+ * The deduction step records a chunk's jobs with one JDBC batch in the chunk transaction, together
+ * with the job id of each calculation. FinchEnrollmentJobTasklet then polls the jobs of its job
+ * instance that Finch has not finished.
+ */
+@Slf4j
+@Repository
+public class FinchEnrollmentJobRepository {
+
+    // Finch reports a job again when a chunk is re-run after its calls were made; keep the first row
+    private static final String INSERT = "INSERT INTO finch_enrollment_jobs"
+            + " (tenant_id, job_id, benefit_id, job_instance_id, individual_count)"
+            + " VALUES (:tenantId, :jobId, :benefitId, :jobInstanceId, :individualCount)"
+            + " ON CONFLICT (job_id) DO NOTHING";
+
+    private static final String SELECT_UNFINISHED = "SELECT tenant_id, job_id, benefit_id, job_instance_id, individual_count"
+            + " FROM finch_enrollment_jobs WHERE job_instance_id = :jobInstanceId AND status IN ('pending', 'in_progress')"
+            + " ORDER BY created_at";
+
+    private static final String UPDATE_STATUS = "UPDATE finch_enrollment_jobs SET status = :status,"
+            + " error_message = :errorMessage, completed_at = :completedAt, updated_at = CURRENT_TIMESTAMP"
+            + " WHERE job_id = :jobId";
+
+    private static final String SELECT_BENEFIT = "SELECT benefit_id FROM finch_benefits"
+            + " WHERE tenant_id = :tenantId AND benefit_type = :benefitType ORDER BY created_at DESC LIMIT 1";
+
+    private static final RowMapper<FinchEnrollmentJob> ROW_MAPPER = (rs, rowNum) -> new FinchEnrollmentJob(
+            rs.getString("tenant_id"),
+            rs.getString("job_id"),
+            rs.getString("benefit_id"),
+            rs.getLong("job_instance_id"),
+            rs.getInt("individual_count"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public FinchEnrollmentJobRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Record the jobs as pending with one JDBC batch
+     */
+    public void record(List<FinchEnrollmentJob> jobs) {
+        if (jobs.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = jobs.stream()
+                .map(job -> new MapSqlParameterSource()
+                        .addValue("tenantId", job.tenantId())
+                        .addValue("jobId", job.jobId())
+                        .addValue("benefitId", job.benefitId())
+                        .addValue("jobInstanceId", job.jobInstanceId())
+                        .addValue("individualCount", job.individualCount()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        log.debug("Recorded {} Finch enrollment jobs", jobs.size());
+    }
+
+    /**
+     * Jobs of the job instance Finch has not finished, oldest first
+     */
+    public List<FinchEnrollmentJob> findUnfinished(long jobInstanceId) {
+        return jdbcTemplate.query(SELECT_UNFINISHED, new MapSqlParameterSource("jobInstanceId", jobInstanceId), ROW_MAPPER);
+    }
+
+    /**
+     * Store the status Finch reported for the job
+     *
+     * @param completedAt when Finch finished the job, null while it runs
+     */
+    public void updateStatus(String jobId, String status, String errorMessage, LocalDateTime completedAt) {
+        jdbcTemplate.update(UPDATE_STATUS, new MapSqlParameterSource()
+                .addValue("jobId", jobId)
+                .addValue("status", status)
+                .addValue("errorMessage", errorMessage)
+                .addValue("completedAt", completedAt));
+    }
+
+    /**
+     * The tenant's latest benefit of the type, as FinchBenefitService stored it when creating it
+     */
+    public Optional<String> findBenefitId(String tenantId, String benefitType) {
+        return jdbcTemplate.queryForList(SELECT_BENEFIT, new MapSqlParameterSource()
+                        .addValue("tenantId", tenantId)
+                        .addValue("benefitType", benefitType), String.class)
+                .stream().findFirst();
+    }
+}
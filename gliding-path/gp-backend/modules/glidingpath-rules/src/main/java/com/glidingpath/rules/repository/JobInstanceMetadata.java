@@ -0,0 +1,16 @@
+package com.glidingpath.rules.repository;
+
+import java.util.Map;
+
+/**
+ * The Spring Batch metadata of one job instance as a document of nested maps and lists: the
+ * instance's columns, and under "executions" each execution with its "params", "context" and
+ * "steps", each step with its "context".
+ */
+public record JobInstanceMetadata(
+        long jobInstanceId,
+        String jobKey,
+        int executionCount,
+        int stepExecutionCount,
+        Map<String, Object> document) {
+}
@@ -0,0 +1,74 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the eligibility results of a chunk on finch_employee_details with one
+ * {@code UPDATE ... FROM (VALUES ...)} statement keyed by individual_id, instead of loading and
+ * saving each participant through JPA. Runs on the connection of the current (chunk) transaction.
+ */
+@Slf4j
+@Repository
+public class ParticipantEligibilityJdbcRepository {
+
+    private static final String ROW = "(CAST(? AS VARCHAR), CAST(? AS BOOLEAN), CAST(? AS DATE), CAST(? AS VARCHAR),"
+            + " CAST(? AS VARCHAR), CAST(? AS DATE))";
+
+    private static final int PARAMETERS_PER_ROW = 6;
+
+    private static final String UPDATE = "UPDATE finch_employee_details AS p SET"
+            + " is_eligible_for_401k = v.eligible,"
+            + " eligibility_date = v.eligibility_date,"
+            + " last_eligibility_check = ?,"
+            + " eligibility_reason = v.eligibility_reason,"
+            + " eligibility_status = v.eligibility_status,"
+            + " next_eligibility_check_date = v.next_eligibility_check_date,"
+            + " eligibility_notes = ?,"
+            + " updated_at = CURRENT_TIMESTAMP"
+            + " FROM (VALUES %s) AS v (individual_id, eligible, eligibility_date, eligibility_reason,"
+            + " eligibility_status, next_eligibility_check_date)"
+            + " WHERE p.individual_id = v.individual_id AND p.tenant_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ParticipantEligibilityJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Store the results on the tenant's participants; one statement for any realistic chunk size
+     *
+     * @return number of participants updated
+     */
+    public int updateEligibility(String tenantId, List<ParticipantEligibilityUpdate> updates, LocalDate checkedOn, String notes) {
+        int updated = 0;
+        int maxRows = ValuesList.maxRows(PARAMETERS_PER_ROW, 3);
+        for (int from = 0; from < updates.size(); from += maxRows) {
+            List<ParticipantEligibilityUpdate> rows = updates.subList(from, Math.min(from + maxRows, updates.size()));
+            List<Object> args = new ArrayList<>(rows.size() * PARAMETERS_PER_ROW + 3);
+            args.add(checkedOn);
+            args.add(notes);
+            for (ParticipantEligibilityUpdate row : rows) {
+                args.add(row.individualId());
+                args.add(row.eligible());
+                args.add(row.eligibilityDate());
+                args.add(row.eligibilityReason());
+                args.add(row.eligibilityStatus());
+                args.add(row.nextEligibilityCheckDate());
+            }
+            args.add(tenantId);
+            updated += jdbcTemplate.update(String.format(UPDATE, ValuesList.of(rows.size(), ROW)), args.toArray());
+        }
+        log.debug("Stored eligibility of {} participants of tenant {} ({} rows updated)", updates.size(), tenantId, updated);
+        return updated;
+    }
+}
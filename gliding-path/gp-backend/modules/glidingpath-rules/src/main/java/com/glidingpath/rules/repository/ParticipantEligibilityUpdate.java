@@ -0,0 +1,15 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+
+/**
+ * The eligibility outcome of one participant, as EligibilityBatchWriter stores it on finch_employee_details.
+ */
+public record ParticipantEligibilityUpdate(
+        String individualId,
+        boolean eligible,
+        LocalDate eligibilityDate,
+        String eligibilityReason,
+        String eligibilityStatus,
+        LocalDate nextEligibilityCheckDate) {
+}
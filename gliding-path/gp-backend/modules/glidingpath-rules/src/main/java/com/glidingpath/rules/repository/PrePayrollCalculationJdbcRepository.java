@@ -0,0 +1,362 @@
+package com.glidingpath.rules.repository;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.core.entity.PrePayrollCalculation;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk writes of pre_payroll_calculations for the calculation and deduction steps, bypassing JPA.
+ *
+ * Rows go in with one JDBC batch per chunk; with reWriteBatchedInserts=true on the data source
+ * the driver sends them as multi-row INSERTs. {@link #copy} streams them with COPY FROM STDIN
+ * instead, for very large runs. Both upsert on (tenant, employee, payroll period), so writing a
+ * chunk again replaces its rows instead of duplicating them. The calculation_id of each row is bound
+ * explicitly in the INSERT and the COPY; it is the key-derived id the calculation step assigns with
+ * {@link com.glidingpath.rules.util.CalculationIds}. The employee_id of each row is the id of its
+ * PlanParticipant, resolved for the whole chunk by {@link #findEmployeeIds}. Incremental runs load
+ * each participant's previous result with {@link #findLatestSuccessful}. The deduction step stores
+ * each calculation's Finch outcome with {@link #updateStatuses}, and {@link #failFinchJob} the
+ * outcome of an enrollment job that failed after it was accepted. All of them use the connection of
+ * the current transaction.
+ */
+@Slf4j
+@Repository
+public class PrePayrollCalculationJdbcRepository {
+
+    private static final String COLUMNS = "calculation_id, tenant_id, employee_id, payroll_period_start, payroll_period_end,"
+            + " calculation_date, processed_at, status, error_message, reprocessed_count, last_reprocessed_at,"
+            + " base_salary, eligible_compensation,"
+            + " employee_contribution_amount, employee_contribution_percentage, employer_match_amount, employer_match_percentage,"
+            + " profit_sharing_amount, profit_sharing_percentage, total_contribution_amount, total_contribution_percentage,"
+            + " plan_id, employer_contribution_rule_id, employee_contribution_config_id, profit_sharing_config_id,"
+            + " input_fingerprint, created_at, updated_at, created_by, updated_by";
+
+    private static final int COLUMN_COUNT = COLUMNS.split(",").length;
+
+    // One row per tenant, employee and payroll period (V46); in index order for the ON CONFLICT clause
+    private static final Set<String> CONFLICT_KEY = Collections.unmodifiableSet(new LinkedHashSet<>(
+            List.of("tenant_id", "employee_id", "payroll_period_start", "payroll_period_end")));
+
+    // Columns a stored row keeps besides its key when it is written again; the reprocessing columns are set below
+    private static final Set<String> KEPT_ON_CONFLICT = Set.of("created_at", "created_by", "reprocessed_count", "last_reprocessed_at");
+
+    // Writing a row again updates it and counts a reprocessing
+    private static final String ON_CONFLICT = " ON CONFLICT (" + String.join(", ", CONFLICT_KEY) + ")"
+            + " DO UPDATE SET " + conflictUpdates()
+            + ", reprocessed_count = COALESCE(pre_payroll_calculations.reprocessed_count, 0) + 1"
+            + ", last_reprocessed_at = EXCLUDED.calculation_date";
+
+    private static final String UPSERT = "INSERT INTO pre_payroll_calculations (" + COLUMNS + ") VALUES ("
+            + String.join(", ", Collections.nCopies(COLUMN_COUNT, "?")) + ")" + ON_CONFLICT;
+
+    // COPY cannot resolve conflicts: rows are copied into a session table and upserted from there
+    private static final String COPY_TABLE = "pre_payroll_calculations_copy";
+
+    private static final String CREATE_COPY_TABLE = "CREATE TEMP TABLE IF NOT EXISTS " + COPY_TABLE
+            + " (LIKE pre_payroll_calculations INCLUDING DEFAULTS)";
+
+    private static final String CLEAR_COPY_TABLE = "TRUNCATE " + COPY_TABLE;
+
+    private static final String COPY = "COPY " + COPY_TABLE + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String UPSERT_COPIED = "INSERT INTO pre_payroll_calculations (" + COLUMNS + ")"
+            + " SELECT " + COLUMNS + " FROM " + COPY_TABLE + ON_CONFLICT;
+
+    private static final String STATUS_ROW = "(CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS TEXT), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR))";
+
+    private static final int STATUS_PARAMETERS_PER_ROW = 5;
+
+    private static final String UPDATE_STATUS = "UPDATE pre_payroll_calculations AS c SET"
+            + " status = COALESCE(v.status, c.status),"
+            + " error_message = CASE WHEN v.status = 'FAILED' THEN v.error_message ELSE c.error_message END,"
+            + " processed_at = COALESCE(v.processed_at, c.processed_at),"
+            + " finch_job_id = COALESCE(v.finch_job_id, c.finch_job_id),"
+            + " updated_at = CURRENT_TIMESTAMP,"
+            + " updated_by = ?"
+            + " FROM (VALUES %s) AS v (calculation_id, status, error_message, processed_at, finch_job_id)"
+            + " WHERE c.calculation_id = v.calculation_id AND c.tenant_id = ?";
+
+    private static final String FAIL_FINCH_JOB = "UPDATE pre_payroll_calculations SET status = 'FAILED', error_message = ?,"
+            + " updated_at = CURRENT_TIMESTAMP, updated_by = ? WHERE tenant_id = ? AND finch_job_id = ?";
+
+    // Latest successful calculation of each employee ending before a payroll period, with what carrying it forward needs
+    private static final String LATEST_SUCCESSFUL = "SELECT DISTINCT ON (employee_id) employee_id, payroll_period_end, calculation_date,"
+            + " calculation_id, input_fingerprint,"
+            + " base_salary, eligible_compensation,"
+            + " employee_contribution_amount, employee_contribution_percentage, employer_match_amount, employer_match_percentage,"
+            + " profit_sharing_amount, profit_sharing_percentage, total_contribution_amount, total_contribution_percentage,"
+            + " plan_id, employer_contribution_rule_id, employee_contribution_config_id, profit_sharing_config_id"
+            + " FROM pre_payroll_calculations"
+            + " WHERE tenant_id = :tenantId AND employee_id IN (:employeeIds) AND status = 'SUCCESS' AND payroll_period_end < :before"
+            + " ORDER BY employee_id, payroll_period_end DESC, calculation_date DESC";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public PrePayrollCalculationJdbcRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * PlanParticipant ids by individualId, for every id that exists; one query
+     */
+    public Map<String, UUID> findEmployeeIds(Collection<String> individualIds) {
+        Map<String, UUID> employeeIds = new HashMap<>();
+        if (individualIds.isEmpty()) {
+            return employeeIds;
+        }
+        namedJdbcTemplate.query("SELECT individual_id, id FROM finch_employee_details WHERE individual_id IN (:individualIds)",
+                new MapSqlParameterSource("individualIds", individualIds),
+                rs -> {
+                    employeeIds.put(rs.getString("individual_id"), rs.getObject("id", UUID.class));
+                });
+        return employeeIds;
+    }
+
+    /**
+     * Latest successful calculation of each employee whose payroll period ended before the given date,
+     * by employee id; one query. Only the calculation id, input fingerprint, amounts, percentages and
+     * plan references are loaded.
+     */
+    public Map<UUID, PrePayrollCalculation> findLatestSuccessful(String tenantId, Collection<UUID> employeeIds, LocalDate before) {
+        Map<UUID, PrePayrollCalculation> latest = new HashMap<>();
+        if (employeeIds.isEmpty()) {
+            return latest;
+        }
+        namedJdbcTemplate.query(LATEST_SUCCESSFUL, new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("employeeIds", employeeIds)
+                .addValue("before", before),
+                rs -> {
+                    PlanParticipant employee = new PlanParticipant();
+                    employee.setId(rs.getObject("employee_id", UUID.class));
+
+                    PrePayrollCalculation calculation = new PrePayrollCalculation();
+                    calculation.setEmployee(employee);
+                    calculation.setTenantId(tenantId);
+                    calculation.setCalculationId(rs.getString("calculation_id"));
+                    calculation.setStatus(PrePayrollCalculation.CalculationStatus.SUCCESS);
+                    calculation.setInputFingerprint(rs.getString("input_fingerprint"));
+                    calculation.setBaseSalary(rs.getBigDecimal("base_salary"));
+                    calculation.setEligibleCompensation(rs.getBigDecimal("eligible_compensation"));
+                    calculation.setEmployeeContributionAmount(rs.getBigDecimal("employee_contribution_amount"));
+                    calculation.setEmployeeContributionPercentage(rs.getBigDecimal("employee_contribution_percentage"));
+                    calculation.setEmployerMatchAmount(rs.getBigDecimal("employer_match_amount"));
+                    calculation.setEmployerMatchPercentage(rs.getBigDecimal("employer_match_percentage"));
+                    calculation.setProfitSharingAmount(rs.getBigDecimal("profit_sharing_amount"));
+                    calculation.setProfitSharingPercentage(rs.getBigDecimal("profit_sharing_percentage"));
+                    calculation.setTotalContributionAmount(rs.getBigDecimal("total_contribution_amount"));
+                    calculation.setTotalContributionPercentage(rs.getBigDecimal("total_contribution_percentage"));
+                    calculation.setPlanId(rs.getObject("plan_id", UUID.class));
+                    calculation.setEmployerContributionRuleId(rs.getObject("employer_contribution_rule_id", UUID.class));
+                    calculation.setEmployeeContributionConfigId(rs.getObject("employee_contribution_config_id", UUID.class));
+                    calculation.setProfitSharingConfigId(rs.getObject("profit_sharing_config_id", UUID.class));
+                    latest.put(employee.getId(), calculation);
+                });
+        return latest;
+    }
+
+    /**
+     * Upsert the calculations with one JDBC batch; each calculation's employee must carry its id.
+     * A calculation already stored for the employee and payroll period is replaced.
+     */
+    public void upsert(List<PrePayrollCalculation> calculations) {
+        if (calculations.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = calculations.stream().map(PrePayrollCalculationJdbcRepository::values).collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(UPSERT, rows);
+        log.debug("Upserted {} calculations with a JDBC batch", rows.size());
+    }
+
+    /**
+     * Upsert the calculations with PostgreSQL COPY FROM STDIN into a temporary table of the session
+     * and one INSERT ... SELECT from it; each calculation's employee must carry its id
+     *
+     * @return number of rows copied
+     */
+    public long copy(List<PrePayrollCalculation> calculations) {
+        if (calculations.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(calculations.size() * 400);
+        for (PrePayrollCalculation calculation : calculations) {
+            Object[] values = values(calculation);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                appendCsv(csv, values[i]);
+            }
+            csv.append('\n');
+        }
+
+        // Every statement on the one connection: the temporary table belongs to its session
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_COPY_TABLE);
+            statement.execute(CLEAR_COPY_TABLE);
+            long copied = copyIn(connection, new StringReader(csv.toString()));
+            int upserted = statement.executeUpdate(UPSERT_COPIED);
+            statement.execute(CLEAR_COPY_TABLE);
+            log.debug("Copied {} calculations with COPY FROM STDIN, {} upserted", copied, upserted);
+            return copied;
+        } catch (SQLException e) {
+            throw new DataAccessResourceFailureException("Upsert of copied calculations failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Store the outcome of each calculation, keyed by calculation id, with one
+     * {@code UPDATE ... FROM (VALUES ...)} statement for any realistic chunk size
+     *
+     * @return number of calculations updated
+     */
+    public int updateStatuses(String tenantId, List<CalculationStatusUpdate> updates, String updatedBy) {
+        int updated = 0;
+        int maxRows = ValuesList.maxRows(STATUS_PARAMETERS_PER_ROW, 2);
+        for (int from = 0; from < updates.size(); from += maxRows) {
+            List<CalculationStatusUpdate> rows = updates.subList(from, Math.min(from + maxRows, updates.size()));
+            List<Object> args = new ArrayList<>(rows.size() * STATUS_PARAMETERS_PER_ROW + 2);
+            args.add(updatedBy);
+            for (CalculationStatusUpdate row : rows) {
+                args.add(row.calculationId());
+                args.add(row.status() != null ? row.status().name() : null);
+                args.add(row.errorMessage());
+                args.add(row.processedAt());
+                args.add(row.finchJobId());
+            }
+            args.add(tenantId);
+            updated += jdbcTemplate.update(String.format(UPDATE_STATUS, ValuesList.of(rows.size(), STATUS_ROW)), args.toArray());
+        }
+        log.debug("Stored the status of {} calculations of tenant {} ({} rows updated)", updates.size(), tenantId, updated);
+        return updated;
+    }
+
+    /**
+     * Mark the calculations enrolled by a Finch job as failed, e.g. when Finch reports the job failed
+     *
+     * @return number of calculations updated
+     */
+    public int failFinchJob(String tenantId, String finchJobId, String errorMessage, String updatedBy) {
+        return jdbcTemplate.update(FAIL_FINCH_JOB, errorMessage, updatedBy, tenantId, finchJobId);
+    }
+
+    /**
+     * CopyManager.copyIn of the PostgreSQL driver. The driver is a runtime-only dependency of the
+     * application, so its API is looked up on the unwrapped connection instead of linked.
+     */
+    private static long copyIn(Connection connection, Reader csv) {
+        try {
+            Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+            Object copyApi = pgConnection.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnection));
+            Method copyIn = copyApi.getClass().getMethod("copyIn", String.class, Reader.class);
+            return (Long) copyIn.invoke(copyApi, COPY, csv);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new DataAccessResourceFailureException("COPY needs a PostgreSQL connection", e);
+        } catch (ReflectiveOperationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new DataAccessResourceFailureException("COPY into pre_payroll_calculations failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * "column = EXCLUDED.column" for every column a conflicting row takes from the new one
+     */
+    private static String conflictUpdates() {
+        return Arrays.stream(COLUMNS.split(","))
+                .map(String::trim)
+                .filter(column -> !KEPT_ON_CONFLICT.contains(column) && !CONFLICT_KEY.contains(column))
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Column values in {@link #COLUMNS} order
+     */
+    private static Object[] values(PrePayrollCalculation calculation) {
+        return new Object[] {
+                calculation.getCalculationId(),
+                calculation.getTenantId(),
+                calculation.getEmployee().getId(),
+                calculation.getPayrollPeriodStart(),
+                calculation.getPayrollPeriodEnd(),
+                calculation.getCalculationDate(),
+                calculation.getProcessedAt(),
+                calculation.getStatus() != null ? calculation.getStatus().name() : null,
+                calculation.getErrorMessage(),
+                calculation.getReprocessedCount(),
+                calculation.getLastReprocessedAt(),
+                calculation.getBaseSalary(),
+                calculation.getEligibleCompensation(),
+                calculation.getEmployeeContributionAmount(),
+                calculation.getEmployeeContributionPercentage(),
+                calculation.getEmployerMatchAmount(),
+                calculation.getEmployerMatchPercentage(),
+                calculation.getProfitSharingAmount(),
+                calculation.getProfitSharingPercentage(),
+                calculation.getTotalContributionAmount(),
+                calculation.getTotalContributionPercentage(),
+                calculation.getPlanId(),
+                calculation.getEmployerContributionRuleId(),
+                calculation.getEmployeeContributionConfigId(),
+                calculation.getProfitSharingConfigId(),
+                calculation.getInputFingerprint(),
+                calculation.getCreatedAt(),
+                calculation.getUpdatedAt(),
+                calculation.getCreatedBy(),
+                calculation.getUpdatedBy()
+        };
+    }
+
+    /**
+     * One CSV field: null as an unquoted empty field, text quoted with doubled quotes
+     */
+    private static void appendCsv(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof BigDecimal decimal) {
+            csv.append(decimal.toPlainString());
+        } else if (value instanceof Number || value instanceof UUID) {
+            csv.append(value);
+        } else {
+            csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+        }
+    }
+}
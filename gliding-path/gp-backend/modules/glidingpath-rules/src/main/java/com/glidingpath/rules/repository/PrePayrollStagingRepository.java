@@ -0,0 +1,199 @@
+package com.glidingpath.rules.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import com.glidingpath.rules.contributions.bulk.ContributionColumns;
+import com.glidingpath.rules.contributions.partition.IndividualIdRange;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * prepayroll_staging: what one step of a prePayrollJob instance hands to the next.
+ *
+ * Writers add their chunk's rows with one JDBC batch in the chunk transaction, so the staged rows
+ * commit together with the chunk. The next step reads them in keyset pages ordered by
+ * individual_id within its partition range, so neither the job execution context nor the
+ * readers hold a list that grows with the tenant. Rows are removed when the job completes, or by
+ * batchMetadataArchiveJob once an unfinished instance is past its restart window.
+ */
+@Slf4j
+@Repository
+public class PrePayrollStagingRepository {
+
+    // A re-run chunk stages the same participant again; keep the latest payload
+    private static final String INSERT = "INSERT INTO prepayroll_staging (job_instance_id, stage, individual_id, payload)"
+            + " VALUES (:jobInstanceId, :stage, :individualId, :payload)"
+            + " ON CONFLICT (job_instance_id, stage, individual_id) DO UPDATE SET payload = EXCLUDED.payload";
+
+    private static final String SELECT = "SELECT individual_id, payload FROM prepayroll_staging"
+            + " WHERE job_instance_id = :jobInstanceId AND stage = :stage AND " + IndividualIdRange.SQL_CONDITION;
+
+    private static final String AFTER_CONDITION = " AND individual_id > :afterIndividualId";
+
+    // A page of staged ids with the id, income and fingerprinted fields of each participant; null for a participant removed since staging
+    private static final String COMPENSATION_PAGE = "SELECT s.individual_id, e.id, e.income_amount,"
+            + " e.employment_status, e.dob, e.start_date, e.latest_rehire_date FROM ("
+            + " SELECT individual_id FROM prepayroll_staging"
+            + " WHERE job_instance_id = :jobInstanceId AND stage = :stage AND " + IndividualIdRange.SQL_CONDITION
+            + "%s ORDER BY individual_id LIMIT :pageSize) s"
+            + " LEFT JOIN finch_employee_details e ON e.individual_id = s.individual_id"
+            + " ORDER BY s.individual_id";
+
+    // First individual_id of each of :gridSize equal buckets, in individual_id order
+    private static final String PARTITION_BOUNDS = "SELECT MIN(individual_id) AS lower_bound FROM ("
+            + " SELECT individual_id, NTILE(:gridSize) OVER (ORDER BY individual_id) AS bucket FROM prepayroll_staging"
+            + " WHERE job_instance_id = :jobInstanceId AND stage = :stage) buckets"
+            + " GROUP BY bucket ORDER BY bucket";
+
+    // Instances with staged rows none of whose executions was active since :before; a running
+    // execution updates last_updated with every chunk, one that died without ending keeps its last one
+    private static final String ABANDONED_INSTANCES = "SELECT s.job_instance_id FROM ("
+            + " SELECT DISTINCT job_instance_id FROM prepayroll_staging) s"
+            + " WHERE NOT EXISTS (SELECT 1 FROM batch_job_execution e WHERE e.job_instance_id = s.job_instance_id"
+            + " AND COALESCE(e.end_time, e.last_updated, e.create_time) >= :before)"
+            + " ORDER BY s.job_instance_id LIMIT :limit";
+
+    private static final RowMapper<StagedItem> ROW_MAPPER = (rs, rowNum) -> new StagedItem(
+            rs.getString("individual_id"),
+            rs.getString("payload"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int pageSize;
+
+    public PrePayrollStagingRepository(DataSource dataSource,
+                                       @Value("${batch.prepayroll.staging.page-size:500}") int pageSize) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.jdbcTemplate.getJdbcTemplate().setFetchSize(pageSize);
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Stage the items for the job instance with one JDBC batch
+     */
+    public void stage(long jobInstanceId, String stage, List<StagedItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = items.stream()
+                .map(item -> new MapSqlParameterSource()
+                        .addValue("jobInstanceId", jobInstanceId)
+                        .addValue("stage", stage)
+                        .addValue("individualId", item.individualId())
+                        .addValue("payload", item.payload()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT, batch);
+        log.debug("Staged {} {} rows for job instance {}", items.size(), stage, jobInstanceId);
+    }
+
+    /**
+     * Next page of the stage's rows in the range, ordered by individual_id
+     *
+     * @param afterIndividualId last individual_id of the previous page, null for the first page
+     */
+    public List<StagedItem> findPage(long jobInstanceId, String stage, IndividualIdRange range, String afterIndividualId) {
+        MapSqlParameterSource params = pageParameters(jobInstanceId, stage, range, afterIndividualId, pageSize);
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (afterIndividualId != null) {
+            sql.append(AFTER_CONDITION);
+        }
+        sql.append(" ORDER BY individual_id LIMIT :pageSize");
+
+        List<StagedItem> page = jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+        log.debug("Read page of {} {} rows for job instance {} ({}) after {}", page.size(), stage, jobInstanceId, range, afterIndividualId);
+        return page;
+    }
+
+    /**
+     * Next page of up to limit staged rows in the range as columns for the bulk contribution engine,
+     * with each participant's id, income and fingerprinted fields read in the same query. A participant removed since it
+     * was staged keeps its row, without employee id, so the page still ends at its last staged id.
+     *
+     * @param afterIndividualId last individual_id of the previous page, null for the first page
+     */
+    public ContributionColumns findCompensationPage(long jobInstanceId, String stage, IndividualIdRange range,
+                                                    String afterIndividualId, int limit) {
+        MapSqlParameterSource params = pageParameters(jobInstanceId, stage, range, afterIndividualId, limit);
+        String sql = String.format(COMPENSATION_PAGE, afterIndividualId != null ? AFTER_CONDITION : "");
+
+        ContributionColumns columns = new ContributionColumns(limit);
+        jdbcTemplate.query(sql, params, rs -> {
+            long income = rs.getLong("income_amount");
+            Long incomeAmount = rs.wasNull() ? null : income;
+            columns.add(rs.getString("individual_id"), rs.getObject("id", UUID.class), incomeAmount,
+                    rs.getString("employment_status"), rs.getObject("dob", LocalDate.class),
+                    rs.getObject("start_date", LocalDate.class), rs.getObject("latest_rehire_date", LocalDate.class));
+        });
+        log.debug("Read compensation page of {} {} rows for job instance {} ({}) after {}",
+                columns.size(), stage, jobInstanceId, range, afterIndividualId);
+        return columns;
+    }
+
+    private static MapSqlParameterSource pageParameters(long jobInstanceId, String stage, IndividualIdRange range,
+                                                        String afterIndividualId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("jobInstanceId", jobInstanceId)
+                .addValue("stage", stage)
+                .addValue("fromId", range.getFromId())
+                .addValue("toId", range.getToId())
+                .addValue("includeMissingIds", range.includesMissingIds())
+                .addValue("pageSize", limit);
+        if (afterIndividualId != null) {
+            params.addValue("afterIndividualId", afterIndividualId);
+        }
+        return params;
+    }
+
+    /**
+     * Lower bounds that cut the stage's rows into at most gridSize ranges of equal size, in database
+     * order; pass them to {@link IndividualIdRange#split} to get the partitions
+     */
+    public List<String> findPartitionBounds(long jobInstanceId, String stage, int gridSize) {
+        return jdbcTemplate.queryForList(PARTITION_BOUNDS, new MapSqlParameterSource()
+                .addValue("jobInstanceId", jobInstanceId)
+                .addValue("stage", stage)
+                .addValue("gridSize", gridSize), String.class);
+    }
+
+    public long count(long jobInstanceId, String stage) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM prepayroll_staging WHERE job_instance_id = :jobInstanceId AND stage = :stage",
+                new MapSqlParameterSource().addValue("jobInstanceId", jobInstanceId).addValue("stage", stage), Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Up to limit job instances with staged rows that no execution has worked on since before
+     */
+    public List<Long> findAbandonedJobInstances(LocalDateTime before, int limit) {
+        return jdbcTemplate.queryForList(ABANDONED_INSTANCES, new MapSqlParameterSource()
+                .addValue("before", before)
+                .addValue("limit", limit), Long.class);
+    }
+
+    /**
+     * Remove every staged row of the job instance
+     *
+     * @return number of rows removed
+     */
+    public int deleteJobInstance(long jobInstanceId) {
+        return jdbcTemplate.update("DELETE FROM prepayroll_staging WHERE job_instance_id = :jobInstanceId",
+                new MapSqlParameterSource().addValue("jobInstanceId", jobInstanceId));
+    }
+}
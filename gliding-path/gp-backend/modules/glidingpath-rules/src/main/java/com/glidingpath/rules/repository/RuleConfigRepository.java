@@ -2,8 +2,13 @@ package com.glidingpath.rules.repository;
 
 import com.glidingpath.rules.entity.RuleConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
 import java.util.Optional;
 
 public interface RuleConfigRepository extends JpaRepository<RuleConfig, Long> {
-    Optional<RuleConfig> findByName(String name);
+    Optional<RuleConfig> findByNameAndTenantIdIsNull(String name);
+
+    List<RuleConfig> findByTenantIdIsNull();
+
+    List<RuleConfig> findByTenantId(String tenantId);
 } 
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.glidingpath.rules.repository;
+
+/**
+ * One row of prepayroll_staging within a job instance and stage: the participant's individualId
+ * and the stage's payload (the calculation id for CALCULATED rows, null for ELIGIBLE rows).
+ */
+public record StagedItem(
+        String individualId,
+        String payload) {
+}
@@ -0,0 +1,31 @@
+package com.glidingpath.rules.repository;
+
+import java.util.Collections;
+
+/**
+ * The VALUES list of a set-based statement: one parenthesised row of placeholders per item.
+ * The casts go on every row, since PostgreSQL types an untyped VALUES column as text.
+ */
+final class ValuesList {
+
+    // PostgreSQL accepts at most 65535 bind parameters per statement
+    static final int MAX_PARAMETERS = 65535;
+
+    private ValuesList() {
+    }
+
+    /**
+     * @param rows number of rows
+     * @param row  one row, e.g. {@code (CAST(? AS VARCHAR), CAST(? AS BOOLEAN))}
+     */
+    static String of(int rows, String row) {
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+
+    /**
+     * Rows that fit in one statement with the given parameters per row plus the statement's other parameters
+     */
+    static int maxRows(int parametersPerRow, int otherParameters) {
+        return (MAX_PARAMETERS - otherParameters) / parametersPerRow;
+    }
+}
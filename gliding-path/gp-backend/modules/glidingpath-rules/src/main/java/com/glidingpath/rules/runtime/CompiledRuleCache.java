@@ -0,0 +1,147 @@
+package com.glidingpath.rules.runtime;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieModule;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.entity.RuleConfig;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * On-disk cache of compiled rule KJARs, keyed by a SHA-256 of the rules_config rows.
+ *
+ * The hash covers every (name, rule_content, last_updated) tuple, so any edit to a rule
+ * produces a new key. A hit loads the prebuilt executable-model KJAR straight into the
+ * KieRepository and skips DRL parsing and code generation entirely.
+ */
+@Slf4j
+@Component
+public class CompiledRuleCache {
+
+    private static final String KJAR_SUFFIX = ".jar";
+
+    private final boolean enabled;
+    private final Path cacheDir;
+
+    public CompiledRuleCache(@Value("${rules.runtime.cache.enabled:true}") boolean enabled,
+                             @Value("${rules.runtime.cache.dir:${java.io.tmpdir}/glidingpath-rules-cache}") String cacheDir) {
+        this.enabled = enabled;
+        this.cacheDir = Paths.get(cacheDir);
+    }
+
+    /**
+     * Stable content hash of the rule rows, independent of the order they were loaded in
+     */
+    public String contentHash(List<RuleConfig> allRules) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            allRules.stream()
+                    .sorted(Comparator.comparing(RuleConfig::getName, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .forEach(rule -> {
+                        update(digest, rule.getName());
+                        update(digest, rule.getRuleContent());
+                        update(digest, rule.getLastUpdated() != null ? rule.getLastUpdated().toString() : null);
+                    });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Load the KJAR cached for this hash into a new container, if there is one
+     */
+    public Optional<KieContainer> load(String contentHash) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Path kjar = kjarPath(contentHash);
+        if (!Files.isRegularFile(kjar)) {
+            log.info("Compiled rule cache miss for hash {}", contentHash);
+            return Optional.empty();
+        }
+
+        try {
+            KieServices kieServices = KieServices.get();
+            byte[] bytes = Files.readAllBytes(kjar);
+            KieModule kieModule = kieServices.getRepository()
+                    .addKieModule(kieServices.getResources().newByteArrayResource(bytes));
+            KieContainer container = kieServices.newKieContainer(kieModule.getReleaseId());
+            log.info("Compiled rule cache hit for hash {} ({} bytes)", contentHash, bytes.length);
+            return Optional.of(container);
+        } catch (Exception e) {
+            // A corrupt or incompatible entry must never block startup; rebuild instead
+            log.warn("Failed to load cached rule KJAR {}, rebuilding", kjar, e);
+            deleteQuietly(kjar);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write the KJAR behind a freshly built container to the cache
+     */
+    public void store(String contentHash, KieContainer container) {
+        if (!enabled) {
+            return;
+        }
+        Path kjar = kjarPath(contentHash);
+        try {
+            KieModule kieModule = KieServices.get().getRepository().getKieModule(container.getReleaseId());
+            if (!(kieModule instanceof InternalKieModule internalKieModule)) {
+                log.warn("Cannot cache rule set {}: unexpected module type {}", contentHash,
+                        kieModule != null ? kieModule.getClass().getName() : null);
+                return;
+            }
+
+            Files.createDirectories(cacheDir);
+            // Write to a temp file and move it into place so readers never see a partial KJAR
+            Path tmp = Files.createTempFile(cacheDir, contentHash, ".tmp");
+            Files.write(tmp, internalKieModule.getBytes());
+            Files.move(tmp, kjar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Stored compiled rule set {} in cache {}", contentHash, cacheDir);
+        } catch (Exception e) {
+            log.warn("Failed to store compiled rule set {} in cache {}", contentHash, cacheDir, e);
+        }
+    }
+
+    private Path kjarPath(String contentHash) {
+        return cacheDir.resolve(contentHash + KJAR_SUFFIX);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab","c") and ("a","bc") from hashing the same
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not delete {}", path, e);
+        }
+    }
+}
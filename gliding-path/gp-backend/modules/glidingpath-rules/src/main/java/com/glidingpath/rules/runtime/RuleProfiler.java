@@ -0,0 +1,228 @@
+package com.glidingpath.rules.runtime;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional per-rule profiling of Drools sessions.
+ *
+ * When enabled, every session the evaluators create gets agenda and rule runtime listeners that
+ * count matches, firings and time spent in the consequence per rule name and rule set version.
+ * When disabled, {@link #attach} is a single volatile read and sessions run without listeners.
+ * Totals are published to Micrometer as drools.rule.matches, drools.rule.fired and drools.rule.fire.time.
+ *
+ * Only versions the {@link RuleRuntimeHolder} still holds are profiled: a version is tracked when it is
+ * compiled and forgotten, with its meters, when it leaves the history, candidate slot or tenant cache.
+ */
+@Slf4j
+@Component
+public class RuleProfiler {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, VersionStats> versions = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+
+    public RuleProfiler(ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${rules.profiling.enabled:false}") boolean enabled) {
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        log.info("Drools rule profiling {}", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Attach profiling listeners to a fresh session if profiling is on
+     */
+    public void attach(StatelessKieSession session, long ruleSetVersion) {
+        if (!enabled) {
+            return;
+        }
+        VersionStats versionStats = versions.get(ruleSetVersion);
+        if (versionStats == null) {
+            // Already released; a straggling session is not worth new meters
+            return;
+        }
+        SessionListener listener = new SessionListener(versionStats);
+        session.addEventListener(listener.agenda);
+        session.addEventListener(listener.runtime);
+    }
+
+    /**
+     * Start collecting for a newly compiled version
+     */
+    void track(long ruleSetVersion) {
+        versions.putIfAbsent(ruleSetVersion, new VersionStats(ruleSetVersion));
+    }
+
+    /**
+     * Drop the stats and meters of a version that is no longer held anywhere
+     */
+    void forget(long ruleSetVersion) {
+        VersionStats versionStats = versions.remove(ruleSetVersion);
+        if (versionStats != null) {
+            versionStats.retire();
+        }
+    }
+
+    /**
+     * Profile per rule and rule set version, slowest cumulative time first
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> rules = new ArrayList<>();
+        versions.values().stream()
+                .flatMap(versionStats -> versionStats.rules.values().stream())
+                .sorted(Comparator.comparingLong((RuleStats ruleStats) -> ruleStats.nanos.sum()).reversed())
+                .forEach(ruleStats -> {
+                    long fired = ruleStats.fired.sum();
+                    long nanos = ruleStats.nanos.sum();
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("ruleSetVersion", ruleStats.version.ruleSetVersion);
+                    entry.put("rule", ruleStats.ruleName);
+                    entry.put("matches", ruleStats.matches.sum());
+                    entry.put("fired", fired);
+                    entry.put("totalTimeMs", nanos / 1_000_000.0);
+                    entry.put("avgTimeMicros", fired > 0 ? nanos / 1_000.0 / fired : 0);
+                    entry.put("factsInserted", ruleStats.version.factsInserted.sum());
+                    rules.add(entry);
+                });
+        return rules;
+    }
+
+    /**
+     * Stats of one version; rules and their meters are added on first firing and removed together on retire
+     */
+    private final class VersionStats {
+        private final long ruleSetVersion;
+        private final Map<String, RuleStats> rules = new ConcurrentHashMap<>();
+        private final LongAdder factsInserted = new LongAdder();
+        // Guarded by this, with the meter registration, so no meter is added after retire
+        private boolean retired;
+
+        private VersionStats(long ruleSetVersion) {
+            this.ruleSetVersion = ruleSetVersion;
+        }
+
+        private RuleStats statsFor(String ruleName) {
+            RuleStats ruleStats = rules.get(ruleName);
+            return ruleStats != null ? ruleStats : register(ruleName);
+        }
+
+        private synchronized RuleStats register(String ruleName) {
+            RuleStats ruleStats = rules.get(ruleName);
+            if (ruleStats != null) {
+                return ruleStats;
+            }
+            ruleStats = new RuleStats(this, ruleName);
+            if (meterRegistry != null && !retired) {
+                String version = Long.toString(ruleSetVersion);
+                ruleStats.meters.add(FunctionCounter.builder("drools.rule.matches", ruleStats, s -> s.matches.sum())
+                        .description("Matches created per Drools rule")
+                        .tag("rule", ruleName)
+                        .tag("ruleSetVersion", version)
+                        .register(meterRegistry));
+                ruleStats.meters.add(FunctionCounter.builder("drools.rule.fired", ruleStats, s -> s.fired.sum())
+                        .description("Firings per Drools rule")
+                        .tag("rule", ruleName)
+                        .tag("ruleSetVersion", version)
+                        .register(meterRegistry));
+                ruleStats.meters.add(FunctionTimer.builder("drools.rule.fire.time", ruleStats, s -> s.fired.sum(), s -> s.nanos.sum(), TimeUnit.NANOSECONDS)
+                        .description("Time spent in Drools rule consequences")
+                        .tag("rule", ruleName)
+                        .tag("ruleSetVersion", version)
+                        .register(meterRegistry));
+            }
+            rules.put(ruleName, ruleStats);
+            return ruleStats;
+        }
+
+        private synchronized void retire() {
+            retired = true;
+            if (meterRegistry != null) {
+                rules.values().forEach(ruleStats -> ruleStats.meters.forEach(meterRegistry::remove));
+            }
+        }
+    }
+
+    private static final class RuleStats {
+        private final VersionStats version;
+        private final String ruleName;
+        private final List<Meter> meters = new ArrayList<>(3);
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder fired = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private RuleStats(VersionStats version, String ruleName) {
+            this.version = version;
+            this.ruleName = ruleName;
+        }
+    }
+
+    /**
+     * Listeners for one session; a stateless session fires its rules on one thread, one at a time
+     */
+    private final class SessionListener {
+        private final VersionStats versionStats;
+        private long fireStart;
+
+        private final DefaultAgendaEventListener agenda = new DefaultAgendaEventListener() {
+            @Override
+            public void matchCreated(MatchCreatedEvent event) {
+                versionStats.statsFor(event.getMatch().getRule().getName()).matches.increment();
+            }
+
+            @Override
+            public void beforeMatchFired(BeforeMatchFiredEvent event) {
+                fireStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterMatchFired(AfterMatchFiredEvent event) {
+                RuleStats ruleStats = versionStats.statsFor(event.getMatch().getRule().getName());
+                ruleStats.fired.increment();
+                ruleStats.nanos.add(System.nanoTime() - fireStart);
+            }
+        };
+
+        private final DefaultRuleRuntimeEventListener runtime = new DefaultRuleRuntimeEventListener() {
+            @Override
+            public void objectInserted(ObjectInsertedEvent event) {
+                versionStats.factsInserted.increment();
+            }
+        };
+
+        private SessionListener(VersionStats versionStats) {
+            this.versionStats = versionStats;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.glidingpath.rules.runtime;
+
+/**
+ * A reload or candidate build was refused because the rule reload executor is already busy
+ * compiling one and has one more queued.
+ */
+public class RuleReloadInProgressException extends IllegalStateException {
+
+    public RuleReloadInProgressException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,312 @@
+package com.glidingpath.rules.runtime;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.kie.api.KieServices;
+import org.kie.api.runtime.KieContainer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.config.DroolsConfig;
+import com.glidingpath.rules.entity.RuleConfig;
+import com.glidingpath.rules.repository.RuleConfigRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the active compiled rule set and the last few versions before it.
+ *
+ * Reloads compile on the rule reload executor, validate the result and then publish it
+ * with a single reference swap. Callers read {@link #current()} once per evaluation and
+ * keep using that snapshot, so evaluations already running finish on the old KieBase.
+ * Retained versions make a rollback a pointer swap instead of a recompile.
+ *
+ * A staged candidate rule set is compiled the same way but not published; it only runs in
+ * shadow next to the active one until it is promoted or discarded.
+ *
+ * Each compiled version installs a KieModule named after its content hash in the KieRepository.
+ * The module is removed once no retained version, candidate or tenant rule set of that hash is
+ * left; containers already handed out keep working on the module they were built from.
+ */
+@Slf4j
+@Component
+public class RuleRuntimeHolder {
+
+    private final DroolsConfig droolsConfig;
+    private final RuleConfigRepository ruleConfigRepository;
+    private final CompiledRuleCache compiledRuleCache;
+    private final RuleProfiler ruleProfiler;
+    private final ThreadPoolTaskExecutor ruleReloadExecutor;
+    private final int historySize;
+
+    private final AtomicReference<RuleSetVersion> active = new AtomicReference<>();
+    private final AtomicReference<RuleSetVersion> candidate = new AtomicReference<>();
+    private final AtomicLong versionSequence = new AtomicLong(0);
+    private final Deque<RuleSetVersion> history = new ArrayDeque<>();
+    // Live versions per content hash, guarded by itself; the hash's KieModule is removed at zero
+    private final Map<String, Integer> moduleReferences = new HashMap<>();
+
+    public RuleRuntimeHolder(DroolsConfig droolsConfig,
+                             RuleConfigRepository ruleConfigRepository,
+                             CompiledRuleCache compiledRuleCache,
+                             RuleProfiler ruleProfiler,
+                             @Qualifier("ruleReloadExecutor") ThreadPoolTaskExecutor ruleReloadExecutor,
+                             @Value("${rules.runtime.history-size:5}") int historySize) {
+        this.droolsConfig = droolsConfig;
+        this.ruleConfigRepository = ruleConfigRepository;
+        this.compiledRuleCache = compiledRuleCache;
+        this.ruleProfiler = ruleProfiler;
+        this.ruleReloadExecutor = ruleReloadExecutor;
+        this.historySize = Math.max(1, historySize);
+    }
+
+    /**
+     * Build the boot rule set synchronously so the application still fails fast on bad rules
+     */
+    @PostConstruct
+    public void init() {
+        RuleSetVersion initial = compile();
+        publish(initial);
+    }
+
+    /**
+     * The rule set new evaluations should run against
+     */
+    public RuleSetVersion current() {
+        RuleSetVersion version = active.get();
+        if (version == null) {
+            throw new IllegalStateException("No rule set has been published yet");
+        }
+        return version;
+    }
+
+    /**
+     * Compile the current rules_config rows off the calling thread and publish them
+     * if they build and validate. The active rule set is untouched on failure.
+     */
+    public CompletableFuture<RuleSetVersion> reload() {
+        return submit(this::compile).thenApply(this::publish);
+    }
+
+    /**
+     * Compile the current rules_config rows as a candidate without publishing them
+     */
+    public CompletableFuture<RuleSetVersion> stageCandidate() {
+        return submit(this::compile)
+                .thenApply(staged -> {
+                    RuleSetVersion previous = candidate.getAndSet(staged);
+                    log.info("Staged candidate rule set version {} (replaced candidate: {})",
+                            staged.getVersion(), previous != null ? previous.getVersion() : "none");
+                    if (previous != null) {
+                        release(previous);
+                    }
+                    return staged;
+                });
+    }
+
+    /**
+     * Run a compile on the reload executor; a full executor fails the future with
+     * {@link RuleReloadInProgressException} instead of throwing on the caller's thread
+     */
+    private CompletableFuture<RuleSetVersion> submit(Supplier<RuleSetVersion> compile) {
+        try {
+            return CompletableFuture.supplyAsync(compile, ruleReloadExecutor);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.failedFuture(
+                    new RuleReloadInProgressException("A rule reload is already in progress, try again once it has finished", e));
+        }
+    }
+
+    /**
+     * The staged candidate, if any
+     */
+    public Optional<RuleSetVersion> candidate() {
+        return Optional.ofNullable(candidate.get());
+    }
+
+    /**
+     * Make the staged candidate the active rule set
+     */
+    public synchronized RuleSetVersion promoteCandidate() {
+        RuleSetVersion promoted = candidate.getAndSet(null);
+        if (promoted == null) {
+            throw new IllegalStateException("No candidate rule set is staged");
+        }
+        RuleSetVersion previous = active.getAndSet(promoted);
+        retain(promoted);
+        log.info("Promoted candidate rule set version {} (previous: {})",
+                promoted.getVersion(), previous != null ? previous.getVersion() : "none");
+        return promoted;
+    }
+
+    /**
+     * Drop the staged candidate without activating it
+     */
+    public Optional<RuleSetVersion> discardCandidate() {
+        RuleSetVersion discarded = candidate.getAndSet(null);
+        if (discarded != null) {
+            log.info("Discarded candidate rule set version {}", discarded.getVersion());
+            release(discarded);
+        }
+        return Optional.ofNullable(discarded);
+    }
+
+    /**
+     * Re-activate a retained version without recompiling
+     */
+    public synchronized RuleSetVersion rollback(long version) {
+        RuleSetVersion target = history.stream()
+                .filter(v -> v.getVersion() == version)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Rule set version " + version + " is not retained (retained: " + retainedVersionNumbers() + ")"));
+
+        RuleSetVersion previous = active.getAndSet(target);
+        log.info("Rolled back rule set from version {} to version {}",
+                previous != null ? previous.getVersion() : null, target.getVersion());
+        return target;
+    }
+
+    /**
+     * Retained versions, newest first. The active version is always among them.
+     */
+    public synchronized List<RuleSetVersion> retainedVersions() {
+        return new ArrayList<>(history);
+    }
+
+    private RuleSetVersion compile() {
+        return compile(ruleConfigRepository.findByTenantIdIsNull());
+    }
+
+    /**
+     * Compile (or load from the on-disk cache) the given rule rows as a new version.
+     * Also used by {@link TenantRuleResolver} for tenant rule sets, so versions stay unique across both.
+     */
+    RuleSetVersion compile(List<RuleConfig> allRules) {
+        long version = versionSequence.incrementAndGet();
+        long start = System.currentTimeMillis();
+
+        String contentHash = compiledRuleCache.contentHash(allRules);
+        List<String> ruleNames = allRules.stream().map(RuleConfig::getName).toList();
+        boolean standardEligibility = StandardRuleShapes.isStandardEligibility(allRules);
+        boolean standardCalculation = StandardRuleShapes.isStandardCalculation(allRules);
+
+        // Prefer the prebuilt KJAR for identical rule content; only compile on a miss
+        KieContainer container = compiledRuleCache.load(contentHash).orElse(null);
+        boolean cacheHit = container != null;
+        if (!cacheHit) {
+            container = droolsConfig.buildKieContainer(allRules, contentHash);
+        }
+
+        try {
+            validate(container, ruleNames, version);
+        } catch (RuntimeException e) {
+            removeModuleIfUnused(contentHash, container);
+            throw e;
+        }
+        synchronized (moduleReferences) {
+            moduleReferences.merge(contentHash, 1, Integer::sum);
+        }
+        if (!cacheHit) {
+            compiledRuleCache.store(contentHash, container);
+        }
+        ruleProfiler.track(version);
+
+        log.info("{} rule set version {} ({} rule sets, hash {}, standard eligibility: {}, standard calculation: {}) in {}ms",
+                cacheHit ? "Loaded cached" : "Compiled", version, ruleNames.size(), contentHash,
+                standardEligibility, standardCalculation, System.currentTimeMillis() - start);
+        return new RuleSetVersion(version, contentHash, container, ruleNames, List.copyOf(allRules),
+                standardEligibility, standardCalculation, LocalDateTime.now());
+    }
+
+    /**
+     * Make sure every configured rule set exposes the stateless session the evaluators ask for
+     */
+    private void validate(KieContainer container, List<String> ruleNames, long version) {
+        for (String ruleName : ruleNames) {
+            String sessionName = "ksession-" + ruleName;
+            try {
+                container.newStatelessKieSession(sessionName);
+            } catch (Exception e) {
+                throw new IllegalStateException("Rule set version " + version + " is missing session " + sessionName, e);
+            }
+        }
+    }
+
+    private synchronized RuleSetVersion publish(RuleSetVersion candidate) {
+        RuleSetVersion current = active.get();
+        if (current != null && current.getVersion() > candidate.getVersion()) {
+            // A newer reload finished first; keep it and retain this one for rollback only
+            log.warn("Discarding publish of rule set version {} because version {} is already active",
+                    candidate.getVersion(), current.getVersion());
+            retain(candidate);
+            return current;
+        }
+
+        active.set(candidate);
+        retain(candidate);
+        log.info("Published rule set version {} (previous: {})",
+                candidate.getVersion(), current != null ? current.getVersion() : "none");
+        return candidate;
+    }
+
+    private void retain(RuleSetVersion version) {
+        history.addFirst(version);
+        // Evicted containers are only dropped, never disposed: an evaluation that
+        // captured one before the swap may still be using it.
+        RuleSetVersion activeVersion = active.get();
+        var oldestFirst = history.descendingIterator();
+        while (history.size() > historySize && oldestFirst.hasNext()) {
+            RuleSetVersion candidate = oldestFirst.next();
+            if (candidate != activeVersion) {
+                oldestFirst.remove();
+                log.debug("Evicted rule set version {} from history", candidate.getVersion());
+                release(candidate);
+            }
+        }
+    }
+
+    /**
+     * A compiled version is no longer retained anywhere; removes its KieModule from the
+     * KieRepository when it was the last live version of its content hash, and drops its profiling
+     * stats and meters. Also called by
+     * {@link TenantRuleResolver} for the tenant rule sets it drops.
+     */
+    void release(RuleSetVersion version) {
+        ruleProfiler.forget(version.getVersion());
+        synchronized (moduleReferences) {
+            Integer remaining = moduleReferences.computeIfPresent(version.getContentHash(), (hash, count) -> count > 1 ? count - 1 : null);
+            if (remaining == null) {
+                removeModuleIfUnused(version.getContentHash(), version.getKieContainer());
+            }
+        }
+    }
+
+    private void removeModuleIfUnused(String contentHash, KieContainer container) {
+        synchronized (moduleReferences) {
+            if (!moduleReferences.containsKey(contentHash)) {
+                KieServices.get().getRepository().removeKieModule(container.getReleaseId());
+                log.debug("Removed KieModule {} from the KieRepository", container.getReleaseId());
+            }
+        }
+    }
+
+    private List<Long> retainedVersionNumbers() {
+        return history.stream().map(RuleSetVersion::getVersion).toList();
+    }
+}
@@ -0,0 +1,38 @@
+package com.glidingpath.rules.runtime;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.kie.api.runtime.KieContainer;
+
+import com.glidingpath.rules.entity.RuleConfig;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Immutable snapshot of one compiled rule set.
+ *
+ * Evaluations capture a RuleSetVersion once and run entirely against its container,
+ * so a concurrent swap never changes the rules underneath a running evaluation.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RuleSetVersion {
+    private final long version;
+    private final String contentHash;
+    private final KieContainer kieContainer;
+    private final List<String> ruleNames;
+    // The rules_config rows compiled into this version; tenant overrides are merged onto these
+    private final List<RuleConfig> rules;
+    // True when the eligibility rules are the shipped standard set and may use the Java fast path
+    private final boolean standardEligibility;
+    // True when the pre-payroll calculation rules are the shipped standard set and may use the bulk engine
+    private final boolean standardCalculation;
+    private final LocalDateTime loadedAt;
+
+    @Override
+    public String toString() {
+        return "RuleSetVersion{version=" + version + ", contentHash=" + contentHash + ", rules=" + ruleNames + ", loadedAt=" + loadedAt + "}";
+    }
+}
@@ -0,0 +1,77 @@
+package com.glidingpath.rules.runtime;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.glidingpath.rules.entity.RuleConfig;
+
+/**
+ * Recognises rule rows that are exactly one of the rule sets shipped with the application,
+ * so evaluators can use an equivalent Java implementation instead of a Drools session.
+ *
+ * Content is compared after dropping comments and collapsing whitespace, so reformatting
+ * a rule keeps it recognised while any change to a condition or action does not.
+ *
+ * Every row is compiled into every KieBase (all of them are in package rules), so a rule set
+ * only counts as standard when all of its rows are shipped rule sets: an extra global row or a
+ * tenant row under another name adds rules to the eligibility and calculation sessions too.
+ */
+final class StandardRuleShapes {
+
+    static final String ELIGIBILITY_RULE_NAME = "eligibility";
+    static final String CALCULATION_RULE_NAME = "prepayroll";
+
+    private static final String STANDARD_ELIGIBILITY = normalize(readResource("rules/standard/eligibility.drl"));
+    private static final String STANDARD_CALCULATION = normalize(readResource("rules/standard/prepayroll.drl"));
+    private static final Map<String, String> SHIPPED = Map.of(
+            ELIGIBILITY_RULE_NAME, STANDARD_ELIGIBILITY,
+            CALCULATION_RULE_NAME, STANDARD_CALCULATION);
+
+    private StandardRuleShapes() {
+    }
+
+    static boolean isStandardEligibility(List<RuleConfig> allRules) {
+        return isStandard(allRules, ELIGIBILITY_RULE_NAME, STANDARD_ELIGIBILITY);
+    }
+
+    static boolean isStandardCalculation(List<RuleConfig> allRules) {
+        return isStandard(allRules, CALCULATION_RULE_NAME, STANDARD_CALCULATION);
+    }
+
+    private static boolean isStandard(List<RuleConfig> allRules, String ruleName, String standardContent) {
+        boolean present = allRules.stream()
+                .anyMatch(rule -> ruleName.equals(rule.getName()) && standardContent.equals(normalize(rule.getRuleContent())));
+        return present && allRules.stream().allMatch(StandardRuleShapes::isShipped);
+    }
+
+    /**
+     * The row is one of the shipped rule sets, unchanged
+     */
+    private static boolean isShipped(RuleConfig rule) {
+        String shipped = SHIPPED.get(rule.getName());
+        return shipped != null && shipped.equals(normalize(rule.getRuleContent()));
+    }
+
+    private static String normalize(String drl) {
+        if (drl == null) {
+            return "";
+        }
+        return drl.replaceAll("(?m)^\\s*//.*$", "")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static String readResource(String path) {
+        try (InputStream in = StandardRuleShapes.class.getClassLoader().getResourceAsStream(path)) {
+            Objects.requireNonNull(in, "Missing classpath resource " + path);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path, e);
+        }
+    }
+}
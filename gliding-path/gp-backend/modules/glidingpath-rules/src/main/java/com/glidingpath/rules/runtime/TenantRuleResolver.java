@@ -0,0 +1,206 @@
+package com.glidingpath.rules.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.rules.entity.RuleConfig;
+import com.glidingpath.rules.repository.RuleConfigRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Resolves the rule set a tenant's evaluations should run against.
+ *
+ * Tenants with rows in rules_config get their own KieBase: the global rows with the tenant's
+ * rows replacing those of the same name. Tenant rule sets are compiled lazily on first use,
+ * at most once per tenant at a time (concurrent callers wait for the same build), and kept in
+ * a size-bounded LRU. Overrides are merged onto the rows of the active global version, not the
+ * current global rows in the table, and entries are rebuilt after a global reload or rollback, so
+ * they always sit on top of the live global rules. Each entry also keeps a hash of the tenant's
+ * rows; the rows are read again at most every rules.runtime.tenant-cache.recheck-seconds, and an
+ * entry whose rows changed (edited, added or removed) is rebuilt. Tenants without overrides
+ * resolve to the global rule set.
+ */
+@Slf4j
+@Component
+public class TenantRuleResolver {
+
+    private final RuleRuntimeHolder ruleRuntimeHolder;
+    private final RuleConfigRepository ruleConfigRepository;
+    private final CompiledRuleCache compiledRuleCache;
+    private final int maxSize;
+    private final long recheckNanos;
+
+    // Access-ordered, guarded by this; values complete once the tenant's rule set is built
+    private final Map<String, CompletableFuture<TenantRuleSet>> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TenantRuleResolver(RuleRuntimeHolder ruleRuntimeHolder,
+                              RuleConfigRepository ruleConfigRepository,
+                              CompiledRuleCache compiledRuleCache,
+                              @Value("${rules.runtime.tenant-cache.max-size:50}") int maxSize,
+                              @Value("${rules.runtime.tenant-cache.recheck-seconds:30}") long recheckSeconds) {
+        this.ruleRuntimeHolder = ruleRuntimeHolder;
+        this.ruleConfigRepository = ruleConfigRepository;
+        this.compiledRuleCache = compiledRuleCache;
+        this.maxSize = Math.max(1, maxSize);
+        this.recheckNanos = TimeUnit.SECONDS.toNanos(Math.max(0, recheckSeconds));
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<TenantRuleSet>> eldest) {
+                if (size() > TenantRuleResolver.this.maxSize) {
+                    evictions.incrementAndGet();
+                    // Containers are only dropped, never disposed: an evaluation may still hold one
+                    log.debug("Evicted tenant rule set for tenant {}", eldest.getKey());
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The rule set for this tenant: its override rule set if it has one, otherwise the global one
+     */
+    public RuleSetVersion resolve(String tenantId) {
+        RuleSetVersion global = ruleRuntimeHolder.current();
+        if (tenantId == null) {
+            return global;
+        }
+
+        while (true) {
+            CompletableFuture<TenantRuleSet> entry;
+            boolean builder = false;
+            synchronized (this) {
+                entry = cache.get(tenantId);
+                if (entry != null && isStale(entry, global)) {
+                    cache.remove(tenantId);
+                    release(entry);
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = new CompletableFuture<>();
+                    cache.put(tenantId, entry);
+                    builder = true;
+                    misses.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
+                }
+            }
+
+            if (builder) {
+                build(tenantId, global, entry);
+            }
+
+            TenantRuleSet ruleSet = entry.join();
+            // The tenant's rows are read outside the lock, by one caller per interval
+            if (ruleSet.dueForRecheck(recheckNanos) && tenantRowsChanged(tenantId, ruleSet)) {
+                log.info("Rules of tenant {} changed, rebuilding its rule set", tenantId);
+                synchronized (this) {
+                    if (cache.remove(tenantId, entry)) {
+                        release(entry);
+                    }
+                }
+                continue;
+            }
+            return ruleSet.override() != null ? ruleSet.override() : global;
+        }
+    }
+
+    /**
+     * Cache counters and size, for measuring the memory and latency cost of tenant rule sets
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", cache.size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    private void build(String tenantId, RuleSetVersion global, CompletableFuture<TenantRuleSet> entry) {
+        try {
+            List<RuleConfig> tenantRules = ruleConfigRepository.findByTenantId(tenantId);
+            String tenantRowsHash = compiledRuleCache.contentHash(tenantRules);
+            if (tenantRules.isEmpty()) {
+                entry.complete(new TenantRuleSet(global.getVersion(), tenantRowsHash, null));
+                return;
+            }
+
+            Map<String, RuleConfig> merged = new LinkedHashMap<>();
+            global.getRules().forEach(rule -> merged.put(rule.getName(), rule));
+            tenantRules.forEach(rule -> merged.put(rule.getName(), rule));
+
+            log.info("Building tenant rule set for tenant {} ({} overrides on top of global version {})",
+                    tenantId, tenantRules.size(), global.getVersion());
+            RuleSetVersion override = ruleRuntimeHolder.compile(List.copyOf(merged.values()));
+            entry.complete(new TenantRuleSet(global.getVersion(), tenantRowsHash, override));
+        } catch (Exception e) {
+            log.error("Failed to build tenant rule set for tenant {}", tenantId, e);
+            // Drop the failed entry so the next caller retries instead of failing forever
+            synchronized (this) {
+                cache.remove(tenantId, entry);
+            }
+            entry.completeExceptionally(new IllegalStateException("Failed to build rule set for tenant " + tenantId, e));
+        }
+    }
+
+    /**
+     * Let the runtime holder drop the KieModule of a tenant rule set that is no longer cached
+     */
+    private void release(CompletableFuture<TenantRuleSet> entry) {
+        if (entry.isDone() && !entry.isCompletedExceptionally() && entry.join().override() != null) {
+            ruleRuntimeHolder.release(entry.join().override());
+        }
+    }
+
+    private boolean isStale(CompletableFuture<TenantRuleSet> entry, RuleSetVersion global) {
+        // An in-flight build is joined as is; it was started against a global version that was current then
+        return entry.isDone() && !entry.isCompletedExceptionally()
+                && entry.join().globalVersion() != global.getVersion();
+    }
+
+    private boolean tenantRowsChanged(String tenantId, TenantRuleSet ruleSet) {
+        try {
+            return !compiledRuleCache.contentHash(ruleConfigRepository.findByTenantId(tenantId)).equals(ruleSet.tenantRowsHash());
+        } catch (Exception e) {
+            // Keep the cached rule set; the rows are compared again after the next interval
+            log.warn("Could not check the rules of tenant {} for changes: {}", tenantId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Resolved rule set of one tenant: the global version and tenant rows it was built from, and
+     * when the rows were last compared with the table; override is null when the tenant has no
+     * rows of its own
+     */
+    private record TenantRuleSet(long globalVersion, String tenantRowsHash, RuleSetVersion override, AtomicLong checkedAt) {
+
+        TenantRuleSet(long globalVersion, String tenantRowsHash, RuleSetVersion override) {
+            this(globalVersion, tenantRowsHash, override, new AtomicLong(System.nanoTime()));
+        }
+
+        /**
+         * True for one caller once the interval since the last check has passed
+         */
+        boolean dueForRecheck(long intervalNanos) {
+            long last = checkedAt.get();
+            long now = System.nanoTime();
+            return now - last >= intervalNanos && checkedAt.compareAndSet(last, now);
+        }
+    }
+}
@@ -21,6 +21,18 @@ public interface PrePayrollBatchService {
      */
     String processPayrollBatch(String tenantId, LocalDate payrollPeriodStart, LocalDate payrollPeriodEnd);
 
+    /**
+     * Launch the complete pre-payroll Spring Batch job, once per idempotency key: while a job
+     * launched with the same key runs, its execution is reported instead of starting another
+     * 
+     * @param tenantId The tenant ID for the batch job
+     * @param payrollPeriodStart Start date of the payroll period
+     * @param payrollPeriodEnd End date of the payroll period
+     * @param idempotencyKey Key of the request; null for the tenant and payroll period
+     * @return Job execution status message
+     */
+    String processPayrollBatch(String tenantId, LocalDate payrollPeriodStart, LocalDate payrollPeriodEnd, String idempotencyKey);
+
     /**
      * Launch the complete pre-payroll Spring Batch job asynchronously
      * 
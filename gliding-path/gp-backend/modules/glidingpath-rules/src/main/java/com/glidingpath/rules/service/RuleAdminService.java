@@ -1,7 +1,59 @@
 package com.glidingpath.rules.service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 public interface RuleAdminService {
 
-	String reloadRules() throws Exception;
+	/**
+	 * Compile rules_config off the request thread and atomically publish the result
+	 */
+	CompletableFuture<String> reloadRules();
+
+	/**
+	 * Re-activate a previously published rule set version that is still retained in memory
+	 */
+	String rollbackRules(long version);
+
+	/**
+	 * Retained rule set versions, newest first, with the active one flagged
+	 */
+	List<Map<String, Object>> getRuleVersions();
+
+	/**
+	 * Size and hit/miss/eviction counts of the tenant rule set cache
+	 */
+	Map<String, Object> getTenantRuleCacheStats();
+
+	/**
+	 * Per-rule match/fire counts and consequence time, slowest first
+	 */
+	Map<String, Object> getRuleProfile();
+
+	/**
+	 * Switch per-rule profiling of Drools sessions on or off
+	 */
+	Map<String, Object> setRuleProfiling(boolean enabled);
+
+	/**
+	 * Compile rules_config as a candidate that runs in shadow next to the active rule set
+	 */
+	CompletableFuture<String> stageCandidateRules();
+
+	/**
+	 * Divergences and latency of the candidate compared with the active rule set
+	 */
+	Map<String, Object> getCandidateReport();
+
+	/**
+	 * Make the staged candidate the active rule set
+	 */
+	String promoteCandidateRules();
+
+	/**
+	 * Drop the staged candidate
+	 */
+	String discardCandidateRules();
 
 }
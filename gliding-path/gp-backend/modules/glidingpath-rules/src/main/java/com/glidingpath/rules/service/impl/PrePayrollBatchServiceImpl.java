@@ -1,22 +1,23 @@
 package com.glidingpath.rules.service.impl;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.core.JobInstance;
-import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import com.glidingpath.rules.contributions.lock.TenantJobLock;
+import com.glidingpath.rules.repository.BatchTenantLock;
 import com.glidingpath.rules.service.PrePayrollBatchService;
 
+import constants.BatchConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -26,6 +27,10 @@ import lombok.extern.slf4j.Slf4j;
  * This service prevents multiple jobs from running simultaneously for the same tenant.
  * All orchestration, step management, and error handling is handled by Spring Batch itself.
  * 
+ * A launch first takes the tenant's lock (TenantJobLock, one indexed row per tenant) and the job's
+ * listener releases it when the job ends. A launch with the same idempotency key as the one holding
+ * the lock joins that execution instead of failing; the key defaults to the tenant and payroll period.
+ * 
  * SPRING BATCH-ONLY WORKFLOW:
  * 1. Complete pre-payroll processing: Use this batch service (3 steps: eligibility -> calculation -> deductions)
  * 2. Individual eligibility queries: Use direct database queries for eligibility status
@@ -43,9 +48,11 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PrePayrollBatchServiceImpl implements PrePayrollBatchService {
 
+    private static final String JOB_NAME = "prePayrollJob";
+
     // Spring Batch components - injected by Spring
     private final JobLauncher jobLauncher;
-    private final JobExplorer jobExplorer;
+    private final TenantJobLock tenantJobLock;
     
     // The complete pre-payroll Spring Batch job (3 steps: eligibility -> calculation -> deductions)
     // Uses properly implemented batch components with shared EligibilityProcessingUtility (no duplication)
@@ -56,28 +63,43 @@ public class PrePayrollBatchServiceImpl implements PrePayrollBatchService {
     public String processPayrollBatch(String tenantId, 
                                     LocalDate payrollPeriodStart, 
                                     LocalDate payrollPeriodEnd) {
+        return processPayrollBatch(tenantId, payrollPeriodStart, payrollPeriodEnd, null);
+    }
+
+    @Override
+    public String processPayrollBatch(String tenantId, 
+                                    LocalDate payrollPeriodStart, 
+                                    LocalDate payrollPeriodEnd,
+                                    String idempotencyKey) {
         
         log.info("Launching Spring Batch pre-payroll job for tenant: {} period: {} to {}", 
                 tenantId, payrollPeriodStart, payrollPeriodEnd);
         
+        String lockToken = null;
         try {
-            // Check if a job is already running for this tenant
-            if (isJobAlreadyRunning(tenantId)) {
-                String errorMsg = "A pre-payroll job is already running for tenant: " + tenantId + 
-                                ". Please wait for the current job to complete.";
-                log.warn(errorMsg);
-                return errorMsg;
+            String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey
+                : tenantId + ":" + payrollPeriodStart + ":" + payrollPeriodEnd;
+
+            // Take the tenant's lock, or report the launch holding it
+            Optional<String> acquired = tenantJobLock.tryAcquire(JOB_NAME, tenantId, key);
+            if (acquired.isEmpty()) {
+                return alreadyLaunched(tenantId, key);
             }
+            lockToken = acquired.get();
             
             // Create job parameters for Spring Batch
             JobParameters jobParameters = new JobParametersBuilder()
-                .addString("tenantId", tenantId)
-                .addString("payrollPeriodStart", payrollPeriodStart.toString())
-                .addString("payrollPeriodEnd", payrollPeriodEnd.toString())
-                .addLong("timestamp", System.currentTimeMillis())
+                .addString(BatchConstants.JOB_PARAM_TENANT_ID, tenantId)
+                .addString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_START, payrollPeriodStart.toString())
+                .addString(BatchConstants.JOB_PARAM_PAYROLL_PERIOD_END, payrollPeriodEnd.toString())
+                .addLong(BatchConstants.JOB_PARAM_TIMESTAMP, System.currentTimeMillis())
+                .addString(BatchConstants.JOB_PARAM_IDEMPOTENCY_KEY, key, false)
+                .addString(BatchConstants.JOB_PARAM_LOCK_TOKEN, lockToken, false)
                 .toJobParameters();
             
             // Launch the complete Spring Batch job - Spring Batch handles everything else!
+            // From here on the job's listener releases the lock
             JobExecution jobExecution = jobLauncher.run(prePayrollJob, jobParameters);
             
             log.info("Spring Batch pre-payroll job launched successfully with execution ID: {} for tenant: {}", 
@@ -87,59 +109,31 @@ public class PrePayrollBatchServiceImpl implements PrePayrollBatchService {
             
         } catch (Exception e) {
             log.error("Failed to launch Spring Batch pre-payroll job for tenant: {}", tenantId, e);
+            if (lockToken != null) {
+                // The job did not start, so no listener will release the lock
+                tenantJobLock.release(lockToken);
+            }
             return "Failed to start Spring Batch job: " + e.getMessage();
         }
     }
 
     /**
-     * Check if a pre-payroll job is already running for the given tenant
+     * Answer a launch that found the tenant's lock held: the same request joins the running
+     * execution, any other is refused
      */
-    private boolean isJobAlreadyRunning(String tenantId) {
-        try {
-            // Get all job instances for prePayrollJob
-            List<JobInstance> jobInstances = jobExplorer.getJobInstances("prePayrollJob", 0, Integer.MAX_VALUE);
-            
-            for (JobInstance jobInstance : jobInstances) {
-                // Get the latest execution for this job instance
-                JobExecution latestExecution = jobExplorer.getJobExecutions(jobInstance).stream()
-                    .max((e1, e2) -> e1.getStartTime().compareTo(e2.getStartTime()))
-                    .orElse(null);
-                
-                if (latestExecution != null) {
-                    // Check if this execution is for the same tenant and is still running
-                    String executionTenantId = latestExecution.getJobParameters().getString("tenantId");
-                    if (tenantId.equals(executionTenantId)) {
-                        // Check if the job is actually running (not just STARTED but actively processing)
-                        if (latestExecution.getStatus().isRunning() || 
-                            latestExecution.getStatus() == org.springframework.batch.core.BatchStatus.STARTING ||
-                            latestExecution.getStatus() == org.springframework.batch.core.BatchStatus.STARTED) {
-                            
-                            // Additional check: if the job has been running for more than 30 minutes, consider it stuck
-                            long runningTime = System.currentTimeMillis() - latestExecution.getStartTime().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
-                            long thirtyMinutes = 30 * 60 * 1000; // 30 minutes in milliseconds
-                            
-                            if (runningTime > thirtyMinutes) {
-                                log.warn("Found stuck pre-payroll job for tenant: {} with execution ID: {} status: {} running for {} minutes", 
-                                        tenantId, latestExecution.getId(), latestExecution.getStatus(), runningTime / (60 * 1000));
-                                // Don't block new jobs if the current one is stuck
-                                return false;
-                            }
-                            
-                            log.warn("Found running pre-payroll job for tenant: {} with execution ID: {} status: {} running for {} minutes", 
-                                    tenantId, latestExecution.getId(), latestExecution.getStatus(), runningTime / (60 * 1000));
-                            return true;
-                        }
-                    }
-                }
-            }
-            
-            return false;
-            
-        } catch (Exception e) {
-            log.error("Error checking if job is already running for tenant: {}", tenantId, e);
-            // If we can't check, assume no job is running to avoid blocking legitimate requests
-            return false;
+    private String alreadyLaunched(String tenantId, String idempotencyKey) {
+        Optional<BatchTenantLock> holder = tenantJobLock.holder(JOB_NAME, tenantId);
+        if (holder.isPresent() && idempotencyKey.equals(holder.get().idempotencyKey())) {
+            Long jobExecutionId = holder.get().jobExecutionId();
+            log.info("Pre-payroll job for tenant: {} key: {} already launched, execution ID: {}", tenantId, idempotencyKey, jobExecutionId);
+            return jobExecutionId != null
+                ? "Spring Batch job already started with ID: " + jobExecutionId
+                : "Spring Batch job is already being started for this request";
         }
+        String errorMsg = "A pre-payroll job is already running for tenant: " + tenantId + 
+                        ". Please wait for the current job to complete.";
+        log.warn(errorMsg);
+        return errorMsg;
     }
 
     @Override
@@ -1,27 +1,115 @@
 package com.glidingpath.rules.service.impl;
 
-import com.glidingpath.rules.config.DroolsConfig;
+import com.glidingpath.rules.runtime.RuleProfiler;
+import com.glidingpath.rules.runtime.RuleRuntimeHolder;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
 import com.glidingpath.rules.service.RuleAdminService;
+import com.glidingpath.rules.util.ShadowRuleEvaluator;
 import com.glidingpath.common.util.AppException;
 import com.glidingpath.common.util.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.kie.api.runtime.KieContainer;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RuleAdminServiceImpl implements RuleAdminService {
 
-    private final DroolsConfig droolsConfig;
+    private final RuleRuntimeHolder ruleRuntimeHolder;
+    private final TenantRuleResolver tenantRuleResolver;
+    private final RuleProfiler ruleProfiler;
+    private final ShadowRuleEvaluator shadowRuleEvaluator;
 
     @Override
-    public String reloadRules() throws Exception {
+    public CompletableFuture<String> reloadRules() {
         log.info("Starting rule reload process");
-            KieContainer newContainer = droolsConfig.kieContainer();
-            // If you have a static or singleton reference, update it here (not shown)
-            log.info("Rules reloaded successfully from database");
-            return "Rules reloaded from database successfully";
+        return ruleRuntimeHolder.reload()
+                .thenApply(version -> {
+                    log.info("Rules reloaded successfully from database as version {}", version.getVersion());
+                    return "Rules reloaded from database successfully (version " + version.getVersion() + ")";
+                });
+    }
+
+    @Override
+    public String rollbackRules(long version) {
+        try {
+            RuleSetVersion active = ruleRuntimeHolder.rollback(version);
+            return "Rules rolled back to version " + active.getVersion();
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getRuleVersions() {
+        long activeVersion = ruleRuntimeHolder.current().getVersion();
+        return ruleRuntimeHolder.retainedVersions().stream()
+                .map(version -> {
+                    Map<String, Object> summary = new LinkedHashMap<>();
+                    summary.put("version", version.getVersion());
+                    summary.put("active", version.getVersion() == activeVersion);
+                    summary.put("contentHash", version.getContentHash());
+                    summary.put("ruleNames", version.getRuleNames());
+                    summary.put("standardEligibility", version.isStandardEligibility());
+                    summary.put("standardCalculation", version.isStandardCalculation());
+                    summary.put("loadedAt", version.getLoadedAt());
+                    return summary;
+                })
+                .toList();
+    }
+
+    @Override
+    public Map<String, Object> getTenantRuleCacheStats() {
+        return tenantRuleResolver.stats();
+    }
+
+    @Override
+    public Map<String, Object> getRuleProfile() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("enabled", ruleProfiler.isEnabled());
+        profile.put("rules", ruleProfiler.snapshot());
+        return profile;
+    }
+
+    @Override
+    public Map<String, Object> setRuleProfiling(boolean enabled) {
+        ruleProfiler.setEnabled(enabled);
+        return getRuleProfile();
+    }
+
+    @Override
+    public CompletableFuture<String> stageCandidateRules() {
+        log.info("Staging candidate rule set");
+        return ruleRuntimeHolder.stageCandidate()
+                .thenApply(candidate -> "Candidate rule set staged as version " + candidate.getVersion());
+    }
+
+    @Override
+    public Map<String, Object> getCandidateReport() {
+        return shadowRuleEvaluator.report();
+    }
+
+    @Override
+    public String promoteCandidateRules() {
+        try {
+            RuleSetVersion promoted = ruleRuntimeHolder.promoteCandidate();
+            return "Candidate rule set version " + promoted.getVersion() + " is now active";
+        } catch (IllegalStateException e) {
+            throw new AppException(ErrorCode.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String discardCandidateRules() {
+        return ruleRuntimeHolder.discardCandidate()
+                .map(discarded -> "Discarded candidate rule set version " + discarded.getVersion())
+                .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "No candidate rule set is staged"));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.glidingpath.rules.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HexFormat;
+
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.core.entity.PlanParticipant;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+
+/**
+ * Fingerprints of pre-payroll calculation inputs, stored with each calculation as input_fingerprint.
+ *
+ * A fingerprint hashes what the pre-payroll rules and the fallback formulas read for one participant,
+ * as the calculation fact holds it: compensation, employment status, age and months of service on
+ * the calculation date. It also covers the plan snapshot version and the content hash of the
+ * tenant's rule set. The rule set's version number is a per-process counter and is left out. Two
+ * calculations with the same fingerprint therefore have the same amounts, and a birthday or a
+ * service anniversary changes it.
+ *
+ * One instance per step, bound to the plan, rule set and date the step calculates with.
+ */
+public final class CalculationFingerprint {
+
+    // Bytes of the SHA-256 hash kept, hex-encoded to twice as many characters
+    private static final int HASH_BYTES = 16;
+
+    private static final String UNKNOWN_EMPLOYMENT_STATUS = "UNKNOWN";
+
+    private final String planVersion;
+    private final String ruleSetHash;
+    private final LocalDate asOf;
+
+    private CalculationFingerprint(String planVersion, String ruleSetHash, LocalDate asOf) {
+        this.planVersion = planVersion;
+        this.ruleSetHash = ruleSetHash;
+        this.asOf = asOf;
+    }
+
+    public static CalculationFingerprint of(PlanSnapshot snapshot, RuleSetVersion ruleSet, LocalDate asOf) {
+        return new CalculationFingerprint(snapshot.version(), ruleSet.getContentHash(), asOf);
+    }
+
+    /**
+     * Fingerprint of the participant's calculation inputs
+     */
+    public String of(PlanParticipant participant) {
+        return of(participant.getIncomeAmount() != null ? participant.getIncomeAmount() : 0L,
+                participant.getEmploymentStatus(), participant.getDob(),
+                participant.getStartDate(), participant.getLatestRehireDate());
+    }
+
+    /**
+     * Fingerprint of one participant's fields; compensation in whole currency units, a missing amount as zero
+     */
+    public String of(long compensation, String employmentStatus, LocalDate dob, LocalDate startDate, LocalDate latestRehireDate) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, planVersion);
+            update(digest, ruleSetHash);
+            update(digest, Long.toString(compensation));
+            update(digest, employmentStatus != null ? employmentStatus : UNKNOWN_EMPLOYMENT_STATUS);
+            update(digest, Integer.toString(age(dob)));
+            update(digest, Integer.toString(monthsOfService(startDate, latestRehireDate)));
+            return HexFormat.of().formatHex(digest.digest(), 0, HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Age in whole years as the calculation fact takes it; zero without a date of birth
+     */
+    private int age(LocalDate dob) {
+        return dob != null ? Period.between(dob, asOf).getYears() : 0;
+    }
+
+    /**
+     * Months of service since the latest rehire, or the start date without one, as the calculation fact takes it
+     */
+    private int monthsOfService(LocalDate startDate, LocalDate latestRehireDate) {
+        LocalDate serviceStart = latestRehireDate != null ? latestRehireDate : startDate;
+        if (serviceStart == null) {
+            return 0;
+        }
+        Period period = Period.between(serviceStart, asOf);
+        return period.getYears() * 12 + period.getMonths();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab","c") and ("a","bc") from hashing the same
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,41 @@
+package com.glidingpath.rules.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Calculation ids of pre_payroll_calculations, derived from the row's key instead of drawn at random.
+ *
+ * The same tenant, participant and payroll period always give the same id, so a re-executed chunk,
+ * a restarted partition or a re-launched job for the period writes the same ids again: the rows are
+ * upserted on that key and the ids staged for the deduction step stay valid.
+ */
+public final class CalculationIds {
+
+    private static final String PREFIX = "CALC-";
+
+    private CalculationIds() {
+    }
+
+    /**
+     * "CALC-" and a name-based UUID of the tenant, individualId and payroll period
+     */
+    public static String of(String tenantId, String individualId, LocalDate payrollPeriodStart, LocalDate payrollPeriodEnd) {
+        StringBuilder key = new StringBuilder(96);
+        append(key, tenantId);
+        append(key, individualId);
+        append(key, payrollPeriodStart != null ? payrollPeriodStart.toString() : null);
+        append(key, payrollPeriodEnd != null ? payrollPeriodEnd.toString() : null);
+        return PREFIX + UUID.nameUUIDFromBytes(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(StringBuilder key, String value) {
+        if (value == null) {
+            key.append("-:");
+            return;
+        }
+        // Length prefix keeps ("ab","c") and ("a","bc") from giving the same id
+        key.append(value.length()).append(':').append(value);
+    }
+}
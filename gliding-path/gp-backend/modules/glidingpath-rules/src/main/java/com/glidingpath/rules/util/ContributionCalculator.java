@@ -0,0 +1,140 @@
+package com.glidingpath.rules.util;
+
+import java.math.BigDecimal;
+
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.common.dto.PlanSnapshot.MatchFormula;
+import com.glidingpath.common.util.ContributionMath;
+
+/**
+ * The fallback contribution formulas of a {@link PlanSnapshot}, computed in long cents and basis
+ * points with {@link ContributionMath}.
+ *
+ * Results are equal to the snapshot's BigDecimal formulas, scale included: amounts have two
+ * decimals and the branches that return {@link BigDecimal#ZERO} there return it here. The plan's
+ * rates are converted once; when one has more than two decimals the snapshot's formulas are used
+ * for the whole plan, and a single value that does not fit in long cents is computed with them too.
+ * The snapshot's formulas use the same kernel per call; this class also converts the rates only once
+ * and takes compensation as a long, which the rules' BigDecimal facts cannot.
+ */
+public final class ContributionCalculator {
+
+    private final PlanSnapshot snapshot;
+    // Rates in basis points, valid when exactRates is set
+    private final boolean exactRates;
+    private final long employeeContributionBasisPoints;
+    private final long matchBasisPoints;
+    private final long matchLimitBasisPoints;
+    private final long profitSharingBasisPoints;
+
+    private ContributionCalculator(PlanSnapshot snapshot) {
+        this.snapshot = snapshot;
+        long employee = 0;
+        long match = 0;
+        long matchLimit = 0;
+        long profitSharing = 0;
+        boolean exact;
+        try {
+            employee = ContributionMath.toBasisPoints(snapshot.employeeContributionPercent());
+            match = ContributionMath.toBasisPoints(snapshot.matchPercent());
+            matchLimit = ContributionMath.toBasisPoints(snapshot.matchLimitPercent());
+            profitSharing = snapshot.profitSharingPercent() != null
+                    ? ContributionMath.toBasisPoints(snapshot.profitSharingPercent()) : 0;
+            exact = true;
+        } catch (ArithmeticException e) {
+            exact = false;
+        }
+        this.exactRates = exact;
+        this.employeeContributionBasisPoints = employee;
+        this.matchBasisPoints = match;
+        this.matchLimitBasisPoints = matchLimit;
+        this.profitSharingBasisPoints = profitSharing;
+    }
+
+    public static ContributionCalculator of(PlanSnapshot snapshot) {
+        return new ContributionCalculator(snapshot);
+    }
+
+    public PlanSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Whether the plan's rates are computed in basis points rather than BigDecimal
+     */
+    public boolean hasExactRates() {
+        return exactRates;
+    }
+
+    /**
+     * {@link PlanSnapshot#employeeContribution} for a compensation in whole currency units
+     */
+    public BigDecimal employeeContribution(long compensation) {
+        if (exactRates) {
+            try {
+                if (compensation > 0 && employeeContributionBasisPoints > 0) {
+                    return ContributionMath.fromCents(ContributionMath.percentOf(
+                            ContributionMath.toCents(compensation), employeeContributionBasisPoints));
+                }
+                return BigDecimal.ZERO;
+            } catch (ArithmeticException e) {
+                // beyond long cents
+            }
+        }
+        return snapshot.employeeContribution(BigDecimal.valueOf(compensation));
+    }
+
+    /**
+     * {@link PlanSnapshot#employerMatch} for a compensation in whole currency units
+     */
+    public BigDecimal employerMatch(BigDecimal employeeContribution, long compensation) {
+        if (snapshot.matchFormula() == MatchFormula.NONE) {
+            return BigDecimal.ZERO;
+        }
+        if (exactRates) {
+            try {
+                return ContributionMath.fromCents(employerMatchCents(employeeContribution, ContributionMath.toCents(compensation)));
+            } catch (ArithmeticException e) {
+                // fractions of a cent in the contribution, or beyond long cents
+            }
+        }
+        return snapshot.employerMatch(employeeContribution, BigDecimal.valueOf(compensation));
+    }
+
+    private long employerMatchCents(BigDecimal employeeContribution, long compensationCents) {
+        long match = switch (snapshot.matchFormula()) {
+            case PERCENT_OF_CONTRIBUTION -> ContributionMath.percentOf(ContributionMath.toCents(employeeContribution), matchBasisPoints);
+            case PERCENT_OF_COMPENSATION -> ContributionMath.percentOf(compensationCents, matchBasisPoints);
+            case NONE -> 0;
+        };
+        if (matchLimitBasisPoints > 0) {
+            match = Math.min(match, ContributionMath.percentOf(compensationCents, matchLimitBasisPoints));
+        }
+        return match;
+    }
+
+    /**
+     * {@link PlanSnapshot#profitSharing} for a compensation in whole currency units
+     */
+    public BigDecimal profitSharing(long compensation) {
+        if (snapshot.profitSharingPercent() == null) {
+            return BigDecimal.ZERO;
+        }
+        if (exactRates) {
+            try {
+                return ContributionMath.fromCents(ContributionMath.percentOf(
+                        ContributionMath.toCents(compensation), profitSharingBasisPoints));
+            } catch (ArithmeticException e) {
+                // beyond long cents
+            }
+        }
+        return snapshot.profitSharing(BigDecimal.valueOf(compensation));
+    }
+
+    /**
+     * {@link PlanSnapshot#shareOf}, which already computes in basis points when both values are whole cents
+     */
+    public static BigDecimal shareOf(BigDecimal amount, BigDecimal compensation) {
+        return PlanSnapshot.shareOf(amount, compensation);
+    }
+}
@@ -1,15 +1,20 @@
 package com.glidingpath.rules.util;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.StatelessKieSession;
 import org.springframework.stereotype.Component;
 
 import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.common.dto.PlanSnapshot;
 import com.glidingpath.common.dto.PrePayrollCalculationFact;
 import com.glidingpath.core.entity.PlanEligibility;
-import com.glidingpath.core.entity.TenantPlan;
+import com.glidingpath.rules.runtime.RuleProfiler;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,20 +23,26 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 @RequiredArgsConstructor
 public class DroolsRuleEvaluator {
-    private final KieContainer kieContainer;
+    private final TenantRuleResolver tenantRuleResolver;
+    private final RuleProfiler ruleProfiler;
+    private final RuleSessionRunner ruleSessionRunner;
+    private final ShadowRuleEvaluator shadowRuleEvaluator;
 
     public EmployeeEligibilityDTO evaluateEligibility(EmployeeEligibilityDTO employeeDto, PlanEligibility planEligibility) {
         try {
+            // Capture the tenant's rule set once so a concurrent reload cannot swap it mid-evaluation
+            RuleSetVersion ruleSet = tenantRuleResolver.resolve(planEligibility.getTenantId());
+            KieContainer kieContainer = ruleSet.getKieContainer();
             StatelessKieSession statelessSession = null;
-            
+
             // Try to get the named session first (this should work with our DroolsConfig)
             try {
                 statelessSession = kieContainer.newStatelessKieSession("ksession-eligibility");
-                log.info("Successfully created named session 'ksession-eligibility' for employee: {}", employeeDto.getEmployeeId());
+                log.debug("Successfully created named session 'ksession-eligibility' for employee: {}", employeeDto.getEmployeeId());
             } catch (Exception e) {
                 log.warn("Named session 'ksession-eligibility' not found, trying default session", e);
             }
-            
+
             // Fallback to default session if named session failed
             if (statelessSession == null) {
                 try {
@@ -41,19 +52,32 @@ public class DroolsRuleEvaluator {
                     log.error("Failed to create default session", e);
                 }
             }
-            
+
             if (statelessSession == null) {
                 throw new IllegalStateException("Failed to create any Drools session");
             }
-            
+
+            ruleProfiler.attach(statelessSession, ruleSet.getVersion());
             statelessSession.setGlobal("planEligibility", planEligibility);
-            log.info("DTO before Drools: employeeId={}, eligible={}, age={}, monthsOfService={}", 
-                    employeeDto.getEmployeeId(), employeeDto.isEligible(), employeeDto.getAge(), employeeDto.getMonthsOfService());
-            
+            employeeDto.setRuleSetVersion(ruleSet.getVersion());
+            log.debug("DTO before Drools: employeeId={}, eligible={}, age={}, monthsOfService={}, ruleSetVersion={}",
+                    employeeDto.getEmployeeId(), employeeDto.isEligible(), employeeDto.getAge(), employeeDto.getMonthsOfService(),
+                    ruleSet.getVersion());
+
+            EmployeeEligibilityDTO shadowInput = shadowRuleEvaluator.shouldShadow(ruleSet)
+                    ? shadowRuleEvaluator.copyOf(employeeDto)
+                    : null;
+            long start = System.nanoTime();
+
             // Cleaner fact execution using List.of()
             statelessSession.execute(List.of(employeeDto));
-            
-            log.info("Successfully evaluated eligibility using Drools for employee: {}", employeeDto.getEmployeeId());
+
+            if (shadowInput != null) {
+                shadowRuleEvaluator.shadowEligibility(List.of(shadowInput), List.of(employeeDto), planEligibility,
+                        System.nanoTime() - start);
+            }
+
+            log.debug("Successfully evaluated eligibility using Drools for employee: {}", employeeDto.getEmployeeId());
             // Don't override the eligibility reason - let the rules handle it
             return employeeDto;
         } catch (Exception e) {
@@ -63,10 +87,14 @@ public class DroolsRuleEvaluator {
         }
     }
 
-    public void evaluatePrePayrollCalculation(PrePayrollCalculationFact fact, TenantPlan tenantPlan) {
+    public void evaluatePrePayrollCalculation(PrePayrollCalculationFact fact, PlanSnapshot planSnapshot) {
         try {
             log.debug("Evaluating pre-payroll calculation rules for employee: {}", fact.getEmployeeId());
-            
+
+            // Capture the tenant's rule set once so a concurrent reload cannot swap it mid-evaluation
+            RuleSetVersion ruleSet = tenantRuleResolver.resolve(planSnapshot.tenantId());
+            KieContainer kieContainer = ruleSet.getKieContainer();
+
             StatelessKieSession statelessSession;
             try {
                 statelessSession = kieContainer.newStatelessKieSession("ksession-prepayroll");
@@ -74,23 +102,91 @@ public class DroolsRuleEvaluator {
                 log.warn("Named session 'ksession-prepayroll' not found, falling back to default session", e);
                 statelessSession = kieContainer.newStatelessKieSession();
             }
-            
-            // Set all required globals for payroll rules
-            statelessSession.setGlobal("tenantPlan", tenantPlan);
-            
-            // Set additional globals if available in tenantPlan
-            if (tenantPlan.getEligibility() != null) {
-                statelessSession.setGlobal("employerRule", tenantPlan.getEligibility());
-            }
-            
+
+            ruleProfiler.attach(statelessSession, ruleSet.getVersion());
+
+            // The snapshot is the only global of the payroll rules
+            statelessSession.setGlobal("planSnapshot", planSnapshot);
+
+            fact.setRuleSetVersion(ruleSet.getVersion());
+            PrePayrollCalculationFact shadowInput = shadowRuleEvaluator.shouldShadow(ruleSet)
+                    ? shadowRuleEvaluator.copyOf(fact)
+                    : null;
+            long start = System.nanoTime();
+
             // Cleaner fact execution using List.of()
             statelessSession.execute(List.of(fact));
-            
-            log.debug("Drools rule evaluation completed for employee: {}", fact.getEmployeeId());
-            
+
+            if (shadowInput != null) {
+                shadowRuleEvaluator.shadowPrePayroll(List.of(shadowInput), List.of(fact), planSnapshot, System.nanoTime() - start);
+            }
+
+            log.debug("Drools rule evaluation completed for employee: {} with rule set version: {}",
+                    fact.getEmployeeId(), ruleSet.getVersion());
+
         } catch (Exception e) {
             log.error("Error during Drools rule evaluation for employee: {}", fact.getEmployeeId(), e);
             // Don't throw exception - let the fallback calculation methods handle it
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Evaluate eligibility for a whole chunk in one stateless session.
+     * Globals are set once and all facts are inserted in a single batch execution,
+     * so session setup cost is paid per chunk instead of per employee.
+     *
+     * @return evaluated DTOs keyed by individualId, in input order
+     */
+    public Map<String, EmployeeEligibilityDTO> evaluateEligibilityBatch(List<EmployeeEligibilityDTO> employeeDtos,
+                                                                        PlanEligibility planEligibility) {
+        Map<String, EmployeeEligibilityDTO> results = new LinkedHashMap<>();
+        if (employeeDtos == null || employeeDtos.isEmpty()) {
+            return results;
+        }
+
+        RuleSetVersion ruleSet = tenantRuleResolver.resolve(planEligibility.getTenantId());
+        employeeDtos.forEach(dto -> results.put(dto.getEmployeeId(), dto));
+
+        List<EmployeeEligibilityDTO> shadowInputs = shadowRuleEvaluator.shouldShadow(ruleSet)
+                ? employeeDtos.stream().map(shadowRuleEvaluator::copyOf).toList()
+                : null;
+        long start = System.nanoTime();
+        ruleSessionRunner.runEligibility(ruleSet, employeeDtos, planEligibility);
+        if (shadowInputs != null) {
+            shadowRuleEvaluator.shadowEligibility(shadowInputs, employeeDtos, planEligibility, System.nanoTime() - start);
+        }
+
+        log.debug("Evaluated eligibility for {} employees in one session with rule set version {}",
+                employeeDtos.size(), ruleSet.getVersion());
+        return results;
+    }
+
+    /**
+     * Evaluate pre-payroll calculation rules for a whole chunk in one stateless session.
+     *
+     * @return evaluated facts keyed by individualId, in input order
+     */
+    public Map<String, PrePayrollCalculationFact> evaluatePrePayrollCalculationBatch(List<PrePayrollCalculationFact> facts,
+                                                                                     PlanSnapshot planSnapshot) {
+        Map<String, PrePayrollCalculationFact> results = new LinkedHashMap<>();
+        if (facts == null || facts.isEmpty()) {
+            return results;
+        }
+
+        RuleSetVersion ruleSet = tenantRuleResolver.resolve(planSnapshot.tenantId());
+        facts.forEach(fact -> results.put(fact.getEmployeeId(), fact));
+
+        List<PrePayrollCalculationFact> shadowInputs = shadowRuleEvaluator.shouldShadow(ruleSet)
+                ? facts.stream().map(shadowRuleEvaluator::copyOf).toList()
+                : null;
+        long start = System.nanoTime();
+        ruleSessionRunner.runPrePayroll(ruleSet, facts, planSnapshot);
+        if (shadowInputs != null) {
+            shadowRuleEvaluator.shadowPrePayroll(shadowInputs, facts, planSnapshot, System.nanoTime() - start);
+        }
+
+        log.debug("Evaluated pre-payroll rules for {} employees in one session with rule set version {}",
+                facts.size(), ruleSet.getVersion());
+        return results;
+    }
+}
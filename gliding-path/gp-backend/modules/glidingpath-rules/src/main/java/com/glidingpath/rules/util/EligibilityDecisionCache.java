@@ -0,0 +1,147 @@
+package com.glidingpath.rules.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.core.entity.PlanEligibility;
+
+/**
+ * Eligibility decisions of one job, keyed by the rule-relevant facts of an employee.
+ *
+ * Employees with the same key get the same outcome from the eligibility rules, so each distinct
+ * key is evaluated once per job and the decision is copied to every other employee with that key.
+ * The key holds whole years of age and whole months of service because the rules compare and
+ * report exactly those values. Those are the only facts the standard eligibility rule set reads,
+ * so the cache is only valid for standard rule sets; callers evaluate every employee otherwise.
+ * The cache is tied to one rule set version and one plan version and clears itself when either
+ * changes.
+ *
+ * Not thread-safe: one instance belongs to one step execution.
+ */
+public class EligibilityDecisionCache {
+
+    private final Map<DecisionKey, Decision> decisions = new HashMap<>();
+
+    private Long ruleSetVersion;
+    private PlanVersion planVersion;
+
+    private long lookups;
+    private long hits;
+
+    /**
+     * Bind the cache to the rule set and plan the next evaluations run against
+     */
+    public void bind(long ruleSetVersion, PlanEligibility planEligibility) {
+        PlanVersion plan = new PlanVersion(planEligibility.getId(), planEligibility.getUpdatedAt());
+        if (!Objects.equals(this.ruleSetVersion, ruleSetVersion) || !Objects.equals(this.planVersion, plan)) {
+            decisions.clear();
+            this.ruleSetVersion = ruleSetVersion;
+            this.planVersion = plan;
+        }
+    }
+
+    /**
+     * Copy the cached decision onto the employee
+     *
+     * @return false if there is no decision for this employee's key yet
+     */
+    public boolean applyCached(EmployeeEligibilityDTO employee) {
+        lookups++;
+        Decision decision = decisions.get(DecisionKey.of(employee));
+        if (decision == null) {
+            return false;
+        }
+        hits++;
+        decision.applyTo(employee, ruleSetVersion);
+        return true;
+    }
+
+    /**
+     * Remember the outcome of an evaluated employee, if it was produced by the bound rule set.
+     * Evaluation errors are never cached.
+     */
+    public void put(DecisionKey key, EmployeeEligibilityDTO evaluated) {
+        boolean failed = evaluated.getEligibilityReason() != null && evaluated.getEligibilityReason().startsWith("Error");
+        if (!failed && Objects.equals(evaluated.getRuleSetVersion(), ruleSetVersion)) {
+            decisions.put(key, Decision.of(evaluated));
+        }
+    }
+
+    /**
+     * Give an employee the decision of an evaluated employee with the same key, counted as a hit
+     */
+    public void copyDecision(EmployeeEligibilityDTO evaluated, EmployeeEligibilityDTO employee) {
+        hits++;
+        Decision.of(evaluated).applyTo(employee, evaluated.getRuleSetVersion());
+    }
+
+    /**
+     * Distinct keys per looked-up employee; low values mean most employees share a decision
+     */
+    public double getDistinctKeyRatio() {
+        return lookups > 0 ? (double) decisions.size() / lookups : 0;
+    }
+
+    public int getDistinctKeys() {
+        return decisions.size();
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public double getHitRate() {
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Everything the standard eligibility rules read from an employee
+     */
+    public record DecisionKey(int age,
+                              int monthsOfService,
+                              String employmentStatus,
+                              String employmentType,
+                              boolean currentlyEligible,
+                              boolean hasEligibilityDate,
+                              LocalDate currentDate) {
+
+        public static DecisionKey of(EmployeeEligibilityDTO employee) {
+            return new DecisionKey(employee.getAge(), employee.getMonthsOfService(),
+                    employee.getEmploymentStatus(), employee.getEmploymentType(),
+                    employee.getCurrentlyEligible(), employee.getEligibilityDate() != null,
+                    employee.getCurrentDate());
+        }
+    }
+
+    private record PlanVersion(UUID id, LocalDateTime updatedAt) {
+    }
+
+    /**
+     * Everything the eligibility rules write to an employee
+     */
+    private record Decision(boolean eligible, LocalDate eligibilityDate, String eligibilityReason) {
+
+        static Decision of(EmployeeEligibilityDTO evaluated) {
+            return new Decision(evaluated.isEligible(), evaluated.getEligibilityDate(), evaluated.getEligibilityReason());
+        }
+
+        void applyTo(EmployeeEligibilityDTO employee, Long ruleSetVersion) {
+            employee.setEligible(eligible);
+            // Employees sharing a key either had no date (the rules set currentDate, part of the key) or keep their own
+            if (employee.getEligibilityDate() == null) {
+                employee.setEligibilityDate(eligibilityDate);
+            }
+            employee.setEligibilityReason(eligibilityReason);
+            employee.setRuleSetVersion(ruleSetVersion);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.glidingpath.rules.util;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.core.entity.PlanEligibility;
+
+/**
+ * Plain Java equivalent of the standard eligibility rule set (rules/standard/eligibility.drl),
+ * built once per plan from its {@link PlanEligibility} thresholds.
+ *
+ * It reproduces what a stateless Drools session does with that DRL: "Mark Eligible" fires first
+ * (salience 100), then every ineligibility rule that matched on insertion fires in declaration
+ * order, so the last failing criterion wins the reason. The rules never call modify, so
+ * "Set Eligibility Date Rule" only fires for facts that were already eligible when inserted.
+ * Plan exclusions are not part of the standard rule set and are therefore not evaluated here either.
+ */
+public final class EligibilityPredicate {
+
+    private static final String REQUIRED_STATUS = "ACTIVE";
+    private static final String REQUIRED_TYPE = "FULL_TIME";
+
+    private final Integer minimumEntryAge;
+    private final Integer timeEmployedMonths;
+
+    private EligibilityPredicate(Integer minimumEntryAge, Integer timeEmployedMonths) {
+        this.minimumEntryAge = minimumEntryAge;
+        this.timeEmployedMonths = timeEmployedMonths;
+    }
+
+    public static EligibilityPredicate forPlan(PlanEligibility planEligibility) {
+        return new EligibilityPredicate(planEligibility.getMinimumEntryAge(), planEligibility.getTimeEmployedMonths());
+    }
+
+    /**
+     * Evaluate the employee and write the result to the DTO exactly as the rules would
+     */
+    public void apply(EmployeeEligibilityDTO employee) {
+        int age = employee.getAge();
+        int monthsOfService = employee.getMonthsOfService();
+
+        if (employee.getCurrentlyEligible()) {
+            // Only "Set Eligibility Date Rule" can match an already eligible fact
+            if (employee.getEligibilityDate() == null) {
+                employee.setEligibilityDate(employee.getCurrentDate());
+                employee.setEligibilityReason("Eligible: All criteria met (age: " + age + "+, service: " + monthsOfService + "+ months)");
+            }
+            return;
+        }
+
+        boolean ageTooLow = minimumEntryAge != null && age < minimumEntryAge;
+        boolean serviceTooShort = timeEmployedMonths != null && monthsOfService < timeEmployedMonths;
+        boolean statusNotActive = !REQUIRED_STATUS.equals(employee.getEmploymentStatus());
+        boolean typeNotFullTime = !REQUIRED_TYPE.equals(employee.getEmploymentType());
+
+        if (minimumEntryAge != null && timeEmployedMonths != null
+                && !ageTooLow && !serviceTooShort && !statusNotActive && !typeNotFullTime) {
+            employee.setCurrentlyEligible(true);
+            employee.setEligibilityReason("Eligible: All criteria met (age: " + age + ", service: " + monthsOfService + " months)");
+            return;
+        }
+
+        if (ageTooLow) {
+            employee.setEligibilityReason("Not eligible: Age " + age + " (minimum " + minimumEntryAge + " required)");
+        }
+        if (serviceTooShort) {
+            employee.setEligibilityReason("Not eligible: Service duration " + monthsOfService + " months (minimum " + timeEmployedMonths + " months required)");
+        }
+        if (statusNotActive) {
+            employee.setEligibilityReason("Not eligible: Employment status " + employee.getEmploymentStatus() + " (must be ACTIVE)");
+        }
+        if (typeNotFullTime) {
+            employee.setEligibilityReason("Not eligible: Employment type " + employee.getEmploymentType() + " (must be FULL_TIME)");
+        }
+    }
+}
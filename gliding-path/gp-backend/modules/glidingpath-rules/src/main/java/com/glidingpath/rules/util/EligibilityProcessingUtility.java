@@ -6,16 +6,27 @@ import com.glidingpath.core.entity.PlanEligibility;
 import com.glidingpath.core.entity.TenantPlan;
 import com.glidingpath.core.repository.PlanParticipantRepository;
 import com.glidingpath.core.repository.TenantPlanRepository;
+import com.glidingpath.rules.repository.EligibilityParticipant;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+import com.glidingpath.rules.runtime.TenantRuleResolver;
 import com.glidingpath.rules.util.DroolsRuleEvaluator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Shared utility for eligibility processing logic.
@@ -26,37 +37,67 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class EligibilityProcessingUtility {
 
+    /**
+     * Reason set on freshly converted DTOs until the rule engine has evaluated them
+     */
+    public static final String PENDING_EVALUATION_REASON = "Pending evaluation";
+
     private final PlanParticipantRepository planParticipantRepository;
     private final TenantPlanRepository tenantPlanRepository;
     private final DroolsRuleEvaluator droolsRuleEvaluator;
+    private final TenantRuleResolver tenantRuleResolver;
+    private final ShadowRuleEvaluator shadowRuleEvaluator;
+
+    @Value("${rules.eligibility.fast-path.enabled:true}")
+    private boolean fastPathEnabled;
+
+    // Share of fast-path evaluations re-run through Drools and compared (0 disables the check)
+    @Value("${rules.eligibility.fast-path.verify-sample-rate:0.01}")
+    private double fastPathVerifySampleRate;
 
     /**
      * Convert PlanParticipant entity to EmployeeEligibilityDTO
      */
     public EmployeeEligibilityDTO convertToEligibilityDto(PlanParticipant employee) {
+        return convertToEligibilityDto(new EligibilityParticipant(employee.getId(), employee.getIndividualId(),
+                employee.getTenantId(), employee.getDob(), employee.getStartDate(), employee.getLatestRehireDate(),
+                employee.getEmploymentStatus(), employee.getEmploymentType()));
+    }
+
+    /**
+     * Convert the eligibility columns of a participant to EmployeeEligibilityDTO, evaluated as of today
+     */
+    public EmployeeEligibilityDTO convertToEligibilityDto(EligibilityParticipant employee) {
+        return convertToEligibilityDto(employee, LocalDate.now());
+    }
+
+    /**
+     * Convert the eligibility columns of a participant to EmployeeEligibilityDTO, evaluated as of currentDate
+     */
+    public EmployeeEligibilityDTO convertToEligibilityDto(EligibilityParticipant employee, LocalDate currentDate) {
         EmployeeEligibilityDTO dto = new EmployeeEligibilityDTO();
         
         // Core identification
-        dto.setEmployeeId(employee.getIndividualId());
-        dto.setTenantId(employee.getTenantId());
-        dto.setCurrentDate(LocalDate.now());
+        dto.setEmployeeId(employee.individualId());
+        dto.setTenantId(employee.tenantId());
+        dto.setCurrentDate(currentDate);
         
         // Eligibility evaluation data
-        dto.setDateOfBirth(employee.getDob());
-        dto.setHireDate(employee.getStartDate());
-        dto.setRehireDate(employee.getLatestRehireDate());
-        dto.setEmploymentStatus(employee.getEmploymentStatus());
+        dto.setDateOfBirth(employee.dob());
+        dto.setHireDate(employee.startDate());
+        dto.setRehireDate(employee.latestRehireDate());
+        dto.setEmploymentStatus(employee.employmentStatus());
         
         // Employment type from simple field
-        dto.setEmploymentType(employee.getEmploymentType());
+        dto.setEmploymentType(employee.employmentType());
         
         // Calculate age and service duration
-        dto.age = calculateAge(employee.getDob());
-        dto.monthsOfService = calculateMonthsOfService(employee.getStartDate(), employee.getLatestRehireDate());
+        dto.age = calculateAge(employee.dob(), currentDate);
+        dto.monthsOfService = calculateMonthsOfService(employee.startDate(), employee.latestRehireDate(), currentDate);
         
         // Initialize eligibility fields
         dto.setEligible(false); // Default to false, will be set by rule engine
-        dto.setEligibilityReason("Pending evaluation");
+        dto.setEligibilityReason(PENDING_EVALUATION_REASON);
         
         return dto;
     }
@@ -83,19 +124,24 @@ public class EligibilityProcessingUtility {
      * Evaluate eligibility for an employee using Drools
      */
     public EmployeeEligibilityDTO evaluateEligibility(EmployeeEligibilityDTO employeeDto, String tenantId) {
+        return evaluateEligibility(employeeDto, tenantId, getTenantPlan(tenantId).orElse(null));
+    }
+
+    /**
+     * Evaluate eligibility for an employee against the tenant plan the caller already resolved
+     * with {@link #getTenantPlan(String)}; null when the tenant has no plan
+     */
+    public EmployeeEligibilityDTO evaluateEligibility(EmployeeEligibilityDTO employeeDto, String tenantId, TenantPlan tenantPlan) {
         log.debug("Evaluating eligibility for employee: {} in tenant: {}", 
             employeeDto.getEmployeeId(), tenantId);
         
         try {
-            // Get plan eligibility configuration
-            Optional<TenantPlan> tenantPlanOpt = getTenantPlan(tenantId);
-            if (tenantPlanOpt.isEmpty()) {
+            if (tenantPlan == null) {
                 log.warn("No tenant plan found for tenant: {}", tenantId);
                 employeeDto.setEligibilityReason("No plan configuration found");
                 return employeeDto;
             }
             
-            TenantPlan tenantPlan = tenantPlanOpt.get();
             Optional<PlanEligibility> planEligibilityOpt = getPlanEligibility(tenantPlan);
             
             if (planEligibilityOpt.isEmpty()) {
@@ -114,6 +160,10 @@ public class EligibilityProcessingUtility {
                     employeeDto.getEmployeeId(), employeeDto.age, employeeDto.monthsOfService, 
                     employeeDto.getEmploymentStatus(), employeeDto.getEmploymentType(), employeeDto.isEligible());
             
+            if (evaluateWithFastPath(List.of(employeeDto), planEligibility)) {
+                return employeeDto;
+            }
+            
             // Evaluate using Drools
             return droolsRuleEvaluator.evaluateEligibility(employeeDto, planEligibility);
             
@@ -124,6 +174,189 @@ public class EligibilityProcessingUtility {
         }
     }
 
+    /**
+     * Evaluate eligibility for a chunk of employees of one tenant.
+     * The tenant plan is resolved once and the whole chunk runs in a single Drools session.
+     * If the batch session fails, each employee is evaluated individually so one bad fact
+     * only fails itself.
+     */
+    public List<EmployeeEligibilityDTO> evaluateEligibilityBatch(List<EmployeeEligibilityDTO> employeeDtos, String tenantId) {
+        return evaluateEligibilityBatch(employeeDtos, tenantId, getTenantPlan(tenantId).orElse(null), null);
+    }
+
+    /**
+     * Evaluate eligibility for a chunk, evaluating only one employee per distinct decision key.
+     * Employees whose key is already in the job's decision cache, or shares a key with another
+     * employee of the chunk, get that decision copied instead of running the rules again.
+     * The key only holds what the standard eligibility rules read, so the cache is only used when
+     * the tenant's rule set is the standard one; other rule sets evaluate every employee.
+     *
+     * The tenant plan is resolved by the caller with {@link #getTenantPlan(String)}, once per step
+     * rather than per chunk; null when the tenant has no plan.
+     */
+    public List<EmployeeEligibilityDTO> evaluateEligibilityBatch(List<EmployeeEligibilityDTO> employeeDtos, String tenantId,
+                                                                 TenantPlan tenantPlan, EligibilityDecisionCache decisionCache) {
+        if (employeeDtos == null || employeeDtos.isEmpty()) {
+            return employeeDtos;
+        }
+
+        log.debug("Evaluating eligibility for {} employees in tenant: {}", employeeDtos.size(), tenantId);
+
+        if (tenantPlan == null) {
+            log.warn("No tenant plan found for tenant: {}", tenantId);
+            employeeDtos.forEach(dto -> dto.setEligibilityReason("No plan configuration found"));
+            return employeeDtos;
+        }
+
+        Optional<PlanEligibility> planEligibilityOpt = getPlanEligibility(tenantPlan);
+        if (planEligibilityOpt.isEmpty()) {
+            log.warn("No plan eligibility configuration found for tenant: {}", tenantId);
+            employeeDtos.forEach(dto -> dto.setEligibilityReason("No eligibility configuration found"));
+            return employeeDtos;
+        }
+
+        PlanEligibility planEligibility = planEligibilityOpt.get();
+        employeeDtos.forEach(dto -> {
+            // Set public fields for Drools compatibility
+            dto.age = dto.getAge();
+            dto.monthsOfService = dto.getMonthsOfService();
+        });
+
+        if (decisionCache == null) {
+            evaluateRules(employeeDtos, planEligibility, tenantId);
+            return employeeDtos;
+        }
+
+        RuleSetVersion ruleSet = tenantRuleResolver.resolve(planEligibility.getTenantId());
+        if (!ruleSet.isStandardEligibility()) {
+            // Custom rules may read facts the decision key leaves out (hire date, employee id, ...)
+            evaluateRules(employeeDtos, planEligibility, tenantId);
+            return employeeDtos;
+        }
+
+        decisionCache.bind(ruleSet.getVersion(), planEligibility);
+        Map<EligibilityDecisionCache.DecisionKey, EmployeeEligibilityDTO> representatives = new LinkedHashMap<>();
+        Map<EmployeeEligibilityDTO, EmployeeEligibilityDTO> followers = new IdentityHashMap<>();
+        for (EmployeeEligibilityDTO dto : employeeDtos) {
+            if (decisionCache.applyCached(dto)) {
+                continue;
+            }
+            EligibilityDecisionCache.DecisionKey key = EligibilityDecisionCache.DecisionKey.of(dto);
+            EmployeeEligibilityDTO representative = representatives.putIfAbsent(key, dto);
+            if (representative != null) {
+                followers.put(dto, representative);
+            }
+        }
+
+        if (!representatives.isEmpty()) {
+            evaluateRules(new ArrayList<>(representatives.values()), planEligibility, tenantId);
+            representatives.forEach(decisionCache::put);
+        }
+        followers.forEach((dto, representative) -> decisionCache.copyDecision(representative, dto));
+
+        log.debug("Evaluated {} distinct decision keys for {} employees in tenant: {}",
+                representatives.size(), employeeDtos.size(), tenantId);
+        return employeeDtos;
+    }
+
+    /**
+     * Run the eligibility rules for the given employees: fast path if possible, otherwise one Drools session
+     */
+    private void evaluateRules(List<EmployeeEligibilityDTO> employeeDtos, PlanEligibility planEligibility, String tenantId) {
+        if (evaluateWithFastPath(employeeDtos, planEligibility)) {
+            return;
+        }
+
+        try {
+            droolsRuleEvaluator.evaluateEligibilityBatch(employeeDtos, planEligibility);
+        } catch (Exception e) {
+            log.warn("Batch eligibility evaluation failed for {} employees in tenant: {}, evaluating individually",
+                    employeeDtos.size(), tenantId, e);
+            employeeDtos.forEach(dto -> droolsRuleEvaluator.evaluateEligibility(dto, planEligibility));
+        }
+    }
+
+    /**
+     * Evaluate with the compiled Java predicate when the active rule set is the standard
+     * eligibility DRL. A sample of results is re-evaluated by Drools, which stays the source of truth.
+     *
+     * @return false if the caller has to evaluate with Drools
+     */
+    private boolean evaluateWithFastPath(List<EmployeeEligibilityDTO> employeeDtos, PlanEligibility planEligibility) {
+        if (!fastPathEnabled) {
+            return false;
+        }
+        RuleSetVersion ruleSet = tenantRuleResolver.resolve(planEligibility.getTenantId());
+        if (!ruleSet.isStandardEligibility()) {
+            return false;
+        }
+
+        List<EmployeeEligibilityDTO> shadowInputs = shadowRuleEvaluator.shouldShadow(ruleSet)
+                ? employeeDtos.stream().map(shadowRuleEvaluator::copyOf).toList()
+                : null;
+
+        EligibilityPredicate predicate = EligibilityPredicate.forPlan(planEligibility);
+        for (EmployeeEligibilityDTO employeeDto : employeeDtos) {
+            EmployeeEligibilityDTO oracleDto = ThreadLocalRandom.current().nextDouble() < fastPathVerifySampleRate
+                    ? copyForOracle(employeeDto) : null;
+
+            predicate.apply(employeeDto);
+            employeeDto.setRuleSetVersion(ruleSet.getVersion());
+
+            if (oracleDto != null) {
+                verifyAgainstDrools(employeeDto, oracleDto, planEligibility);
+            }
+        }
+
+        if (shadowInputs != null) {
+            shadowRuleEvaluator.shadowFastPathEligibility(shadowInputs, employeeDtos, planEligibility);
+        }
+        return true;
+    }
+
+    /**
+     * Run Drools on the untouched copy and keep its result if the fast path disagrees
+     */
+    private void verifyAgainstDrools(EmployeeEligibilityDTO fastPathDto, EmployeeEligibilityDTO oracleDto,
+                                     PlanEligibility planEligibility) {
+        droolsRuleEvaluator.evaluateEligibility(oracleDto, planEligibility);
+        if (!Objects.equals(oracleDto.getRuleSetVersion(), fastPathDto.getRuleSetVersion())
+                || (oracleDto.getEligibilityReason() != null && oracleDto.getEligibilityReason().startsWith("Error during rule evaluation"))) {
+            // Rules were swapped in between or Drools itself failed; nothing meaningful to compare
+            return;
+        }
+
+        boolean matches = oracleDto.isEligible() == fastPathDto.isEligible()
+                && Objects.equals(oracleDto.getEligibilityDate(), fastPathDto.getEligibilityDate())
+                && Objects.equals(oracleDto.getEligibilityReason(), fastPathDto.getEligibilityReason());
+        if (!matches) {
+            log.error("Eligibility fast path disagrees with Drools for employee {}: fast path eligible={} reason='{}', Drools eligible={} reason='{}'",
+                    fastPathDto.getEmployeeId(), fastPathDto.isEligible(), fastPathDto.getEligibilityReason(),
+                    oracleDto.isEligible(), oracleDto.getEligibilityReason());
+            fastPathDto.setEligible(oracleDto.isEligible());
+            fastPathDto.setEligibilityDate(oracleDto.getEligibilityDate());
+            fastPathDto.setEligibilityReason(oracleDto.getEligibilityReason());
+        }
+    }
+
+    private EmployeeEligibilityDTO copyForOracle(EmployeeEligibilityDTO source) {
+        EmployeeEligibilityDTO copy = new EmployeeEligibilityDTO();
+        copy.setEmployeeId(source.getEmployeeId());
+        copy.setTenantId(source.getTenantId());
+        copy.setDateOfBirth(source.getDateOfBirth());
+        copy.setHireDate(source.getHireDate());
+        copy.setRehireDate(source.getRehireDate());
+        copy.setEmploymentStatus(source.getEmploymentStatus());
+        copy.setEmploymentType(source.getEmploymentType());
+        copy.setCurrentDate(source.getCurrentDate());
+        copy.setEligible(source.isEligible());
+        copy.setEligibilityDate(source.getEligibilityDate());
+        copy.setEligibilityReason(source.getEligibilityReason());
+        copy.age = source.age;
+        copy.monthsOfService = source.monthsOfService;
+        return copy;
+    }
+
     /**
      * Evaluate eligibility for an employee by ID
      */
@@ -147,34 +380,56 @@ public class EligibilityProcessingUtility {
      * Calculate employee age based on date of birth
      */
     public int calculateAge(LocalDate dateOfBirth) {
-        if (dateOfBirth == null || LocalDate.now() == null) {
+        return calculateAge(dateOfBirth, LocalDate.now());
+    }
+
+    /**
+     * Calculate employee age on the given date
+     */
+    public int calculateAge(LocalDate dateOfBirth, LocalDate currentDate) {
+        if (dateOfBirth == null || currentDate == null) {
             return 0;
         }
-        return Period.between(dateOfBirth, LocalDate.now()).getYears();
+        return Period.between(dateOfBirth, currentDate).getYears();
     }
 
     /**
      * Calculate months of service
      */
     public int calculateMonthsOfService(LocalDate hireDate, LocalDate rehireDate) {
+        return calculateMonthsOfService(hireDate, rehireDate, LocalDate.now());
+    }
+
+    /**
+     * Calculate months of service on the given date
+     */
+    public int calculateMonthsOfService(LocalDate hireDate, LocalDate rehireDate, LocalDate currentDate) {
         LocalDate startDate = rehireDate != null ? rehireDate : hireDate;
-        if (startDate == null || LocalDate.now() == null) {
+        if (startDate == null || currentDate == null) {
             return 0;
         }
-        Period period = Period.between(startDate, LocalDate.now());
+        Period period = Period.between(startDate, currentDate);
         return period.getYears() * 12 + period.getMonths();
     }
 
     /**
      * Create a failed eligibility result when processing fails
      */
-    public EmployeeEligibilityDTO createFailedEligibilityResult(PlanParticipant employee, Exception error, String tenantId) {
+    public EmployeeEligibilityDTO createFailedEligibilityResult(EligibilityParticipant employee, Exception error, String tenantId) {
+        return createFailedEligibilityResult(employee, error, tenantId, LocalDate.now());
+    }
+
+    /**
+     * Create a failed eligibility result of an evaluation as of currentDate
+     */
+    public EmployeeEligibilityDTO createFailedEligibilityResult(EligibilityParticipant employee, Exception error, String tenantId,
+                                                                LocalDate currentDate) {
         EmployeeEligibilityDTO failedDto = new EmployeeEligibilityDTO();
-        failedDto.setEmployeeId(employee.getIndividualId());
+        failedDto.setEmployeeId(employee.individualId());
         failedDto.setTenantId(tenantId);
         failedDto.setEligible(false);
         failedDto.setEligibilityReason("Error during eligibility check: " + error.getMessage());
-        failedDto.setCurrentDate(LocalDate.now());
+        failedDto.setCurrentDate(currentDate);
         
         // Set calculated fields to 0 for failed cases
         failedDto.age = 0;
@@ -0,0 +1,111 @@
+package com.glidingpath.rules.util;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import com.glidingpath.core.entity.PlanEligibility;
+
+/**
+ * SQL translation of the standard eligibility rule set (rules/standard/eligibility.drl) over
+ * finch_employee_details, used to push eligibility filtering into the participant query.
+ *
+ * {@link #INELIGIBILITY_REASON} is a CASE expression that yields, per row, the reason the rules
+ * would report for an ineligible participant, or NULL when the participant passes every criterion.
+ * Age and months of service are computed exactly like {@link java.time.Period#between} does for
+ * EmployeeEligibilityDTO, so the reason text matches the rules character for character. Like the
+ * rules, the last failing criterion in declaration order wins (type, then status, service, age).
+ *
+ * Parameters: :minimumEntryAge, :timeEmployedMonths, :currentMonth (year * 12 + month) and
+ * :currentDay of the evaluation date. Plan exclusions are not part of the standard rule set and
+ * are therefore not translated either.
+ */
+public final class EligibilitySqlPredicate {
+
+    // Period.between(column, currentDate).toTotalMonths(); NULL when the column is NULL
+    private static final String RAW_MONTHS_DOB =
+            "(:currentMonth - (CAST(EXTRACT(YEAR FROM dob) AS INTEGER) * 12 + CAST(EXTRACT(MONTH FROM dob) AS INTEGER)))";
+    private static final String PERIOD_MONTHS_DOB =
+            "(" + RAW_MONTHS_DOB + " - CASE"
+            + " WHEN " + RAW_MONTHS_DOB + " > 0 AND :currentDay < CAST(EXTRACT(DAY FROM dob) AS INTEGER) THEN 1"
+            + " WHEN " + RAW_MONTHS_DOB + " < 0 AND :currentDay > CAST(EXTRACT(DAY FROM dob) AS INTEGER) THEN -1"
+            + " ELSE 0 END)";
+
+    private static final String SERVICE_START = "COALESCE(latest_rehire_date, start_date)";
+    private static final String RAW_MONTHS_SERVICE =
+            "(:currentMonth - (CAST(EXTRACT(YEAR FROM " + SERVICE_START + ") AS INTEGER) * 12"
+            + " + CAST(EXTRACT(MONTH FROM " + SERVICE_START + ") AS INTEGER)))";
+    private static final String PERIOD_MONTHS_SERVICE =
+            "(" + RAW_MONTHS_SERVICE + " - CASE"
+            + " WHEN " + RAW_MONTHS_SERVICE + " > 0 AND :currentDay < CAST(EXTRACT(DAY FROM " + SERVICE_START + ") AS INTEGER) THEN 1"
+            + " WHEN " + RAW_MONTHS_SERVICE + " < 0 AND :currentDay > CAST(EXTRACT(DAY FROM " + SERVICE_START + ") AS INTEGER) THEN -1"
+            + " ELSE 0 END)";
+
+    /**
+     * EmployeeEligibilityDTO.getAge(): whole years between dob and the evaluation date, 0 without dob
+     */
+    public static final String AGE = "COALESCE(" + PERIOD_MONTHS_DOB + " / 12, 0)";
+
+    /**
+     * EmployeeEligibilityDTO.getMonthsOfService(): from the rehire date if any, else the start date, 0 without either
+     */
+    public static final String MONTHS_OF_SERVICE = "COALESCE(" + PERIOD_MONTHS_SERVICE + ", 0)";
+
+    /**
+     * Reason the standard rules give an ineligible participant, NULL for participants that pass
+     */
+    public static final String INELIGIBILITY_REASON = "(CASE"
+            + " WHEN employment_type IS NULL OR employment_type <> 'FULL_TIME'"
+            + " THEN 'Not eligible: Employment type ' || COALESCE(employment_type, 'null') || ' (must be FULL_TIME)'"
+            + " WHEN employment_status IS NULL OR employment_status <> 'ACTIVE'"
+            + " THEN 'Not eligible: Employment status ' || COALESCE(employment_status, 'null') || ' (must be ACTIVE)'"
+            + " WHEN " + MONTHS_OF_SERVICE + " < :timeEmployedMonths"
+            + " THEN 'Not eligible: Service duration ' || CAST(" + MONTHS_OF_SERVICE + " AS VARCHAR)"
+            + " || ' months (minimum ' || CAST(:timeEmployedMonths AS VARCHAR) || ' months required)'"
+            + " WHEN " + AGE + " < :minimumEntryAge"
+            + " THEN 'Not eligible: Age ' || CAST(" + AGE + " AS VARCHAR)"
+            + " || ' (minimum ' || CAST(:minimumEntryAge AS VARCHAR) || ' required)'"
+            + " END)";
+
+    private final int minimumEntryAge;
+    private final int timeEmployedMonths;
+    private final LocalDate currentDate;
+
+    private EligibilitySqlPredicate(int minimumEntryAge, int timeEmployedMonths, LocalDate currentDate) {
+        this.minimumEntryAge = minimumEntryAge;
+        this.timeEmployedMonths = timeEmployedMonths;
+        this.currentDate = currentDate;
+    }
+
+    /**
+     * Translate the plan thresholds for an evaluation on the given date.
+     * Empty when a threshold is missing: the rules then mark nobody eligible and leave some
+     * participants without a reason, which is not worth reproducing in SQL.
+     */
+    public static Optional<EligibilitySqlPredicate> forPlan(PlanEligibility planEligibility, LocalDate currentDate) {
+        if (planEligibility.getMinimumEntryAge() == null || planEligibility.getTimeEmployedMonths() == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new EligibilitySqlPredicate(planEligibility.getMinimumEntryAge(),
+                planEligibility.getTimeEmployedMonths(), currentDate));
+    }
+
+    public int getMinimumEntryAge() {
+        return minimumEntryAge;
+    }
+
+    public int getTimeEmployedMonths() {
+        return timeEmployedMonths;
+    }
+
+    public LocalDate getCurrentDate() {
+        return currentDate;
+    }
+
+    public int getCurrentMonth() {
+        return currentDate.getYear() * 12 + currentDate.getMonthValue();
+    }
+
+    public int getCurrentDay() {
+        return currentDate.getDayOfMonth();
+    }
+}
@@ -0,0 +1,55 @@
+package com.glidingpath.rules.util;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Pay periods per year of a payroll period, for turning the annual contribution amounts of a
+ * calculation into the amount taken from each paycheck.
+ *
+ * The frequency is inferred from the period's dates: periods running from the 1st or 16th to the
+ * 15th or the end of the month are semi-monthly, whole calendar months are monthly, and other
+ * periods go by their length in days (weekly, biweekly, monthly, quarterly, annual).
+ */
+public final class PayPeriods {
+
+    private PayPeriods() {
+    }
+
+    /**
+     * Paychecks per year of the payroll period from start to end, both inclusive
+     */
+    public static int perYear(LocalDate start, LocalDate end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("Invalid payroll period " + start + " to " + end);
+        }
+        if (isSemiMonthly(start, end)) {
+            return 24;
+        }
+        if (start.getDayOfMonth() == 1 && end.equals(start.withDayOfMonth(start.lengthOfMonth()))) {
+            return 12;
+        }
+        long days = ChronoUnit.DAYS.between(start, end) + 1;
+        if (days <= 7) {
+            return 52;
+        }
+        if (days <= 14) {
+            return 26;
+        }
+        if (days <= 31) {
+            return 12;
+        }
+        if (days <= 92) {
+            return 4;
+        }
+        return 1;
+    }
+
+    private static boolean isSemiMonthly(LocalDate start, LocalDate end) {
+        if (!start.withDayOfMonth(1).equals(end.withDayOfMonth(1))) {
+            return false;
+        }
+        return (start.getDayOfMonth() == 1 && end.getDayOfMonth() == 15)
+                || (start.getDayOfMonth() == 16 && end.getDayOfMonth() == end.lengthOfMonth());
+    }
+}
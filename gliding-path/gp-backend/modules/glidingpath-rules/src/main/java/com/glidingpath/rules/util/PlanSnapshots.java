@@ -0,0 +1,122 @@
+package com.glidingpath.rules.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.common.dto.PlanSnapshot.MatchFormula;
+import com.glidingpath.core.entity.EmployeeContributionConfig;
+import com.glidingpath.core.entity.EmployerContributionRule;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.core.entity.ProfitSharingConfig;
+import com.glidingpath.core.entity.TenantPlan;
+
+/**
+ * Builds {@link PlanSnapshot}s from the TenantPlan entity graph.
+ *
+ * All association walking and normalization happens here, once per plan version; the values
+ * reproduce what CalculationBatchProcessor used to derive from the entities for every employee.
+ */
+public final class PlanSnapshots {
+
+    // Rate used by auto-enrollment when the plan sets no start rate
+    private static final BigDecimal DEFAULT_AUTO_ENROLLMENT_PERCENT = new BigDecimal("3.0");
+    // 2024 IRS compensation limit
+    private static final BigDecimal COMPENSATION_LIMIT = BigDecimal.valueOf(315000);
+    private static final int DEFAULT_MINIMUM_AGE = 21;
+    private static final int DEFAULT_MINIMUM_SERVICE_MONTHS = 1;
+
+    private PlanSnapshots() {
+    }
+
+    public static PlanSnapshot of(TenantPlan tenantPlan) {
+        PlanEligibility eligibility = tenantPlan.getEligibility();
+        EmployeeContributionConfig employeeConfig = tenantPlan.getEmployeeContributionConfig();
+        EmployerContributionRule employerRule = tenantPlan.getEmployerContributionRule();
+        ProfitSharingConfig profitSharing = tenantPlan.getProfitSharingConfig();
+
+        PlanSnapshot snapshot = new PlanSnapshot(
+                null,
+                tenantPlan.getId(),
+                tenantPlan.getTenantId(),
+                tenantPlan.getPlanTypeId() != null ? tenantPlan.getPlanTypeId().toString() : "UNKNOWN",
+
+                eligibility != null && eligibility.getMinimumEntryAge() != null
+                        ? eligibility.getMinimumEntryAge() : DEFAULT_MINIMUM_AGE,
+                eligibility != null && eligibility.getTimeEmployedMonths() != null
+                        ? eligibility.getTimeEmployedMonths() : DEFAULT_MINIMUM_SERVICE_MONTHS,
+
+                employeeConfig != null ? employeeConfig.getId() : null,
+                employeeContributionPercent(employeeConfig),
+                employeeConfig != null && Boolean.TRUE.equals(employeeConfig.getIsAutoEnrollment()),
+                employeeConfig != null && employeeConfig.getEnrollmentStartRate() != null
+                        ? BigDecimal.valueOf(employeeConfig.getEnrollmentStartRate()) : DEFAULT_AUTO_ENROLLMENT_PERCENT,
+
+                employerRule != null ? employerRule.getId() : null,
+                employerRule != null ? employerRule.getRuleType() : "NO_MATCH",
+                matchFormula(employerRule),
+                employerRule != null ? orZero(employerRule.getMatchPercentage()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getMatchLimitPercent()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getBasicMatchFirstPercent()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getBasicMatchFirstRate()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getBasicMatchSecondPercent()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getBasicMatchSecondRate()) : BigDecimal.ZERO,
+                employerRule != null ? orZero(employerRule.getNonElectivePercent()) : BigDecimal.ZERO,
+
+                profitSharing != null ? profitSharing.getId() : null,
+                profitSharing != null && profitSharing.getProRataPercentage() != null
+                        ? BigDecimal.valueOf(profitSharing.getProRataPercentage()) : null,
+
+                COMPENSATION_LIMIT);
+        return snapshot.withVersion(versionOf(snapshot));
+    }
+
+    /**
+     * Start rate, auto-enrollment default when auto-enrolled at 0%, capped at the maximum rate
+     */
+    private static BigDecimal employeeContributionPercent(EmployeeContributionConfig config) {
+        if (config == null) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal percent = orZero(config.getEnrollmentStartRate());
+        if (Boolean.TRUE.equals(config.getIsAutoEnrollment()) && percent.compareTo(BigDecimal.ZERO) == 0) {
+            percent = config.getEnrollmentStartRate() != null
+                    ? BigDecimal.valueOf(config.getEnrollmentStartRate()) : DEFAULT_AUTO_ENROLLMENT_PERCENT;
+        }
+        if (config.getEnrollmentMaxRate() != null && percent.compareTo(BigDecimal.valueOf(config.getEnrollmentMaxRate())) > 0) {
+            percent = BigDecimal.valueOf(config.getEnrollmentMaxRate());
+        }
+        return percent;
+    }
+
+    private static MatchFormula matchFormula(EmployerContributionRule rule) {
+        if (rule == null || rule.getRuleType() == null) {
+            return MatchFormula.NONE;
+        }
+        return switch (rule.getRuleType()) {
+            case "MATCH", "BASIC_MATCH" -> MatchFormula.PERCENT_OF_CONTRIBUTION;
+            case "PERCENTAGE_MATCH" -> MatchFormula.PERCENT_OF_COMPENSATION;
+            default -> MatchFormula.NONE;
+        };
+    }
+
+    private static BigDecimal orZero(Double value) {
+        return value != null ? BigDecimal.valueOf(value) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Content hash of the unversioned snapshot: the record's toString covers every component
+     */
+    private static String versionOf(PlanSnapshot unversioned) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(unversioned.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
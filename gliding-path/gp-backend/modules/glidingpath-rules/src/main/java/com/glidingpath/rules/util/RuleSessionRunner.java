@@ -0,0 +1,81 @@
+package com.glidingpath.rules.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.kie.api.KieServices;
+import org.kie.api.command.Command;
+import org.kie.api.command.KieCommands;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.common.dto.PrePayrollCalculationFact;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.rules.runtime.RuleProfiler;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a list of facts through one stateless session of a given rule set.
+ * Shared by the active evaluation path and the shadow evaluation of candidate rule sets.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RuleSessionRunner {
+
+    private final RuleProfiler ruleProfiler;
+
+    /**
+     * Evaluate eligibility facts in one session; globals are set once for the whole list
+     */
+    public void runEligibility(RuleSetVersion ruleSet, List<EmployeeEligibilityDTO> employeeDtos,
+                               PlanEligibility planEligibility) {
+        employeeDtos.forEach(dto -> dto.setRuleSetVersion(ruleSet.getVersion()));
+        StatelessKieSession statelessSession = newStatelessSession(ruleSet, "ksession-eligibility");
+        statelessSession.execute(newBatch(Map.of("planEligibility", planEligibility), employeeDtos));
+    }
+
+    /**
+     * Evaluate pre-payroll facts in one session; globals are set once for the whole list
+     */
+    public void runPrePayroll(RuleSetVersion ruleSet, List<PrePayrollCalculationFact> facts, PlanSnapshot planSnapshot) {
+        facts.forEach(fact -> fact.setRuleSetVersion(ruleSet.getVersion()));
+        StatelessKieSession statelessSession = newStatelessSession(ruleSet, "ksession-prepayroll");
+        statelessSession.execute(newBatch(Map.of("planSnapshot", planSnapshot), facts));
+    }
+
+    /**
+     * Build one batch command: set every global once, insert all facts, fire
+     */
+    private Command<?> newBatch(Map<String, Object> globals, List<?> facts) {
+        KieCommands commands = KieServices.get().getCommands();
+        List<Command<?>> batch = new ArrayList<>();
+        globals.forEach((name, value) -> batch.add(commands.newSetGlobal(name, value)));
+        batch.add(commands.newInsertElements(facts));
+        batch.add(commands.newFireAllRules());
+        return commands.newBatchExecution(batch);
+    }
+
+    /**
+     * Create the named stateless session, falling back to the default session like the single-fact paths
+     */
+    private StatelessKieSession newStatelessSession(RuleSetVersion ruleSet, String sessionName) {
+        KieContainer kieContainer = ruleSet.getKieContainer();
+        StatelessKieSession statelessSession;
+        try {
+            statelessSession = kieContainer.newStatelessKieSession(sessionName);
+        } catch (Exception e) {
+            log.warn("Named session '{}' not found, falling back to default session", sessionName, e);
+            statelessSession = kieContainer.newStatelessKieSession();
+        }
+        ruleProfiler.attach(statelessSession, ruleSet.getVersion());
+        return statelessSession;
+    }
+}
@@ -0,0 +1,296 @@
+package com.glidingpath.rules.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.common.dto.PlanSnapshot;
+import com.glidingpath.common.dto.PrePayrollCalculationFact;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.rules.runtime.RuleRuntimeHolder;
+import com.glidingpath.rules.runtime.RuleSetVersion;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a sample of production evaluations against the staged candidate rule set in shadow.
+ *
+ * Callers copy the input facts before the active evaluation and hand over the copies together with
+ * the active outcome and wall time. The candidate runs on its own bounded executor, so a slow
+ * candidate can only drop shadow samples, never slow down payroll. Outcomes are compared per fact
+ * and latencies per evaluation; the report shows divergences and p50/p99 latency of both sides.
+ * Only evaluations that ran on the global active rule set are shadowed; tenant overrides are expected to differ.
+ * Evaluations the Java eligibility fast path answered are reported separately as eligibility-fast-path,
+ * with candidate latency only: timing a Java predicate against a Drools session says nothing about the candidate.
+ */
+@Slf4j
+@Component
+public class ShadowRuleEvaluator {
+
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int DIVERGENCE_EXAMPLES = 20;
+    // Active side was not a Drools session, so it has no comparable latency
+    private static final long NOT_TIMED = -1;
+
+    private final RuleRuntimeHolder ruleRuntimeHolder;
+    private final RuleSessionRunner ruleSessionRunner;
+    private final ThreadPoolTaskExecutor shadowExecutor;
+    private final double sampleRate;
+
+    private final Map<String, ShadowStats> stats = new LinkedHashMap<>();
+    private Long statsCandidateVersion;
+
+    public ShadowRuleEvaluator(RuleRuntimeHolder ruleRuntimeHolder,
+                               RuleSessionRunner ruleSessionRunner,
+                               @Qualifier("ruleShadowExecutor") ThreadPoolTaskExecutor shadowExecutor,
+                               @Value("${rules.shadow.sample-rate:0.05}") double sampleRate) {
+        this.ruleRuntimeHolder = ruleRuntimeHolder;
+        this.ruleSessionRunner = ruleSessionRunner;
+        this.shadowExecutor = shadowExecutor;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Whether this evaluation should also run against the candidate. Cheap when no candidate is staged.
+     */
+    public boolean shouldShadow(RuleSetVersion activeRuleSet) {
+        return sampleRate > 0
+                && ruleRuntimeHolder.candidate().isPresent()
+                && activeRuleSet.getVersion() == ruleRuntimeHolder.current().getVersion()
+                && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    public EmployeeEligibilityDTO copyOf(EmployeeEligibilityDTO source) {
+        EmployeeEligibilityDTO copy = new EmployeeEligibilityDTO();
+        BeanUtils.copyProperties(source, copy);
+        copy.age = source.age;
+        copy.monthsOfService = source.monthsOfService;
+        return copy;
+    }
+
+    public PrePayrollCalculationFact copyOf(PrePayrollCalculationFact source) {
+        PrePayrollCalculationFact copy = new PrePayrollCalculationFact();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+
+    /**
+     * Evaluate the untouched input copies with the candidate and compare with the active outcome
+     */
+    public void shadowEligibility(List<EmployeeEligibilityDTO> inputCopies, List<EmployeeEligibilityDTO> activeResults,
+                                  PlanEligibility planEligibility, long activeNanos) {
+        shadow("eligibility", inputCopies, activeResults, activeNanos, ShadowRuleEvaluator::eligibilityOutcome,
+                EmployeeEligibilityDTO::getEmployeeId,
+                (candidate, facts) -> ruleSessionRunner.runEligibility(candidate, facts, planEligibility));
+    }
+
+    /**
+     * Evaluate the untouched input copies with the candidate and compare with the outcome of the
+     * eligibility fast path; only outcomes and candidate latency are recorded
+     */
+    public void shadowFastPathEligibility(List<EmployeeEligibilityDTO> inputCopies, List<EmployeeEligibilityDTO> activeResults,
+                                          PlanEligibility planEligibility) {
+        shadow("eligibility-fast-path", inputCopies, activeResults, NOT_TIMED, ShadowRuleEvaluator::eligibilityOutcome,
+                EmployeeEligibilityDTO::getEmployeeId,
+                (candidate, facts) -> ruleSessionRunner.runEligibility(candidate, facts, planEligibility));
+    }
+
+    /**
+     * Evaluate the untouched input copies with the candidate and compare with the active outcome
+     */
+    public void shadowPrePayroll(List<PrePayrollCalculationFact> inputCopies, List<PrePayrollCalculationFact> activeResults,
+                                 PlanSnapshot planSnapshot, long activeNanos) {
+        shadow("prepayroll", inputCopies, activeResults, activeNanos, ShadowRuleEvaluator::prePayrollOutcome,
+                PrePayrollCalculationFact::getEmployeeId,
+                (candidate, facts) -> ruleSessionRunner.runPrePayroll(candidate, facts, planSnapshot));
+    }
+
+    /**
+     * Divergence and latency report for the staged candidate
+     */
+    public synchronized Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("activeVersion", ruleRuntimeHolder.current().getVersion());
+        report.put("candidateVersion", ruleRuntimeHolder.candidate().map(RuleSetVersion::getVersion).orElse(null));
+        report.put("sampleRate", sampleRate);
+        Map<String, Object> byKind = new LinkedHashMap<>();
+        if (Objects.equals(statsCandidateVersion, report.get("candidateVersion"))) {
+            stats.forEach((kind, kindStats) -> byKind.put(kind, kindStats.toMap()));
+        }
+        report.put("evaluations", byKind);
+        return report;
+    }
+
+    private <T> void shadow(String kind, List<T> inputCopies, List<T> activeResults, long activeNanos,
+                            Function<T, String> outcome, Function<T, String> idOf, ShadowRun<T> run) {
+        RuleSetVersion candidate = ruleRuntimeHolder.candidate().orElse(null);
+        if (candidate == null) {
+            return;
+        }
+        // Snapshot now: the active results keep being mutated by the caller after this returns
+        List<String> activeOutcomes = activeResults.stream().map(outcome).toList();
+
+        try {
+            shadowExecutor.execute(() -> {
+                try {
+                    long start = System.nanoTime();
+                    run.run(candidate, inputCopies);
+                    long candidateNanos = System.nanoTime() - start;
+
+                    ShadowStats kindStats = statsFor(kind, candidate.getVersion(), activeNanos != NOT_TIMED);
+                    for (int i = 0; i < inputCopies.size(); i++) {
+                        String candidateOutcome = outcome.apply(inputCopies.get(i));
+                        kindStats.recordFact(idOf.apply(inputCopies.get(i)), activeOutcomes.get(i), candidateOutcome);
+                    }
+                    kindStats.recordLatency(activeNanos, candidateNanos);
+                } catch (Exception e) {
+                    statsFor(kind, candidate.getVersion(), activeNanos != NOT_TIMED).recordFailure();
+                    log.warn("Shadow {} evaluation failed for candidate rule set version {}", kind, candidate.getVersion(), e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            statsFor(kind, candidate.getVersion(), activeNanos != NOT_TIMED).recordDropped();
+        }
+    }
+
+    private synchronized ShadowStats statsFor(String kind, long candidateVersion, boolean activeTimed) {
+        if (!Objects.equals(statsCandidateVersion, candidateVersion)) {
+            // New candidate: numbers of the previous one are meaningless for it
+            stats.clear();
+            statsCandidateVersion = candidateVersion;
+        }
+        return stats.computeIfAbsent(kind, k -> new ShadowStats(activeTimed));
+    }
+
+    private static String eligibilityOutcome(EmployeeEligibilityDTO dto) {
+        return "eligible=" + dto.isEligible() + ", date=" + dto.getEligibilityDate() + ", reason=" + dto.getEligibilityReason();
+    }
+
+    private static String prePayrollOutcome(PrePayrollCalculationFact fact) {
+        return "employee=" + plain(fact.getEmployeeContribution())
+                + ", employer=" + plain(fact.getEmployerContribution())
+                + ", profitSharing=" + plain(fact.getProfitSharingContribution())
+                + ", total=" + plain(fact.getTotalContribution());
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : null;
+    }
+
+    @FunctionalInterface
+    private interface ShadowRun<T> {
+        void run(RuleSetVersion candidate, List<T> facts);
+    }
+
+    /**
+     * Counters and latency window for one kind of evaluation; guarded by the enclosing instance
+     */
+    private final class ShadowStats {
+        private final boolean activeTimed;
+        private long facts;
+        private long divergentFacts;
+        private long runs;
+        private long dropped;
+        private long failures;
+        private final long[] activeNanos = new long[LATENCY_WINDOW];
+        private final long[] candidateNanos = new long[LATENCY_WINDOW];
+        private final Deque<Map<String, String>> recentDivergences = new ArrayDeque<>();
+
+        ShadowStats(boolean activeTimed) {
+            this.activeTimed = activeTimed;
+        }
+
+        void recordFact(String employeeId, String activeOutcome, String candidateOutcome) {
+            synchronized (ShadowRuleEvaluator.this) {
+                facts++;
+                if (!Objects.equals(activeOutcome, candidateOutcome)) {
+                    divergentFacts++;
+                    Map<String, String> example = new LinkedHashMap<>();
+                    example.put("employeeId", employeeId);
+                    example.put("active", activeOutcome);
+                    example.put("candidate", candidateOutcome);
+                    recentDivergences.addFirst(example);
+                    if (recentDivergences.size() > DIVERGENCE_EXAMPLES) {
+                        recentDivergences.removeLast();
+                    }
+                }
+            }
+        }
+
+        void recordLatency(long active, long candidate) {
+            synchronized (ShadowRuleEvaluator.this) {
+                int slot = (int) (runs % LATENCY_WINDOW);
+                activeNanos[slot] = active;
+                candidateNanos[slot] = candidate;
+                runs++;
+            }
+        }
+
+        void recordDropped() {
+            synchronized (ShadowRuleEvaluator.this) {
+                dropped++;
+            }
+        }
+
+        void recordFailure() {
+            synchronized (ShadowRuleEvaluator.this) {
+                failures++;
+            }
+        }
+
+        Map<String, Object> toMap() {
+            int window = (int) Math.min(runs, LATENCY_WINDOW);
+            long[] active = Arrays.copyOf(activeNanos, window);
+            long[] candidate = Arrays.copyOf(candidateNanos, window);
+            long[] delta = new long[window];
+            for (int i = 0; i < window; i++) {
+                delta[i] = candidate[i] - active[i];
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("facts", facts);
+            map.put("divergentFacts", divergentFacts);
+            map.put("divergenceRate", facts > 0 ? (double) divergentFacts / facts : 0);
+            map.put("runs", runs);
+            map.put("dropped", dropped);
+            map.put("failures", failures);
+            if (activeTimed) {
+                map.put("activeP50Ms", percentileMs(active, 0.50));
+                map.put("activeP99Ms", percentileMs(active, 0.99));
+            }
+            map.put("candidateP50Ms", percentileMs(candidate, 0.50));
+            map.put("candidateP99Ms", percentileMs(candidate, 0.99));
+            if (activeTimed) {
+                map.put("deltaP50Ms", percentileMs(delta, 0.50));
+                map.put("deltaP99Ms", percentileMs(delta, 0.99));
+            }
+            map.put("recentDivergences", List.copyOf(recentDivergences));
+            return map;
+        }
+
+        private double percentileMs(long[] values, double percentile) {
+            if (values.length == 0) {
+                return 0;
+            }
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.glidingpath.rules.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket holding callers to a request rate: tokens refill at a fixed rate up to the burst
+ * size, and each request takes one.
+ *
+ * A caller finding the bucket empty reserves the next token and sleeps until it is due, outside
+ * the lock. Reservations are served in the order they were made, so waiting callers are admitted
+ * one per refill interval instead of all at once when a token comes free.
+ */
+public final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double nanosPerToken;
+    private final double burst;
+
+    // Tokens available at refilledAt; negative while tokens are reserved ahead
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive: " + requestsPerSecond + "/s, burst " + burst);
+        }
+        this.nanosPerToken = NANOS_PER_SECOND / requestsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Take a token, waiting until one is due
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * nanosPerToken);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Drop the tokens available now, e.g. after the server answered that the rate was exceeded;
+     * callers then wait for tokens to refill. Reservations already made are kept.
+     */
+    public synchronized void drain() {
+        refill();
+        tokens = Math.min(tokens, 0);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / nanosPerToken);
+        refilledAt = now;
+    }
+}
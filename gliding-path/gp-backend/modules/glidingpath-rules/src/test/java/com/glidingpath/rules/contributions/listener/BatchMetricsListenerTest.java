@@ -0,0 +1,148 @@
+package com.glidingpath.rules.contributions.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import constants.BatchConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs a fault-tolerant chunk job on an embedded job repository with the listener registered the
+ * way PrePayrollBatchConfig registers it, and checks the job, step, chunk and item meters.
+ */
+class BatchMetricsListenerTest {
+
+    private static final String TENANT = "tenant-1";
+    private static final int ITEMS = 10;
+    private static final int CHUNK_SIZE = 4;
+
+    private EmbeddedDatabase database;
+    private JdbcTransactionManager transactionManager;
+    private JobRepository jobRepository;
+    private SimpleMeterRegistry registry;
+    private BatchMetricsListener listener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        transactionManager = new JdbcTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        jobRepository = factory.getObject();
+
+        registry = new SimpleMeterRegistry();
+        listener = new BatchMetricsListener(
+                new StaticListableBeanFactory(Map.of("meterRegistry", registry)).getBeanProvider(MeterRegistry.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void registersAndIncrementsTheJobStepAndChunkMeters() throws Exception {
+        JobExecution execution = run(job());
+
+        assertThat(execution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(meters("batch.job").tag("status", "COMPLETED").timer().count()).isEqualTo(1);
+        assertThat(meters("batch.step").tag("step", "metricsStep").tag("status", "COMPLETED").timer().count()).isEqualTo(1);
+
+        // Three chunks with items and the last, empty one that finds the end of the input
+        assertThat(meters("batch.chunk").timer().count()).isEqualTo(4);
+        assertThat(meters("batch.read").timer().count()).isGreaterThanOrEqualTo(ITEMS);
+        assertThat(meters("batch.process").timer().count()).isGreaterThanOrEqualTo(ITEMS);
+        assertThat(meters("batch.write").timer().count()).isEqualTo(3);
+
+        assertThat(meters("batch.items.read").counter().count()).isEqualTo(ITEMS);
+        assertThat(meters("batch.items.filtered").counter().count()).isEqualTo(2);
+        assertThat(meters("batch.items.written").counter().count()).isEqualTo(ITEMS - 2);
+        assertThat(meters("batch.items.skipped").counter().count()).isZero();
+        assertThat(meters("batch.items.retried").counter().count()).isEqualTo(1);
+
+        assertThat(meters("batch.step.items.per.second").gauge()).isNotNull();
+        assertThat(meters("batch.partitions.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void tagsTheMetersOfEachRunWithItsTenant() throws Exception {
+        run(job());
+        run(job());
+
+        assertThat(meters("batch.job").timer().count()).isEqualTo(2);
+        assertThat(meters("batch.items.read").counter().count()).isEqualTo(2 * ITEMS);
+        assertThat(registry.find("batch.items.read").tag("tenant", "other").counter()).isNull();
+    }
+
+    /**
+     * A job with one fault-tolerant step: the processor filters every fifth item and fails once on item 3
+     */
+    private Job job() {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Integer> items = IntStream.range(0, ITEMS).boxed().toList();
+        return new JobBuilder("metricsJob", jobRepository)
+                .start(new StepBuilder("metricsStep", jobRepository)
+                        .<Integer, Integer>chunk(CHUNK_SIZE, transactionManager)
+                        .reader(new ListItemReader<>(items))
+                        .processor(item -> {
+                            if (item == 3 && failed.compareAndSet(false, true)) {
+                                throw new IllegalStateException("transient failure");
+                            }
+                            return item % 5 == 0 ? null : item;
+                        })
+                        .writer(chunk -> { })
+                        .listener(listener)
+                        .faultTolerant()
+                        .retry(IllegalStateException.class)
+                        .retryLimit(2)
+                        .listener(listener.getRetryListener())
+                        .build())
+                .listener(listener)
+                .build();
+    }
+
+    private JobExecution run(Job job) throws Exception {
+        TaskExecutorJobLauncher launcher = new TaskExecutorJobLauncher();
+        launcher.setJobRepository(jobRepository);
+        launcher.afterPropertiesSet();
+        return launcher.run(job, new JobParametersBuilder()
+                .addString(BatchConstants.JOB_PARAM_TENANT_ID, TENANT)
+                .addLong(BatchConstants.JOB_PARAM_TIMESTAMP, System.nanoTime())
+                .toJobParameters());
+    }
+
+    private Search meters(String name) {
+        return registry.find(name).tag("tenant", TENANT).tag("job", "metricsJob");
+    }
+}
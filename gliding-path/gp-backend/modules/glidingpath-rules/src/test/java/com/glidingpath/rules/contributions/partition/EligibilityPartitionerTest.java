@@ -0,0 +1,131 @@
+package com.glidingpath.rules.contributions.partition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.glidingpath.rules.repository.EligibilityParticipantRepository;
+import com.glidingpath.rules.support.CountingDataSource;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class EligibilityPartitionerTest {
+
+    private static final String TENANT = "tenant-1";
+
+    private CountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private EligibilityPartitioner partitioner;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new CountingDataSource("eligibility_partitioner");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE finch_employee_details (id UUID PRIMARY KEY, individual_id VARCHAR(255),"
+                + " tenant_id VARCHAR(255))");
+        jdbcTemplate.execute("CREATE INDEX idx_finch_employee_details_tenant_individual ON finch_employee_details (tenant_id, individual_id)");
+        partitioner = new EligibilityPartitioner(new EligibilityParticipantRepository(dataSource, 500));
+        partitioner.beforeStep(MetaDataInstanceFactory.createStepExecution(new JobParametersBuilder()
+                .addString(BatchConstants.JOB_PARAM_TENANT_ID, TENANT).toJobParameters()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void splitsSkewedIdsIntoEqualRangesCoveringEveryParticipantOnce() {
+        int participants = 50_000;
+        int gridSize = 8;
+        insertSkewedParticipants(participants, 25);
+        dataSource.reset();
+
+        long start = System.nanoTime();
+        Map<String, ExecutionContext> partitions = partitioner.partition(gridSize);
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(dataSource.statements()).hasSize(1);
+        assertThat(partitions).hasSize(gridSize);
+        List<Integer> sizes = new ArrayList<>();
+        for (ExecutionContext context : partitions.values()) {
+            sizes.add(countInRange(IndividualIdRange.from(context), true));
+        }
+        // Compared by the database, as the worker readers compare them
+        assertThat(sizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(participants);
+        assertThat(sizes).allSatisfy(size -> assertThat(size).isBetween(participants / gridSize, participants / gridSize + 1));
+        assertThat(countInRange(IndividualIdRange.from(partitions.get("partition0")), false)
+                - countInRange(IndividualIdRange.from(partitions.get("partition0")), true)).isEqualTo(25);
+        log.info("Split {} participants into {} partitions of {} in {} ms", participants, gridSize, sizes,
+                elapsedNanos / 1_000_000);
+    }
+
+    @Test
+    void makesNoMorePartitionsThanParticipants() {
+        insertSkewedParticipants(3, 0);
+
+        Map<String, ExecutionContext> partitions = partitioner.partition(8);
+
+        assertThat(partitions).hasSize(3);
+        assertThat(partitions.values()).allSatisfy(context ->
+                assertThat(countInRange(IndividualIdRange.from(context), false)).isEqualTo(1));
+    }
+
+    @Test
+    void coversEverythingWithOneRangeWhenTheTenantHasNoParticipants() {
+        Map<String, ExecutionContext> partitions = partitioner.partition(8);
+
+        assertThat(partitions).hasSize(1);
+        IndividualIdRange range = IndividualIdRange.from(partitions.get("partition0"));
+        assertThat(range.getFromId()).isEmpty();
+        assertThat(range.getToId()).isEmpty();
+        assertThat(range.includesMissingIds()).isTrue();
+    }
+
+    /**
+     * Participants of the tenant with ids clustered like real ones (mostly one numeric prefix, some
+     * mixed case and random ids), missing of them without an id, and as many of another tenant
+     */
+    private void insertSkewedParticipants(int count, int missing) {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(10);
+            String individualId = kind < 7 ? String.format("emp-%07d", random.nextInt(1_000_000) * 10 + i % 10)
+                    : kind < 9 ? "Emp-" + i : UUID.randomUUID().toString();
+            rows.add(new Object[] {UUID.randomUUID(), individualId + "-" + i, TENANT});
+            rows.add(new Object[] {UUID.randomUUID(), individualId + "-" + i, "tenant-2"});
+        }
+        for (int i = 0; i < missing; i++) {
+            rows.add(new Object[] {UUID.randomUUID(), null, TENANT});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO finch_employee_details (id, individual_id, tenant_id) VALUES (?, ?, ?)", rows);
+    }
+
+    private int countInRange(IndividualIdRange range, boolean withIdOnly) {
+        String sql = "SELECT COUNT(*) FROM finch_employee_details WHERE tenant_id = :tenantId AND "
+                + IndividualIdRange.SQL_CONDITION + (withIdOnly ? " AND individual_id IS NOT NULL" : "");
+        Integer count = new NamedParameterJdbcTemplate(jdbcTemplate).queryForObject(sql, new MapSqlParameterSource()
+                .addValue("tenantId", TENANT)
+                .addValue("fromId", range.getFromId())
+                .addValue("toId", range.getToId())
+                .addValue("includeMissingIds", range.includesMissingIds()), Integer.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,136 @@
+package com.glidingpath.rules.contributions.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.glidingpath.common.dto.PrePayrollCalculationDTO;
+import com.glidingpath.rules.repository.PrePayrollCalculationJdbcRepository;
+import com.glidingpath.rules.support.CountingDataSource;
+
+import constants.BatchConstants;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class FinchDeductionBatchWriterTest {
+
+    private static final String TENANT = "tenant-1";
+
+    private CountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private FinchDeductionBatchWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new CountingDataSource("deduction_writer");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE pre_payroll_calculations (calculation_id VARCHAR(255) PRIMARY KEY,"
+                + " tenant_id VARCHAR(255) NOT NULL, status VARCHAR(50), error_message TEXT, processed_at TIMESTAMP,"
+                + " finch_job_id VARCHAR(255), updated_at TIMESTAMP, updated_by VARCHAR(255))");
+        writer = new FinchDeductionBatchWriter(new PrePayrollCalculationJdbcRepository(dataSource));
+        writer.beforeStep(MetaDataInstanceFactory.createStepExecution(new JobParametersBuilder()
+                .addString(BatchConstants.JOB_PARAM_TENANT_ID, TENANT).toJobParameters()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void writesTheStatusOfAChunkWithOneStatement() throws Exception {
+        List<PrePayrollCalculationDTO> chunk = calculations(0, 100);
+        dataSource.reset();
+
+        writer.write(new Chunk<>(chunk));
+
+        assertThat(dataSource.statements()).hasSize(1);
+        assertThat(dataSource.statements().get(0)).startsWith("UPDATE pre_payroll_calculations");
+        Map<String, Object> created = row("CALC-0");
+        assertThat(created.get("status")).isEqualTo("SUCCESS");
+        assertThat(created.get("finch_job_id")).isEqualTo("job-0");
+        assertThat(created.get("processed_at")).isNotNull();
+        Map<String, Object> failed = row("CALC-1");
+        assertThat(failed.get("status")).isEqualTo("FAILED");
+        assertThat(failed.get("error_message")).isEqualTo("rejected 1");
+        Map<String, Object> skipped = row("CALC-2");
+        assertThat(skipped.get("status")).isEqualTo("PENDING");
+        assertThat(skipped.get("updated_by")).isEqualTo("Spring Batch Finch Deduction Job");
+        assertThat(writer.getDeductionStats().getTotalProcessed()).isEqualTo(100);
+    }
+
+    @Test
+    void failsTheChunkWhenTheStatusUpdateFails() {
+        List<PrePayrollCalculationDTO> chunk = calculations(0, 10);
+        jdbcTemplate.execute("ALTER TABLE pre_payroll_calculations DROP COLUMN finch_job_id");
+
+        assertThatThrownBy(() -> writer.write(new Chunk<>(chunk))).isInstanceOf(DataAccessException.class);
+    }
+
+    @Test
+    void writesTenThousandResultsWithOneStatementPerChunk() throws Exception {
+        int items = 10_000;
+        int chunkSize = 100;
+        List<PrePayrollCalculationDTO> calculations = calculations(0, items);
+        dataSource.reset();
+
+        long start = System.nanoTime();
+        for (int from = 0; from < items; from += chunkSize) {
+            writer.write(new Chunk<>(calculations.subList(from, from + chunkSize)));
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        int statements = dataSource.statements().size();
+
+        assertThat(statements).isEqualTo(items / chunkSize);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pre_payroll_calculations WHERE updated_by IS NOT NULL",
+                Integer.class)).isEqualTo(items);
+        log.info("Wrote the status of {} calculations in chunks of {}: {} statements, {} items/s", items, chunkSize,
+                statements, items * 1_000_000_000L / Math.max(1, elapsedNanos));
+    }
+
+    /**
+     * Stored calculations CALC-from to CALC-(to - 1) and their deduction results, cycling through
+     * CREATED, FAILED and SKIPPED
+     */
+    private List<PrePayrollCalculationDTO> calculations(int from, int to) {
+        List<Object[]> rows = new ArrayList<>();
+        List<PrePayrollCalculationDTO> results = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new Object[] {"CALC-" + i, TENANT});
+            PrePayrollCalculationDTO result = new PrePayrollCalculationDTO();
+            result.setCalculationId("CALC-" + i);
+            result.setTenantId(TENANT);
+            result.setStatus("SUCCESS");
+            switch (i % 3) {
+                case 0 -> {
+                    result.setFinchStatus("CREATED");
+                    result.setFinchJobId("job-" + i);
+                }
+                case 1 -> {
+                    result.setFinchStatus("FAILED");
+                    result.setFinchErrorMessage("rejected " + i);
+                }
+                default -> result.setFinchStatus("SKIPPED");
+            }
+            results.add(result);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pre_payroll_calculations (calculation_id, tenant_id, status) VALUES (?, ?, 'PENDING')", rows);
+        return results;
+    }
+
+    private Map<String, Object> row(String calculationId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM pre_payroll_calculations WHERE calculation_id = ?", calculationId);
+    }
+}
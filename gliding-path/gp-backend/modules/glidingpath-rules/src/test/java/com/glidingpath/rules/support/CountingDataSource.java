@@ -0,0 +1,69 @@
+package com.glidingpath.rules.support;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * In-memory H2 data source in PostgreSQL mode that records the SQL of every statement prepared or
+ * created on its connections, for asserting how many statements a chunk costs.
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    public CountingDataSource(String name) {
+        super(h2(name));
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    /**
+     * SQL of the statements since the last reset, in order; a statement created without SQL is recorded as ""
+     */
+    public List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement", "prepareCall" -> statements.add((String) args[0]);
+                        case "createStatement" -> statements.add("");
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
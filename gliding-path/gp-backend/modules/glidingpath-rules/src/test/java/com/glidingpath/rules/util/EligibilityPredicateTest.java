@@ -0,0 +1,140 @@
+package com.glidingpath.rules.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.StatelessKieSession;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.rules.config.DroolsConfig;
+import com.glidingpath.rules.entity.RuleConfig;
+
+/**
+ * The Java fast path against Drools running the shipped standard eligibility rules, on random
+ * employees and plans including missing dates, statuses and thresholds.
+ */
+class EligibilityPredicateTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+    private static final String[] STATUSES = {"ACTIVE", "INACTIVE", "TERMINATED", null};
+    private static final String[] TYPES = {"FULL_TIME", "PART_TIME", "CONTRACTOR", null};
+    private static final Integer[] MINIMUM_AGES = {null, 18, 21};
+    private static final Integer[] SERVICE_MONTHS = {null, 0, 3, 12};
+
+    private static KieContainer container;
+
+    @BeforeAll
+    static void compileStandardRules() throws IOException {
+        RuleConfig rule = new RuleConfig();
+        rule.setName("eligibility");
+        try (InputStream in = EligibilityPredicateTest.class.getClassLoader().getResourceAsStream("rules/standard/eligibility.drl")) {
+            rule.setRuleContent(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        container = new DroolsConfig().buildKieContainer(List.of(rule), "eligibility-predicate-test");
+    }
+
+    @AfterAll
+    static void disposeRules() {
+        container.dispose();
+    }
+
+    @Test
+    void givesTheSameResultsAsTheStandardRules() {
+        Random random = new Random(42);
+        int mismatches = 0;
+        List<String> examples = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long seed = random.nextLong();
+            PlanEligibility plan = new PlanEligibility();
+            plan.setMinimumEntryAge(MINIMUM_AGES[random.nextInt(MINIMUM_AGES.length)]);
+            plan.setTimeEmployedMonths(SERVICE_MONTHS[random.nextInt(SERVICE_MONTHS.length)]);
+
+            EmployeeEligibilityDTO byRules = employee(new Random(seed), i);
+            EmployeeEligibilityDTO byPredicate = employee(new Random(seed), i);
+            StatelessKieSession session = container.newStatelessKieSession("ksession-eligibility");
+            session.setGlobal("planEligibility", plan);
+            session.execute(List.of(byRules));
+            EligibilityPredicate.forPlan(plan).apply(byPredicate);
+
+            if (byRules.isEligible() != byPredicate.isEligible()
+                    || !Objects.equals(byRules.getEligibilityDate(), byPredicate.getEligibilityDate())
+                    || !Objects.equals(byRules.getEligibilityReason(), byPredicate.getEligibilityReason())) {
+                mismatches++;
+                if (examples.size() < 5) {
+                    examples.add(byRules + " vs " + byPredicate);
+                }
+            }
+        }
+        assertThat(examples).isEmpty();
+        assertThat(mismatches).isZero();
+    }
+
+    @Test
+    void standardRulesWriteNothingToStandardOutput() {
+        PlanEligibility plan = new PlanEligibility();
+        plan.setMinimumEntryAge(21);
+        plan.setTimeEmployedMonths(3);
+        Random random = new Random(7);
+        List<EmployeeEligibilityDTO> employees = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            employees.add(employee(random, i));
+        }
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            StatelessKieSession session = container.newStatelessKieSession("ksession-eligibility");
+            session.setGlobal("planEligibility", plan);
+            session.execute(employees);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertThat(employees).anyMatch(EmployeeEligibilityDTO::isEligible);
+        assertThat(captured.toString(StandardCharsets.UTF_8)).isEmpty();
+    }
+
+    /**
+     * A random employee as the eligibility reader hands it to the rules
+     */
+    private static EmployeeEligibilityDTO employee(Random random, int index) {
+        EmployeeEligibilityDTO employee = new EmployeeEligibilityDTO();
+        employee.setEmployeeId("emp-" + index);
+        employee.setCurrentDate(random.nextInt(20) == 0 ? null : TODAY);
+        if (random.nextInt(10) > 0) {
+            employee.setDateOfBirth(TODAY.minusDays(random.nextInt(365 * 40)));
+        }
+        if (random.nextInt(10) > 0) {
+            employee.setHireDate(TODAY.minusDays(random.nextInt(400)));
+        }
+        if (random.nextInt(4) == 0) {
+            employee.setRehireDate(TODAY.minusDays(random.nextInt(100)));
+        }
+        employee.setEmploymentStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        employee.setEmploymentType(TYPES[random.nextInt(TYPES.length)]);
+        employee.setEligible(random.nextInt(8) == 0);
+        if (employee.isEligible() && random.nextBoolean()) {
+            employee.setEligibilityDate(TODAY.minusDays(3));
+        }
+        employee.setEligibilityReason("Pending evaluation");
+        employee.age = employee.getAge();
+        employee.monthsOfService = employee.getMonthsOfService();
+        return employee;
+    }
+}
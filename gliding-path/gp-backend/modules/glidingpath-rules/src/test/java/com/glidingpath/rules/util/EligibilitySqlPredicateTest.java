@@ -0,0 +1,194 @@
+package com.glidingpath.rules.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.StatelessKieSession;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.glidingpath.common.dto.EmployeeEligibilityDTO;
+import com.glidingpath.core.entity.PlanEligibility;
+import com.glidingpath.rules.config.DroolsConfig;
+import com.glidingpath.rules.entity.RuleConfig;
+import com.glidingpath.rules.support.CountingDataSource;
+
+/**
+ * The SQL pushdown of the standard eligibility rules against Drools running the shipped rules,
+ * on random participants and evaluation dates around month ends and leap days.
+ */
+class EligibilitySqlPredicateTest {
+
+    private static final LocalDate[] EVALUATION_DATES = {
+            LocalDate.of(2026, 10, 18), LocalDate.of(2024, 2, 29), LocalDate.of(2025, 1, 31), LocalDate.of(2026, 3, 1)};
+    private static final String[] STATUSES = {"ACTIVE", "INACTIVE", "TERMINATED", null};
+    private static final String[] TYPES = {"FULL_TIME", "PART_TIME", "CONTRACTOR", null};
+    private static final int[] MINIMUM_AGES = {0, 18, 21};
+    private static final int[] SERVICE_MONTHS = {0, 3, 12};
+    private static final int PARTICIPANTS = 2_000;
+
+    private static KieContainer container;
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeAll
+    static void compileStandardRules() throws IOException {
+        RuleConfig rule = new RuleConfig();
+        rule.setName("eligibility");
+        try (InputStream in = EligibilitySqlPredicateTest.class.getClassLoader().getResourceAsStream("rules/standard/eligibility.drl")) {
+            rule.setRuleContent(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        container = new DroolsConfig().buildKieContainer(List.of(rule), "eligibility-sql-predicate-test");
+    }
+
+    @AfterAll
+    static void disposeRules() {
+        container.dispose();
+    }
+
+    @BeforeEach
+    void setUp() {
+        CountingDataSource dataSource = new CountingDataSource("eligibility_sql_predicate");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE finch_employee_details (id UUID PRIMARY KEY, individual_id VARCHAR(255),"
+                + " tenant_id VARCHAR(255), dob DATE, start_date DATE, latest_rehire_date DATE,"
+                + " employment_status VARCHAR(50), employment_type VARCHAR(50))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void givesTheReasonsOfTheStandardRules() {
+        Random random = new Random(42);
+        List<String> mismatches = new ArrayList<>();
+        for (LocalDate evaluationDate : EVALUATION_DATES) {
+            jdbcTemplate.execute("DELETE FROM finch_employee_details");
+            List<EmployeeEligibilityDTO> employees = participants(random, evaluationDate);
+            for (int minimumEntryAge : MINIMUM_AGES) {
+                for (int timeEmployedMonths : SERVICE_MONTHS) {
+                    PlanEligibility plan = new PlanEligibility();
+                    plan.setMinimumEntryAge(minimumEntryAge);
+                    plan.setTimeEmployedMonths(timeEmployedMonths);
+                    EligibilitySqlPredicate predicate = EligibilitySqlPredicate.forPlan(plan, evaluationDate).orElseThrow();
+
+                    Map<String, String> sqlReasons = sqlReasons(predicate);
+                    for (EmployeeEligibilityDTO employee : evaluate(employees, plan)) {
+                        String expected = employee.isEligible() ? null : employee.getEligibilityReason();
+                        String actual = sqlReasons.get(employee.getEmployeeId());
+                        if (!Objects.equals(expected, actual) && mismatches.size() < 5) {
+                            mismatches.add(evaluationDate + " age " + minimumEntryAge + " service " + timeEmployedMonths
+                                    + ": " + employee + " SQL reason " + actual);
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(mismatches).isEmpty();
+    }
+
+    /**
+     * Ineligibility reason per individualId, NULL for participants that pass
+     */
+    private Map<String, String> sqlReasons(EligibilitySqlPredicate predicate) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("minimumEntryAge", predicate.getMinimumEntryAge())
+                .addValue("timeEmployedMonths", predicate.getTimeEmployedMonths())
+                .addValue("currentMonth", predicate.getCurrentMonth())
+                .addValue("currentDay", predicate.getCurrentDay());
+        Map<String, String> reasons = new HashMap<>();
+        namedJdbcTemplate.query("SELECT individual_id, " + EligibilitySqlPredicate.INELIGIBILITY_REASON + " AS reason"
+                        + " FROM finch_employee_details", parameters,
+                rs -> {
+                    reasons.put(rs.getString("individual_id"), rs.getString("reason"));
+                });
+        return reasons;
+    }
+
+    /**
+     * Fresh copies of the employees, evaluated by the rules
+     */
+    private List<EmployeeEligibilityDTO> evaluate(List<EmployeeEligibilityDTO> employees, PlanEligibility plan) {
+        List<EmployeeEligibilityDTO> copies = employees.stream().map(EligibilitySqlPredicateTest::copyOf).toList();
+        StatelessKieSession session = container.newStatelessKieSession("ksession-eligibility");
+        session.setGlobal("planEligibility", plan);
+        session.execute(copies);
+        return copies;
+    }
+
+    /**
+     * Random participants stored in finch_employee_details, as the eligibility processor converts them
+     */
+    private List<EmployeeEligibilityDTO> participants(Random random, LocalDate evaluationDate) {
+        List<EmployeeEligibilityDTO> employees = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            EmployeeEligibilityDTO employee = new EmployeeEligibilityDTO();
+            employee.setEmployeeId("emp-" + i);
+            employee.setCurrentDate(evaluationDate);
+            if (random.nextInt(10) > 0) {
+                employee.setDateOfBirth(evaluationDate.minusDays(random.nextInt(365 * 30)).minusYears(random.nextInt(3) + 15));
+            }
+            if (random.nextInt(10) > 0) {
+                employee.setHireDate(evaluationDate.minusDays(random.nextInt(500) - 20));
+            }
+            if (random.nextInt(4) == 0) {
+                employee.setRehireDate(evaluationDate.minusDays(random.nextInt(120)));
+            }
+            employee.setEmploymentStatus(random.nextInt(3) > 0 ? "ACTIVE" : STATUSES[random.nextInt(STATUSES.length)]);
+            employee.setEmploymentType(random.nextInt(3) > 0 ? "FULL_TIME" : TYPES[random.nextInt(TYPES.length)]);
+            employee.setEligibilityReason(EligibilityProcessingUtility.PENDING_EVALUATION_REASON);
+            employee.age = employee.getAge();
+            employee.monthsOfService = employee.getMonthsOfService();
+            employees.add(employee);
+            rows.add(new Object[] {UUID.randomUUID(), employee.getEmployeeId(), "tenant-1", sqlDate(employee.getDateOfBirth()),
+                    sqlDate(employee.getHireDate()), sqlDate(employee.getRehireDate()),
+                    employee.getEmploymentStatus(), employee.getEmploymentType()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO finch_employee_details (id, individual_id, tenant_id, dob, start_date,"
+                + " latest_rehire_date, employment_status, employment_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        return employees;
+    }
+
+    private static EmployeeEligibilityDTO copyOf(EmployeeEligibilityDTO source) {
+        EmployeeEligibilityDTO copy = new EmployeeEligibilityDTO();
+        copy.setEmployeeId(source.getEmployeeId());
+        copy.setCurrentDate(source.getCurrentDate());
+        copy.setDateOfBirth(source.getDateOfBirth());
+        copy.setHireDate(source.getHireDate());
+        copy.setRehireDate(source.getRehireDate());
+        copy.setEmploymentStatus(source.getEmploymentStatus());
+        copy.setEmploymentType(source.getEmploymentType());
+        copy.setEligibilityReason(source.getEligibilityReason());
+        copy.age = source.age;
+        copy.monthsOfService = source.monthsOfService;
+        return copy;
+    }
+
+    private static Date sqlDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+}
@@ -8,6 +8,7 @@ import com.glidingpath.finch.constants.FinchConstants;
 import com.glidingpath.core.entity.PlanParticipant;
 import com.glidingpath.finch.exception.FinchException;
 import com.glidingpath.common.util.ErrorCode;
+import com.glidingpath.rules.contributions.listener.BatchMetricsListener;
 import com.tryfinch.api.models.IndividualInDirectory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +29,7 @@ public class FinchEmployeeSyncBatchConfig {
 
     private final JobRepository jobRepository;
     private final PlatformTransactionManager transactionManager;
+    private final BatchMetricsListener metricsListener;
 
     @Bean
     public Job finchEmployeeSyncJob(FinchEmployeeReader reader, 
@@ -36,6 +38,7 @@ public class FinchEmployeeSyncBatchConfig {
                                   FinchEmployeeStepListener stepListener) {
         return new JobBuilder("finchEmployeeSyncJob", jobRepository)
                 .start(finchEmployeeSyncStep(reader, processor, writer, stepListener))
+                .listener(metricsListener)
                 .build();
     }
 
@@ -50,9 +53,11 @@ public class FinchEmployeeSyncBatchConfig {
                 .processor(processor)
                 .writer(writer)
                 .listener(stepListener)
+                .listener(metricsListener)
                 .faultTolerant()
                 .retry(Exception.class)
                 .retryLimit(FinchConstants.BATCH_RETRY_LIMIT)
+                .listener(metricsListener.getRetryListener())
                 .skipLimit(FinchConstants.SKIP_LIMIT)
                 .skipPolicy(new FinchSkipPolicy())
                 .build();
@@ -20,4 +20,5 @@ public class FinchConfig {
     private String sessionUrl; // Finch Connect sessions endpoint
     private String reauthUrl; // Finch reauthentication endpoint
     private String apiVersion; // Finch API version for headers
+    private String apiUrl; // Finch API base URL for the SDK client; the SDK's default when empty
 }
@@ -2,6 +2,7 @@ package com.glidingpath.finch.service.impl;
 
 import com.glidingpath.common.dto.FinchBenefitDTO;
 import com.glidingpath.common.service.FinchBenefitService;
+import com.glidingpath.finch.config.FinchConfig;
 import com.glidingpath.finch.service.TokenManager;
 import com.glidingpath.finch.service.impl.FinchClientFactory;
 import com.glidingpath.common.util.AppException;
@@ -10,6 +11,7 @@ import com.glidingpath.finch.repository.BenefitRepository;
 import com.glidingpath.core.entity.Benefit;
 import com.tryfinch.api.client.FinchClient;
 import com.tryfinch.api.core.JsonValue;
+import com.tryfinch.api.errors.RateLimitException;
 import com.tryfinch.api.models.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +22,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
@@ -36,6 +39,7 @@ public class FinchBenefitServiceImpl implements FinchBenefitService {
     private final FinchClientFactory finchClientFactory;
     private final TokenManager tokenManager;
     private final BenefitRepository benefitRepository;
+    private final FinchConfig finchConfig;
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -149,6 +153,9 @@ public class FinchBenefitServiceImpl implements FinchBenefitService {
             updateBenefitInDatabase(benefitId, tenantId, "enrollment", enrollments.size());
             return result;
             
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // Callers holding to the connection's rate limit back off and retry on this code
+            throw new AppException(ErrorCode.FINCH_RATE_LIMIT, "Finch rate limit exceeded", e);
         } catch (Exception e) {
             log.error("Error enrolling individuals for tenantId={}, benefitId={}: {}", tenantId, benefitId, e.getMessage(), e);
             throw new AppException(ErrorCode.INTERNAL_ERROR, "Failed to enroll individuals", e);
@@ -175,6 +182,18 @@ public class FinchBenefitServiceImpl implements FinchBenefitService {
         }
     }
     
+    @Override
+    public Map<String, Object> getJobStatus(String tenantId, String jobId) throws Exception {
+        log.debug("Getting job status for tenantId={}, jobId={}", tenantId, jobId);
+        try {
+            ResponseEntity<Map> response = makeHttpRequest("/jobs/automated/" + jobId, null, tenantId, HttpMethod.GET);
+            return new HashMap<>(response.getBody());
+        } catch (Exception e) {
+            log.error("Error getting job status for tenantId={}, jobId={}: {}", tenantId, jobId, e.getMessage(), e);
+            throw new AppException(ErrorCode.FINCH_API_ERROR, "Failed to get job status", e);
+        }
+    }
+    
     // Helper methods
     private HrisBenefitCreateParams buildCreateParams(Map<String, Object> requestBody) {
         HrisBenefitCreateParams.Builder builder = HrisBenefitCreateParams.builder()
@@ -222,7 +241,9 @@ public class FinchBenefitServiceImpl implements FinchBenefitService {
     }
 
     private ResponseEntity<Map> makeHttpRequest(String endpoint, Object body, String tenantId, HttpMethod method) throws Exception {
-        String url = "https://api.tryfinch.com" + endpoint;
+        String apiUrl = finchConfig.getApiUrl() != null && !finchConfig.getApiUrl().isBlank()
+            ? finchConfig.getApiUrl() : "https://api.tryfinch.com";
+        String url = apiUrl + endpoint;
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.set("Authorization", "Bearer " + tokenManager.getValidAccessToken(tenantId));
@@ -253,7 +274,10 @@ public class FinchBenefitServiceImpl implements FinchBenefitService {
     
     private void handleBenefitCreationError(Exception e, String tenantId) {
         String msg = e.getMessage();
-        if (msg != null && msg.contains("not_supported_by_provider")) {
+        if (e instanceof RateLimitException) {
+            // Callers holding to the connection's rate limit back off and retry on this code
+            throw new AppException(ErrorCode.FINCH_RATE_LIMIT, "Finch rate limit exceeded", e);
+        } else if (msg != null && msg.contains("not_supported_by_provider")) {
             throw new AppException(ErrorCode.INTERNAL_ERROR, "This feature is not supported by your payroll provider. Please remove company match or try a different provider.");
         } else if (msg != null && msg.contains("invalid_request")) {
             throw new AppException(ErrorCode.INTERNAL_ERROR, "Invalid request format. Please check the request parameters and try again.");
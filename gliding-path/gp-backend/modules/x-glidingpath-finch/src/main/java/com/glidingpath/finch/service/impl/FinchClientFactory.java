@@ -1,7 +1,9 @@
 package com.glidingpath.finch.service.impl;
 
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import com.glidingpath.finch.config.FinchConfig;
 import com.glidingpath.finch.service.TokenManager;
 import com.tryfinch.api.client.FinchClient;
 import com.tryfinch.api.client.okhttp.FinchOkHttpClient;
@@ -13,12 +15,17 @@ import lombok.RequiredArgsConstructor;
 public class FinchClientFactory {
 
 	private final TokenManager tokenManager;
+	private final FinchConfig finchConfig;
 
     public FinchClient createClient(String tenantId) throws Exception {
        String accessToken = tokenManager.getValidAccessToken(tenantId);
 
-        return FinchOkHttpClient.builder()
-                .accessToken(accessToken)
-                .build();
+        FinchOkHttpClient.Builder builder = FinchOkHttpClient.builder()
+                .accessToken(accessToken);
+        // finch.api-url points the client at another server, e.g. the local stand-in
+        if (StringUtils.hasText(finchConfig.getApiUrl())) {
+            builder.baseUrl(finchConfig.getApiUrl());
+        }
+        return builder.build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.glidingpath.finch.standin;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Starts the {@link FinchStandInServer} with the application under the finch-stand-in profile.
+ * The profile also points finch.api-url at it, see application-finch-stand-in.properties.
+ */
+@Configuration
+@Profile("finch-stand-in")
+public class FinchStandInConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public FinchStandInServer finchStandInServer(
+            @Value("${finch.stand-in.port:8089}") int port,
+            @Value("${finch.stand-in.latency-ms:200}") long latencyMillis,
+            @Value("${finch.stand-in.rate-limited-fraction:0}") double rateLimitedFraction,
+            @Value("${finch.stand-in.requests-per-second:0}") int requestsPerSecond) {
+        return new FinchStandInServer(port, latencyMillis, rateLimitedFraction, requestsPerSecond);
+    }
+}
@@ -0,0 +1,148 @@
+package com.glidingpath.finch.standin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local stand-in for the Finch API benefit endpoints the deduction step calls, for load runs
+ * without a Finch sandbox.
+ *
+ * POST /employer/benefits, POST /employer/benefits/{id}/individuals and GET /jobs/automated/{id}
+ * answer like Finch after a fixed latency; enrollment jobs are reported complete at once.
+ * Rate-limit errors (HTTP 429) are injected for a fraction of the requests, and for every request
+ * beyond a per-second limit when one is set. Requests are served on virtual threads, so the
+ * latency does not limit the requests in flight. Other paths answer 404.
+ */
+@Slf4j
+public class FinchStandInServer {
+
+    private final int port;
+    private final long latencyMillis;
+    private final double rateLimitedFraction;
+    private final int requestsPerSecond;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    // Requests admitted in the current second, packed as second << 32 | count
+    private final AtomicLong window = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param port                port to listen on, 0 for any free port
+     * @param latencyMillis       time each request takes before it is answered
+     * @param rateLimitedFraction fraction of the requests answered 429 at random, 0 for none
+     * @param requestsPerSecond   requests answered per second before the rest get 429, 0 for no limit
+     */
+    public FinchStandInServer(int port, long latencyMillis, double rateLimitedFraction, int requestsPerSecond) {
+        this.port = port;
+        this.latencyMillis = latencyMillis;
+        this.rateLimitedFraction = rateLimitedFraction;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Finch stand-in listening on port {}: {}ms latency, {} of requests rate-limited, {} requests/s",
+                getPort(), latencyMillis, rateLimitedFraction, requestsPerSecond > 0 ? requestsPerSecond : "unlimited");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            log.info("Finch stand-in stopped after {} requests, {} rate-limited", requests.get(), rateLimited.get());
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            String answer = answer(exchange.getRequestMethod(), exchange.getRequestURI().getPath());
+            if (answer == null) {
+                respond(exchange, 404, "{\"code\":404,\"message\":\"Not found\",\"name\":\"not_found_error\"}");
+                return;
+            }
+            requests.incrementAndGet();
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (isRateLimited()) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, "{\"code\":429,\"message\":\"Rate limit exceeded\",\"name\":\"rate_limit_error\"}");
+                return;
+            }
+            respond(exchange, 200, answer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finch's answer to a request, null for the paths the stand-in does not serve
+     */
+    private static String answer(String method, String path) {
+        if ("POST".equals(method) && "/employer/benefits".equals(path)) {
+            return "{\"benefit_id\":\"" + UUID.randomUUID() + "\",\"job_id\":\"" + UUID.randomUUID() + "\"}";
+        }
+        if ("POST".equals(method) && path.startsWith("/employer/benefits/") && path.endsWith("/individuals")) {
+            return "{\"job_id\":\"" + UUID.randomUUID() + "\"}";
+        }
+        if ("GET".equals(method) && path.startsWith("/jobs/automated/")) {
+            return "{\"job_id\":\"" + path.substring("/jobs/automated/".length()) + "\",\"status\":\"complete\"}";
+        }
+        return null;
+    }
+
+    private boolean isRateLimited() {
+        if (rateLimitedFraction > 0 && ThreadLocalRandom.current().nextDouble() < rateLimitedFraction) {
+            return true;
+        }
+        if (requestsPerSecond <= 0) {
+            return false;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        long admitted = window.updateAndGet(current -> current >>> 32 == second ? current + 1 : second << 32 | 1);
+        return (admitted & 0xFFFFFFFFL) > requestsPerSecond;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Tenant-scoped rule overrides: rows with a tenant_id replace the global row of the same name for that tenant
+ALTER TABLE rules_config ADD COLUMN tenant_id VARCHAR(255);
+
+-- Add indexes for better performance
+CREATE INDEX idx_rules_config_tenant_id ON rules_config(tenant_id);
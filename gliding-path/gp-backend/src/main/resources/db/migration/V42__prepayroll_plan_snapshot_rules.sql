@@ -0,0 +1,123 @@
+-- Migration: V42__prepayroll_plan_snapshot_rules.sql
+-- Rewrite the global pre-payroll rules against the PlanSnapshot global.
+-- The V18 rules declared package com.glidingpath.common.dto, which the kmodule
+-- (packages="rules") never loads, so pre-payroll amounts came from the Java fallback
+-- in CalculationBatchProcessor. These rules compute the same amounts from the snapshot.
+
+UPDATE rules_config
+SET rule_content = $RULES$
+package rules
+
+import com.glidingpath.common.dto.PrePayrollCalculationFact;
+import com.glidingpath.common.dto.PlanSnapshot;
+import java.math.BigDecimal;
+
+// Plan configuration, built once per job and plan version (see PlanSnapshot)
+global PlanSnapshot planSnapshot;
+
+// Contribution rules only read inputs and the snapshot; salience orders them
+// so each runs once per fact without re-matching after updates.
+
+// Rule 1: Calculate Employee Contribution (auto-enrollment and max rate are applied in the snapshot)
+rule "Calculate Employee Contribution"
+  salience 30
+when
+    $fact : PrePayrollCalculationFact(
+        employeeAnnualCompensation != null
+    )
+then
+    $fact.setEmployeeContribution(planSnapshot.employeeContribution($fact.getEmployeeAnnualCompensation()));
+    $fact.setCalculationReason("Employee contribution calculated: " + $fact.getEmployeeContributionPercent() + "% of " + $fact.getEmployeeAnnualCompensation());
+end
+
+// Rule 2: Calculate Employer Match by the plan's match formula, capped at the match limit
+rule "Calculate Employer Match"
+  salience 20
+when
+    $fact : PrePayrollCalculationFact(
+        employeeAnnualCompensation != null
+    )
+then
+    BigDecimal employerMatch = planSnapshot.employerMatch($fact.getEmployeeContribution(), $fact.getEmployeeAnnualCompensation());
+    $fact.setEmployerContribution(employerMatch);
+    $fact.setEmployerMatchPercent(PlanSnapshot.shareOf(employerMatch, $fact.getEmployeeAnnualCompensation()));
+    $fact.setCalculationReason($fact.getCalculationReason() + "; Employer match: " + planSnapshot.matchFormula() + " " + planSnapshot.matchPercent() + "%");
+end
+
+// Rule 3: Calculate Profit Sharing
+rule "Calculate Profit Sharing"
+  salience 20
+when
+    $fact : PrePayrollCalculationFact(
+        employeeAnnualCompensation != null
+    )
+then
+    $fact.setProfitSharingContribution(planSnapshot.profitSharing($fact.getEmployeeAnnualCompensation()));
+    $fact.setCalculationReason($fact.getCalculationReason() + "; Profit sharing: " + $fact.getProfitSharingPercent() + "% of compensation");
+end
+
+// Rule 4: Calculate Total Contributions
+rule "Calculate Total Contributions"
+  salience 10
+when
+    $fact : PrePayrollCalculationFact(
+        employeeAnnualCompensation != null
+    )
+then
+    BigDecimal totalContribution = $fact.getEmployeeContribution().add($fact.getEmployerContribution()).add($fact.getProfitSharingContribution());
+    $fact.setTotalContribution(totalContribution);
+    $fact.setCalculationReason($fact.getCalculationReason() + "; Total: " + totalContribution);
+end
+
+// Rule 5: Validate Employee Eligibility
+rule "Validate Employee Eligibility"
+when
+    $fact : PrePayrollCalculationFact(
+        employmentStatus != "ACTIVE"
+    )
+then
+    $fact.setEligible(false);
+    $fact.setCalculationReason("Not eligible: Employment status is " + $fact.getEmploymentStatus());
+end
+
+// Rule 6: Apply Service Requirements
+rule "Apply Service Requirements"
+when
+    $fact : PrePayrollCalculationFact(
+        monthsOfService != null,
+        monthsOfService < planSnapshot.minimumServiceMonths()
+    )
+then
+    $fact.setEligible(false);
+    $fact.setCalculationReason("Not eligible: Service duration " + $fact.getMonthsOfService() + " months (minimum " + planSnapshot.minimumServiceMonths() + " required)");
+end
+
+// Rule 7: Apply Age Requirements
+rule "Apply Age Requirements"
+when
+    $fact : PrePayrollCalculationFact(
+        age != null,
+        age < planSnapshot.minimumAge()
+    )
+then
+    $fact.setEligible(false);
+    $fact.setCalculationReason("Not eligible: Age " + $fact.getAge() + " (minimum " + planSnapshot.minimumAge() + " required)");
+end
+
+// Rule 8: Mark as Eligible if All Criteria Met
+rule "Mark as Eligible"
+when
+    $fact : PrePayrollCalculationFact(
+        employmentStatus == "ACTIVE",
+        monthsOfService != null,
+        age != null,
+        monthsOfService >= planSnapshot.minimumServiceMonths(),
+        age >= planSnapshot.minimumAge()
+    )
+then
+    $fact.setEligible(true);
+    $fact.setCalculationReason($fact.getCalculationReason() + "; Eligible: All criteria met");
+end
+$RULES$,
+    last_updated = NOW()
+WHERE name = 'prepayroll' AND tenant_id IS NULL;
@@ -0,0 +1,2 @@
+-- Keyset paging of the eligibility reader: WHERE tenant_id = ? AND id > ? ORDER BY id
+CREATE INDEX IF NOT EXISTS idx_finch_employee_tenant_id_id ON finch_employee_details(tenant_id, id);
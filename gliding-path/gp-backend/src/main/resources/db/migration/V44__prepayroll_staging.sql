@@ -0,0 +1,11 @@
+-- Hand-off between the steps of one prePayrollJob instance: ids found eligible (ELIGIBLE)
+-- and successful calculations (CALCULATED, payload = calculation_id), read back in keyset pages.
+-- Keyed by job instance so a restarted execution still finds the rows of the steps that completed.
+CREATE TABLE IF NOT EXISTS prepayroll_staging (
+    job_instance_id BIGINT NOT NULL REFERENCES batch_job_instance(job_instance_id) ON DELETE CASCADE,
+    stage VARCHAR(20) NOT NULL,
+    individual_id VARCHAR(255) NOT NULL,
+    payload VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (job_instance_id, stage, individual_id)
+);
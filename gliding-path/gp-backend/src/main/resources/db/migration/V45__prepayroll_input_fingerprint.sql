@@ -0,0 +1,6 @@
+-- Hash of the inputs a calculation was computed from (participant fields, plan snapshot, rule set).
+-- An incremental run carries a participant's latest result forward when the hash is unchanged.
+ALTER TABLE pre_payroll_calculations ADD COLUMN input_fingerprint VARCHAR(64);
+
+-- Latest calculation of each participant before a payroll period, looked up a page at a time
+CREATE INDEX IF NOT EXISTS idx_pre_payroll_calculations_employee_period_end ON pre_payroll_calculations(employee_id, payroll_period_end);
@@ -0,0 +1,15 @@
+-- One calculation per tenant, employee and payroll period. Calculation ids are now derived from the
+-- same key and rows are upserted on it, so a re-executed chunk or re-launched job updates its rows.
+
+-- Re-runs before this migration inserted another row per run; keep the latest of each period
+DELETE FROM pre_payroll_calculations c
+USING pre_payroll_calculations newer
+WHERE newer.tenant_id = c.tenant_id
+  AND newer.employee_id = c.employee_id
+  AND newer.payroll_period_start = c.payroll_period_start
+  AND newer.payroll_period_end = c.payroll_period_end
+  AND (newer.calculation_date, newer.id) > (c.calculation_date, c.id);
+
+ALTER TABLE pre_payroll_calculations
+    ADD CONSTRAINT uk_pre_payroll_calculations_employee_period
+    UNIQUE (tenant_id, employee_id, payroll_period_start, payroll_period_end);
@@ -0,0 +1,25 @@
+-- Finch enrolls individuals into a benefit asynchronously: each enrollment call of the deduction
+-- step returns a job id. The jobs are tracked here until Finch reports them complete, and each
+-- calculation keeps the id of the job that enrolled it.
+CREATE TABLE IF NOT EXISTS finch_enrollment_jobs (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    tenant_id VARCHAR(255) NOT NULL,
+    job_id VARCHAR(255) NOT NULL UNIQUE,
+    benefit_id VARCHAR(255) NOT NULL,
+    -- prePayrollJob instance that started the job; no foreign key, the history outlives batch metadata
+    job_instance_id BIGINT NOT NULL,
+    individual_count INTEGER NOT NULL,
+    -- Finch job status: pending, in_progress, complete, error, reauth_error, permissions_error
+    status VARCHAR(50) NOT NULL DEFAULT 'pending',
+    error_message TEXT,
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Jobs of a job instance still waiting for Finch
+CREATE INDEX IF NOT EXISTS idx_finch_enrollment_jobs_instance_status ON finch_enrollment_jobs(job_instance_id, status);
+
+ALTER TABLE pre_payroll_calculations ADD COLUMN finch_job_id VARCHAR(255);
+
+CREATE INDEX IF NOT EXISTS idx_pre_payroll_calculations_finch_job_id ON pre_payroll_calculations(finch_job_id);
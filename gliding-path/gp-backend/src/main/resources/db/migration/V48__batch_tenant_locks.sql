@@ -0,0 +1,18 @@
+-- Duplicate-launch guard of the batch jobs: one row per job and tenant while a job is launched or
+-- running. The process holding the row extends its lease while the job runs, and the job's
+-- listener deletes it when the job ends. A row whose lease has run out (its process died) is taken
+-- over by the next launch.
+CREATE TABLE IF NOT EXISTS batch_tenant_locks (
+    job_name VARCHAR(100) NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    -- Random token of the holder, passed to the job as a parameter
+    lock_token VARCHAR(64) NOT NULL,
+    -- Launches with the same key while the lock is held join the holder's execution
+    idempotency_key VARCHAR(255) NOT NULL,
+    -- Set by the job listener once the execution exists
+    job_execution_id BIGINT,
+    acquired_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    lease_expires_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (job_name, tenant_id)
+);
@@ -0,0 +1,25 @@
+-- Archive of the Spring Batch metadata removed by batchMetadataArchiveJob: one row per completed
+-- job instance, holding its executions, parameters, step executions and execution contexts as a
+-- gzip-compressed JSON document. The job deletes the instance's batch_* rows in the same
+-- transaction that inserts its archive row.
+CREATE TABLE IF NOT EXISTS batch_job_archive (
+    job_instance_id BIGINT PRIMARY KEY,
+    job_name VARCHAR(100) NOT NULL,
+    job_key VARCHAR(32) NOT NULL,
+    -- tenantId parameter of the completed execution; NULL for jobs without one
+    tenant_id VARCHAR(255),
+    end_time TIMESTAMP,
+    execution_count INT NOT NULL,
+    step_execution_count INT NOT NULL,
+    -- gzip of the JSON document, and the length of the JSON before compression
+    payload BYTEA NOT NULL,
+    payload_bytes INT NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_batch_job_archive_job_tenant_end ON batch_job_archive(job_name, tenant_id, end_time);
+
+-- The archival job looks up completed executions by end time, and deletes the parameters of the
+-- executions it archived; V12 indexed neither
+CREATE INDEX IF NOT EXISTS idx_batch_job_execution_status_end_time ON batch_job_execution(status, end_time);
+CREATE INDEX IF NOT EXISTS idx_batch_job_execution_params_job_execution_id ON batch_job_execution_params(job_execution_id);
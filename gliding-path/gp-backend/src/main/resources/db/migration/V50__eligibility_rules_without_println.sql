@@ -0,0 +1,10 @@
+-- Migration: V50__eligibility_rules_without_println.sql
+-- Remove the System.out.println debug lines from the consequences of the global eligibility rules.
+-- They ran for every fired rule, on the hot path of every eligibility chunk. Only those lines are
+-- removed, so the row still matches rules/standard/eligibility.drl (the standard rule set the Java
+-- fast path replaces) and any other edit to the row is kept.
+
+UPDATE rules_config
+SET rule_content = regexp_replace(rule_content, '\n[ \t]*System\.out\.println\([^\n]*', '', 'g'),
+    last_updated = CURRENT_TIMESTAMP
+WHERE name = 'eligibility' AND tenant_id IS NULL;